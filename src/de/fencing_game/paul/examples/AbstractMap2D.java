@@ -9,6 +9,15 @@ import java.util.*;
  * so they should be overwritten to be more efficient if
  * possible.
  *
+ * <p>
+ *   The views of the {@link #projection1Map() projections} are built on
+ *   four hook methods: {@link #keySet1()} and {@link #slice1 slice1(key1)}
+ *   (and the same for the second keys). Their implementations here scan
+ *   the whole entry set; an implementation which has an index per key
+ *   should override them, which makes the projections (and
+ *   their row maps) work in time proportional to the slice.
+ * </p>
+ *
  * @param <K1> the first key type.
  * @param <K2> the second key type.
  * @param <V> the value type.
@@ -17,6 +26,132 @@ public abstract class AbstractMap2D<K1,K2,V>
     implements Map2D<K1,K2,V>
 {
 
+    /**
+     * compares two objects, which may be null.
+     */
+    static boolean eq(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    /**
+     * returns the hash code of an object, or 0 for null.
+     */
+    static int hash(Object o) {
+        return o == null ? 0 : o.hashCode();
+    }
+
+
+    /**
+     * A simple immutable implementation of {@link Map2D.KeyPair}.
+     */
+    public static class SimpleKeyPair<K1,K2>
+        implements Map2D.KeyPair<K1,K2>
+    {
+        private final K1 key1;
+        private final K2 key2;
+
+        public SimpleKeyPair(K1 key1, K2 key2) {
+            this.key1 = key1;
+            this.key2 = key2;
+        }
+
+        public K1 getKey1() {
+            return key1;
+        }
+
+        public K2 getKey2() {
+            return key2;
+        }
+
+        public int hashCode() {
+            return hash(key1) * 13 + hash(key2) * 17;
+        }
+
+        public boolean equals(Object o) {
+            if(!(o instanceof Map2D.KeyPair)) {
+                return false;
+            }
+            Map2D.KeyPair<?,?> that = (Map2D.KeyPair<?,?>)o;
+            return eq(key1, that.getKey1()) && eq(key2, that.getKey2());
+        }
+
+        public String toString() {
+            return "(" + key1 + ", " + key2 + ")";
+        }
+    }
+
+
+    /**
+     * A base class for implementations of {@link Map2D.Entry}, which
+     * implements {@link #equals}, {@link #hashCode} and {@link #toString}
+     * using the getter methods.
+     */
+    public static abstract class AbstractEntry<K1,K2,V>
+        implements Map2D.Entry<K1,K2,V>
+    {
+        public int hashCode() {
+            return hash(getKey1()) * 7 + hash(getKey2()) * 3 +
+                hash(getValue()) * 5;
+        }
+
+        public boolean equals(Object o) {
+            if(!(o instanceof Map2D.Entry)) {
+                return false;
+            }
+            Map2D.Entry<?,?,?> that = (Map2D.Entry<?,?,?>)o;
+            return eq(getKey1(), that.getKey1()) &&
+                eq(getKey2(), that.getKey2()) &&
+                eq(getValue(), that.getValue());
+        }
+
+        public String toString() {
+            return "(" + getKey1() + ", " + getKey2() + ")=" + getValue();
+        }
+    }
+
+
+    /**
+     * A simple implementation of {@link Map2D.Entry}, which is not
+     * connected to any map.
+     */
+    public static class SimpleEntry<K1,K2,V>
+        extends AbstractEntry<K1,K2,V>
+    {
+        private final K1 key1;
+        private final K2 key2;
+        private V value;
+
+        public SimpleEntry(K1 key1, K2 key2, V value) {
+            this.key1 = key1;
+            this.key2 = key2;
+            this.value = value;
+        }
+
+        public SimpleEntry(Map2D.Entry<? extends K1, ? extends K2,
+                                       ? extends V> entry) {
+            this(entry.getKey1(), entry.getKey2(), entry.getValue());
+        }
+
+        public K1 getKey1() {
+            return key1;
+        }
+
+        public K2 getKey2() {
+            return key2;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            V old = this.value;
+            this.value = value;
+            return old;
+        }
+    }
+
+
     /**
      * returns a collection view of this map's entries.
      * Based on this method most of the other methods are
@@ -34,16 +169,724 @@ public abstract class AbstractMap2D<K1,K2,V>
 
     /**
      * returns true if the map is empty.
-     * This implementation returns {@code entrySet().isEmpty()}.
+     * This implementation returns {@code size() == 0}.
      */
     public boolean isEmpty() {
-        return entrySet().isEmpty();
+        return size() == 0;
     }
 
-    
+    /**
+     * returns true if this map contains a mapping for the specified key pair.
+     * This implementation searches the entry set.
+     */
     public boolean containsKeys(Object key1, Object key2) {
+        return findEntry(key1, key2) != null;
+    }
+
+    /**
+     * returns true if this map contains a mapping with this
+     * specified key as first key.
+     * This implementation searches the entry set.
+     */
+    public boolean containsKey1(Object key1) {
+        for(Map2D.Entry<K1,K2,V> entry : entrySet()) {
+            if(eq(key1, entry.getKey1())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * returns true if this map contains a mapping with this
+     * specified key as second key.
+     * This implementation searches the entry set.
+     */
+    public boolean containsKey2(Object key2) {
+        for(Map2D.Entry<K1,K2,V> entry : entrySet()) {
+            if(eq(key2, entry.getKey2())) {
+                return true;
+            }
+        }
         return false;
     }
 
+    /**
+     * returns true if this map contains a mapping with the
+     * specified value.
+     * This implementation searches the entry set.
+     */
+    public boolean containsValue(Object value) {
+        for(Map2D.Entry<K1,K2,V> entry : entrySet()) {
+            if(eq(value, entry.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * retrieves an element from the map.
+     * This implementation searches the entry set.
+     * @return null if there is no such pair of keys, else the value.
+     */
+    public V get(K1 key1, K2 key2) {
+        Map2D.Entry<K1,K2,V> entry = findEntry(key1, key2);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * returns the entry for a pair of keys, or null if there is none.
+     */
+    private Map2D.Entry<K1,K2,V> findEntry(Object key1, Object key2) {
+        for(Map2D.Entry<K1,K2,V> entry : entrySet()) {
+            if(eq(key1, entry.getKey1()) && eq(key2, entry.getKey2())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * puts a new element in the map.
+     * This implementation throws an UnsupportedOperationException.
+     */
+    public V put(K1 key1, K2 key2, V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * removes a mapping from this map.
+     * This implementation searches the entry set, and removes the
+     * mapping by its iterator.
+     * @return the old value, or null, if there was no such mapping.
+     */
+    public V remove(Object key1, Object key2) {
+        Iterator<Map2D.Entry<K1,K2,V>> it = entrySet().iterator();
+        while(it.hasNext()) {
+            Map2D.Entry<K1,K2,V> entry = it.next();
+            if(eq(key1, entry.getKey1()) && eq(key2, entry.getKey2())) {
+                V old = entry.getValue();
+                it.remove();
+                return old;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * puts all mappings from the specified 2d-map into this map.
+     * This implementation calls {@link #put} for each of them.
+     */
+    public void putAll(Map2D<? extends K1, ? extends K2, ? extends V> map) {
+        for(Map2D.Entry<? extends K1, ? extends K2, ? extends V> entry
+                : map.entrySet()) {
+            put(entry.getKey1(), entry.getKey2(), entry.getValue());
+        }
+    }
+
+    /**
+     * clears this map.
+     * This implementation calls {@code entrySet().clear()}.
+     */
+    public void clear() {
+        entrySet().clear();
+    }
+
+    /**
+     * returns a collection view of the values of this map.
+     * This implementation is based on the entry set.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            public int size() {
+                return AbstractMap2D.this.size();
+            }
+            public void clear() {
+                AbstractMap2D.this.clear();
+            }
+            public boolean contains(Object value) {
+                return containsValue(value);
+            }
+            public Iterator<V> iterator() {
+                final Iterator<Map2D.Entry<K1,K2,V>> it =
+                    entrySet().iterator();
+                return new Iterator<V>() {
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    public V next() {
+                        return it.next().getValue();
+                    }
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+        };
+    }  // values()
+
+
+    // -------------------- the hooks for the projections ------------------
+
+
+    /**
+     * returns a set view of the distinct first keys of this map.
+     * Removing a key removes all mappings with it.
+     * <p>
+     * This implementation collects the keys from the entry set,
+     * at the creation of each iterator (so it doesn't notice changes
+     * after this), and its size and iteration need O(n) time.
+     * </p>
+     */
+    protected Set<K1> keySet1() {
+        return new AbstractSet<K1>() {
+            public Iterator<K1> iterator() {
+                Set<K1> keys = new LinkedHashSet<K1>();
+                for(Map2D.Entry<K1,K2,V> entry : entrySet()) {
+                    keys.add(entry.getKey1());
+                }
+                final Iterator<K1> it = keys.iterator();
+                return new Iterator<K1>() {
+                    private K1 last;
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    public K1 next() {
+                        last = it.next();
+                        return last;
+                    }
+                    public void remove() {
+                        it.remove();
+                        slice1(last).clear();
+                    }
+                };
+            }
+            public int size() {
+                int size = 0;
+                for(Iterator<K1> it = iterator(); it.hasNext(); it.next()) {
+                    size++;
+                }
+                return size;
+            }
+            public boolean contains(Object key1) {
+                return containsKey1(key1);
+            }
+        };
+    }
+
+    /**
+     * returns a set view of the distinct second keys of this map.
+     * Removing a key removes all mappings with it.
+     * <p>
+     * This implementation collects the keys from the entry set,
+     * at the creation of each iterator (so it doesn't notice changes
+     * after this), and its size and iteration need O(n) time.
+     * </p>
+     */
+    protected Set<K2> keySet2() {
+        return new AbstractSet<K2>() {
+            public Iterator<K2> iterator() {
+                Set<K2> keys = new LinkedHashSet<K2>();
+                for(Map2D.Entry<K1,K2,V> entry : entrySet()) {
+                    keys.add(entry.getKey2());
+                }
+                final Iterator<K2> it = keys.iterator();
+                return new Iterator<K2>() {
+                    private K2 last;
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    public K2 next() {
+                        last = it.next();
+                        return last;
+                    }
+                    public void remove() {
+                        it.remove();
+                        slice2(last).clear();
+                    }
+                };
+            }
+            public int size() {
+                int size = 0;
+                for(Iterator<K2> it = iterator(); it.hasNext(); it.next()) {
+                    size++;
+                }
+                return size;
+            }
+            public boolean contains(Object key2) {
+                return containsKey2(key2);
+            }
+        };
+    }
+
+    /**
+     * returns a collection view of the entries with some first key.
+     * It supports removal (by iterator and {@code clear()}).
+     * <p>
+     * This implementation filters the entry set, at the creation of each
+     * iterator (so it doesn't notice changes after this), and its size
+     * and iteration need O(n) time.
+     * </p>
+     */
+    protected Collection<Map2D.Entry<K1,K2,V>> slice1(final Object key1) {
+        return new Slice() {
+            boolean matches(Map2D.Entry<K1,K2,V> entry) {
+                return eq(key1, entry.getKey1());
+            }
+        };
+    }
+
+    /**
+     * returns a collection view of the entries with some second key.
+     * It supports removal (by iterator and {@code clear()}).
+     * <p>
+     * This implementation filters the entry set, at the creation of each
+     * iterator (so it doesn't notice changes after this), and its size
+     * and iteration need O(n) time.
+     * </p>
+     */
+    protected Collection<Map2D.Entry<K1,K2,V>> slice2(final Object key2) {
+        return new Slice() {
+            boolean matches(Map2D.Entry<K1,K2,V> entry) {
+                return eq(key2, entry.getKey2());
+            }
+        };
+    }
+
+    /**
+     * the default implementation of the slices, filtering the entry set.
+     */
+    private abstract class Slice
+        extends AbstractCollection<Map2D.Entry<K1,K2,V>>
+    {
+        abstract boolean matches(Map2D.Entry<K1,K2,V> entry);
+
+        public Iterator<Map2D.Entry<K1,K2,V>> iterator() {
+            List<Map2D.Entry<K1,K2,V>> matching =
+                new ArrayList<Map2D.Entry<K1,K2,V>>();
+            for(Map2D.Entry<K1,K2,V> entry : entrySet()) {
+                if(matches(entry)) {
+                    matching.add(entry);
+                }
+            }
+            final Iterator<Map2D.Entry<K1,K2,V>> it = matching.iterator();
+            return new Iterator<Map2D.Entry<K1,K2,V>>() {
+                private Map2D.Entry<K1,K2,V> last;
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+                public Map2D.Entry<K1,K2,V> next() {
+                    last = it.next();
+                    return last;
+                }
+                public void remove() {
+                    if(last == null) {
+                        throw new IllegalStateException();
+                    }
+                    AbstractMap2D.this.remove(last.getKey1(),
+                                              last.getKey2());
+                    last = null;
+                }
+            };
+        }
+
+        public int size() {
+            int size = 0;
+            for(Map2D.Entry<K1,K2,V> entry : entrySet()) {
+                if(matches(entry)) {
+                    size++;
+                }
+            }
+            return size;
+        }
+    }
+
+
+    // ----------------------- the map views ------------------------
+
+
+    /**
+     * returns a map view as a map of key-pairs to values.
+     * <p>
+     * This implementation delegates the key based operations to the
+     * methods of this map, and the iteration to the entry set. Its
+     * entries create a new {@link SimpleKeyPair} for their key.
+     * </p>
+     */
+    public Map<KeyPair<K1,K2>, V> flattedMap() {
+        return new AbstractMap<KeyPair<K1,K2>, V>() {
+            public int size() {
+                return AbstractMap2D.this.size();
+            }
+            public void clear() {
+                AbstractMap2D.this.clear();
+            }
+            public boolean containsKey(Object key) {
+                if(!(key instanceof Map2D.KeyPair)) {
+                    return false;
+                }
+                Map2D.KeyPair<?,?> pair = (Map2D.KeyPair<?,?>)key;
+                return containsKeys(pair.getKey1(), pair.getKey2());
+            }
+            public boolean containsValue(Object value) {
+                return AbstractMap2D.this.containsValue(value);
+            }
+            @SuppressWarnings("unchecked")
+            public V get(Object key) {
+                if(!(key instanceof Map2D.KeyPair)) {
+                    return null;
+                }
+                Map2D.KeyPair<?,?> pair = (Map2D.KeyPair<?,?>)key;
+                return AbstractMap2D.this.get((K1)pair.getKey1(),
+                                              (K2)pair.getKey2());
+            }
+            public V put(KeyPair<K1,K2> key, V value) {
+                return AbstractMap2D.this.put(key.getKey1(), key.getKey2(),
+                                              value);
+            }
+            public V remove(Object key) {
+                if(!(key instanceof Map2D.KeyPair)) {
+                    return null;
+                }
+                Map2D.KeyPair<?,?> pair = (Map2D.KeyPair<?,?>)key;
+                return AbstractMap2D.this.remove(pair.getKey1(),
+                                                 pair.getKey2());
+            }
+            public Set<Map.Entry<KeyPair<K1,K2>,V>> entrySet() {
+                return new AbstractSet<Map.Entry<KeyPair<K1,K2>,V>>() {
+                    public int size() {
+                        return AbstractMap2D.this.size();
+                    }
+                    public void clear() {
+                        AbstractMap2D.this.clear();
+                    }
+                    public Iterator<Map.Entry<KeyPair<K1,K2>,V>> iterator()
+                    {
+                        final Iterator<Map2D.Entry<K1,K2,V>> it =
+                            AbstractMap2D.this.entrySet().iterator();
+                        return new Iterator<Map.Entry<KeyPair<K1,K2>,V>>() {
+                            public boolean hasNext() {
+                                return it.hasNext();
+                            }
+                            public Map.Entry<KeyPair<K1,K2>,V> next() {
+                                final Map2D.Entry<K1,K2,V> entry = it.next();
+                                KeyPair<K1,K2> pair =
+                                    new SimpleKeyPair<K1,K2>(entry.getKey1(),
+                                                             entry.getKey2());
+                                return new ViewEntry<KeyPair<K1,K2>>(pair,
+                                                                     entry);
+                            }
+                            public void remove() {
+                                it.remove();
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }  // flattedMap()
+
+    /**
+     * returns a map view as a map of maps, by first key first.
+     * <p>
+     * The inner maps are views, too, which stay connected to this map
+     * even after all their mappings were removed. Removing a mapping from
+     * the outer map removes all mappings with this first key (and returns
+     * a copy of them).
+     * </p>
+     * <p>
+     * This implementation is based on {@link #keySet1()} and
+     * {@link #slice1}, and on the key based methods of this map.
+     * </p>
+     */
+    public Map<K1, Map<K2, V>> projection1Map() {
+        return new Projection<K1,K2>() {
+            Set<K1> outerKeys() {
+                return keySet1();
+            }
+            Collection<Map2D.Entry<K1,K2,V>> slice(Object key1) {
+                return slice1(key1);
+            }
+            K2 inner(Map2D.Entry<K1,K2,V> entry) {
+                return entry.getKey2();
+            }
+            boolean contains(Object key1, Object key2) {
+                return containsKeys(key1, key2);
+            }
+            @SuppressWarnings("unchecked")
+            V get(Object key1, Object key2) {
+                return AbstractMap2D.this.get((K1)key1, (K2)key2);
+            }
+            V put(K1 key1, K2 key2, V value) {
+                return AbstractMap2D.this.put(key1, key2, value);
+            }
+            V removeMapping(Object key1, Object key2) {
+                return AbstractMap2D.this.remove(key1, key2);
+            }
+        };
+    }  // projection1Map()
+
+    /**
+     * returns a map view as a map of maps, by second key first.
+     * <p>
+     * The inner maps are views, too, which stay connected to this map
+     * even after all their mappings were removed. Removing a mapping from
+     * the outer map removes all mappings with this second key (and returns
+     * a copy of them).
+     * </p>
+     * <p>
+     * This implementation is based on {@link #keySet2()} and
+     * {@link #slice2}, and on the key based methods of this map.
+     * </p>
+     */
+    public Map<K2, Map<K1, V>> projection2Map() {
+        return new Projection<K2,K1>() {
+            Set<K2> outerKeys() {
+                return keySet2();
+            }
+            Collection<Map2D.Entry<K1,K2,V>> slice(Object key2) {
+                return slice2(key2);
+            }
+            K1 inner(Map2D.Entry<K1,K2,V> entry) {
+                return entry.getKey1();
+            }
+            boolean contains(Object key2, Object key1) {
+                return containsKeys(key1, key2);
+            }
+            @SuppressWarnings("unchecked")
+            V get(Object key2, Object key1) {
+                return AbstractMap2D.this.get((K1)key1, (K2)key2);
+            }
+            V put(K2 key2, K1 key1, V value) {
+                return AbstractMap2D.this.put(key1, key2, value);
+            }
+            V removeMapping(Object key2, Object key1) {
+                return AbstractMap2D.this.remove(key1, key2);
+            }
+        };
+    }  // projection2Map()
+
+    /**
+     * A {@link Map.Entry} view of a {@link Map2D.Entry}, with some key
+     * and writing through the value.
+     */
+    private final class ViewEntry<K> implements Map.Entry<K,V> {
+        private final K key;
+        private final Map2D.Entry<K1,K2,V> entry;
+
+        ViewEntry(K key, Map2D.Entry<K1,K2,V> entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return entry.getValue();
+        }
+
+        public V setValue(V value) {
+            return entry.setValue(value);
+        }
+
+        public boolean equals(Object o) {
+            if(!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?,?> that = (Map.Entry<?,?>)o;
+            return eq(key, that.getKey()) && eq(getValue(), that.getValue());
+        }
+
+        public int hashCode() {
+            return hash(key) ^ hash(getValue());
+        }
+
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /**
+     * a projection map, with outer keys of type A and inner keys of
+     * type B. The methods with two keys take the outer one first.
+     */
+    private abstract class Projection<A,B>
+        extends AbstractMap<A, Map<B,V>>
+    {
+        abstract Set<A> outerKeys();
+        abstract Collection<Map2D.Entry<K1,K2,V>> slice(Object a);
+        abstract B inner(Map2D.Entry<K1,K2,V> entry);
+        abstract boolean contains(Object a, Object b);
+        abstract V get(Object a, Object b);
+        abstract V put(A a, B b, V value);
+        abstract V removeMapping(Object a, Object b);
+
+        public int size() {
+            return outerKeys().size();
+        }
+
+        public boolean containsKey(Object a) {
+            return outerKeys().contains(a);
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map<B,V> get(Object a) {
+            return containsKey(a) ? row((A)a) : null;
+        }
+
+        /**
+         * removes all mappings with some outer key.
+         * @return a copy of the removed inner map, or null if there
+         *   were no such mappings.
+         */
+        public Map<B,V> remove(Object a) {
+            if(!containsKey(a)) {
+                return null;
+            }
+            Map<B,V> old = new LinkedHashMap<B,V>();
+            for(Map2D.Entry<K1,K2,V> entry : slice(a)) {
+                old.put(inner(entry), entry.getValue());
+            }
+            slice(a).clear();
+            return old;
+        }
+
+        /**
+         * replaces all mappings with some outer key.
+         * @return a copy of the old inner map, or null if there
+         *   were no such mappings.
+         */
+        public Map<B,V> put(A a, Map<B,V> map) {
+            Map<B,V> copy = new LinkedHashMap<B,V>(map);
+            Map<B,V> old = remove(a);
+            for(Map.Entry<B,V> entry : copy.entrySet()) {
+                put(a, entry.getKey(), entry.getValue());
+            }
+            return old;
+        }
+
+        public void clear() {
+            AbstractMap2D.this.clear();
+        }
+
+        public Set<A> keySet() {
+            return outerKeys();
+        }
+
+        public Set<Map.Entry<A, Map<B,V>>> entrySet() {
+            return new AbstractSet<Map.Entry<A, Map<B,V>>>() {
+                public int size() {
+                    return outerKeys().size();
+                }
+                public void clear() {
+                    AbstractMap2D.this.clear();
+                }
+                public Iterator<Map.Entry<A, Map<B,V>>> iterator() {
+                    final Iterator<A> it = outerKeys().iterator();
+                    return new Iterator<Map.Entry<A, Map<B,V>>>() {
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+                        public Map.Entry<A, Map<B,V>> next() {
+                            A a = it.next();
+                            return new SimpleImmutableEntry<A, Map<B,V>>
+                                (a, row(a));
+                        }
+                        public void remove() {
+                            it.remove();
+                        }
+                    };
+                }
+            };
+        }
+
+        /**
+         * returns the inner map for an outer key.
+         */
+        Map<B,V> row(final A a) {
+            return new AbstractMap<B,V>() {
+                public int size() {
+                    return slice(a).size();
+                }
+                public void clear() {
+                    slice(a).clear();
+                }
+                public boolean containsKey(Object b) {
+                    return contains(a, b);
+                }
+                public V get(Object b) {
+                    return Projection.this.get(a, b);
+                }
+                public V put(B b, V value) {
+                    return Projection.this.put(a, b, value);
+                }
+                public V remove(Object b) {
+                    return removeMapping(a, b);
+                }
+                public Set<Map.Entry<B,V>> entrySet() {
+                    return new AbstractSet<Map.Entry<B,V>>() {
+                        public int size() {
+                            return slice(a).size();
+                        }
+                        public void clear() {
+                            slice(a).clear();
+                        }
+                        public Iterator<Map.Entry<B,V>> iterator() {
+                            final Iterator<Map2D.Entry<K1,K2,V>> it =
+                                slice(a).iterator();
+                            return new Iterator<Map.Entry<B,V>>() {
+                                public boolean hasNext() {
+                                    return it.hasNext();
+                                }
+                                public Map.Entry<B,V> next() {
+                                    Map2D.Entry<K1,K2,V> entry = it.next();
+                                    return new ViewEntry<B>(inner(entry),
+                                                            entry);
+                                }
+                                public void remove() {
+                                    it.remove();
+                                }
+                            };
+                        }
+                    };
+                }
+            };
+        }  // row()
+    }
+
+
+    // ----------------------- Object methods ------------------------
+
+
+    /**
+     * compares this map with another object.
+     * This implementation compares the entry sets.
+     */
+    public boolean equals(Object that) {
+        if(that == this) {
+            return true;
+        }
+        if(!(that instanceof Map2D)) {
+            return false;
+        }
+        return entrySet().equals(((Map2D<?,?,?>)that).entrySet());
+    }
+
+    /**
+     * The hashCode is defined as the {@link #entrySet()}{@code .hashCode()}.
+     */
+    public int hashCode() {
+        return entrySet().hashCode();
+    }
+
+    /**
+     * returns a string representation of this map, listing the entries.
+     */
+    public String toString() {
+        return entrySet().toString();
+    }
 
-}
\ No newline at end of file
+}
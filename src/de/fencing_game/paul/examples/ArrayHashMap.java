@@ -1,16 +1,28 @@
 package de.fencing_game.paul.examples;
 
 import java.util.*;
+import java.util.function.*;
 
 /**
  * A combination of ArrayList and HashMap which allows O(1) for read and
  * modifiying access by index and by key.
  * <p>
- *   Removal (either by key or by index) is O(n), though,
+ *   Removal (either by key or by index) is O(n) by default, though,
  *   as is indexed addition of a new Entry somewhere else than the end.
  *   (Adding at the end is in amortized O(1).)
  * </p>
  * <p>
+ *   Alternatively, a map can be created with a <em>maximal dead
+ *   fraction</em> (see {@link #ArrayHashMap(float)}). Then removal only
+ *   leaves a tombstone in the backing list, in O(1) time, and the list is
+ *   compacted when the fraction of tombstones gets bigger than the given
+ *   one (which gives amortized O(1) removal). While there are tombstones,
+ *   the access by index finds the slot of an index using a
+ *   {@link FenwickTree Fenwick tree} over the live slots, in O(log n) time;
+ *   without tombstones (e.g. right after compaction, or if nothing was
+ *   removed) it stays O(1).
+ * </p>
+ * <p>
  *   (The O(1) complexity for key based operations is under the condition
  *    "if the hashCode() method of the keys has a suitable distribution and
  *     takes constant time", as for any hash-based data structure.)
@@ -22,6 +34,10 @@ import java.util.*;
  * </p>
  * <p>
  *   This class is not thread-safe (like ArrayList and HashMap themselves).
+ *   The iterators of the views are fail-fast. Their spliterators split
+ *   by ranges of indexes and know their exact sizes, so parallel streams
+ *   of the views divide the work evenly. The bulk {@code removeIf} methods
+ *   of the views compact the backing list only once.
  * </p>
  * <p>
  *  This class is inspired by the question
@@ -34,24 +50,522 @@ public class ArrayHashMap<K,V>
     implements IndexedMap<K,V>
 {
 
+    /**
+     * The entries of our map. They know their slot in the backing list.
+     */
+    private static class Entry<K,V> extends SimpleEntry<K,V> {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the index of this entry in {@link ArrayHashMap#entries}.
+         */
+        int slot;
+
+        Entry(K key, V value) {
+            super(key, value);
+        }
+    }
+
     /**
      * Our backing map.
      */
-    private Map<K, SimpleEntry<K,V>> baseMap;
+    private Map<K, Entry<K,V>> baseMap;
     /**
-     * our backing list.
+     * our backing list. Removed entries leave a {@code null} (a tombstone)
+     * here, until the next compaction.
      */
-    private List<SimpleEntry<K,V>> entries;
-    
+    private ArrayList<Entry<K,V>> entries;
+
+    /**
+     * the number of tombstones in {@link #entries}.
+     */
+    private int dead;
+
     /**
-     * creates a new ArrayHashMap with default parameters.
-     * (TODO: add more constructors which allow tuning.)
+     * the maximal fraction of tombstones in {@link #entries} before
+     * we compact it.
+     */
+    private final float maxDeadFraction;
+
+    /**
+     * counts the live entries in each slot, to find the slot of an index
+     * while there are tombstones. This is null if not built yet (or
+     * outdated), and is then built on the next indexed access.
+     */
+    private FenwickTree ranks;
+
+    /**
+     * the number of structural modifications, for the fail-fast iterators.
+     */
+    private int modCount;
+
+    /**
+     * the number of compactions, so our iterators know when their
+     * slot is outdated.
+     */
+    private int compactions;
+
+    /**
+     * creates a new ArrayHashMap with default parameters, which
+     * removes entries eagerly (in O(n) time) and keeps the access by
+     * index in O(1).
      */
     public ArrayHashMap() {
-        this.baseMap = new HashMap<K,SimpleEntry<K,V>>();
-        this.entries = new ArrayList<SimpleEntry<K,V>>();
+        this(0);
     }
 
+    /**
+     * creates a new ArrayHashMap with a given removal mode.
+     * @param maxDeadFraction the maximal fraction of removed entries which
+     *    may remain as tombstones in the backing list. For 0 each removal
+     *    compacts the list at once (in O(n) time, like
+     *    {@link ArrayList#remove}). For a bigger fraction (like 0.25)
+     *    the compaction is done only after
+     *    {@code maxDeadFraction · size} removals, which makes removal
+     *    amortized O(1/maxDeadFraction), while the indexed access needs
+     *    O(log n) time while there are tombstones.
+     * @throws IllegalArgumentException if the fraction is not in [0, 1).
+     */
+    public ArrayHashMap(float maxDeadFraction) {
+        if(!(0 <= maxDeadFraction && maxDeadFraction < 1)) {
+            throw new IllegalArgumentException("maxDeadFraction not in " +
+                                               "[0, 1): " + maxDeadFraction);
+        }
+        this.maxDeadFraction = maxDeadFraction;
+        this.baseMap = new HashMap<K,Entry<K,V>>();
+        this.entries = new ArrayList<Entry<K,V>>();
+    }
+
+
+    // ---------------- slot management -------------------
+
+
+    /**
+     * adds a new entry at the end.
+     */
+    private void append(Entry<K,V> entry) {
+        entry.slot = entries.size();
+        entries.add(entry);
+        baseMap.put(entry.getKey(), entry);
+        if(ranks != null) {
+            if(entry.slot < ranks.capacity()) {
+                ranks.add(entry.slot, 1);
+            }
+            else {
+                ranks = null;
+            }
+        }
+        modCount++;
+    }
+
+    /**
+     * removes an entry (which must be in this map), leaving a tombstone
+     * in its slot, and compacts the list if there are too many of them.
+     */
+    private void removeEntry(Entry<K,V> entry) {
+        baseMap.remove(entry.getKey());
+        int slot = slotOf(entry);
+        if(ranks != null) {
+            ranks.add(slot, -1);
+        }
+        if(slot == entries.size() - 1) {
+            // no tombstone needed at the end, and the ones before go, too.
+            entries.remove(slot);
+            while(dead > 0 && entries.get(entries.size() - 1) == null) {
+                entries.remove(entries.size() - 1);
+                dead--;
+            }
+        }
+        else if(maxDeadFraction == 0) {
+            entries.remove(slot);
+            compactions++;
+        }
+        else {
+            entries.set(slot, null);
+            dead++;
+            if(dead > maxDeadFraction * entries.size()) {
+                compact();
+            }
+        }
+        modCount++;
+    }
+
+    /**
+     * removes all tombstones from the backing list.
+     *
+     * This method runs in O(n) time.
+     */
+    private void compact() {
+        int live = 0;
+        for(int i = 0; i < entries.size(); i++) {
+            Entry<K,V> entry = entries.get(i);
+            if(entry != null) {
+                entry.slot = live;
+                entries.set(live, entry);
+                live++;
+            }
+        }
+        entries.subList(live, entries.size()).clear();
+        dead = 0;
+        ranks = null;
+        compactions++;
+    }
+
+    /**
+     * updates the slot numbers of the entries after (and including)
+     * some slot, after adding or removing in the middle of a compacted
+     * list.
+     */
+    private void renumber(int from) {
+        if(maxDeadFraction > 0) {
+            for(int i = from; i < entries.size(); i++) {
+                entries.get(i).slot = i;
+            }
+        }
+        ranks = null;
+    }
+
+    /**
+     * returns the slot of an entry (which must be in this map).
+     * <p>
+     * In the eager removal mode (without tombstones) we don't keep the
+     * slot numbers up to date, as this would make each removal touch all
+     * the following entries (instead of only moving the references), and
+     * search the slot instead, in O(n) time.
+     * </p>
+     */
+    private int slotOf(Entry<K,V> entry) {
+        if(maxDeadFraction > 0) {
+            return entry.slot;
+        }
+        for(int i = 0; ; i++) {
+            if(entries.get(i) == entry) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * returns the entry with some index.
+     *
+     * This method runs in O(1) time if there are no tombstones,
+     * else in O(log n).
+     *
+     * @throws IndexOutOfBoundsException if there is no such index.
+     */
+    private Entry<K,V> entry(int index) {
+        if(index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index +
+                                                ", size: " + size());
+        }
+        return entries.get(slot(index));
+    }
+
+    /**
+     * returns the slot of some (valid) index.
+     *
+     * This method runs in O(1) time if there are no tombstones,
+     * else in O(log n).
+     */
+    private int slot(int index) {
+        if(dead == 0) {
+            return index;
+        }
+        return ranks().select(index);
+    }
+
+    /**
+     * returns the index of an entry (which must be in this map).
+     *
+     * This method runs in O(1) time if there are no tombstones,
+     * else in O(log n) (and in O(n) in the eager removal mode).
+     */
+    private int indexOf(Entry<K,V> entry) {
+        if(dead == 0) {
+            return slotOf(entry);
+        }
+        return ranks().prefixSum(entry.slot);
+    }
+
+    /**
+     * returns the Fenwick tree of the live slots, building it if needed
+     * (in O(n) time).
+     */
+    private FenwickTree ranks() {
+        if(ranks == null) {
+            int[] live = new int[entries.size()];
+            for(int i = 0; i < live.length; i++) {
+                live[i] = entries.get(i) == null ? 0 : 1;
+            }
+            // some room for adding at the end.
+            ranks = new FenwickTree(live, live.length, 2 * live.length);
+        }
+        return ranks;
+    }
+
+    /**
+     * an iterator over the entries in index order, which skips the
+     * tombstones.
+     */
+    private abstract class EntryIterator<E> implements Iterator<E> {
+
+        /**
+         * the slot where we start searching for the next entry.
+         */
+        private int slot;
+        /**
+         * the index of the next entry.
+         */
+        private int index;
+        private Entry<K,V> lastReturned;
+        private int expectedModCount = modCount;
+        private int expectedCompactions = compactions;
+
+        /**
+         * returns the element for an entry.
+         */
+        abstract E extract(Entry<K,V> entry);
+
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        public E next() {
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<K,V> entry = entries.get(slot);
+            while(entry == null) {
+                slot++;
+                entry = entries.get(slot);
+            }
+            slot++;
+            index++;
+            lastReturned = entry;
+            return extract(entry);
+        }
+
+        public void remove() {
+            if(lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeEntry(lastReturned);
+            lastReturned = null;
+            index--;
+            if(compactions != expectedCompactions) {
+                // the slots are dense now.
+                slot = index;
+                expectedCompactions = compactions;
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * a spliterator over a range of indexes, which splits in the middle
+     * (so the parts know their exact sizes). It walks the backing list
+     * like {@link EntryIterator}, skipping the tombstones.
+     * <p>
+     * The range is bound at the first use (to the whole map, for a
+     * spliterator of a view). If there are tombstones, this also builds
+     * the Fenwick tree, so the parts split off later only read it (even
+     * if they run in other threads).
+     * </p>
+     */
+    private abstract class IndexSpliterator<E> implements Spliterator<E> {
+
+        /**
+         * the index of the next entry.
+         */
+        private int index;
+        /**
+         * the end of our range (exclusive), or -1 if not bound yet.
+         */
+        private int fence;
+        /**
+         * the slot where we start searching for the next entry, or -1
+         * if not yet searched for {@link #index}.
+         */
+        private int slot = -1;
+        private int expectedModCount;
+
+        IndexSpliterator(int index, int fence, int expectedModCount) {
+            this.index = index;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        /**
+         * returns the element for an entry.
+         */
+        abstract E extract(Entry<K,V> entry);
+
+        /**
+         * creates a spliterator of the same kind for a part of our range.
+         */
+        abstract IndexSpliterator<E> split(int index, int fence,
+                                           int expectedModCount);
+
+        private int fence() {
+            if(fence < 0) {
+                fence = size();
+                expectedModCount = modCount;
+                if(dead > 0) {
+                    ranks();
+                }
+            }
+            return fence;
+        }
+
+        private Entry<K,V> nextEntry() {
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if(slot < 0) {
+                slot = slot(index);
+            }
+            Entry<K,V> entry = entries.get(slot);
+            while(entry == null) {
+                slot++;
+                entry = entries.get(slot);
+            }
+            slot++;
+            index++;
+            return entry;
+        }
+
+        public IndexSpliterator<E> trySplit() {
+            int lo = index;
+            int mid = (lo + fence()) >>> 1;
+            if(lo >= mid) {
+                return null;
+            }
+            index = mid;
+            slot = -1;
+            return split(lo, mid, expectedModCount);
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if(action == null) {
+                throw new NullPointerException();
+            }
+            if(index >= fence()) {
+                return false;
+            }
+            action.accept(extract(nextEntry()));
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            if(action == null) {
+                throw new NullPointerException();
+            }
+            int hi = fence();
+            while(index < hi) {
+                action.accept(extract(nextEntry()));
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        public long estimateSize() {
+            return fence() - index;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
+    private final class KeySpliterator extends IndexSpliterator<K> {
+        KeySpliterator(int index, int fence, int expectedModCount) {
+            super(index, fence, expectedModCount);
+        }
+        K extract(Entry<K,V> entry) {
+            return entry.getKey();
+        }
+        KeySpliterator split(int index, int fence, int expectedModCount) {
+            return new KeySpliterator(index, fence, expectedModCount);
+        }
+        public int characteristics() {
+            return super.characteristics() | DISTINCT;
+        }
+    }
+
+    private final class ValueSpliterator extends IndexSpliterator<V> {
+        ValueSpliterator(int index, int fence, int expectedModCount) {
+            super(index, fence, expectedModCount);
+        }
+        V extract(Entry<K,V> entry) {
+            return entry.getValue();
+        }
+        ValueSpliterator split(int index, int fence, int expectedModCount) {
+            return new ValueSpliterator(index, fence, expectedModCount);
+        }
+    }
+
+    private final class EntrySpliterator
+        extends IndexSpliterator<Map.Entry<K,V>>
+    {
+        EntrySpliterator(int index, int fence, int expectedModCount) {
+            super(index, fence, expectedModCount);
+        }
+        Map.Entry<K,V> extract(Entry<K,V> entry) {
+            return entry;
+        }
+        EntrySpliterator split(int index, int fence, int expectedModCount) {
+            return new EntrySpliterator(index, fence, expectedModCount);
+        }
+        public int characteristics() {
+            return super.characteristics() | DISTINCT | NONNULL;
+        }
+    }
+
+    /**
+     * removes all entries for which a filter returns true. The filter is
+     * asked for all entries first (so an exception from it doesn't change
+     * the map), then the backing list is compacted once.
+     *
+     * This method runs in O(n) time (in both removal modes).
+     *
+     * @return true if any entry was removed.
+     */
+    private boolean removeEntries(Predicate<? super Entry<K,V>> filter) {
+        int expectedModCount = modCount;
+        BitSet removed = new BitSet(entries.size());
+        for(int slot = 0; slot < entries.size(); slot++) {
+            Entry<K,V> entry = entries.get(slot);
+            if(entry != null && filter.test(entry)) {
+                removed.set(slot);
+            }
+        }
+        if(modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        if(removed.isEmpty()) {
+            return false;
+        }
+        for(int slot = removed.nextSetBit(0); slot >= 0;
+            slot = removed.nextSetBit(slot + 1)) {
+            baseMap.remove(entries.get(slot).getKey());
+            entries.set(slot, null);
+            dead++;
+        }
+        compact();
+        modCount++;
+        return true;
+    }
+
+
+    // ---------------- map operations -------------------
+
 
     /**
      * puts a new key-value mapping, or changes an existing one.
@@ -65,11 +579,9 @@ public class ArrayHashMap<K,V>
      * @return the old value, if such, else null.
      */
     public V put(K key, V value) {
-        SimpleEntry<K,V> entry = baseMap.get(key);
+        Entry<K,V> entry = baseMap.get(key);
         if(entry == null) {
-            entry = new SimpleEntry<K,V>(key, value);
-            baseMap.put(key, entry);
-            entries.add(entry);
+            append(new Entry<K,V>(key, value));
             return null;
         }
         return entry.setValue(value);
@@ -84,7 +596,7 @@ public class ArrayHashMap<K,V>
      *   else the value for the key.
      */
     public V get(Object key) {
-        SimpleEntry<K,V> entry = baseMap.get(key);
+        Entry<K,V> entry = baseMap.get(key);
         return entry == null ? null : entry.getValue();
     }
 
@@ -101,38 +613,105 @@ public class ArrayHashMap<K,V>
     /**
      * removes a key from the map.
      *
-     *   This method runs in O(n) time, n being the size of this map.
+     *   This method runs in O(n) time, n being the size of this map,
+     *   or in amortized O(1) time if tombstones are allowed.
      *
      * @return the old value, if any.
      */
     public V remove(Object key) {
-        SimpleEntry<K,V> entry = baseMap.remove(key);
+        Entry<K,V> entry = baseMap.get(key);
         if(entry == null) {
             return null;
         }
-        entries.remove(entry);
+        removeEntry(entry);
         return entry.getValue();
     }
 
+    /**
+     * returns the number of mappings in this map.
+     *
+     *   This method runs in O(1) time.
+     */
+    public int size() {
+        return entries.size() - dead;
+    }
+
+    /**
+     * removes all mappings from this map.
+     */
+    public void clear() {
+        baseMap.clear();
+        entries.clear();
+        dead = 0;
+        ranks = null;
+        modCount++;
+    }
+
 
     /**
      * returns a key by index.
      *
-     *   This method runs in O(1) time.
+     *   This method runs in O(1) time (O(log n) while there are
+     *   tombstones).
      *
      */
     public K getKey(int index) {
-        return entries.get(index).getKey();
+        return entry(index).getKey();
     }
 
     /**
      * returns a value by index.
      *
-     *   This method runs in O(1) time.
+     *   This method runs in O(1) time (O(log n) while there are
+     *   tombstones).
      *
      */
     public V getValue(int index) {
-        return entries.get(index).getValue();
+        return entry(index).getValue();
+    }
+
+    /**
+     * calls an action for each mapping, in index order.
+     *
+     *   This method runs in O(n) time.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if(action == null) {
+            throw new NullPointerException();
+        }
+        int expectedModCount = modCount;
+        for(int slot = 0; slot < entries.size(); slot++) {
+            Entry<K,V> entry = entries.get(slot);
+            if(entry != null) {
+                action.accept(entry.getKey(), entry.getValue());
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * replaces each value by the result of a function, in index order.
+     *
+     *   This method runs in O(n) time.
+     */
+    public void replaceAll(BiFunction<? super K, ? super V,
+                                      ? extends V> function) {
+        if(function == null) {
+            throw new NullPointerException();
+        }
+        int expectedModCount = modCount;
+        for(int slot = 0; slot < entries.size(); slot++) {
+            Entry<K,V> entry = entries.get(slot);
+            if(entry != null) {
+                entry.setValue(function.apply(entry.getKey(),
+                                              entry.getValue()));
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
     }
 
     /**
@@ -140,17 +719,18 @@ public class ArrayHashMap<K,V>
      *
      * This set view is ordered by the indexes.
      *
-     * It supports removal by key or iterator in O(n) time.
+     * It supports removal by key or iterator in the same time as
+     * {@link #remove}.
      * Containment check runs in O(1).
      */
     public Set<K> keySet() {
         return new AbstractSet<K>() {
             public void clear() {
-                entryList().clear();
+                ArrayHashMap.this.clear();
             }
 
             public int size() {
-                return entries.size();
+                return ArrayHashMap.this.size();
             }
 
             public Iterator<K> iterator() {
@@ -164,6 +744,18 @@ public class ArrayHashMap<K,V>
             public boolean contains(Object key) {
                 return keyList().contains(key);
             }
+
+            public Spliterator<K> spliterator() {
+                return keyList().spliterator();
+            }
+
+            public void forEach(Consumer<? super K> action) {
+                keyList().forEach(action);
+            }
+
+            public boolean removeIf(Predicate<? super K> filter) {
+                return keyList().removeIf(filter);
+            }
         };
     }  // keySet()
 
@@ -172,7 +764,8 @@ public class ArrayHashMap<K,V>
      *
      * This set view is ordered by the indexes.
      *
-     * It supports removal by entry or iterator in O(n) time.
+     * It supports removal by entry or iterator in the same time as
+     * {@link #remove}.
      *
      * It supports adding new entries at the end, if the key
      * is not already used in this map, in amortized O(1) time.
@@ -183,11 +776,11 @@ public class ArrayHashMap<K,V>
         return new AbstractSet<Map.Entry<K,V>>() {
 
             public void clear() {
-                entryList().clear();
+                ArrayHashMap.this.clear();
             }
 
             public int size() {
-                return entries.size();
+                return ArrayHashMap.this.size();
             }
             public Iterator<Map.Entry<K,V>> iterator() {
                 return entryList().iterator();
@@ -204,7 +797,18 @@ public class ArrayHashMap<K,V>
                 return entryList().remove(o);
             }
 
+            public Spliterator<Map.Entry<K,V>> spliterator() {
+                return entryList().spliterator();
+            }
+
+            public void forEach(Consumer<? super Map.Entry<K,V>> action) {
+                entryList().forEach(action);
+            }
 
+            public boolean removeIf(Predicate<? super Map.Entry<K,V>>
+                                    filter) {
+                return entryList().removeIf(filter);
+            }
         };
     }  // entrySet()
 
@@ -213,45 +817,67 @@ public class ArrayHashMap<K,V>
      *
      * This list view is ordered by the indexes.
      *
-     * It supports removal by entry, iterator or sublist.clear in O(n) time.
+     * It supports removal by entry or iterator in the same time as
+     * {@link #remove}, and by sublist.clear in O(n) time
      * (n being the length of the total list, not the sublist).
      *
      * It supports adding new entries at the end, if the key
      * is not already used in this map, in amortized O(1) time.
+     * Adding somewhere else needs O(n) time.
      *
      * Containment check runs in O(1).
      */
     public List<Map.Entry<K,V>> entryList() {
         return new AbstractList<Map.Entry<K,V>>() {
             public void clear() {
-                baseMap.clear();
-                entries.clear();
+                ArrayHashMap.this.clear();
             }
             public Map.Entry<K,V> get(int index) {
-                return entries.get(index);
+                return entry(index);
             }
             public int size() {
-                return entries.size();
+                return ArrayHashMap.this.size();
+            }
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return new EntryIterator<Map.Entry<K,V>>() {
+                    Map.Entry<K,V> extract(Entry<K,V> entry) {
+                        return entry;
+                    }
+                };
             }
             public Map.Entry<K,V> remove(int index) {
-                Map.Entry<K,V> e = entries.remove(index);
-                baseMap.remove(e.getKey());
+                Entry<K,V> e = entry(index);
+                removeEntry(e);
                 return e;
             }
             public void add(int index, Map.Entry<K,V> newEntry) {
                 K key = newEntry.getKey();
-                SimpleEntry<K,V> clone = new SimpleEntry<K,V>(newEntry);
                 if(baseMap.containsKey(key)) {
                     throw new IllegalArgumentException("duplicate key " +
                                                        key);
                 }
+                if(index < 0 || index > size()) {
+                    throw new IndexOutOfBoundsException("index: " + index +
+                                                        ", size: " + size());
+                }
+                Entry<K,V> clone =
+                    new Entry<K,V>(key, newEntry.getValue());
+                if(index == size()) {
+                    append(clone);
+                    return;
+                }
+                if(dead > 0) {
+                    compact();
+                }
                 entries.add(index, clone);
                 baseMap.put(key, clone);
+                renumber(index);
+                modCount++;
             }
 
             public boolean contains(Object o) {
                 if(o instanceof Map.Entry) {
-                    SimpleEntry<K,V> inMap =
+                    Entry<K,V> inMap =
                         baseMap.get(((Map.Entry<?,?>)o).getKey());
                     return inMap != null &&
                         inMap.equals(o);
@@ -260,12 +886,11 @@ public class ArrayHashMap<K,V>
             }
 
             public boolean remove(Object o) {
-                if (!(o instanceof Map.Entry)) {
+                if (o instanceof Map.Entry) {
                     Map.Entry<?,?> e = (Map.Entry<?,?>)o;
-                    SimpleEntry<K,V> inMap = baseMap.get(e.getKey());
+                    Entry<K,V> inMap = baseMap.get(e.getKey());
                     if(inMap != null && inMap.equals(e)) {
-                        entries.remove(inMap);
-                        baseMap.remove(inMap.getKey());
+                        removeEntry(inMap);
                         return true;
                     }
                 }
@@ -273,14 +898,34 @@ public class ArrayHashMap<K,V>
             }
 
             protected void removeRange(int fromIndex, int toIndex) {
-                List<SimpleEntry<K,V>> subList =
+                if(dead > 0) {
+                    compact();
+                }
+                List<Entry<K,V>> subList =
                     entries.subList(fromIndex, toIndex);
-                for(SimpleEntry<K,V> entry : subList){
+                for(Entry<K,V> entry : subList){
                     baseMap.remove(entry.getKey());
                 }
                 subList.clear();
+                renumber(fromIndex);
+                modCount++;
             }
 
+            public Spliterator<Map.Entry<K,V>> spliterator() {
+                return new EntrySpliterator(0, -1, 0);
+            }
+
+            public void forEach(Consumer<? super Map.Entry<K,V>> action) {
+                spliterator().forEachRemaining(action);
+            }
+
+            public boolean removeIf(Predicate<? super Map.Entry<K,V>>
+                                    filter) {
+                if(filter == null) {
+                    throw new NullPointerException();
+                }
+                return removeEntries(filter);
+            }
         };
     }   // entryList()
 
@@ -289,34 +934,45 @@ public class ArrayHashMap<K,V>
      * Returns a List view of the keys in this map.
      *
      * It allows index read access and key containment check in O(1).
+     * Finding the index of a key needs O(n) time by default, and
+     * O(1) (or O(log n) while there are tombstones) if tombstones are
+     * allowed.
      * Changing a key is not allowed.
      *
-     * Removal by key, index, iterator or sublist.clear runs in O(n) time
+     * Removal by key, index or iterator runs in the same time as
+     * {@link #remove}, by sublist.clear in O(n) time
      * (this removes the corresponding values, too).
      */
     public List<K> keyList() {
         return new AbstractList<K>() {
             public void clear() {
-                entryList().clear();
+                ArrayHashMap.this.clear();
             }
             public K get(int index) {
-                return entries.get(index).getKey();
+                return entry(index).getKey();
             }
             public int size() {
-                return entries.size();
+                return ArrayHashMap.this.size();
+            }
+            public Iterator<K> iterator() {
+                return new EntryIterator<K>() {
+                    K extract(Entry<K,V> entry) {
+                        return entry.getKey();
+                    }
+                };
             }
             public K remove(int index) {
-                Map.Entry<K,V> e = entries.remove(index);
-                baseMap.remove(e.getKey());
+                Entry<K,V> e = entry(index);
+                removeEntry(e);
                 return e.getKey();
             }
 
             public boolean remove(Object key) {
-                SimpleEntry<K,V> entry = baseMap.remove(key);
+                Entry<K,V> entry = baseMap.get(key);
                 if(entry == null) {
                     return false;
                 }
-                entries.remove(entry);
+                removeEntry(entry);
                 return true;
             }
 
@@ -324,47 +980,113 @@ public class ArrayHashMap<K,V>
                 return baseMap.containsKey(key);
             }
 
+            public int indexOf(Object key) {
+                Entry<K,V> entry = baseMap.get(key);
+                return entry == null ? -1 : ArrayHashMap.this.indexOf(entry);
+            }
+
+            public int lastIndexOf(Object key) {
+                return indexOf(key);
+            }
+
             protected void removeRange(int fromIndex, int toIndex) {
                 entryList().subList(fromIndex, toIndex).clear();
             }
+
+            public Spliterator<K> spliterator() {
+                return new KeySpliterator(0, -1, 0);
+            }
+
+            public void forEach(Consumer<? super K> action) {
+                spliterator().forEachRemaining(action);
+            }
+
+            public boolean removeIf(final Predicate<? super K> filter) {
+                if(filter == null) {
+                    throw new NullPointerException();
+                }
+                return removeEntries(new Predicate<Entry<K,V>>() {
+                        public boolean test(Entry<K,V> entry) {
+                            return filter.test(entry.getKey());
+                        }
+                    });
+            }
         };
     }  // keyList()
 
     /**
      * Returns a List view of the values in this map.
      *
-     * It allows get and set by index in O(1) time (set changes the mapping).
+     * It allows get and set by index in O(1) time (set changes the mapping),
+     * or O(log n) while there are tombstones.
      *
-     * Removal by value, index, iterator or sublist.clear is possible
-     * in O(n) time, this removes the corresponding keys too (only the first
-     * key with this value for remove(value)).
+     * Removal by index or iterator runs in the same time as
+     * {@link #remove}, this removes the corresponding keys too.
+     * Removal by value needs an iteration (and removes only the first
+     * key with this value), as does sublist.clear.
      *
      * Containment check needs an iteration, thus O(n) time.
      */
     public List<V> values() {
         return new AbstractList<V>() {
             public int size() {
-                return entries.size();
+                return ArrayHashMap.this.size();
             }
             public void clear() {
-                entryList().clear();
+                ArrayHashMap.this.clear();
             }
             public V get(int index) {
-                return entries.get(index).getValue();
+                return entry(index).getValue();
             }
             public V set(int index, V newValue) {
-                Map.Entry<K,V> e = entries.get(index);
-                return e.setValue(newValue);
+                return entry(index).setValue(newValue);
+            }
+            public Iterator<V> iterator() {
+                return new EntryIterator<V>() {
+                    V extract(Entry<K,V> entry) {
+                        return entry.getValue();
+                    }
+                };
             }
 
             public V remove(int index) {
-                Map.Entry<K,V> e = entries.remove(index);
-                baseMap.remove(e.getKey());
+                Entry<K,V> e = entry(index);
+                removeEntry(e);
                 return e.getValue();
             }
             protected void removeRange(int fromIndex, int toIndex) {
                 entryList().subList(fromIndex, toIndex).clear();
             }
+
+            public Spliterator<V> spliterator() {
+                return new ValueSpliterator(0, -1, 0);
+            }
+
+            public void forEach(Consumer<? super V> action) {
+                spliterator().forEachRemaining(action);
+            }
+
+            public boolean removeIf(final Predicate<? super V> filter) {
+                if(filter == null) {
+                    throw new NullPointerException();
+                }
+                return removeEntries(new Predicate<Entry<K,V>>() {
+                        public boolean test(Entry<K,V> entry) {
+                            return filter.test(entry.getValue());
+                        }
+                    });
+            }
+
+            public void replaceAll(final UnaryOperator<V> operator) {
+                if(operator == null) {
+                    throw new NullPointerException();
+                }
+                ArrayHashMap.this.replaceAll(new BiFunction<K,V,V>() {
+                        public V apply(K key, V value) {
+                            return operator.apply(value);
+                        }
+                    });
+            }
         };
     }  // values()
 
@@ -0,0 +1,929 @@
+package de.fencing_game.paul.examples;
+
+import java.util.*;
+
+/**
+ * An {@link IndexedMap} stored in flat arrays, in the style of the
+ * <em>compact dict</em> of CPython (since 3.6).
+ * <p>
+ *   The keys, values and hash codes are stored in parallel arrays in
+ *   insertion order (so the index of a mapping is just its position
+ *   there), and a separate {@code int[]} hash table (with open
+ *   addressing and linear probing) contains only the positions of the
+ *   mappings in these arrays.
+ * </p>
+ * <p>
+ *   Compared to {@link ArrayHashMap} (which needs a HashMap node, an
+ *   entry object and a list slot per mapping) this needs no objects per
+ *   mapping at all, about 25 bytes instead of about 70, and a lookup by
+ *   key reads only these arrays. The price is that
+ *   {@link #entryList() entry} objects are created when asked for.
+ * </p>
+ * <p>
+ *   Removal leaves a tombstone in the arrays (in O(1) time), which are
+ *   compacted when a quarter of them is dead. While there are
+ *   tombstones, the access by index finds the position of an index with
+ *   a {@link FenwickTree} in O(log n) time, otherwise it is O(1), as are
+ *   the key based operations and adding at the end. Adding somewhere
+ *   else needs O(n) time.
+ * </p>
+ * <p>
+ *  This map allows null keys and values, but clients should think about
+ *  avoiding using these, since some methods return null to show
+ *  "no such mapping".
+ * </p>
+ * <p>
+ *   This class is not thread-safe. The iterators of the views are
+ *   fail-fast.
+ * </p>
+ * @author Paŭlo Ebermann
+ * @see ArrayHashMap
+ */
+public class CompactHashMap<K,V>
+    extends AbstractMap<K,V>
+    implements IndexedMap<K,V>
+{
+
+    /**
+     * the minimal size of the hash table.
+     */
+    private final static int MIN_TABLE_SIZE = 8;
+
+    /**
+     * the multiplier for the Fibonacci hashing (2³² divided by the
+     * golden ratio), which gives the start position of a hash code.
+     */
+    private final static int GOLDEN = 0x9E3779B9;
+
+    /**
+     * in the hash table: a free place, which ends any probing.
+     */
+    private final static int FREE = 0;
+
+    /**
+     * in the hash table: the place of a removed mapping. Probing has to
+     * continue after it, but it can be reused for a new mapping.
+     */
+    private final static int DUMMY = -1;
+
+    /**
+     * in {@link #keys}: marks a removed mapping.
+     */
+    private final static Object DELETED = new Object();
+
+    /**
+     * the hash table. Each place contains {@link #FREE}, {@link #DUMMY},
+     * or the slot (position in the other arrays) of a mapping plus one.
+     * Its size is a power of two.
+     */
+    private int[] table;
+
+    /**
+     * the keys, in insertion order, with {@link #DELETED} for the
+     * tombstones.
+     */
+    private Object[] keys;
+
+    /**
+     * the values, parallel to {@link #keys}.
+     */
+    private Object[] values;
+
+    /**
+     * the (spread) hash codes of the keys, parallel to {@link #keys},
+     * so we don't need to call {@code hashCode()} again when rebuilding
+     * the table, nor {@code equals()} for most collisions.
+     */
+    private int[] hashes;
+
+    /**
+     * the number of used slots in the arrays, including tombstones.
+     */
+    private int used;
+
+    /**
+     * the number of tombstones.
+     */
+    private int dead;
+
+    /**
+     * the number of places in the hash table which are not
+     * {@link #FREE}.
+     */
+    private int filled;
+
+    /**
+     * counts the live mappings in each slot, to find the slot of an index
+     * while there are tombstones. This is null if not built yet (or
+     * outdated), and is then built on the next indexed access.
+     */
+    private FenwickTree ranks;
+
+    /**
+     * the number of structural modifications, for the fail-fast iterators.
+     */
+    private int modCount;
+
+    /**
+     * the number of compactions, so our iterators know when their
+     * slot is outdated.
+     */
+    private int compactions;
+
+
+    /**
+     * creates a new empty CompactHashMap.
+     */
+    public CompactHashMap() {
+        this(0);
+    }
+
+    /**
+     * creates a new empty CompactHashMap with room for some mappings.
+     * @param expectedSize the number of mappings which can be put without
+     *    resizing.
+     */
+    public CompactHashMap(int expectedSize) {
+        if(expectedSize < 0) {
+            throw new IllegalArgumentException("negative size: " +
+                                               expectedSize);
+        }
+        allocate(expectedSize);
+    }
+
+
+    // ------------------- the hash table ------------------------
+
+
+    /**
+     * returns the number of mappings which fit into a hash table of some
+     * size (two thirds of it, so probing stays short).
+     */
+    private static int usable(int tableSize) {
+        return tableSize - tableSize / 3;
+    }
+
+    /**
+     * spreads the hash code of a key.
+     */
+    private static int hash(Object key) {
+        int h = (key == null) ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean eq(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    /**
+     * the place in the hash table where the probing for a hash code
+     * starts.
+     */
+    private int start(int hash) {
+        return (hash * GOLDEN) >>>
+            Integer.numberOfLeadingZeros(table.length - 1);
+    }
+
+    /**
+     * creates new (empty) arrays with room for at least {@code count}
+     * mappings.
+     */
+    private void allocate(int count) {
+        int size = MIN_TABLE_SIZE;
+        while(usable(size) < count) {
+            if(size >= (1 << 30)) {
+                throw new OutOfMemoryError("CompactHashMap too big");
+            }
+            size <<= 1;
+        }
+        table = new int[size];
+        keys = new Object[usable(size)];
+        values = new Object[usable(size)];
+        hashes = new int[usable(size)];
+    }
+
+    /**
+     * removes the tombstones and rebuilds the hash table with room for
+     * at least {@code count} mappings.
+     *
+     * This method runs in O(n) time.
+     */
+    private void resize(int count) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        int oldUsed = used;
+        allocate(count);
+        int live = 0;
+        for(int i = 0; i < oldUsed; i++) {
+            if(oldKeys[i] != DELETED) {
+                keys[live] = oldKeys[i];
+                values[live] = oldValues[i];
+                hashes[live] = oldHashes[i];
+                live++;
+            }
+        }
+        used = live;
+        dead = 0;
+        ranks = null;
+        compactions++;
+        rebuildTable();
+    }
+
+    /**
+     * fills the hash table from the (compacted) arrays.
+     */
+    private void rebuildTable() {
+        Arrays.fill(table, FREE);
+        int mask = table.length - 1;
+        for(int slot = 0; slot < used; slot++) {
+            int pos = start(hashes[slot]);
+            while(table[pos] != FREE) {
+                pos = (pos + 1) & mask;
+            }
+            table[pos] = slot + 1;
+        }
+        filled = used;
+    }
+
+    /**
+     * finds the place of a key in the hash table.
+     * @return the place, or -1 if the key is not in the map.
+     */
+    private int find(Object key, int hash) {
+        int mask = table.length - 1;
+        for(int pos = start(hash); ; pos = (pos + 1) & mask) {
+            int entry = table[pos];
+            if(entry == FREE) {
+                return -1;
+            }
+            if(entry != DUMMY) {
+                int slot = entry - 1;
+                if(hashes[slot] == hash && eq(keys[slot], key)) {
+                    return pos;
+                }
+            }
+        }
+    }
+
+    /**
+     * returns the slot of a key, or -1 if the key is not in the map.
+     */
+    private int slotOf(Object key) {
+        int pos = find(key, hash(key));
+        return pos < 0 ? -1 : table[pos] - 1;
+    }
+
+    /**
+     * adds a new mapping (whose key must not be in the map yet) at the end.
+     */
+    private void append(K key, V value) {
+        if(used == keys.length || filled == usable(table.length)) {
+            // compacts, if there are many tombstones, else doubles.
+            resize(size() + size() / 2 + 1);
+        }
+        int hash = hash(key);
+        int mask = table.length - 1;
+        int pos = start(hash);
+        while(table[pos] != FREE && table[pos] != DUMMY) {
+            pos = (pos + 1) & mask;
+        }
+        if(table[pos] == FREE) {
+            filled++;
+        }
+        int slot = used++;
+        table[pos] = slot + 1;
+        keys[slot] = key;
+        values[slot] = value;
+        hashes[slot] = hash;
+        if(ranks != null) {
+            ranks.add(slot, 1);
+        }
+        modCount++;
+    }
+
+    /**
+     * adds a new mapping (whose key must not be in the map yet) at some
+     * index, moving the following ones.
+     *
+     * This method runs in O(n) time.
+     */
+    private void insert(int index, K key, V value) {
+        if(dead > 0 || used == keys.length) {
+            resize(size() + size() / 2 + 1);
+        }
+        System.arraycopy(keys, index, keys, index + 1, used - index);
+        System.arraycopy(values, index, values, index + 1, used - index);
+        System.arraycopy(hashes, index, hashes, index + 1, used - index);
+        keys[index] = key;
+        values[index] = value;
+        hashes[index] = hash(key);
+        used++;
+        ranks = null;
+        rebuildTable();
+        modCount++;
+    }
+
+    /**
+     * removes the mapping at some place of the hash table, leaving a
+     * tombstone, and compacts the arrays if there are too many of them.
+     * @return the old value.
+     */
+    private V removeAt(int pos) {
+        int slot = table[pos] - 1;
+        V old = valueAt(slot);
+        table[pos] = DUMMY;
+        keys[slot] = DELETED;
+        values[slot] = null;
+        if(ranks != null) {
+            ranks.add(slot, -1);
+        }
+        dead++;
+        // tombstones at the end are not needed.
+        while(used > 0 && keys[used - 1] == DELETED) {
+            used--;
+            dead--;
+        }
+        modCount++;
+        if(dead > used / 4) {
+            resize(keys.length);
+        }
+        return old;
+    }
+
+    /**
+     * removes the mapping in some slot.
+     */
+    private V removeSlot(int slot) {
+        return removeAt(find(keys[slot], hashes[slot]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private K keyAt(int slot) {
+        return (K)keys[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int slot) {
+        return (V)values[slot];
+    }
+
+
+    // ---------------------- indexes ---------------------------
+
+
+    /**
+     * returns the slot of some index.
+     *
+     * This method runs in O(1) time if there are no tombstones,
+     * else in O(log n).
+     *
+     * @throws IndexOutOfBoundsException if there is no such index.
+     */
+    private int slot(int index) {
+        if(index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index +
+                                                ", size: " + size());
+        }
+        if(dead == 0) {
+            return index;
+        }
+        return ranks().select(index);
+    }
+
+    /**
+     * returns the index of the mapping in some slot.
+     */
+    private int indexOfSlot(int slot) {
+        if(dead == 0) {
+            return slot;
+        }
+        return ranks().prefixSum(slot);
+    }
+
+    /**
+     * returns the Fenwick tree of the live slots, building it if needed
+     * (in O(n) time).
+     */
+    private FenwickTree ranks() {
+        if(ranks == null) {
+            int[] live = new int[used];
+            for(int i = 0; i < used; i++) {
+                live[i] = keys[i] == DELETED ? 0 : 1;
+            }
+            ranks = new FenwickTree(live, used, keys.length);
+        }
+        return ranks;
+    }
+
+    /**
+     * an entry of this map, which writes through. It remembers its slot,
+     * and searches it again by key after a compaction.
+     */
+    private final class SlotEntry implements Map.Entry<K,V> {
+        private final K key;
+        private int slot;
+
+        SlotEntry(int slot) {
+            this.key = keyAt(slot);
+            this.slot = slot;
+        }
+
+        /**
+         * returns the current slot of our key.
+         * @throws IllegalStateException if the mapping was removed.
+         */
+        private int slot() {
+            if(slot >= used || keys[slot] != key) {
+                int newSlot = slotOf(key);
+                if(newSlot < 0) {
+                    throw new IllegalStateException("entry was removed: " +
+                                                    key);
+                }
+                slot = newSlot;
+            }
+            return slot;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return valueAt(slot());
+        }
+
+        public V setValue(V value) {
+            int s = slot();
+            V old = valueAt(s);
+            values[s] = value;
+            return old;
+        }
+
+        public boolean equals(Object o) {
+            if(!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return eq(key, e.getKey()) && eq(getValue(), e.getValue());
+        }
+
+        public int hashCode() {
+            V value = getValue();
+            return (key == null ? 0 : key.hashCode()) ^
+                (value == null ? 0 : value.hashCode());
+        }
+
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /**
+     * an iterator over the slots in index order, which skips the
+     * tombstones.
+     */
+    private abstract class SlotIterator<E> implements Iterator<E> {
+
+        /**
+         * the slot where we start searching for the next mapping.
+         */
+        private int slot;
+        /**
+         * the index of the next mapping.
+         */
+        private int index;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+        private int expectedCompactions = compactions;
+
+        /**
+         * returns the element for a slot.
+         */
+        abstract E extract(int slot);
+
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        public E next() {
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            while(keys[slot] == DELETED) {
+                slot++;
+            }
+            lastReturned = slot;
+            slot++;
+            index++;
+            return extract(lastReturned);
+        }
+
+        public void remove() {
+            if(lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot(lastReturned);
+            lastReturned = -1;
+            index--;
+            if(compactions != expectedCompactions) {
+                // the slots are dense now.
+                slot = index;
+                expectedCompactions = compactions;
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+
+    // ------------------- map operations ------------------------
+
+
+    /**
+     * puts a new key-value mapping, or changes an existing one.
+     *
+     * If new, the mapping gets an index at the end (i.e. {@link #size()}
+     * before it gets increased).
+     *
+     * This method runs in O(1) time for changing an existing value,
+     *  amortized O(1) time for adding a new value.
+     *
+     * @return the old value, if such, else null.
+     */
+    public V put(K key, V value) {
+        int pos = find(key, hash(key));
+        if(pos < 0) {
+            append(key, value);
+            return null;
+        }
+        int slot = table[pos] - 1;
+        V old = valueAt(slot);
+        values[slot] = value;
+        return old;
+    }
+
+    /**
+     * retrieves the value for a key.
+     *
+     *   This method runs in O(1) time.
+     *
+     * @return null if there is no such mapping,
+     *   else the value for the key.
+     */
+    public V get(Object key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    /**
+     * returns true if the given key is in the map.
+     *
+     *   This method runs in O(1) time.
+     */
+    public boolean containsKey(Object key) {
+        return find(key, hash(key)) >= 0;
+    }
+
+    /**
+     * returns true if some key is mapped to the given value.
+     *
+     *   This method runs in O(n) time.
+     */
+    public boolean containsValue(Object value) {
+        for(int slot = 0; slot < used; slot++) {
+            if(keys[slot] != DELETED && eq(values[slot], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * removes a key from the map.
+     *
+     *   This method runs in amortized O(1) time.
+     *
+     * @return the old value, if any.
+     */
+    public V remove(Object key) {
+        int pos = find(key, hash(key));
+        return pos < 0 ? null : removeAt(pos);
+    }
+
+    /**
+     * returns the number of mappings in this map.
+     */
+    public int size() {
+        return used - dead;
+    }
+
+    /**
+     * removes all mappings from this map.
+     */
+    public void clear() {
+        Arrays.fill(table, FREE);
+        Arrays.fill(keys, 0, used, null);
+        Arrays.fill(values, 0, used, null);
+        used = 0;
+        dead = 0;
+        filled = 0;
+        ranks = null;
+        modCount++;
+    }
+
+    /**
+     * returns a key by index.
+     *
+     *   This method runs in O(1) time (O(log n) while there are
+     *   tombstones).
+     */
+    public K getKey(int index) {
+        return keyAt(slot(index));
+    }
+
+    /**
+     * returns a value by index.
+     *
+     *   This method runs in O(1) time (O(log n) while there are
+     *   tombstones).
+     */
+    public V getValue(int index) {
+        return valueAt(slot(index));
+    }
+
+
+    // ----------------------- views ----------------------------
+
+
+    /**
+     * Returns a set view of the keys of this map.
+     *
+     * This set view is ordered by the indexes.
+     *
+     * It supports removal by key or iterator in amortized O(1) time.
+     * Containment check runs in O(1).
+     */
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            public void clear() {
+                CompactHashMap.this.clear();
+            }
+            public int size() {
+                return CompactHashMap.this.size();
+            }
+            public Iterator<K> iterator() {
+                return keyList().iterator();
+            }
+            public boolean remove(Object key) {
+                return keyList().remove(key);
+            }
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }  // keySet()
+
+    /**
+     * Returns a set view of the entries of this map.
+     *
+     * This set view is ordered by the indexes. Its entries write through
+     * to the map (as long as their mapping is not removed).
+     *
+     * It supports removal by entry or iterator in amortized O(1) time.
+     *
+     * It supports adding new entries at the end, if the key
+     * is not already used in this map, in amortized O(1) time.
+     *
+     * Containment check runs in O(1).
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        return new AbstractSet<Map.Entry<K,V>>() {
+            public void clear() {
+                CompactHashMap.this.clear();
+            }
+            public int size() {
+                return CompactHashMap.this.size();
+            }
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return entryList().iterator();
+            }
+            public boolean add(Map.Entry<K,V> e) {
+                return entryList().add(e);
+            }
+            public boolean contains(Object o) {
+                return entryList().contains(o);
+            }
+            public boolean remove(Object o) {
+                return entryList().remove(o);
+            }
+        };
+    }  // entrySet()
+
+    /**
+     * Returns a list view of the entries of this map.
+     *
+     * This list view is ordered by the indexes. Its entries write through
+     * to the map (as long as their mapping is not removed).
+     *
+     * It supports removal by entry, index or iterator in amortized O(1)
+     * time.
+     *
+     * It supports adding new entries at the end, if the key
+     * is not already used in this map, in amortized O(1) time.
+     * Adding somewhere else needs O(n) time.
+     *
+     * Containment check runs in O(1).
+     */
+    public List<Map.Entry<K,V>> entryList() {
+        return new AbstractList<Map.Entry<K,V>>() {
+            public void clear() {
+                CompactHashMap.this.clear();
+            }
+            public Map.Entry<K,V> get(int index) {
+                return new SlotEntry(slot(index));
+            }
+            public int size() {
+                return CompactHashMap.this.size();
+            }
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return new SlotIterator<Map.Entry<K,V>>() {
+                    Map.Entry<K,V> extract(int slot) {
+                        return new SlotEntry(slot);
+                    }
+                };
+            }
+            public Map.Entry<K,V> remove(int index) {
+                int slot = slot(index);
+                Map.Entry<K,V> e =
+                    new SimpleEntry<K,V>(keyAt(slot), valueAt(slot));
+                removeSlot(slot);
+                return e;
+            }
+            public void add(int index, Map.Entry<K,V> newEntry) {
+                K key = newEntry.getKey();
+                if(containsKey(key)) {
+                    throw new IllegalArgumentException("duplicate key " +
+                                                       key);
+                }
+                if(index < 0 || index > size()) {
+                    throw new IndexOutOfBoundsException("index: " + index +
+                                                        ", size: " + size());
+                }
+                if(index == size()) {
+                    append(key, newEntry.getValue());
+                }
+                else {
+                    insert(index, key, newEntry.getValue());
+                }
+            }
+
+            public boolean contains(Object o) {
+                if(o instanceof Map.Entry) {
+                    Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                    int slot = slotOf(e.getKey());
+                    return slot >= 0 && eq(values[slot], e.getValue());
+                }
+                return false;
+            }
+
+            public boolean remove(Object o) {
+                if(o instanceof Map.Entry) {
+                    Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                    int slot = slotOf(e.getKey());
+                    if(slot >= 0 && eq(values[slot], e.getValue())) {
+                        removeSlot(slot);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }   // entryList()
+
+    /**
+     * Returns a List view of the keys in this map.
+     *
+     * It allows index read access, key containment check and finding
+     * the index of a key in O(1) (O(log n) while there are tombstones).
+     * Changing a key is not allowed.
+     *
+     * Removal by key, index or iterator runs in amortized O(1) time
+     * (this removes the corresponding values, too).
+     */
+    public List<K> keyList() {
+        return new AbstractList<K>() {
+            public void clear() {
+                CompactHashMap.this.clear();
+            }
+            public K get(int index) {
+                return keyAt(slot(index));
+            }
+            public int size() {
+                return CompactHashMap.this.size();
+            }
+            public Iterator<K> iterator() {
+                return new SlotIterator<K>() {
+                    K extract(int slot) {
+                        return keyAt(slot);
+                    }
+                };
+            }
+            public K remove(int index) {
+                int slot = slot(index);
+                K key = keyAt(slot);
+                removeSlot(slot);
+                return key;
+            }
+            public boolean remove(Object key) {
+                int pos = find(key, hash(key));
+                if(pos < 0) {
+                    return false;
+                }
+                removeAt(pos);
+                return true;
+            }
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+            public int indexOf(Object key) {
+                int slot = slotOf(key);
+                return slot < 0 ? -1 : indexOfSlot(slot);
+            }
+            public int lastIndexOf(Object key) {
+                return indexOf(key);
+            }
+        };
+    }  // keyList()
+
+    /**
+     * Returns a List view of the values in this map.
+     *
+     * It allows get and set by index in O(1) time (set changes the mapping),
+     * or O(log n) while there are tombstones.
+     *
+     * Removal by index or iterator runs in amortized O(1) time, this
+     * removes the corresponding keys too. Removal by value needs an
+     * iteration (and removes only the first key with this value).
+     *
+     * Containment check needs an iteration, thus O(n) time.
+     */
+    public List<V> values() {
+        return new AbstractList<V>() {
+            public int size() {
+                return CompactHashMap.this.size();
+            }
+            public void clear() {
+                CompactHashMap.this.clear();
+            }
+            public V get(int index) {
+                return valueAt(slot(index));
+            }
+            public V set(int index, V newValue) {
+                int slot = slot(index);
+                V old = valueAt(slot);
+                values[slot] = newValue;
+                return old;
+            }
+            public Iterator<V> iterator() {
+                return new SlotIterator<V>() {
+                    V extract(int slot) {
+                        return valueAt(slot);
+                    }
+                };
+            }
+            public boolean contains(Object value) {
+                return containsValue(value);
+            }
+            public V remove(int index) {
+                return removeSlot(slot(index));
+            }
+        };
+    }  // values()
+
+
+    /**
+     * an usage example method.
+     */
+    public static void main(String[] args) {
+        IndexedMap<String,String> imap = new CompactHashMap<String, String>();
+
+        for(int i = 0; i < args.length-1; i+=2) {
+            imap.put(args[i], args[i+1]);
+        }
+        System.out.println(imap.values());
+        System.out.println(imap.keyList());
+        System.out.println(imap.entryList());
+        System.out.println(imap);
+        if(!imap.isEmpty()) {
+            System.out.println(imap.getKey(0));
+            System.out.println(imap.getValue(0));
+        }
+    }
+
+}
@@ -0,0 +1,576 @@
+package de.fencing_game.paul.examples;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe {@link IndexedMap}, whose reading operations never wait
+ * for writers.
+ * <p>
+ *   This map is append-only: mappings can be added and their values
+ *   changed, but not removed (all removing operations throw an
+ *   {@link UnsupportedOperationException}). Thus the index of a key never
+ *   changes.
+ * </p>
+ * <p>
+ *   The keys are found by a {@link ConcurrentHashMap} (whose writers
+ *   only lock a part of it), which maps them to nodes containing the key,
+ *   the (volatile) value and the index. The nodes are also stored by
+ *   index in chunks of growing size (16, 32, 64, ...), which are never
+ *   copied or moved, so the node of an index is found with some bit
+ *   operations and two array accesses.
+ * </p>
+ * <p>
+ *   A new key gets its index from an atomic counter. The nodes are
+ *   published for the index-based access in index order: each writer
+ *   waits (shortly) until all smaller indexes are published, and then
+ *   publishes its own by a volatile write of the size. A reader reads
+ *   this size once, and then can access all nodes below it without any
+ *   synchronization. So {@link #get}, {@link #getKey} and
+ *   {@link #getValue} never block or retry.
+ * </p>
+ * <p>
+ *   The views are weakly consistent: their iterators never throw a
+ *   {@link ConcurrentModificationException}, and return all the mappings
+ *   which existed when they were created, and maybe some which were
+ *   added later. A new key can be found by {@link #get} shortly before it
+ *   appears in the index-based views (and {@link #size}).
+ * </p>
+ * <p>
+ *   Neither keys nor values may be null.
+ * </p>
+ * @author Paŭlo Ebermann
+ * @see ArrayHashMap
+ */
+public class ConcurrentIndexedMap<K,V>
+    extends AbstractMap<K,V>
+    implements IndexedMap<K,V>, ConcurrentMap<K,V>
+{
+
+    /**
+     * the size of the first chunk is {@code 2^FIRST_CHUNK_BITS},
+     * each following one is twice as big as the one before.
+     */
+    private final static int FIRST_CHUNK_BITS = 4;
+
+    /**
+     * the maximal number of mappings, so the chunk numbers don't overflow.
+     */
+    private final static int MAX_SIZE =
+        Integer.MAX_VALUE - (1 << FIRST_CHUNK_BITS);
+
+    /**
+     * a mapping of our map. The value is the one of the AtomicReference.
+     */
+    private static final class Node<K,V>
+        extends AtomicReference<V>
+        implements Map.Entry<K,V>
+    {
+        private static final long serialVersionUID = 1L;
+
+        final K key;
+
+        /**
+         * the index, or -1 while it is not yet assigned.
+         */
+        volatile int index = -1;
+
+        Node(K key, V value) {
+            super(value);
+            this.key = key;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return get();
+        }
+
+        public V setValue(V value) {
+            return getAndSet(checkNotNull(value));
+        }
+
+        public boolean equals(Object o) {
+            if(!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return key.equals(e.getKey()) && get().equals(e.getValue());
+        }
+
+        public int hashCode() {
+            return key.hashCode() ^ get().hashCode();
+        }
+
+        public String toString() {
+            return key + "=" + get();
+        }
+    }
+
+    /**
+     * finds the nodes by key.
+     */
+    private final ConcurrentHashMap<K, Node<K,V>> nodes;
+
+    /**
+     * the chunks of nodes by index. Chunk {@code k} has size
+     * {@code 2^(FIRST_CHUNK_BITS + k)}, and is created by the first
+     * writer which needs it.
+     */
+    private final AtomicReferenceArray<Object[]> chunks =
+        new AtomicReferenceArray<Object[]>(32 - FIRST_CHUNK_BITS);
+
+    /**
+     * in {@link #chunks}: marks a chunk which is just being allocated
+     * (by the writer who put it there).
+     */
+    private final static Object[] ALLOCATING = new Object[0];
+
+    /**
+     * the number of indexes given to new keys.
+     */
+    private final AtomicInteger reserved = new AtomicInteger();
+
+    /**
+     * the number of published indexes. All nodes with a smaller index
+     * are in their chunks (and visible to anyone who read this).
+     */
+    private volatile int published;
+
+
+    /**
+     * creates a new empty ConcurrentIndexedMap.
+     */
+    public ConcurrentIndexedMap() {
+        this.nodes = new ConcurrentHashMap<K, Node<K,V>>();
+    }
+
+    /**
+     * creates a new empty ConcurrentIndexedMap, whose key index is tuned
+     * for a number of mappings and concurrent writers.
+     * @see ConcurrentHashMap#ConcurrentHashMap(int, float, int)
+     */
+    public ConcurrentIndexedMap(int expectedSize, int concurrencyLevel) {
+        this.nodes = new ConcurrentHashMap<K, Node<K,V>>
+            (expectedSize, 0.75f, concurrencyLevel);
+    }
+
+
+    private static <X> X checkNotNull(X value) {
+        if(value == null) {
+            throw new NullPointerException();
+        }
+        return value;
+    }
+
+    /**
+     * adds a new node, if there is none for its key yet.
+     * @return the existing node, or null if the new one was added.
+     */
+    private Node<K,V> insert(K key, V value) {
+        checkNotNull(value);
+        Node<K,V> node = nodes.get(key);
+        if(node != null) {
+            return node;
+        }
+        checkNotFull();
+        Node<K,V> newNode = new Node<K,V>(key, value);
+        node = nodes.putIfAbsent(key, newNode);
+        if(node != null) {
+            return node;
+        }
+        int index;
+        try {
+            index = reserve();
+        }
+        catch(RuntimeException ex) {
+            nodes.remove(key, newNode);
+            throw ex;
+        }
+        catch(Error ex) {
+            nodes.remove(key, newNode);
+            throw ex;
+        }
+        publish(newNode, index);
+        return null;
+    }
+
+    private void checkNotFull() {
+        if(reserved.get() >= MAX_SIZE) {
+            throw new IllegalStateException("ConcurrentIndexedMap full");
+        }
+    }
+
+    /**
+     * reserves the next index, after making sure its chunk exists.
+     * If this throws an exception (the map is full, or there is no
+     * memory for the chunk), no index was reserved, so later writers
+     * don't wait for it.
+     */
+    private int reserve() {
+        while(true) {
+            int index = reserved.get();
+            if(index >= MAX_SIZE) {
+                throw new IllegalStateException("ConcurrentIndexedMap full");
+            }
+            ensureChunk(chunkNumber(index + (1 << FIRST_CHUNK_BITS)));
+            if(reserved.compareAndSet(index, index + 1)) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * creates chunk number {@code k}, if it doesn't exist yet. Only one
+     * writer allocates it, the others wait for it.
+     */
+    private void ensureChunk(int k) {
+        while(true) {
+            Object[] chunk = chunks.get(k);
+            if(chunk != null && chunk != ALLOCATING) {
+                return;
+            }
+            if(chunk == null && chunks.compareAndSet(k, null, ALLOCATING)) {
+                Object[] newChunk = null;
+                try {
+                    newChunk = new Object[1 << (FIRST_CHUNK_BITS + k)];
+                }
+                finally {
+                    // on an OutOfMemoryError, the next writer tries again.
+                    chunks.set(k, newChunk);
+                }
+                return;
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * puts a new node (which is already in {@link #nodes}) at its reserved
+     * index, and publishes it. Nothing here can fail, so each reserved
+     * index gets published.
+     */
+    private void publish(Node<K,V> node, int index) {
+        node.index = index;
+        int j = index + (1 << FIRST_CHUNK_BITS);
+        Object[] chunk = chunks.get(chunkNumber(j));
+        chunk[j - Integer.highestOneBit(j)] = node;
+        // the indexes are published in order.
+        while(published != index) {
+            Thread.yield();
+        }
+        published = index + 1;
+    }
+
+    /**
+     * returns the number of the chunk containing an index, given as
+     * {@code j = index + 2^FIRST_CHUNK_BITS}.
+     */
+    private static int chunkNumber(int j) {
+        return 31 - Integer.numberOfLeadingZeros(j) - FIRST_CHUNK_BITS;
+    }
+
+    /**
+     * returns the node with some index.
+     *
+     * This method runs in O(1) time, without any locking or waiting.
+     *
+     * @throws IndexOutOfBoundsException if there is no such index.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<K,V> node(int index) {
+        int size = published;
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index +
+                                                ", size: " + size);
+        }
+        int j = index + (1 << FIRST_CHUNK_BITS);
+        Object[] chunk = chunks.get(chunkNumber(j));
+        return (Node<K,V>)chunk[j - Integer.highestOneBit(j)];
+    }
+
+
+    // ------------------- map operations ------------------------
+
+
+    /**
+     * puts a new key-value mapping, or changes an existing one.
+     *
+     * If new, the mapping gets an index at the end.
+     *
+     * @return the old value, if such, else null.
+     */
+    public V put(K key, V value) {
+        Node<K,V> node = insert(key, value);
+        return node == null ? null : node.getAndSet(value);
+    }
+
+    /**
+     * puts a new key-value mapping, if the key is not yet in the map.
+     * @return the existing value, or null if the mapping was added.
+     */
+    public V putIfAbsent(K key, V value) {
+        Node<K,V> node = insert(key, value);
+        return node == null ? null : node.get();
+    }
+
+    /**
+     * changes the value for a key, if it is in the map.
+     * @return the old value, or null if the key is not in the map.
+     */
+    public V replace(K key, V value) {
+        checkNotNull(value);
+        Node<K,V> node = nodes.get(key);
+        return node == null ? null : node.getAndSet(value);
+    }
+
+    /**
+     * changes the value for a key, if it is currently mapped to
+     * some value.
+     * @return true if the value was changed.
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        checkNotNull(oldValue);
+        checkNotNull(newValue);
+        Node<K,V> node = nodes.get(key);
+        if(node == null) {
+            return false;
+        }
+        while(true) {
+            V current = node.get();
+            if(!current.equals(oldValue)) {
+                return false;
+            }
+            if(node.compareAndSet(current, newValue)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * retrieves the value for a key.
+     *
+     *   This method runs in O(1) time, without locking.
+     *
+     * @return null if there is no such mapping,
+     *   else the value for the key.
+     */
+    public V get(Object key) {
+        Node<K,V> node = nodes.get(key);
+        return node == null ? null : node.get();
+    }
+
+    /**
+     * returns true if the given key is in the map.
+     *
+     *   This method runs in O(1) time, without locking.
+     */
+    public boolean containsKey(Object key) {
+        return nodes.containsKey(key);
+    }
+
+    /**
+     * returns the number of published mappings.
+     */
+    public int size() {
+        return published;
+    }
+
+    /**
+     * not supported, as this map is append-only.
+     * @throws UnsupportedOperationException always.
+     */
+    public V remove(Object key) {
+        throw new UnsupportedOperationException("append-only map");
+    }
+
+    /**
+     * not supported, as this map is append-only.
+     * @throws UnsupportedOperationException always.
+     */
+    public boolean remove(Object key, Object value) {
+        throw new UnsupportedOperationException("append-only map");
+    }
+
+    /**
+     * not supported, as this map is append-only.
+     * @throws UnsupportedOperationException always.
+     */
+    public void clear() {
+        throw new UnsupportedOperationException("append-only map");
+    }
+
+    /**
+     * returns a key by index.
+     *
+     *   This method runs in O(1) time, without locking.
+     */
+    public K getKey(int index) {
+        return node(index).key;
+    }
+
+    /**
+     * returns a value by index.
+     *
+     *   This method runs in O(1) time, without locking.
+     */
+    public V getValue(int index) {
+        return node(index).get();
+    }
+
+
+    // ----------------------- views ----------------------------
+
+
+    /**
+     * Returns a set view of the keys of this map, ordered by the indexes.
+     * It does not support removal. Containment check runs in O(1).
+     */
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            public int size() {
+                return published;
+            }
+            public Iterator<K> iterator() {
+                return keyList().iterator();
+            }
+            public boolean contains(Object key) {
+                return key != null && containsKey(key);
+            }
+        };
+    }  // keySet()
+
+    /**
+     * Returns a set view of the entries of this map, ordered by the
+     * indexes. The entries write through to the map.
+     * It does not support removal. Containment check runs in O(1).
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        return new AbstractSet<Map.Entry<K,V>>() {
+            public int size() {
+                return published;
+            }
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return entryList().iterator();
+            }
+            public boolean contains(Object o) {
+                return entryList().contains(o);
+            }
+        };
+    }  // entrySet()
+
+    /**
+     * Returns a list view of the entries of this map. The entries write
+     * through to the map.
+     * It does not support removal or addition. Containment check runs
+     * in O(1).
+     */
+    public List<Map.Entry<K,V>> entryList() {
+        return new AbstractList<Map.Entry<K,V>>() {
+            public Map.Entry<K,V> get(int index) {
+                return node(index);
+            }
+            public int size() {
+                return published;
+            }
+            public boolean contains(Object o) {
+                if(o instanceof Map.Entry) {
+                    Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                    if(e.getKey() != null) {
+                        Node<K,V> node = nodes.get(e.getKey());
+                        return node != null && node.get().equals(e.getValue());
+                    }
+                }
+                return false;
+            }
+        };
+    }   // entryList()
+
+    /**
+     * Returns a List view of the keys in this map.
+     *
+     * It allows index read access, key containment check and finding the
+     * index of a key in O(1), without locking.
+     * It does not support any changes.
+     */
+    public List<K> keyList() {
+        return new AbstractList<K>() {
+            public K get(int index) {
+                return node(index).key;
+            }
+            public int size() {
+                return published;
+            }
+            public boolean contains(Object key) {
+                return key != null && containsKey(key);
+            }
+            public int indexOf(Object key) {
+                Node<K,V> node = (key == null) ? null : nodes.get(key);
+                if(node == null) {
+                    return -1;
+                }
+                int index = node.index;
+                return index < published ? index : -1;
+            }
+            public int lastIndexOf(Object key) {
+                return indexOf(key);
+            }
+        };
+    }  // keyList()
+
+    /**
+     * Returns a List view of the values in this map.
+     *
+     * It allows get and set by index in O(1) time (set changes the
+     * mapping), without locking.
+     * It does not support removal or addition.
+     */
+    public List<V> values() {
+        return new AbstractList<V>() {
+            public V get(int index) {
+                return node(index).get();
+            }
+            public V set(int index, V value) {
+                return node(index).setValue(value);
+            }
+            public int size() {
+                return published;
+            }
+        };
+    }  // values()
+
+
+    /**
+     * an usage example method: each argument is added by its own thread.
+     */
+    public static void main(String[] args)
+        throws InterruptedException
+    {
+        final IndexedMap<String,Integer> imap =
+            new ConcurrentIndexedMap<String, Integer>();
+        Thread[] threads = new Thread[args.length];
+        for(int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            threads[i] = new Thread() {
+                    public void run() {
+                        imap.put(arg, arg.length());
+                    }
+                };
+            threads[i].start();
+        }
+        for(Thread t : threads) {
+            t.join();
+        }
+        System.out.println(imap.values());
+        System.out.println(imap.keyList());
+        System.out.println(imap.entryList());
+        System.out.println(imap);
+    }
+
+}
@@ -0,0 +1,839 @@
+package de.fencing_game.paul.examples;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * A thread-safe {@link Map2D}, which is divided into stripes by the
+ * hash code of the first key.
+ * <p>
+ *   Each stripe is a {@link HashMap2D}, guarded by its own lock (its
+ *   monitor), so threads working with different first keys rarely wait
+ *   for each other. All mappings with the same first key are in the same
+ *   stripe, so operations on them (like the atomic {@link #putIfAbsent},
+ *   {@link #compute} and {@link #merge}, and all accesses to a row of the
+ *   {@link #projection1Map() first projection}) need only one lock.
+ *   Operations about second keys or values ask all stripes one after the
+ *   other.
+ * </p>
+ * <p>
+ *   The views are <em>weakly consistent</em>, like those of
+ *   {@link java.util.concurrent.ConcurrentHashMap}: their iterators
+ *   copy the mappings of one stripe at a time (while holding its lock),
+ *   so they never throw a {@link ConcurrentModificationException}, and
+ *   they reflect each stripe as it was when the iterator got there. Their
+ *   entries write through to the map (by {@link #put}), as does the
+ *   removal by iterator.
+ * </p>
+ * <p>
+ *   This map does not allow null keys or values.
+ * </p>
+ *
+ * @param <K1> the first key type.
+ * @param <K2> the second key type.
+ * @param <V> the value type.
+ * @author Paŭlo Ebermann
+ */
+public class ConcurrentMap2D<K1,K2,V>
+    extends AbstractMap2D<K1,K2,V>
+{
+
+    /**
+     * A function which calculates a new value from both keys and an old
+     * value, for {@link ConcurrentMap2D#compute compute}.
+     */
+    public interface Remapping<K1,K2,V> {
+        /**
+         * calculates a new value.
+         * @param value the old value, or null if there was no mapping.
+         * @return the new value, or null to remove the mapping.
+         */
+        public V apply(K1 key1, K2 key2, V value);
+    }
+
+    /**
+     * the multiplier for the Fibonacci hashing (2³² divided by the
+     * golden ratio), which selects the stripe.
+     */
+    private final static int GOLDEN = 0x9E3779B9;
+
+    private final static int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final static int MAX_STRIPES = 1 << 16;
+
+    /**
+     * the stripes. Their number is a power of two.
+     */
+    private final HashMap2D<K1,K2,V>[] stripes;
+
+
+    /**
+     * creates a new empty ConcurrentMap2D with the default concurrency
+     * level (16).
+     */
+    public ConcurrentMap2D() {
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * creates a new empty ConcurrentMap2D.
+     * @param concurrencyLevel the estimated number of concurrently
+     *    updating threads. The map gets at least so many stripes.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentMap2D(int concurrencyLevel) {
+        if(concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel: " +
+                                               concurrencyLevel);
+        }
+        int count = 1;
+        while(count < concurrencyLevel && count < MAX_STRIPES) {
+            count <<= 1;
+        }
+        stripes = (HashMap2D<K1,K2,V>[])new HashMap2D<?,?,?>[count];
+        for(int i = 0; i < count; i++) {
+            stripes[i] = new HashMap2D<K1,K2,V>();
+        }
+    }
+
+    /**
+     * creates a new ConcurrentMap2D with the mappings of another Map2D.
+     */
+    public ConcurrentMap2D(Map2D<? extends K1, ? extends K2,
+                                 ? extends V> map) {
+        this();
+        putAll(map);
+    }
+
+
+    private static <X> X checkNotNull(X x) {
+        if(x == null) {
+            throw new NullPointerException();
+        }
+        return x;
+    }
+
+    /**
+     * returns the index of the stripe of a first key.
+     */
+    private int stripeIndex(Object key1) {
+        int h = hash(key1) * GOLDEN;
+        return (h >>> 16) & (stripes.length - 1);
+    }
+
+    /**
+     * returns the stripe of a first key.
+     */
+    private HashMap2D<K1,K2,V> stripe(Object key1) {
+        return stripes[stripeIndex(key1)];
+    }
+
+
+    // ------------------- map operations ------------------------
+
+
+    /**
+     * returns the number of mappings in this map. (If the map is
+     * changed at the same time, this is only an estimate.)
+     */
+    public int size() {
+        int size = 0;
+        for(HashMap2D<K1,K2,V> stripe : stripes) {
+            synchronized(stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public boolean containsKeys(Object key1, Object key2) {
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            return stripe.containsKeys(key1, key2);
+        }
+    }
+
+    public boolean containsKey1(Object key1) {
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            return stripe.containsKey1(key1);
+        }
+    }
+
+    /**
+     * returns true if this map contains a mapping with this
+     * specified key as second key. This asks all stripes.
+     */
+    public boolean containsKey2(Object key2) {
+        for(HashMap2D<K1,K2,V> stripe : stripes) {
+            synchronized(stripe) {
+                if(stripe.containsKey2(key2)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * returns true if this map contains a mapping with the
+     * specified value. This searches all stripes, in O(n) time.
+     */
+    public boolean containsValue(Object value) {
+        for(HashMap2D<K1,K2,V> stripe : stripes) {
+            synchronized(stripe) {
+                if(stripe.containsValue(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public V get(K1 key1, K2 key2) {
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            return stripe.get(key1, key2);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V getObject(Object key1, Object key2) {
+        return get((K1)key1, (K2)key2);
+    }
+
+    public V put(K1 key1, K2 key2, V value) {
+        checkNotNull(key1);
+        checkNotNull(key2);
+        checkNotNull(value);
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            return stripe.put(key1, key2, value);
+        }
+    }
+
+    public V remove(Object key1, Object key2) {
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            return stripe.remove(key1, key2);
+        }
+    }
+
+    /**
+     * removes all mappings, one stripe after the other.
+     */
+    public void clear() {
+        for(HashMap2D<K1,K2,V> stripe : stripes) {
+            synchronized(stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+
+    // ------------------- atomic operations ------------------------
+
+
+    /**
+     * puts a mapping, if there is none yet for these keys. This is atomic.
+     * @return the existing value, or null if the value was put.
+     */
+    public V putIfAbsent(K1 key1, K2 key2, V value) {
+        checkNotNull(key1);
+        checkNotNull(key2);
+        checkNotNull(value);
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            V old = stripe.get(key1, key2);
+            if(old == null) {
+                stripe.put(key1, key2, value);
+            }
+            return old;
+        }
+    }
+
+    /**
+     * removes a mapping, if it has the given value. This is atomic.
+     * @return true if the mapping was removed.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object key1, Object key2, Object value) {
+        if(value == null) {
+            return false;
+        }
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            if(!value.equals(stripe.get((K1)key1, (K2)key2))) {
+                return false;
+            }
+            stripe.remove(key1, key2);
+            return true;
+        }
+    }
+
+    /**
+     * replaces the value of a mapping, if it has the given old value.
+     * This is atomic.
+     * @return true if the value was replaced.
+     */
+    public boolean replace(K1 key1, K2 key2, V oldValue, V newValue) {
+        checkNotNull(oldValue);
+        checkNotNull(newValue);
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            if(!oldValue.equals(stripe.get(key1, key2))) {
+                return false;
+            }
+            stripe.put(key1, key2, newValue);
+            return true;
+        }
+    }
+
+    /**
+     * replaces the value of a mapping, if there is one. This is atomic.
+     * @return the old value, or null if there was no mapping.
+     */
+    public V replace(K1 key1, K2 key2, V value) {
+        checkNotNull(value);
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            V old = stripe.get(key1, key2);
+            if(old != null) {
+                stripe.put(key1, key2, value);
+            }
+            return old;
+        }
+    }
+
+    /**
+     * calculates a new value for a pair of keys from the old one (or
+     * null, if there is none), and puts it (or removes the mapping, if the
+     * new value is null). This is atomic: the function is called while
+     * the stripe of the keys is locked, so it should be short and must not
+     * access this map itself.
+     * @return the new value.
+     */
+    public V compute(K1 key1, K2 key2,
+                     Remapping<? super K1, ? super K2, V> function) {
+        checkNotNull(key1);
+        checkNotNull(key2);
+        checkNotNull(function);
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            V old = stripe.get(key1, key2);
+            V value = function.apply(key1, key2, old);
+            if(value != null) {
+                stripe.put(key1, key2, value);
+            }
+            else if(old != null) {
+                stripe.remove(key1, key2);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * calculates a value for a pair of keys and puts it, if there is no
+     * mapping for them yet (and the function doesn't return null). This is
+     * atomic: the function is called while the stripe of the keys is
+     * locked, so it should be short and must not access this map itself.
+     * @return the existing or new value.
+     */
+    public V computeIfAbsent(K1 key1, K2 key2,
+                             BiFunction<? super K1, ? super K2,
+                                        ? extends V> function) {
+        checkNotNull(key1);
+        checkNotNull(key2);
+        checkNotNull(function);
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            V value = stripe.get(key1, key2);
+            if(value == null) {
+                value = function.apply(key1, key2);
+                if(value != null) {
+                    stripe.put(key1, key2, value);
+                }
+            }
+            return value;
+        }
+    }
+
+    /**
+     * puts a value, or combines it with the existing one (like
+     * {@link Map#merge}). If the function returns null, the mapping is
+     * removed. This is atomic: the function is called while the stripe of
+     * the keys is locked, so it should be short and must not access this
+     * map itself.
+     * @return the new value.
+     */
+    public V merge(K1 key1, K2 key2, V value,
+                   BiFunction<? super V, ? super V, ? extends V> function) {
+        checkNotNull(key1);
+        checkNotNull(key2);
+        checkNotNull(value);
+        checkNotNull(function);
+        HashMap2D<K1,K2,V> stripe = stripe(key1);
+        synchronized(stripe) {
+            V old = stripe.get(key1, key2);
+            V newValue = (old == null) ? value : function.apply(old, value);
+            if(newValue != null) {
+                stripe.put(key1, key2, newValue);
+            }
+            else {
+                stripe.remove(key1, key2);
+            }
+            return newValue;
+        }
+    }
+
+
+    // ------------------- views ------------------------
+
+
+    /**
+     * an entry of a view, which writes through to the map.
+     */
+    private final class WriteThroughEntry extends SimpleEntry<K1,K2,V> {
+
+        WriteThroughEntry(Map2D.Entry<K1,K2,V> entry) {
+            super(entry);
+        }
+
+        public V setValue(V value) {
+            checkNotNull(value);
+            V old = super.setValue(value);
+            put(getKey1(), getKey2(), value);
+            return old;
+        }
+    }
+
+    /**
+     * a weakly consistent iterator, which copies the elements of one
+     * stripe at a time.
+     */
+    private abstract class SnapshotIterator<E> implements Iterator<E> {
+        /**
+         * the next stripe to copy, and the end of our stripes.
+         */
+        private int stripe, end;
+        private Iterator<E> current = Collections.<E>emptyList().iterator();
+        private E lastReturned;
+        private boolean canRemove;
+
+        SnapshotIterator(int start, int end) {
+            this.stripe = start;
+            this.end = end;
+        }
+
+        SnapshotIterator() {
+            this(0, stripes.length);
+        }
+
+        /**
+         * copies the elements of a stripe (which is locked meanwhile).
+         */
+        abstract void collect(HashMap2D<K1,K2,V> map, List<E> into);
+
+        /**
+         * removes an element from the map.
+         */
+        abstract void removeElement(E element);
+
+        public boolean hasNext() {
+            while(!current.hasNext() && stripe < end) {
+                HashMap2D<K1,K2,V> map = stripes[stripe++];
+                List<E> list = new ArrayList<E>();
+                synchronized(map) {
+                    collect(map, list);
+                }
+                current = list.iterator();
+            }
+            return current.hasNext();
+        }
+
+        public E next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = current.next();
+            canRemove = true;
+            return lastReturned;
+        }
+
+        public void remove() {
+            if(!canRemove) {
+                throw new IllegalStateException();
+            }
+            removeElement(lastReturned);
+            canRemove = false;
+        }
+    }
+
+    /**
+     * an iterator over (copies of) the entries of some stripes.
+     */
+    private abstract class EntryIterator
+        extends SnapshotIterator<Map2D.Entry<K1,K2,V>>
+    {
+        EntryIterator(int start, int end) {
+            super(start, end);
+        }
+
+        EntryIterator() {
+            super();
+        }
+
+        /**
+         * the entries of a stripe to copy.
+         */
+        abstract Collection<Map2D.Entry<K1,K2,V>>
+            entries(HashMap2D<K1,K2,V> map);
+
+        void collect(HashMap2D<K1,K2,V> map,
+                     List<Map2D.Entry<K1,K2,V>> into) {
+            for(Map2D.Entry<K1,K2,V> entry : entries(map)) {
+                into.add(new WriteThroughEntry(entry));
+            }
+        }
+
+        void removeElement(Map2D.Entry<K1,K2,V> entry) {
+            ConcurrentMap2D.this.remove(entry.getKey1(), entry.getKey2());
+        }
+    }
+
+    /**
+     * returns a weakly consistent view of the entries of this map.
+     * The entries write through to the map.
+     */
+    public Set<Map2D.Entry<K1,K2,V>> entrySet() {
+        return new AbstractSet<Map2D.Entry<K1,K2,V>>() {
+            public int size() {
+                return ConcurrentMap2D.this.size();
+            }
+            public boolean isEmpty() {
+                return ConcurrentMap2D.this.isEmpty();
+            }
+            public void clear() {
+                ConcurrentMap2D.this.clear();
+            }
+            public Iterator<Map2D.Entry<K1,K2,V>> iterator() {
+                return new EntryIterator() {
+                    Collection<Map2D.Entry<K1,K2,V>>
+                        entries(HashMap2D<K1,K2,V> map) {
+                        return map.entrySet();
+                    }
+                };
+            }
+            public boolean contains(Object o) {
+                if(!(o instanceof Map2D.Entry)) {
+                    return false;
+                }
+                Map2D.Entry<?,?,?> e = (Map2D.Entry<?,?,?>)o;
+                V value = getObject(e.getKey1(), e.getKey2());
+                return value != null && value.equals(e.getValue());
+            }
+            public boolean remove(Object o) {
+                if(!(o instanceof Map2D.Entry)) {
+                    return false;
+                }
+                Map2D.Entry<?,?,?> e = (Map2D.Entry<?,?,?>)o;
+                return ConcurrentMap2D.this.remove(e.getKey1(), e.getKey2(),
+                                                   e.getValue());
+            }
+        };
+    }  // entrySet()
+
+    /**
+     * returns a weakly consistent view of the first keys.
+     */
+    protected Set<K1> keySet1() {
+        return new AbstractSet<K1>() {
+            public int size() {
+                int size = 0;
+                for(HashMap2D<K1,K2,V> stripe : stripes) {
+                    synchronized(stripe) {
+                        size += stripe.keySet1().size();
+                    }
+                }
+                return size;
+            }
+            public boolean contains(Object key1) {
+                return containsKey1(key1);
+            }
+            public Iterator<K1> iterator() {
+                // each first key is only in one stripe.
+                return new SnapshotIterator<K1>() {
+                    void collect(HashMap2D<K1,K2,V> map, List<K1> into) {
+                        into.addAll(map.keySet1());
+                    }
+                    void removeElement(K1 key1) {
+                        HashMap2D<K1,K2,V> stripe = stripe(key1);
+                        synchronized(stripe) {
+                            stripe.keySet1().remove(key1);
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * returns a weakly consistent view of the second keys. As they can be
+     * in all stripes, its size needs an iteration.
+     */
+    protected Set<K2> keySet2() {
+        return new AbstractSet<K2>() {
+            public int size() {
+                int size = 0;
+                for(Iterator<K2> it = iterator(); it.hasNext(); it.next()) {
+                    size++;
+                }
+                return size;
+            }
+            public boolean contains(Object key2) {
+                return containsKey2(key2);
+            }
+            public Iterator<K2> iterator() {
+                return new SnapshotIterator<K2>() {
+                    private final Set<K2> seen = new HashSet<K2>();
+                    void collect(HashMap2D<K1,K2,V> map, List<K2> into) {
+                        for(K2 key2 : map.keySet2()) {
+                            if(seen.add(key2)) {
+                                into.add(key2);
+                            }
+                        }
+                    }
+                    void removeElement(K2 key2) {
+                        slice2(key2).clear();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * returns a weakly consistent view of the mappings with some first
+     * key. They are all in the same stripe, so this is a consistent
+     * copy at the start of the iteration.
+     */
+    protected Collection<Map2D.Entry<K1,K2,V>> slice1(final Object key1) {
+        return new AbstractCollection<Map2D.Entry<K1,K2,V>>() {
+            public int size() {
+                HashMap2D<K1,K2,V> stripe = stripe(key1);
+                synchronized(stripe) {
+                    return stripe.slice1(key1).size();
+                }
+            }
+            public void clear() {
+                HashMap2D<K1,K2,V> stripe = stripe(key1);
+                synchronized(stripe) {
+                    stripe.slice1(key1).clear();
+                }
+            }
+            public Iterator<Map2D.Entry<K1,K2,V>> iterator() {
+                int index = stripeIndex(key1);
+                return new EntryIterator(index, index + 1) {
+                    Collection<Map2D.Entry<K1,K2,V>>
+                        entries(HashMap2D<K1,K2,V> map) {
+                        return map.slice1(key1);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * returns a weakly consistent view of the mappings with some second
+     * key, collected from all stripes.
+     */
+    protected Collection<Map2D.Entry<K1,K2,V>> slice2(final Object key2) {
+        return new AbstractCollection<Map2D.Entry<K1,K2,V>>() {
+            public int size() {
+                int size = 0;
+                for(HashMap2D<K1,K2,V> stripe : stripes) {
+                    synchronized(stripe) {
+                        size += stripe.slice2(key2).size();
+                    }
+                }
+                return size;
+            }
+            public void clear() {
+                for(HashMap2D<K1,K2,V> stripe : stripes) {
+                    synchronized(stripe) {
+                        stripe.slice2(key2).clear();
+                    }
+                }
+            }
+            public Iterator<Map2D.Entry<K1,K2,V>> iterator() {
+                return new EntryIterator() {
+                    Collection<Map2D.Entry<K1,K2,V>>
+                        entries(HashMap2D<K1,K2,V> map) {
+                        return map.slice2(key2);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * returns a weakly consistent map view as a map of key-pairs to values,
+     * which is itself a {@link ConcurrentMap} (with atomic operations
+     * delegating to the ones of this map).
+     */
+    public ConcurrentMap<KeyPair<K1,K2>, V> flattedMap() {
+        return new FlatMap();
+    }
+
+    /**
+     * the implementation of {@link #flattedMap}.
+     */
+    private final class FlatMap
+        extends AbstractMap<KeyPair<K1,K2>, V>
+        implements ConcurrentMap<KeyPair<K1,K2>, V>
+    {
+        public int size() {
+            return ConcurrentMap2D.this.size();
+        }
+        public boolean isEmpty() {
+            return ConcurrentMap2D.this.isEmpty();
+        }
+        public void clear() {
+            ConcurrentMap2D.this.clear();
+        }
+        public boolean containsKey(Object key) {
+            if(!(key instanceof Map2D.KeyPair)) {
+                return false;
+            }
+            Map2D.KeyPair<?,?> pair = (Map2D.KeyPair<?,?>)key;
+            return containsKeys(pair.getKey1(), pair.getKey2());
+        }
+        public boolean containsValue(Object value) {
+            return ConcurrentMap2D.this.containsValue(value);
+        }
+        public V get(Object key) {
+            if(!(key instanceof Map2D.KeyPair)) {
+                return null;
+            }
+            Map2D.KeyPair<?,?> pair = (Map2D.KeyPair<?,?>)key;
+            return getObject(pair.getKey1(), pair.getKey2());
+        }
+        public V put(KeyPair<K1,K2> key, V value) {
+            return ConcurrentMap2D.this.put(key.getKey1(), key.getKey2(),
+                                            value);
+        }
+        public V remove(Object key) {
+            if(!(key instanceof Map2D.KeyPair)) {
+                return null;
+            }
+            Map2D.KeyPair<?,?> pair = (Map2D.KeyPair<?,?>)key;
+            return ConcurrentMap2D.this.remove(pair.getKey1(),
+                                               pair.getKey2());
+        }
+        public V putIfAbsent(KeyPair<K1,K2> key, V value) {
+            return ConcurrentMap2D.this.putIfAbsent(key.getKey1(),
+                                                    key.getKey2(), value);
+        }
+        public boolean remove(Object key, Object value) {
+            if(!(key instanceof Map2D.KeyPair)) {
+                return false;
+            }
+            Map2D.KeyPair<?,?> pair = (Map2D.KeyPair<?,?>)key;
+            return ConcurrentMap2D.this.remove(pair.getKey1(),
+                                               pair.getKey2(), value);
+        }
+        public boolean replace(KeyPair<K1,K2> key, V oldValue, V newValue) {
+            return ConcurrentMap2D.this.replace(key.getKey1(), key.getKey2(),
+                                                oldValue, newValue);
+        }
+        public V replace(KeyPair<K1,K2> key, V value) {
+            return ConcurrentMap2D.this.replace(key.getKey1(), key.getKey2(),
+                                                value);
+        }
+        public Set<Map.Entry<KeyPair<K1,K2>, V>> entrySet() {
+            return new AbstractSet<Map.Entry<KeyPair<K1,K2>, V>>() {
+                public int size() {
+                    return ConcurrentMap2D.this.size();
+                }
+                public void clear() {
+                    ConcurrentMap2D.this.clear();
+                }
+                public Iterator<Map.Entry<KeyPair<K1,K2>, V>> iterator() {
+                    final Iterator<Map2D.Entry<K1,K2,V>> it =
+                        ConcurrentMap2D.this.entrySet().iterator();
+                    return new Iterator<Map.Entry<KeyPair<K1,K2>, V>>() {
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+                        public Map.Entry<KeyPair<K1,K2>, V> next() {
+                            final Map2D.Entry<K1,K2,V> entry = it.next();
+                            KeyPair<K1,K2> pair =
+                                new SimpleKeyPair<K1,K2>(entry.getKey1(),
+                                                         entry.getKey2());
+                            return new AbstractMap.SimpleEntry
+                                <KeyPair<K1,K2>, V>(pair, entry.getValue()) {
+                                private static final long
+                                    serialVersionUID = 1L;
+                                public V setValue(V value) {
+                                    super.setValue(value);
+                                    return entry.setValue(value);
+                                }
+                            };
+                        }
+                        public void remove() {
+                            it.remove();
+                        }
+                    };
+                }
+            };
+        }
+    }  // FlatMap
+
+
+    /**
+     * an usage example method: some threads count pairs of random numbers
+     * (below the parameter, default 10) with {@link #merge}, then the
+     * counts are summed up per first number.
+     */
+    public static void main(String[] args)
+        throws InterruptedException
+    {
+        final int range = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final ConcurrentMap2D<Integer,Integer,Integer> counts =
+            new ConcurrentMap2D<Integer,Integer,Integer>();
+        final BiFunction<Integer,Integer,Integer> sum =
+            new BiFunction<Integer,Integer,Integer>() {
+                public Integer apply(Integer a, Integer b) {
+                    return a + b;
+                }
+            };
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++) {
+            final Random random = new Random(t);
+            threads[t] = new Thread() {
+                    public void run() {
+                        for(int i = 0; i < 100000; i++) {
+                            counts.merge(random.nextInt(range),
+                                         random.nextInt(range), 1, sum);
+                        }
+                    }
+                };
+            threads[t].start();
+        }
+        for(Thread t : threads) {
+            t.join();
+        }
+        int total = 0;
+        for(Map.Entry<Integer, Map<Integer,Integer>> row
+                : counts.projection1Map().entrySet()) {
+            int rowSum = 0;
+            for(int count : row.getValue().values()) {
+                rowSum += count;
+            }
+            System.out.println(row.getKey() + ": " + rowSum);
+            total += rowSum;
+        }
+        System.out.println("total: " + total);
+    }
+
+}
@@ -0,0 +1,631 @@
+package de.fencing_game.paul.examples;
+
+import java.util.Arrays;
+
+/**
+ * The arithmetic kernels behind {@link DecimalBigInt}.
+ * <p>
+ * All methods here work directly on digit arrays in the same format
+ * as {@code DecimalBigInt} uses internally: big-endian arrays of
+ * digits in radix {@link DecimalBigInt#RADIX}. Leading zeros are allowed
+ * in the input arrays (they are just a bit slower).
+ * </p><p>
+ * As digits of the same weight are aligned at the <em>end</em> of
+ * big-endian arrays, many methods take the index of the lowest-order
+ * digit of the result (or an exclusive end index) instead of a start index.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+final class DecimalArithmetic {
+
+    /**
+     * the radix of our digit arrays.
+     */
+    private final static int RADIX = DecimalBigInt.RADIX;
+
+    /**
+     * common prefix of the system properties which can be used to
+     * set the initial values of the thresholds.
+     */
+    private final static String PROPERTY_PREFIX =
+        DecimalBigInt.class.getName() + ".";
+
+    /**
+     * the smallest allowed value for the thresholds. Below this
+     * the recursive algorithms would not make their operands smaller.
+     */
+    final static int MIN_THRESHOLD = 8;
+
+    /**
+     * The number of digits (of the shorter factor) from which on we use
+     * Karatsuba multiplication instead of the schoolbook algorithm.
+     */
+    static volatile int karatsubaThreshold =
+        Integer.getInteger(PROPERTY_PREFIX + "karatsubaThreshold", 80);
+
+    /**
+     * The number of digits (of the shorter factor) from which on we use
+     * Toom-Cook 3 multiplication instead of Karatsuba.
+     */
+    static volatile int toomCook3Threshold =
+        Integer.getInteger(PROPERTY_PREFIX + "toomCook3Threshold", 240);
+
+    /**
+     * The number of digits (of the shorter factor) from which on we use
+     * multiplication by number-theoretic transforms instead of Toom-Cook 3.
+     */
+    static volatile int nttThreshold =
+        Integer.getInteger(PROPERTY_PREFIX + "nttThreshold", 768);
+
+
+    /**
+     * no instances.
+     */
+    private DecimalArithmetic() {}
+
+
+    /**
+     * checks a threshold value passed to one of the setters
+     * in {@link DecimalBigInt}.
+     * @return the threshold.
+     * @throws IllegalArgumentException if the threshold is too small.
+     */
+    static int checkThreshold(int threshold) {
+        if(threshold < MIN_THRESHOLD) {
+            throw new IllegalArgumentException("threshold " + threshold +
+                                               " < " + MIN_THRESHOLD);
+        }
+        return threshold;
+    }
+
+
+    // ------------------------- addition -----------------------------
+
+
+    /**
+     * adds two digit arrays, putting the sum into the result array.
+     * This works in one pass from the lowest digit to the highest one,
+     * without any allocation.
+     * @param result an array with space for the sum, i.e. at least
+     *    one digit longer than the longer summand. The sum will be
+     *    aligned at its end, and all other digits are overwritten
+     *    with zeros.
+     */
+    static void addDigits(int[] result, int[] left, int[] right) {
+        if(left.length < right.length) {
+            int[] temp = left;
+            left = right;
+            right = temp;
+        }
+        int ri = result.length - 1;
+        int li = left.length - 1;
+        int carry = 0;
+        for(int si = right.length - 1; si >= 0; si--, li--, ri--) {
+            int sum = left[li] + right[si] + carry;
+            if(sum >= RADIX) {
+                sum -= RADIX;
+                carry = 1;
+            }
+            else {
+                carry = 0;
+            }
+            result[ri] = sum;
+        }
+        for(; li >= 0; li--, ri--) {
+            int sum = left[li] + carry;
+            if(sum == RADIX) {
+                sum = 0;
+            }
+            else {
+                carry = 0;
+            }
+            result[ri] = sum;
+        }
+        result[ri] = carry;
+        Arrays.fill(result, 0, ri, 0);
+    }
+
+
+    /**
+     * adds a number to (a part of) the result array, in place.
+     * The lowest digit of the addend is added to
+     * {@code result[resultEnd-1]}, carries propagate to the left.
+     * Leading zeros of the addend which don't fit into the result
+     * array are ignored.
+     */
+    static void addInto(int[] result, int resultEnd, int[] addend) {
+        int ri = resultEnd - 1;
+        int ai = addend.length - 1;
+        int carry = 0;
+        for(; ai >= 0 && ri >= 0; ai--, ri--) {
+            int sum = result[ri] + addend[ai] + carry;
+            if(sum >= RADIX) {
+                sum -= RADIX;
+                carry = 1;
+            }
+            else {
+                carry = 0;
+            }
+            result[ri] = sum;
+        }
+        for(; carry != 0; ri--) {
+            int sum = result[ri] + 1;
+            if(sum == RADIX) {
+                result[ri] = 0;
+            }
+            else {
+                result[ri] = sum;
+                carry = 0;
+            }
+        }
+        assert allZero(addend, 0, ai + 1) : "addend does not fit";
+    }
+
+    /**
+     * subtracts a number from (a part of) the result array, in place.
+     * The lowest digit of the subtrahend is subtracted from
+     * {@code result[resultEnd-1]}, borrows propagate to the left.
+     * The (partial) result must not become negative.
+     */
+    static void subtractFrom(int[] result, int resultEnd, int[] subtrahend) {
+        int ri = resultEnd - 1;
+        int si = subtrahend.length - 1;
+        int borrow = 0;
+        for(; si >= 0 && ri >= 0; si--, ri--) {
+            int diff = result[ri] - subtrahend[si] - borrow;
+            if(diff < 0) {
+                diff += RADIX;
+                borrow = 1;
+            }
+            else {
+                borrow = 0;
+            }
+            result[ri] = diff;
+        }
+        for(; borrow != 0; ri--) {
+            if(result[ri] == 0) {
+                result[ri] = RADIX - 1;
+            }
+            else {
+                result[ri]--;
+                borrow = 0;
+            }
+        }
+        assert allZero(subtrahend, 0, si + 1) : "subtrahend too large";
+    }
+
+    /**
+     * calculates the sum of two digit arrays.
+     * @return a new array without leading zeros.
+     */
+    static int[] add(int[] left, int[] right) {
+        int[] result = new int[Math.max(left.length, right.length) + 1];
+        addDigits(result, left, right);
+        return stripLeadingZeros(result);
+    }
+
+    /**
+     * calculates the difference of two digit arrays.
+     * @param left the minuend, must not be smaller than the subtrahend.
+     * @param right the subtrahend.
+     * @return a new array without leading zeros.
+     */
+    static int[] subtract(int[] left, int[] right) {
+        int[] result = left.clone();
+        subtractFrom(result, result.length, right);
+        return stripLeadingZeros(result);
+    }
+
+
+    // ------------------------ comparison ----------------------------
+
+
+    /**
+     * checks whether a part of an array consists only of zeros.
+     */
+    static boolean allZero(int[] digits, int from, int to) {
+        for(int i = from; i < to; i++) {
+            if(digits[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * returns the number of leading zeros of a digit array.
+     */
+    static int leadingZeros(int[] digits) {
+        int zeros = 0;
+        while(zeros < digits.length && digits[zeros] == 0) {
+            zeros++;
+        }
+        return zeros;
+    }
+
+    /**
+     * returns an array without leading zeros with the same value,
+     * which might be the argument itself.
+     */
+    static int[] stripLeadingZeros(int[] digits) {
+        int zeros = leadingZeros(digits);
+        if(zeros == 0) {
+            return digits;
+        }
+        return Arrays.copyOfRange(digits, zeros, digits.length);
+    }
+
+    /**
+     * compares the values of two digit arrays (which may have
+     * leading zeros).
+     * @return -1, 0 or 1 if left is smaller, equal or bigger than right.
+     */
+    static int compare(int[] left, int[] right) {
+        int li = leadingZeros(left);
+        int ri = leadingZeros(right);
+        int lLen = left.length - li;
+        int rLen = right.length - ri;
+        if(lLen != rLen) {
+            return lLen < rLen ? -1 : 1;
+        }
+        for(; li < left.length; li++, ri++) {
+            if(left[li] != right[ri]) {
+                return left[li] < right[ri] ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+
+    // ------------------------ short division -------------------------
+
+
+    /**
+     * divides a digit array by a small number, which is known
+     * to divide it without remainder.
+     * @param divisor a number with {@code 0 < divisor < RADIX}.
+     * @return a new array containing the quotient.
+     */
+    static int[] divideExactly(int[] divident, int divisor) {
+        int[] result = new int[divident.length];
+        int remainder = divideSmall(divident, divisor, result);
+        assert remainder == 0 : "division was not exact";
+        return stripLeadingZeros(result);
+    }
+
+    /**
+     * divides a digit array by a small number (short division).
+     * @param divisor a number with {@code 0 < divisor < RADIX}.
+     * @param quotient an array of the same length as the divident,
+     *    where the quotient will be put. (This may be the divident itself.)
+     * @return the remainder.
+     */
+    static int divideSmall(int[] divident, int divisor, int[] quotient) {
+        long remainder = 0;
+        for(int i = 0; i < divident.length; i++) {
+            long ent = divident[i] + RADIX * remainder;
+            quotient[i] = (int)(ent / divisor);
+            remainder = ent % divisor;
+        }
+        return (int)remainder;
+    }
+
+    /**
+     * multiplies a digit array by a small number.
+     * @param factor a number with {@code 0 <= factor < RADIX}.
+     * @return a new array without leading zeros.
+     */
+    static int[] multiplySmall(int[] digits, int factor) {
+        int[] result = new int[digits.length + 1];
+        long carry = 0;
+        for(int i = digits.length - 1; i >= 0; i--) {
+            long prod = (long)digits[i] * factor + carry;
+            result[i+1] = (int)(prod % RADIX);
+            carry = prod / RADIX;
+        }
+        result[0] = (int)carry;
+        return stripLeadingZeros(result);
+    }
+
+
+    // ------------------------ multiplication -------------------------
+
+
+    /**
+     * multiplies two digit arrays with the schoolbook algorithm,
+     * which needs O(n·m) time.
+     * <p>
+     * We go through the result digits from the lowest one (product
+     * scanning), summing all the digit products of each column
+     * in {@code long} accumulators, and only then normalize the
+     * column sum, giving a result digit and the carry to the next column.
+     * Nothing is allocated apart from the result array.
+     * </p>
+     * @return a new array of length {@code left.length + right.length},
+     *    which may contain leading zeros.
+     */
+    static int[] multiplySchoolbook(int[] left, int[] right) {
+        int lLen = left.length;
+        int rLen = right.length;
+        int[] result = new int[lLen + rLen];
+        if(lLen == 0 || rLen == 0) {
+            return result;
+        }
+        long carry = 0;
+        // column is the weight of the result digit, i.e. the
+        // little-endian index.
+        for(int column = 0; column < lLen + rLen - 1; column++) {
+            int first = Math.max(0, column - rLen + 1);
+            int last = Math.min(column, lLen - 1);
+            // each product is < RADIX², i.e. < 10^18, so we can
+            // add up to eight of them (plus a reduced sum < RADIX)
+            // before normalizing the low sum into the high one.
+            long low = 0;
+            long high = 0;
+            int pending = 0;
+            int li = lLen - 1 - first;
+            int ri = rLen - 1 - (column - first);
+            for(int i = first; i <= last; i++, li--, ri++) {
+                low += (long)left[li] * right[ri];
+                if(++pending == 8) {
+                    high += low / RADIX;
+                    low %= RADIX;
+                    pending = 0;
+                }
+            }
+            high += low / RADIX;
+            low = low % RADIX + carry;
+            result[result.length - 1 - column] = (int)(low % RADIX);
+            carry = high + low / RADIX;
+        }
+        assert carry < RADIX;
+        result[0] = (int)carry;
+        return result;
+    }
+
+
+    /**
+     * multiplies two digit arrays.
+     * <p>
+     * Depending on the length of the factors this selects the
+     * schoolbook algorithm (below {@link #karatsubaThreshold}),
+     * Karatsuba multiplication, Toom-Cook 3 multiplication
+     * (from {@link #toomCook3Threshold} on) or multiplication by
+     * number-theoretic transforms (from {@link #nttThreshold} on, see
+     * {@link DecimalNTT}). Very unbalanced factors below the NTT threshold
+     * are first split into pieces of the length of the shorter one.
+     * </p><p>
+     * Products too big for a single NTT are split by Toom-Cook 3, whose
+     * smaller products then again use the NTT.
+     * </p>
+     * @return a new array of length {@code left.length + right.length},
+     *    which may contain leading zeros.
+     */
+    static int[] multiply(int[] left, int[] right) {
+        int shorter = Math.min(left.length, right.length);
+        int longer = Math.max(left.length, right.length);
+        if(shorter < karatsubaThreshold) {
+            return multiplySchoolbook(left, right);
+        }
+        if(shorter >= nttThreshold &&
+           DecimalNTT.canMultiply(left.length, right.length)) {
+            return DecimalNTT.multiply(left, right);
+        }
+        if(2 * shorter <= longer) {
+            return multiplyUnbalanced(left, right);
+        }
+        if(shorter < toomCook3Threshold) {
+            return multiplyKaratsuba(left, right);
+        }
+        return multiplyToomCook3(left, right);
+    }
+
+
+    /**
+     * multiplies two factors of quite different length, by cutting the
+     * longer one in pieces of the length of the shorter one, and
+     * multiplying these individually.
+     */
+    private static int[] multiplyUnbalanced(int[] left, int[] right) {
+        int[] longFactor = left.length < right.length ? right : left;
+        int[] shortFactor = left.length < right.length ? left : right;
+        int[] result = new int[left.length + right.length];
+        int pieceLen = shortFactor.length;
+        int end = longFactor.length;
+        while(end > 0) {
+            int start = Math.max(0, end - pieceLen);
+            int[] piece = Arrays.copyOfRange(longFactor, start, end);
+            addInto(result, result.length - (longFactor.length - end),
+                    multiply(piece, shortFactor));
+            end = start;
+        }
+        return result;
+    }
+
+    /**
+     * returns the lowest {@code len} digits of a number (or less,
+     * if the number is shorter).
+     */
+    static int[] lowPart(int[] digits, int len) {
+        return Arrays.copyOfRange(digits, Math.max(0, digits.length - len),
+                                  digits.length);
+    }
+
+    /**
+     * returns the digits of a number, without the lowest {@code low}
+     * digits and limited to {@code len} digits.
+     */
+    static int[] middlePart(int[] digits, int low, int len) {
+        int end = Math.max(0, digits.length - low);
+        return Arrays.copyOfRange(digits, Math.max(0, end - len), end);
+    }
+
+    /**
+     * Karatsuba multiplication. With {@code x = x1·R^h + x0} and
+     * {@code y = y1·R^h + y0} we need only three half-size multiplications:
+     * {@code x·y = z2·R^(2h) + z1·R^h + z0}, where
+     * {@code z2 = x1·y1}, {@code z0 = x0·y0} and
+     * {@code z1 = (x1 + x0)·(y1 + y0) - z2 - z0}.
+     * <p>
+     * This needs O(n^1.585) time.
+     * </p>
+     */
+    private static int[] multiplyKaratsuba(int[] left, int[] right) {
+        int h = (Math.max(left.length, right.length) + 1) / 2;
+
+        int[] x0 = lowPart(left, h);
+        int[] x1 = middlePart(left, h, left.length);
+        int[] y0 = lowPart(right, h);
+        int[] y1 = middlePart(right, h, right.length);
+
+        int[] z0 = multiply(x0, y0);
+        int[] z2 = multiply(x1, y1);
+        int[] z1 = multiply(add(x0, x1), add(y0, y1));
+        subtractFrom(z1, z1.length, z0);
+        subtractFrom(z1, z1.length, z2);
+
+        int[] result = new int[left.length + right.length];
+        int end = result.length;
+        addInto(result, end, z0);
+        addInto(result, end - h, z1);
+        addInto(result, end - 2*h, z2);
+        return result;
+    }
+
+
+    /**
+     * A signed number used in the intermediate steps of Toom-Cook
+     * multiplication. The magnitude never has leading zeros.
+     */
+    private final static class Signed {
+        /**
+         * -1, 0 or 1.
+         */
+        final int sign;
+        final int[] magnitude;
+
+        Signed(int sign, int[] magnitude) {
+            magnitude = stripLeadingZeros(magnitude);
+            this.sign = magnitude.length == 0 ? 0 : sign;
+            this.magnitude = magnitude;
+        }
+
+        Signed(int[] magnitude) {
+            this(1, magnitude);
+        }
+
+        Signed negate() {
+            return new Signed(-sign, magnitude);
+        }
+
+        Signed plus(Signed that) {
+            if(this.sign == 0) {
+                return that;
+            }
+            if(that.sign == 0) {
+                return this;
+            }
+            if(this.sign == that.sign) {
+                return new Signed(sign, add(this.magnitude, that.magnitude));
+            }
+            int cmp = compare(this.magnitude, that.magnitude);
+            if(cmp == 0) {
+                return new Signed(0, new int[0]);
+            }
+            if(cmp > 0) {
+                return new Signed(this.sign,
+                                  subtract(this.magnitude, that.magnitude));
+            }
+            return new Signed(that.sign,
+                              subtract(that.magnitude, this.magnitude));
+        }
+
+        Signed minus(Signed that) {
+            return plus(that.negate());
+        }
+
+        Signed times(Signed that) {
+            return new Signed(this.sign * that.sign,
+                              multiply(this.magnitude, that.magnitude));
+        }
+
+        Signed timesSmall(int factor) {
+            return new Signed(sign, multiplySmall(magnitude, factor));
+        }
+
+        Signed divideExactly(int divisor) {
+            return new Signed(sign,
+                              DecimalArithmetic.divideExactly(magnitude,
+                                                              divisor));
+        }
+
+        /**
+         * returns the magnitude, asserting that this is not negative.
+         */
+        int[] natural() {
+            assert sign >= 0 : "negative Toom-Cook coefficient";
+            return magnitude;
+        }
+    }
+
+
+    /**
+     * Toom-Cook 3 multiplication: each factor is split into three parts,
+     * seen as a polynomial of degree 2 in {@code R^k}. We evaluate both
+     * polynomials at the points 0, 1, -1, -2 and ∞, multiply the
+     * values (five multiplications of a third of the size) and interpolate
+     * the coefficients of the product polynomial from these.
+     * <p>
+     * The interpolation sequence is the one by Marco Bodrato, as also
+     * used by {@link java.math.BigInteger}. This needs O(n^1.465) time.
+     * </p>
+     */
+    private static int[] multiplyToomCook3(int[] left, int[] right) {
+        int k = (Math.max(left.length, right.length) + 2) / 3;
+
+        int[] a0 = lowPart(left, k);
+        int[] a1 = middlePart(left, k, k);
+        int[] a2 = middlePart(left, 2*k, left.length);
+        int[] b0 = lowPart(right, k);
+        int[] b1 = middlePart(right, k, k);
+        int[] b2 = middlePart(right, 2*k, right.length);
+
+        // evaluation
+        Signed r0 = new Signed(multiply(a0, b0));
+        Signed rInf = new Signed(multiply(a2, b2));
+
+        Signed a02 = new Signed(add(a0, a2));
+        Signed b02 = new Signed(add(b0, b2));
+        Signed sa1 = new Signed(a1);
+        Signed sb1 = new Signed(b1);
+
+        Signed r1 = a02.plus(sa1).times(b02.plus(sb1));
+        Signed am1 = a02.minus(sa1);
+        Signed bm1 = b02.minus(sb1);
+        Signed rm1 = am1.times(bm1);
+        Signed am2 = am1.plus(new Signed(a2)).timesSmall(2)
+            .minus(new Signed(a0));
+        Signed bm2 = bm1.plus(new Signed(b2)).timesSmall(2)
+            .minus(new Signed(b0));
+        Signed rm2 = am2.times(bm2);
+
+        // interpolation
+        Signed t3 = rm2.minus(r1).divideExactly(3);
+        Signed t1 = r1.minus(rm1).divideExactly(2);
+        Signed t2 = rm1.minus(r0);
+        t3 = t2.minus(t3).divideExactly(2).plus(rInf.timesSmall(2));
+        t2 = t2.plus(t1).minus(rInf);
+        t1 = t1.minus(t3);
+
+        // recomposition
+        int[] result = new int[left.length + right.length];
+        int end = result.length;
+        addInto(result, end, r0.natural());
+        addInto(result, end - k, t1.natural());
+        addInto(result, end - 2*k, t2.natural());
+        addInto(result, end - 3*k, t3.natural());
+        addInto(result, end - 4*k, rInf.natural());
+        return result;
+    }
+
+}
@@ -1,18 +1,28 @@
 package de.fencing_game.paul.examples;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Arrays;
-import java.util.Formatter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
- * A big-number class for natural numbers (i.e. nonnegative),
+ * A big-number class for integers,
  * which uses a decimal-based format (instead of a binary based
  * one like the {@link java.math.BigInteger}).
  * <p>
- * The numbers are stored in a positional notation with radix 1000000000 (10⁹),
+ * The numbers are stored as a sign and the absolute value, which is
+ * in a positional notation with radix 1000000000 (10⁹),
  * which supports easier conversion from/to decimal.
+ * Small numbers (with absolute value below 10¹⁸, i.e. up to two digits)
+ * are stored in a {@code long} instead, and most operations have fast
+ * paths for them, so no arrays are created for these.
  * </p><p>
- * Until now we only have addition and multiplication, no subtraction
- * or division.
+ * Objects of this class are immutable (and thus thread-safe).
+ * </p><p>
+ * We have addition, subtraction, multiplication, division (rounding
+ * towards zero, like for {@code int}), powers, roots, modular
+ * exponentiation and the greatest common divisor.
  * </p><p>
  * See my answer <a href="http://stackoverflow.com/questions/5318068/very-large-numbers-in-java-without-using-java-math-biginteger/5318896#5318896">Creating a simple Big number class in Java</a>
  * on Stackoverflow for details on how it is done.
@@ -29,25 +39,51 @@ public class DecimalBigInt
     public final static int RADIX = 1000000000;
 
     /**
-     * The number of decimal digits fitting in one digit
-     * of our system.
+     * the limit for the small representation: {@code RADIX^2 = 10^18}.
      */
-    private final static int RADIX_DECIMAL_DIGITS = 9;
+    private final static long SMALL_LIMIT = (long)RADIX * RADIX;
 
+    /**
+     * the digits of zero.
+     */
+    private final static int[] NO_DIGITS = {};
 
     /**
-     * big-endian representation of the digits.
+     * big-endian representation of the digits of the absolute value,
+     * without leading zeros.
      * Little-endian would have been smarter, but
      * now I don't want to change it everywhere.
+     * <p>
+     * This is {@code null} for small numbers (with at most two digits),
+     * which are stored in {@link #small} instead. (So each number has
+     * exactly one representation.)
+     * </p>
+     */
+    private final int[] digits;
+
+    /**
+     * the value, if {@code digits == null}. Otherwise 0.
+     */
+    private final long small;
+
+    /**
+     * the sign: -1, 0 or 1.
      */
-    private int[] digits;
+    private final int signum;
+
+    /**
+     * the cached hash code, 0 if not yet calculated. (Like for
+     * {@link String}, calculating it more than once in different threads
+     * does no harm.)
+     */
+    private int hash;
 
 
     public final static DecimalBigInt ZERO = new DecimalBigInt();
     public final static DecimalBigInt ONE = new DecimalBigInt(1);
 
     /**
-     * creates a DecimalBigInt based on an array of digits.
+     * creates a (nonnegative) DecimalBigInt based on an array of digits.
      * @param digits a list of digits, each between 0 (inclusive)
      *    and {@link RADIX} (exclusive).
      * @throws IllegalArgumentException if any digit is out of range.
@@ -71,10 +107,99 @@ public class DecimalBigInt
                 }
             }
         }
-        // cut off leading zeros by copying only the rest.
-        // (We always do the copying, since we want to be independent
-        //  from the input array.)
-        this.digits = Arrays.copyOfRange(digits, zeroCount, digits.length);
+        int length = digits.length - zeroCount;
+        if(length <= 2) {
+            this.digits = null;
+            this.small = toLong(digits, zeroCount);
+            this.signum = Long.signum(small);
+        }
+        else {
+            // cut off leading zeros by copying only the rest.
+            // (We always do the copying, since we want to be independent
+            //  from the input array.)
+            this.digits = Arrays.copyOfRange(digits, zeroCount,
+                                             digits.length);
+            this.small = 0;
+            this.signum = 1;
+        }
+    }
+
+    /**
+     * the constructor for our factory methods, which takes one of the
+     * two representations.
+     */
+    private DecimalBigInt(int signum, int[] digits, long small) {
+        this.signum = signum;
+        this.digits = digits;
+        this.small = small;
+    }
+
+    /**
+     * converts the digits {@code digits[from ..]} (at most two) to
+     * a long.
+     */
+    private static long toLong(int[] digits, int from) {
+        long value = 0;
+        for(int i = from; i < digits.length; i++) {
+            value = value * RADIX + digits[i];
+        }
+        return value;
+    }
+
+
+    /**
+     * creates a DecimalBigInt directly from a digit array, without
+     * checking the digits and without copying the array if it has no
+     * leading zeros. This is used by our arithmetic operations, which
+     * create fresh arrays anyway.
+     * @param digits an array of digits between 0 (inclusive) and
+     *    {@link #RADIX} (exclusive), which must not be changed afterwards.
+     */
+    static DecimalBigInt fromDigits(int[] digits) {
+        return fromDigits(1, digits);
+    }
+
+    /**
+     * creates a DecimalBigInt from a sign and a digit array for the
+     * absolute value, like {@link #fromDigits(int[])}.
+     * @param signum the sign, -1 or 1. (This is ignored if the digits
+     *    are all zero.)
+     */
+    static DecimalBigInt fromDigits(int signum, int[] digits) {
+        int zeros = DecimalArithmetic.leadingZeros(digits);
+        if(digits.length - zeros <= 2) {
+            return valueOf(signum * toLong(digits, zeros));
+        }
+        return new DecimalBigInt(signum,
+                                 DecimalArithmetic.stripLeadingZeros(digits),
+                                 0);
+    }
+
+    /**
+     * returns the big-endian digit array of the absolute value of this
+     * number (without leading zeros). This is not a copy, so don't
+     * change it. (For small numbers, this creates a new array.)
+     */
+    int[] getDigits() {
+        if(digits != null) {
+            return digits;
+        }
+        long abs = Math.abs(small);
+        if(abs == 0) {
+            return NO_DIGITS;
+        }
+        if(abs < RADIX) {
+            return new int[]{ (int)abs };
+        }
+        return new int[]{ (int)(abs / RADIX), (int)(abs % RADIX) };
+    }
+
+    /**
+     * returns true if this number uses the small representation, i.e.
+     * if its absolute value is smaller than 10¹⁸.
+     */
+    private boolean isSmall() {
+        return digits == null;
     }
 
   
@@ -83,45 +208,52 @@ public class DecimalBigInt
      * (Will be replaced later with a real decimal conversion.)
      */
     public String toString() {
-        return "Big" + Arrays.toString(digits);
+        return (signum < 0 ? "-Big" : "Big") + Arrays.toString(getDigits());
     }
 
 
     /**
      * creates a DecimalBigInt from a decimal representation.
-     * @param decimal a string of decimal digits.
+     * @param decimal a sequence of decimal digits, e.g. a String,
+     *     optionally preceded by a sign ('-' or '+').
      * @throws NumberFormatException if the number is not in
-     *     correct decimal format, e.g. if it contains any characters
-     *     outside of 0..9.
+     *     correct decimal format, e.g. if it has no digits or contains any
+     *     other characters outside of 0..9.
      */
-    public static DecimalBigInt valueOf(String decimal) {
-        int decLen = decimal.length();
-        int bigLen = (decLen-1) / RADIX_DECIMAL_DIGITS + 1;
-        // length of first block
-        int firstSome = decLen - (bigLen-1) * RADIX_DECIMAL_DIGITS;
-        int[] digits = new int[bigLen];
-        for(int i = 0; i < bigLen ; i++) {
-            String block =
-                decimal.substring(Math.max(firstSome + (i-1)*RADIX_DECIMAL_DIGITS, 0),
-                                  firstSome +   i  *RADIX_DECIMAL_DIGITS);
-            digits[i] = Integer.parseInt(block);
-        }
-        return new DecimalBigInt(digits);
+    public static DecimalBigInt valueOf(CharSequence decimal) {
+        return DecimalText.parse(decimal);
+    }
+
+    /**
+     * reads a DecimalBigInt in decimal representation (like for
+     * {@link #valueOf(CharSequence)}) from a Reader.
+     * All characters up to the end of the stream are used, so
+     * the stream must not contain anything else (not even a line break).
+     * The Reader is not closed.
+     * @throws NumberFormatException if the number is not in
+     *     correct decimal format, e.g. if it has no digits or contains any
+     *     other characters outside of 0..9.
+     * @throws IOException if the Reader throws one.
+     */
+    public static DecimalBigInt readDecimal(Reader in)
+        throws IOException
+    {
+        return DecimalText.read(in);
     }
 
     /**
-     * converts a nonnegative {@code long} value to a DecimalBigInt number.
-     * @throws IllegalArgumentException if number is negative.
-     * @return the DecimalBigInt representation of the same natural number.
+     * converts a {@code long} value to a DecimalBigInt number.
+     * @return the DecimalBigInt representation of the same integer.
      */
     public static DecimalBigInt valueOf(long number) {
-        if(number < 0) {
-            throw new IllegalArgumentException("negative number: " +number);
-        }
         if(number == 0L)
             return ZERO;
         if(number == 1L)
             return ONE;
+        int signum = number < 0 ? -1 : 1;
+        if(-SMALL_LIMIT < number && number < SMALL_LIMIT) {
+            return new DecimalBigInt(signum, null, number);
+        }
 
         // RADIX^2 = 10^18 < 2^63 < 10^19 < 10^27 = RADIX^3
         // => long can have maximally 3 of our digits
@@ -129,27 +261,30 @@ public class DecimalBigInt
         int[] digits = new int[3];
         // start with the last digit
         int index = 2;
-        while(number > 0) {
-            digits[index] = (int)(number % RADIX);
+        // for negative numbers, both / and % round towards zero, so
+        // the remainder is the negative digit. (We can't negate the
+        // number first, since -Long.MIN_VALUE doesn't fit.)
+        while(number != 0) {
+            digits[index] = Math.abs((int)(number % RADIX));
             number = number / RADIX;
             index-- ;
         }
-        return new DecimalBigInt(digits);
+        return new DecimalBigInt(signum, digits, 0);
     }
 
     /**
      * creates a DecimalBigInt from a string-representation
      * in some arbitrary radix.
      *
-     * Note: this is not the most efficient implementation, since we
-     * use the Horner scheme on DecimalBigInt values, instead working
-     * directly on {@code int[]} and convert to a DecimalBigInt only
-     * in the end.
+     * Several digits are handled in each step of the Horner scheme,
+     * and long strings are converted by divide and conquer, so this
+     * takes only a small multiple of a multiplication's time.
      *
      * @param text the big-endian string representation of the number, using
      *  the decimal digits '0' ... '9' and additionally the latin
      *  letters 'A' ... 'Z' (or 'a' ... 'z'). (Only letters below
-     *  the given radix are allowed, of course.)
+     *  the given radix are allowed, of course.) It may start with
+     *  a sign ('-' or '+').
      * @param radix the radix used in the representation, between
      *   {@link Character#MIN_RADIX} (2, inclusive) and
      *   {@link Character#MAX_RADIX} (36, inclusive).
@@ -158,23 +293,28 @@ public class DecimalBigInt
         if(radix < Character.MIN_RADIX || Character.MAX_RADIX < radix) {
             throw new IllegalArgumentException("radix out of range: " + radix);
         }
-        DecimalBigInt bigRadix = new DecimalBigInt(radix);
-        DecimalBigInt value = ZERO;
-        for(char digit : text.toCharArray()) {
+        int signum = text.length() > 0 ? DecimalText.signOf(text.charAt(0)) : 0;
+        int start = signum == 0 ? 0 : 1;
+        if(signum != 0 && text.length() == 1) {
+            throw new NumberFormatException("no digits");
+        }
+        int[] rDigits = new int[text.length() - start];
+        for(int i = start; i < text.length(); i++) {
+            char digit = text.charAt(i);
             int iDigit = Character.digit(digit, radix);
             if(iDigit < 0) {
                 throw new NumberFormatException("digit " + digit +
                                                 " is not a valid base-"+radix+
                                                 "-digit.");
             }
-            DecimalBigInt bigDigit = new DecimalBigInt(iDigit);
-            value = value.times(bigRadix).plus(bigDigit);
+            rDigits[i - start] = iDigit;
         }
-        return value;
+        DecimalBigInt value = DecimalRadixConversion.fromRadix(rDigits, radix);
+        return signum < 0 ? value.negate() : value;
     }
 
     /**
-     * creates a DecimalBigInt from a representation
+     * creates a (nonnegative) DecimalBigInt from a representation
      * in some arbitrary radix.
      *
      * @param digits the individual digits, each between 0 (inclusive)
@@ -186,6 +326,15 @@ public class DecimalBigInt
         if(radix < 2) {
             throw new IllegalArgumentException("illegal radix: " + radix);
         }
+        if(radix < RADIX) {
+            for(int digit : digits) {
+                if(digit < 0 || radix <= digit) {
+                    throw new IllegalArgumentException("digit " + digit +
+                                                       " out of range");
+                }
+            }
+            return DecimalRadixConversion.fromRadix(digits, radix);
+        }
         DecimalBigInt bigRadix = valueOf(radix);
         DecimalBigInt value = ZERO;
         for(int digit : digits) {
@@ -204,14 +353,25 @@ public class DecimalBigInt
      * formats the number as a decimal String.
      */
     public String toDecimalString() {
-        StringBuilder b =
-            new StringBuilder(RADIX_DECIMAL_DIGITS * digits.length);
-        Formatter f = new Formatter(b);
-        f.format("%d", digits[0]);
-        for(int i = 1 ; i < digits.length; i++) {
-            f.format("%09d", digits[i]);
+        if(isSmall()) {
+            return Long.toString(small);
         }
-        return b.toString();
+        return DecimalText.toDecimalString(this);
+    }
+
+    /**
+     * writes the number in decimal to a Writer, StringBuilder or
+     * any other Appendable, without creating a String of the whole number.
+     * @throws IOException if the Appendable throws one.
+     */
+    public void writeDecimal(Appendable out)
+        throws IOException
+    {
+        if(isSmall()) {
+            out.append(Long.toString(small));
+            return;
+        }
+        DecimalText.write(this, out);
     }
 
     /**
@@ -221,16 +381,20 @@ public class DecimalBigInt
      * @param radix the radix to use, between {@link Character.MIN_RADIX}
      *   and {@link Character.MAX_RADIX}.
      * @return a String containing the digits of this number in the
-     *   specified radix, using '0' .. '9' and 'a' .. 'z' (as much as needed).
+     *   specified radix, using '0' .. '9' and 'a' .. 'z' (as much as needed),
+     *   preceded by '-' for negative numbers.
      */
     public String toString(int radix) {
         if(radix < Character.MIN_RADIX || Character.MAX_RADIX < radix) {
             throw new IllegalArgumentException("radix out of range: " + radix);
         }
-        if(digits.length == 0)
-            return "0";
+        if(isSmall())
+            return Long.toString(small, radix);
         int[] rdigits = convertTo(radix);
-        StringBuilder b = new StringBuilder(rdigits.length);
+        StringBuilder b = new StringBuilder(rdigits.length + 1);
+        if(signum < 0) {
+            b.append('-');
+        }
         for(int dig : rdigits) {
             b.append(Character.forDigit(dig, radix));
         }
@@ -239,90 +403,300 @@ public class DecimalBigInt
 
 
 
+    /**
+     * returns the sign of this number.
+     * @return -1, 0 or 1 if this number is negative, zero or positive.
+     */
+    public int signum() {
+        return signum;
+    }
+
+    /**
+     * returns the number {@code -this}.
+     */
+    public DecimalBigInt negate() {
+        if(isSmall()) {
+            return valueOf(-small);
+        }
+        return new DecimalBigInt(-signum, digits, 0);
+    }
+
+    /**
+     * returns the absolute value of this number.
+     */
+    public DecimalBigInt abs() {
+        return signum < 0 ? negate() : this;
+    }
+
     /**
      * calculates the sum {@code this + that}.
      */
     public DecimalBigInt plus(DecimalBigInt that) {
-        int[] result = new int[Math.max(this.digits.length,
-                                        that.digits.length)+ 1];
+        return add(that, that.signum);
+    }
 
-        addDigits(result, result.length-1, this.digits);
-        addDigits(result, result.length-1, that.digits);
+    /**
+     * calculates the difference {@code this - that}.
+     */
+    public DecimalBigInt minus(DecimalBigInt that) {
+        return add(that, -that.signum);
+    }
 
-        return new DecimalBigInt(result);
+    /**
+     * calculates {@code this + thatSignum·|that|}, adding or subtracting
+     * the absolute values depending on the signs.
+     */
+    private DecimalBigInt add(DecimalBigInt that, int thatSignum) {
+        if(thatSignum == 0) {
+            return this;
+        }
+        if(this.isSmall() && that.isSmall()) {
+            // both are smaller than 10^18, so the sum fits in a long.
+            return valueOf(this.small +
+                           (thatSignum == that.signum ? that.small
+                                                      : -that.small));
+        }
+        int[] thisDigits = this.getDigits();
+        int[] thatDigits = that.getDigits();
+        if(this.signum == 0) {
+            return fromDigits(thatSignum, thatDigits);
+        }
+        if(this.signum == thatSignum) {
+            int[] result = new int[Math.max(thisDigits.length,
+                                            thatDigits.length)+ 1];
+            DecimalArithmetic.addDigits(result, thisDigits, thatDigits);
+            return fromDigits(thatSignum, result);
+        }
+        int cmp = DecimalArithmetic.compare(thisDigits, thatDigits);
+        if(cmp == 0) {
+            return ZERO;
+        }
+        if(cmp > 0) {
+            return fromDigits(this.signum,
+                              DecimalArithmetic.subtract(thisDigits,
+                                                         thatDigits));
+        }
+        return fromDigits(thatSignum,
+                          DecimalArithmetic.subtract(thatDigits,
+                                                     thisDigits));
     }
 
     /**
-     * adds all the digits from the addend array to the result array.
+     * returns the product {@code this × that}.
+     * <p>
+     * For small factors this uses the schoolbook algorithm, for bigger
+     * ones Karatsuba multiplication, then Toom-Cook 3 multiplication,
+     * and for huge ones a multiplication by number-theoretic transforms,
+     * which needs only O(n log n) time.
+     * The factor lengths where these are switched can be tuned with
+     * {@link #setKaratsubaThreshold}, {@link #setToomCook3Threshold}
+     * and {@link #setNttThreshold}.
+     * </p>
      */
-    private void addDigits(int[] result, int resultIndex,
-                           int... addend)
-    {
-        int addendIndex = addend.length - 1;
-        while(addendIndex >= 0) {
-            addDigit(result, resultIndex,
-                     addend[addendIndex]);
-            addendIndex--;
-            resultIndex--;
+    public DecimalBigInt times(DecimalBigInt that) {
+        if(this.isSmall() && that.isSmall()) {
+            long left = Math.abs(this.small);
+            long right = Math.abs(that.small);
+            if(right == 0 || left <= Long.MAX_VALUE / right) {
+                return valueOf(this.small * that.small);
+            }
         }
+        return fromDigits(this.signum * that.signum,
+                          DecimalArithmetic.multiply(this.getDigits(),
+                                                     that.getDigits()));
     }
 
+    /**
+     * calculates the power {@code this^exponent}.
+     * <p>
+     * This uses repeated squaring (going through the bits of the exponent
+     * from the highest one), so we need less than
+     * {@code 2·log₂(exponent)} multiplications, and most of these are of
+     * factors of the same size, where our fast multiplication algorithms
+     * help.
+     * </p>
+     * @param exponent the exponent, {@code exponent >= 0}.
+     * @return the power, {@link #ONE} for {@code exponent == 0}.
+     * @throws ArithmeticException if the exponent is negative.
+     */
+    public DecimalBigInt pow(int exponent) {
+        if(exponent < 0) {
+            throw new ArithmeticException("negative exponent: " + exponent);
+        }
+        if(exponent == 0) {
+            return ONE;
+        }
+        if(signum == 0) {
+            return ZERO;
+        }
+        int[] base = getDigits();
+        int[] result = base;
+        for(int bit = Integer.highestOneBit(exponent) >>> 1;
+            bit != 0;
+            bit >>>= 1) {
+            result = DecimalArithmetic.stripLeadingZeros
+                (DecimalArithmetic.multiply(result, result));
+            if((exponent & bit) != 0) {
+                result = DecimalArithmetic.stripLeadingZeros
+                    (DecimalArithmetic.multiply(result, base));
+            }
+        }
+        return fromDigits(signum < 0 && exponent % 2 != 0 ? -1 : 1, result);
+    }
 
     /**
-     * adds one digit from the addend to the corresponding digit
-     * of the result.
-     * If there is carry, it is recursively added to the next digit
-     * of the result.
+     * calculates the greatest common divisor of this number and another
+     * one, using Lehmer's algorithm (i.e. a Euclidean algorithm which does
+     * most of its steps on the leading digits only).
+     * @return the greatest common divisor of the absolute values,
+     *   which is never negative. It is zero only if both numbers are zero.
      */
-    private void addDigit(int[] result, int resultIndex,
-                          int addendDigit)
-    {
-        int sum = result[resultIndex] + addendDigit;
-        result[resultIndex] = sum % RADIX;
-        int carry = sum / RADIX;
-        if(carry > 0) {
-            addDigit(result, resultIndex - 1, carry);
+    public DecimalBigInt gcd(DecimalBigInt that) {
+        if(this.isSmall() && that.isSmall()) {
+            long x = Math.abs(this.small);
+            long y = Math.abs(that.small);
+            while(y != 0) {
+                long r = x % y;
+                x = y;
+                y = r;
+            }
+            return valueOf(x);
         }
+        return fromDigits(DecimalGcd.gcd(this.getDigits(), that.getDigits()));
     }
 
+    /**
+     * calculates the square root of this number, rounded down.
+     * @throws ArithmeticException if this number is negative.
+     * @see #nthRoot
+     */
+    public DecimalBigInt sqrt() {
+        return nthRoot(2);
+    }
 
     /**
-     * multiplies two digits and adds the product to the result array
-     * at the right digit-position.
+     * calculates the k-th root of this number, rounded towards zero,
+     * using Newton's iteration.
+     * @param k the degree of the root, {@code k >= 1}.
+     * @return the biggest number r with {@code r^k <= this} (or, for
+     *    negative numbers, the smallest one with {@code r^k >= this}).
+     * @throws ArithmeticException if k is not positive, or k is even and
+     *    this number is negative.
      */
-    private void multiplyDigit(int[] result, int resultIndex,
-                               int firstFactor, int secondFactor) {
-        long prod = (long)firstFactor * (long)secondFactor;
-        int prodDigit = (int)(prod % RADIX);
-        int carry = (int)(prod / RADIX);
-        addDigits(result, resultIndex, carry, prodDigit);
+    public DecimalBigInt nthRoot(int k) {
+        if(k <= 0) {
+            throw new ArithmeticException("root of degree " + k);
+        }
+        if(signum < 0 && k % 2 == 0) {
+            throw new ArithmeticException("even root of negative number");
+        }
+        if(signum == 0 || k == 1) {
+            return this;
+        }
+        DecimalBigInt root = DecimalRoots.root(abs(), k);
+        return signum < 0 ? root.negate() : root;
     }
 
+    /**
+     * calculates this number modulo some positive number.
+     * Other than {@link #remainder}, the result is never negative.
+     * @return the number {@code r} with {@code 0 <= r < modulus} which
+     *    differs from this number by a multiple of the modulus.
+     * @throws ArithmeticException if the modulus is not positive.
+     */
+    public DecimalBigInt mod(DecimalBigInt modulus) {
+        if(modulus.signum <= 0) {
+            throw new ArithmeticException("modulus not positive: " +
+                                          modulus);
+        }
+        DecimalBigInt r = remainder(modulus);
+        return r.signum < 0 ? r.plus(modulus) : r;
+    }
 
     /**
-     * multiplies all digits of two factors and adds them to the result.
+     * calculates {@code this^exponent mod modulus}.
+     * <p>
+     * For many exponentiations with the same modulus, use a
+     * {@link DecimalModulus} object instead, which does the
+     * precomputation for the (Barrett) reduction only once.
+     * </p>
+     * @param exponent a nonnegative exponent.
+     * @param modulus a positive modulus.
+     * @throws ArithmeticException if the exponent is negative or the
+     *    modulus not positive.
      */
-    private void multiplyDigits(int[] result, int resultIndex,
-                                int[] leftFactor, int[] rightFactor) {
-        for(int i = 0; i < leftFactor.length; i++) {
-            for(int j = 0; j < rightFactor.length; j++) {
+    public DecimalBigInt modPow(DecimalBigInt exponent, DecimalBigInt modulus) {
+        return new DecimalModulus(modulus).pow(this, exponent);
+    }
 
-                multiplyDigit(result, resultIndex - (i + j),
-                              leftFactor[leftFactor.length-i-1],
-                              rightFactor[rightFactor.length-j-1]);
-            }
-        }
+
+    /**
+     * sets the number of digits (in our internal radix) of the smaller
+     * factor from which on {@link #times} uses Karatsuba multiplication
+     * instead of the schoolbook algorithm.
+     * <p>
+     * The initial value can also be given by the system property
+     * {@code de.fencing_game.paul.examples.DecimalBigInt.karatsubaThreshold}.
+     * </p>
+     * @throws IllegalArgumentException if the threshold is smaller than 8.
+     */
+    public static void setKaratsubaThreshold(int threshold) {
+        DecimalArithmetic.karatsubaThreshold =
+            DecimalArithmetic.checkThreshold(threshold);
     }
 
     /**
-     * returns the product {@code this × that}.
+     * returns the current Karatsuba threshold.
+     * @see #setKaratsubaThreshold
      */
-    public DecimalBigInt times(DecimalBigInt that) {
-        int[] result = new int[this.digits.length + that.digits.length];
-        multiplyDigits(result, result.length-1, 
-                       this.digits, that.digits);
+    public static int getKaratsubaThreshold() {
+        return DecimalArithmetic.karatsubaThreshold;
+    }
+
+    /**
+     * sets the number of digits (in our internal radix) of the smaller
+     * factor from which on {@link #times} uses Toom-Cook 3 multiplication
+     * instead of Karatsuba multiplication.
+     * <p>
+     * The initial value can also be given by the system property
+     * {@code de.fencing_game.paul.examples.DecimalBigInt.toomCook3Threshold}.
+     * </p>
+     * @throws IllegalArgumentException if the threshold is smaller than 8.
+     */
+    public static void setToomCook3Threshold(int threshold) {
+        DecimalArithmetic.toomCook3Threshold =
+            DecimalArithmetic.checkThreshold(threshold);
+    }
 
-        return new DecimalBigInt(result);
+    /**
+     * returns the current Toom-Cook 3 threshold.
+     * @see #setToomCook3Threshold
+     */
+    public static int getToomCook3Threshold() {
+        return DecimalArithmetic.toomCook3Threshold;
+    }
+
+    /**
+     * sets the number of digits (in our internal radix) of the smaller
+     * factor from which on {@link #times} uses multiplication by
+     * number-theoretic transforms instead of Toom-Cook 3 multiplication.
+     * <p>
+     * The initial value can also be given by the system property
+     * {@code de.fencing_game.paul.examples.DecimalBigInt.nttThreshold}.
+     * </p>
+     * @throws IllegalArgumentException if the threshold is smaller than 8.
+     */
+    public static void setNttThreshold(int threshold) {
+        DecimalArithmetic.nttThreshold =
+            DecimalArithmetic.checkThreshold(threshold);
+    }
+
+    /**
+     * returns the current NTT threshold.
+     * @see #setNttThreshold
+     */
+    public static int getNttThreshold() {
+        return DecimalArithmetic.nttThreshold;
     }
 
 
@@ -391,7 +765,7 @@ public class DecimalBigInt
      * Divides this number by a small number.
      * @param divisor an integer with {@code 0 < divisor < RADIX}.
      * @return the integer part of the quotient {@code this / divisor},
-     *     ignoring the remainder.
+     *     ignoring the remainder (i.e. rounded towards zero).
      * @throws IllegalArgumentException if the divisor is <= 0 or >= RADIX.
      */
     public DecimalBigInt divideBy(int divisor)
@@ -400,18 +774,21 @@ public class DecimalBigInt
             throw new IllegalArgumentException("divisor " + divisor +
                                                " out of range!");
         }
-
+        if(isSmall()) {
+            return valueOf(small / divisor);
+        }
         int[] result = new int[digits.length];
         divideDigits(result, 0,
                      digits, 0,
                      divisor);
-        return new DecimalBigInt(result);
+        return fromDigits(signum, result);
     }
 
     /**
      * Divides this number by a small number, returning the remainder.
      * @param divisor an integer with {@code 0 < divisor < RADIX}.
      * @return the remainder from the division {@code this / divisor}.
+     *     Like for {@code int}, this has the same sign as this number.
      * @throws IllegalArgumentException if the divisor is <= 0 or >= RADIX.
      */
     public int modulo(int divisor) {
@@ -419,17 +796,104 @@ public class DecimalBigInt
             throw new IllegalArgumentException("divisor " + divisor +
                                                " out of range!");
         }
+        if(isSmall()) {
+            return (int)(small % divisor);
+        }
         int[] result = new int[digits.length];
-        return divideDigits(result, 0,
-                            digits, 0,
-                            divisor);
+        return signum * divideDigits(result, 0,
+                                     digits, 0,
+                                     divisor);
+    }
+
+    /**
+     * divides this number by another one, using long division.
+     * <p>
+     * For small divisors this uses Knuth's algorithm D (i.e. the schoolbook
+     * algorithm), for bigger ones (from {@link #setBurnikelZieglerThreshold
+     * the threshold} on) the recursive division by Burnikel and Ziegler,
+     * which costs only a small multiple of a multiplication.
+     * </p>
+     * @return an array containing the quotient {@code this / divisor}
+     *    (rounded towards zero) and the remainder {@code this % divisor}
+     *    (which has the same sign as this number), like for {@code int}.
+     * @throws ArithmeticException if the divisor is zero.
+     */
+    public DecimalBigInt[] divideAndRemainder(DecimalBigInt divisor) {
+        if(this.isSmall() && divisor.isSmall()) {
+            if(divisor.signum == 0) {
+                throw new ArithmeticException("division by zero");
+            }
+            return new DecimalBigInt[]{
+                valueOf(this.small / divisor.small),
+                valueOf(this.small % divisor.small)
+            };
+        }
+        if(this.isSmall()) {
+            // the divisor is bigger.
+            return new DecimalBigInt[]{ ZERO, this };
+        }
+        int[][] qr = DecimalDivision.divideAndRemainder(this.digits,
+                                                        divisor.getDigits());
+        return new DecimalBigInt[]{
+            fromDigits(this.signum * divisor.signum, qr[0]),
+            fromDigits(this.signum, qr[1])
+        };
+    }
+
+    /**
+     * divides this number by another one.
+     * @return the quotient {@code this / divisor}, rounded towards zero.
+     * @throws ArithmeticException if the divisor is zero.
+     * @see #divideAndRemainder
+     */
+    public DecimalBigInt divide(DecimalBigInt divisor) {
+        return divideAndRemainder(divisor)[0];
+    }
+
+    /**
+     * calculates the remainder of a division of this number by
+     * another one.
+     * @return the remainder {@code this % divisor}.
+     * @throws ArithmeticException if the divisor is zero.
+     * @see #divideAndRemainder
+     */
+    public DecimalBigInt remainder(DecimalBigInt divisor) {
+        return divideAndRemainder(divisor)[1];
+    }
+
+    /**
+     * sets the number of digits (in our internal radix) of the divisor
+     * and of the quotient from which on {@link #divideAndRemainder}
+     * uses the Burnikel-Ziegler division instead of Knuth's algorithm D.
+     * <p>
+     * The initial value can also be given by the system property
+     * {@code de.fencing_game.paul.examples.DecimalBigInt.burnikelZieglerThreshold}.
+     * </p>
+     * @throws IllegalArgumentException if the threshold is smaller than 8.
+     */
+    public static void setBurnikelZieglerThreshold(int threshold) {
+        DecimalDivision.burnikelZieglerThreshold =
+            DecimalArithmetic.checkThreshold(threshold);
+    }
+
+    /**
+     * returns the current Burnikel-Ziegler threshold.
+     * @see #setBurnikelZieglerThreshold
+     */
+    public static int getBurnikelZieglerThreshold() {
+        return DecimalDivision.burnikelZieglerThreshold;
     }
 
     /**
      * converts this number to an arbitrary radix.
+     * <p>
+     * Several target digits are obtained in each step of the short division,
+     * and big numbers are split by divide and conquer at (cached) powers
+     * of the radix.
+     * </p>
      * @param radix the target radix, {@code 1 < radix < RADIX}.
-     * @return the digits of this number in the base-radix system,
-     *     in big-endian order.
+     * @return the digits of the absolute value of this number in the
+     *     base-radix system, in big-endian order.
      */
     public int[] convertTo(int radix)
     {
@@ -438,62 +902,59 @@ public class DecimalBigInt
                                                " out of range!");
         }
         // zero has no digits.
-        if(digits.length == 0)
+        if(signum == 0)
             return new int[0];
 
-        // raw estimation how many output digits we will need.
-        // This is just enough in cases like RADIX-1, and up to
-        // 30 digits (for radix 2) too much for something like (1,0,0).
-        int len = (int) (Math.log(RADIX) / Math.log(radix) * digits.length)+1;
-        int[] rDigits = new int[len];
-        int rIndex = len-1;
-        int[] current = digits;
-        int quotLen = digits.length;
-
-        while(quotLen > 0)  {
-            int[] quot = new int[quotLen];
-            int rem = divideDigits(quot, 0,
-                                   current, current.length - quotLen,
-                                   radix);
-            rDigits[rIndex] = rem;
-            rIndex --;
-            
-            current = quot;
-
-            if(current[0] == 0) {
-                // omit leading zeros in next round.
-                quotLen--;
-            }
-        }
-
-        // cut of leading zeros in rDigits:
-        while(rIndex < 0 || rDigits[rIndex] == 0) {
-            rIndex++;
-        }
-        return Arrays.copyOfRange(rDigits, rIndex, rDigits.length);
+        return DecimalRadixConversion.toRadix(this, radix);
     }
 
 
     /**
      * calculates a hashCode for this object.
+     * This is calculated only once, and then cached.
      */
     public int hashCode() {
-        int hash = 0;
-        for(int digit : digits) {
-            hash = hash * 13 + digit;
+        int h = hash;
+        if(h == 0) {
+            if(isSmall()) {
+                long abs = Math.abs(small);
+                h = (int)(abs / RADIX) * 13 + (int)(abs % RADIX);
+            }
+            else {
+                for(int digit : digits) {
+                    h = h * 13 + digit;
+                }
+            }
+            h *= signum;
+            hash = h;
         }
-        return hash;
+        return h;
     }
 
     /**
      * compares this object with another object for equality.
      * A DecimalBigInt is equal to another object only if this other
      * object is also a DecimalBigInt and both represent the same
-     * natural number.
+     * integer.
      */
     public boolean equals(Object o) {
-        return o instanceof DecimalBigInt &&
-            this.compareTo((DecimalBigInt)o) == 0;
+        if(o == this) {
+            return true;
+        }
+        if(!(o instanceof DecimalBigInt)) {
+            return false;
+        }
+        DecimalBigInt that = (DecimalBigInt)o;
+        if(this.isSmall() || that.isSmall()) {
+            // each number has only one representation.
+            return this.isSmall() && that.isSmall() &&
+                this.small == that.small;
+        }
+        if(this.hash != 0 && that.hash != 0 && this.hash != that.hash) {
+            return false;
+        }
+        return this.signum == that.signum &&
+            Arrays.equals(this.digits, that.digits);
     }
 
 
@@ -502,45 +963,138 @@ public class DecimalBigInt
      * @return -1 if this < that, 0 if this == that and 1 if this > that.
      */
     public int compareTo(DecimalBigInt that) {
-        if(this.digits.length < that.digits.length) {
-            return -1;
+        if(this.signum != that.signum) {
+            return this.signum < that.signum ? -1 : 1;
         }
-        if (that.digits.length < this.digits.length) {
-            return 1;
+        if(this.isSmall() && that.isSmall()) {
+            return Long.compare(this.small, that.small);
         }
-        // same length, compare the digits
-        for(int i = 0; i < this.digits.length; i++) {
-            if(this.digits[i] < that.digits[i]) {
-                return -1;
-            }
-            if(that.digits[i] < this.digits[i]) {
-                return 1;
-            }
-        }
-        // same digits
-        return 0;
+        // same sign, compare the absolute values. (A small one is
+        // smaller than a big one.)
+        int cmp = this.isSmall() ? -1
+            : that.isSmall() ? 1
+            : DecimalArithmetic.compare(this.digits, that.digits);
+        return this.signum * cmp;
     }
 
 
     /**
      * calculates the factorial of an int number.
-     * This uses a simple iterative loop.
-     *
-     * Each 1000 factors we print the current digit count
-     * (in our internal radix) to the standard error stream.
-     * @param n should be < RADIX (but you supposedly don't want to
-     *  use bigger number anyway, as it takes years).
+     * This is {@code productOfRange(2, n)}, i.e. the factors are multiplied
+     * in a balanced product tree, in parallel in the common
+     * {@link ForkJoinPool}.
+     * @param n a number with {@code 0 <= n < RADIX}.
+     * @throws IllegalArgumentException if n is out of range.
      */
     public static DecimalBigInt factorial(int n) {
-        DecimalBigInt fac = DecimalBigInt.ONE;
-        for(int i = 2; i <= n; i++) {
-            fac = fac.times(new DecimalBigInt(i));
-            if(i % 1000 == 0) {
-                System.err.println("log_RADIX(fac("+i+")) = " +
-                                   fac.digits.length);
+        if(n < 0) {
+            throw new IllegalArgumentException("negative number: " + n);
+        }
+        return productOfRange(2, n);
+    }
+
+    /**
+     * calculates the product of all integers from {@code lo} to {@code hi}
+     * (both inclusive), using the common {@link ForkJoinPool}.
+     * @see #productOfRange(int, int, ForkJoinPool)
+     */
+    public static DecimalBigInt productOfRange(int lo, int hi) {
+        return productOfRange(lo, hi, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * calculates the product of all integers from {@code lo} to {@code hi}
+     * (both inclusive).
+     * <p>
+     * The range is split recursively in halves (binary splitting), so
+     * the factors of each multiplication have about the same size and we
+     * profit from the fast multiplication algorithms. Independent
+     * subranges are calculated in parallel in the given pool.
+     * </p>
+     * @param lo the smallest factor, {@code lo >= 0}.
+     * @param hi the biggest factor, {@code hi < RADIX}.
+     * @param pool the pool to run our tasks in.
+     * @return the product, {@link #ONE} if {@code lo > hi}.
+     * @throws IllegalArgumentException if lo or hi is out of range.
+     */
+    public static DecimalBigInt productOfRange(int lo, int hi,
+                                               ForkJoinPool pool) {
+        if(lo > hi) {
+            return ONE;
+        }
+        if(lo < 0 || RADIX <= hi) {
+            throw new IllegalArgumentException("range [" + lo + ", " + hi +
+                                               "] out of range!");
+        }
+        if(lo == 0) {
+            return ZERO;
+        }
+        return pool.invoke(new RangeProduct(lo, hi));
+    }
+
+    /**
+     * The number of factors from which on we split a range product
+     * into parallel tasks.
+     */
+    private final static int PARALLEL_RANGE = 1 << 12;
+
+    /**
+     * The number of factors up to which we multiply a range product
+     * sequentially from left to right.
+     */
+    private final static int LEAF_RANGE = 1 << 5;
+
+    /**
+     * a task calculating a product of a range of integers.
+     */
+    private static class RangeProduct
+        extends RecursiveTask<DecimalBigInt>
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the range, inclusive on both sides.
+         */
+        private final int lo, hi;
+
+        RangeProduct(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected DecimalBigInt compute() {
+            if(hi - lo < PARALLEL_RANGE) {
+                return product(lo, hi);
             }
+            int mid = (lo + hi) >>> 1;
+            RangeProduct left = new RangeProduct(lo, mid);
+            left.fork();
+            DecimalBigInt right = new RangeProduct(mid + 1, hi).compute();
+            return left.join().times(right);
+        }
+
+        /**
+         * the sequential product tree.
+         */
+        private static DecimalBigInt product(int lo, int hi) {
+            if(hi - lo >= LEAF_RANGE) {
+                int mid = (lo + hi) >>> 1;
+                return product(lo, mid).times(product(mid + 1, hi));
+            }
+            // we collect as many factors as fit in one digit, and
+            // multiply the builder in place with these.
+            DecimalBigIntBuilder result = new DecimalBigIntBuilder(ONE);
+            long factor = 1;
+            for(int i = lo; i <= hi; i++) {
+                if(factor * i >= RADIX) {
+                    result.multiplyBySmall((int)factor);
+                    factor = 1;
+                }
+                factor *= i;
+            }
+            result.multiplyBySmall((int)factor);
+            return result.toDecimalBigInt();
         }
-        return fac;
     }
 
 
@@ -559,6 +1113,7 @@ public class DecimalBigInt
         // test of toDecimalString
         System.out.println("d: " + d.toDecimalString());
         System.out.println("d2: " + d2.toDecimalString());
+        System.out.println("zero: " + ZERO.toDecimalString());
 
         // test of plus
         DecimalBigInt sum = d2.plus(d2).plus(d2); 
@@ -568,6 +1123,16 @@ public class DecimalBigInt
         DecimalBigInt prod = d2.times(d2);
         System.out.println("prod: " + prod);
 
+        // test of minus, pow and gcd
+        DecimalBigInt diff = d.minus(d2);
+        System.out.println("d - d2: " + diff.toDecimalString());
+        System.out.println("(d - d2)^3: " + diff.pow(3).toDecimalString());
+        System.out.println("gcd(prod, sum): " +
+                           prod.gcd(sum).toDecimalString());
+        System.out.println("sqrt(prod): " + prod.sqrt().toDecimalString());
+        System.out.println("d^d2 mod sum: " +
+                           d.modPow(d2, sum).toDecimalString());
+
         // test of valueOf
         DecimalBigInt d3 = DecimalBigInt.valueOf("12345678901234567890", 10);
         System.out.println("d3: " + d3); // should be the same as d2
@@ -0,0 +1,283 @@
+package de.fencing_game.paul.examples;
+
+import java.util.Arrays;
+
+/**
+ * A mutable accumulator for {@link DecimalBigInt} values, similar to what
+ * {@link StringBuilder} is for {@link String}.
+ * <p>
+ * All operations work in place on a growable digit array (using the same
+ * base-{@link DecimalBigInt#RADIX} big-endian format as DecimalBigInt),
+ * so loops which add or multiply by small numbers in each step don't
+ * produce a new object (and a new array) for each step.
+ * Only {@link #toDecimalBigInt} creates an immutable DecimalBigInt.
+ * </p><p>
+ * The modifying methods return this builder, to allow chaining like
+ * {@code builder.multiplyBySmall(10).addSmall(7)}.
+ * </p><p>
+ * The builder's value is never negative.
+ * </p><p>
+ * This class is not thread-safe.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+public final class DecimalBigIntBuilder {
+
+    private final static int RADIX = DecimalBigInt.RADIX;
+
+    /**
+     * the digit buffer. Our number is in {@code digits[start .. end-1]},
+     * without leading zeros (i.e. {@code digits[start] != 0}, if
+     * {@code start < end}). The other elements of the buffer are unused,
+     * and may contain garbage.
+     */
+    private int[] digits;
+    private int start;
+    private int end;
+
+
+    /**
+     * creates a builder with the value 0 and some default capacity.
+     */
+    public DecimalBigIntBuilder() {
+        this(16);
+    }
+
+    /**
+     * creates a builder with the value 0.
+     * @param capacity the number of digits (in our internal radix) we
+     *   have space for before we need to grow the buffer.
+     */
+    public DecimalBigIntBuilder(int capacity) {
+        this.digits = new int[Math.max(capacity, 1)];
+        this.start = this.end = digits.length;
+    }
+
+    /**
+     * creates a builder with the given initial value.
+     * @throws IllegalArgumentException if the value is negative.
+     */
+    public DecimalBigIntBuilder(DecimalBigInt value) {
+        checkNotNegative(value, "value");
+        int[] vDigits = value.getDigits();
+        this.digits = new int[vDigits.length + 16];
+        this.end = digits.length;
+        this.start = end - vDigits.length;
+        System.arraycopy(vDigits, 0, digits, start, vDigits.length);
+    }
+
+
+    /**
+     * makes sure that we have space for at least {@code head} more digits
+     * before the highest digit, and {@code tail} more digits after the
+     * lowest digit.
+     */
+    private void reserve(int head, int tail) {
+        if(start >= head && digits.length - end >= tail) {
+            return;
+        }
+        int len = end - start;
+        // we grow exponentially at the head (where multiplications grow),
+        // and just as needed at the tail.
+        int newHead = Math.max(head, len + 16);
+        int[] newDigits = new int[newHead + len + tail];
+        System.arraycopy(digits, start, newDigits, newHead, len);
+        this.digits = newDigits;
+        this.start = newHead;
+        this.end = newHead + len;
+    }
+
+    /**
+     * removes leading zeros.
+     */
+    private void normalize() {
+        while(start < end && digits[start] == 0) {
+            start++;
+        }
+    }
+
+    /**
+     * checks that a DecimalBigInt argument is not negative.
+     */
+    private static void checkNotNegative(DecimalBigInt value, String name) {
+        if(value.signum() < 0) {
+            throw new IllegalArgumentException(name + " " + value +
+                                               " is negative!");
+        }
+    }
+
+    /**
+     * checks a small argument.
+     */
+    private static void checkSmall(int small, int min, String name) {
+        if(small < min || RADIX <= small) {
+            throw new IllegalArgumentException(name + " " + small +
+                                               " out of range!");
+        }
+    }
+
+
+    /**
+     * returns the number of digits (in our internal radix) of the
+     * current value.
+     */
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * returns true if the current value is zero.
+     */
+    public boolean isZero() {
+        return start == end;
+    }
+
+    /**
+     * adds a DecimalBigInt to this builder's value.
+     * @param addend a nonnegative number.
+     * @return this.
+     * @throws IllegalArgumentException if the addend is negative.
+     */
+    public DecimalBigIntBuilder add(DecimalBigInt addend) {
+        checkNotNegative(addend, "addend");
+        int[] aDigits = addend.getDigits();
+        reserve(Math.max(aDigits.length - length(), 0) + 1, 0);
+        int i = end - 1;
+        int carry = 0;
+        for(int j = aDigits.length - 1; j >= 0; j--, i--) {
+            int sum = (i >= start ? digits[i] : 0) + aDigits[j] + carry;
+            if(sum >= RADIX) {
+                sum -= RADIX;
+                carry = 1;
+            }
+            else {
+                carry = 0;
+            }
+            digits[i] = sum;
+        }
+        start = Math.min(start, i + 1);
+        propagateCarry(i, carry);
+        return this;
+    }
+
+    /**
+     * adds a small number to this builder's value.
+     * @param addend a number with {@code 0 <= addend < RADIX}.
+     * @return this.
+     */
+    public DecimalBigIntBuilder addSmall(int addend) {
+        checkSmall(addend, 0, "addend");
+        reserve(1, 0);
+        propagateCarry(end - 1, addend);
+        return this;
+    }
+
+    /**
+     * adds a carry (< RADIX) to our number at some index,
+     * continuing to the left as needed.
+     */
+    private void propagateCarry(int index, int carry) {
+        while(carry != 0) {
+            if(index < start) {
+                // there was space reserved before.
+                digits[index] = carry;
+                start = index;
+                return;
+            }
+            int sum = digits[index] + carry;
+            if(sum >= RADIX) {
+                digits[index] = sum - RADIX;
+                carry = 1;
+            }
+            else {
+                digits[index] = sum;
+                carry = 0;
+            }
+            index--;
+        }
+    }
+
+    /**
+     * multiplies this builder's value by a small number.
+     * @param factor a number with {@code 0 <= factor < RADIX}.
+     * @return this.
+     */
+    public DecimalBigIntBuilder multiplyBySmall(int factor) {
+        checkSmall(factor, 0, "factor");
+        if(factor == 0) {
+            start = end;
+            return this;
+        }
+        reserve(1, 0);
+        long carry = 0;
+        for(int i = end - 1; i >= start; i--) {
+            long prod = (long)digits[i] * factor + carry;
+            digits[i] = (int)(prod % RADIX);
+            carry = prod / RADIX;
+        }
+        if(carry != 0) {
+            start--;
+            digits[start] = (int)carry;
+        }
+        return this;
+    }
+
+    /**
+     * divides this builder's value by a small number,
+     * keeping the integer part of the quotient.
+     * @param divisor a number with {@code 0 < divisor < RADIX}.
+     * @return the remainder of the division.
+     */
+    public int divideBySmall(int divisor) {
+        checkSmall(divisor, 1, "divisor");
+        long remainder = 0;
+        for(int i = start; i < end; i++) {
+            long ent = digits[i] + RADIX * remainder;
+            digits[i] = (int)(ent / divisor);
+            remainder = ent % divisor;
+        }
+        normalize();
+        return (int)remainder;
+    }
+
+    /**
+     * shifts the value by some digits (in our internal radix).
+     * @param digitCount for positive values, the value is multiplied with
+     *   {@code RADIX^digitCount}. For negative values it is divided by
+     *   {@code RADIX^-digitCount}, throwing away the remainder.
+     * @return this.
+     */
+    public DecimalBigIntBuilder shift(int digitCount) {
+        if(isZero()) {
+            return this;
+        }
+        if(digitCount >= 0) {
+            reserve(0, digitCount);
+            Arrays.fill(digits, end, end + digitCount, 0);
+            end += digitCount;
+        }
+        else {
+            end = Math.max(start, end + digitCount);
+        }
+        return this;
+    }
+
+    /**
+     * creates an immutable DecimalBigInt with the current value.
+     * The builder can be used further, without affecting the result.
+     */
+    public DecimalBigInt toDecimalBigInt() {
+        return DecimalBigInt.fromDigits(Arrays.copyOfRange(digits,
+                                                           start, end));
+    }
+
+    /**
+     * A simple string view for debugging purposes, in the same
+     * format as {@link DecimalBigInt#toString}.
+     */
+    public String toString() {
+        return "Builder" + Arrays.toString(Arrays.copyOfRange(digits,
+                                                              start, end));
+    }
+
+}
@@ -0,0 +1,303 @@
+package de.fencing_game.paul.examples;
+
+import java.util.Arrays;
+
+/**
+ * Long division of digit arrays (in the format of {@link DecimalBigInt}).
+ * <p>
+ * Small divisions use Knuth's algorithm D, i.e. the schoolbook long
+ * division. For big divisors we use the recursive division by Christoph
+ * Burnikel and Joachim Ziegler (<em>Fast Recursive Division</em>, 1998),
+ * which reduces the division to multiplications of half size, so
+ * (with our subquadratic multiplication) a division costs only a small
+ * multiple of a multiplication.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+final class DecimalDivision {
+
+    /**
+     * the radix of our digit arrays.
+     */
+    private final static int RADIX = DecimalBigInt.RADIX;
+
+    /**
+     * The number of digits of the divisor (and of the quotient) from
+     * which on we use the Burnikel-Ziegler division instead of
+     * Knuth's algorithm D.
+     */
+    static volatile int burnikelZieglerThreshold =
+        Integer.getInteger(DecimalBigInt.class.getName() +
+                           ".burnikelZieglerThreshold", 80);
+
+
+    /**
+     * no instances.
+     */
+    private DecimalDivision() {}
+
+
+    /**
+     * divides two digit arrays.
+     * @param divisor a nonzero divisor.
+     * @return an array of two new arrays: the quotient and the remainder,
+     *    both without leading zeros.
+     * @throws ArithmeticException if the divisor is zero.
+     */
+    static int[][] divideAndRemainder(int[] divident, int[] divisor) {
+        divident = DecimalArithmetic.stripLeadingZeros(divident);
+        divisor = DecimalArithmetic.stripLeadingZeros(divisor);
+        if(divisor.length == 0) {
+            throw new ArithmeticException("division by zero");
+        }
+        int threshold = burnikelZieglerThreshold;
+        if(divisor.length >= threshold &&
+           divident.length - divisor.length >= threshold) {
+            return divideBurnikelZiegler(divident, divisor, threshold);
+        }
+        return divideSimple(divident, divisor);
+    }
+
+    /**
+     * divides two digit arrays (without leading zeros), using
+     * short division or Knuth's algorithm D.
+     */
+    private static int[][] divideSimple(int[] divident, int[] divisor) {
+        if(DecimalArithmetic.compare(divident, divisor) < 0) {
+            return new int[][]{ new int[0], divident };
+        }
+        if(divisor.length == 1) {
+            int[] quotient = new int[divident.length];
+            int remainder =
+                DecimalArithmetic.divideSmall(divident, divisor[0], quotient);
+            return new int[][]{ DecimalArithmetic.stripLeadingZeros(quotient),
+                                remainder == 0 ? new int[0]
+                                               : new int[]{ remainder } };
+        }
+        return divideKnuth(divident, divisor);
+    }
+
+
+    /**
+     * Knuth's algorithm D (from <em>The Art of Computer Programming</em>,
+     * volume 2, section 4.3.1), i.e. the schoolbook long division, where
+     * each quotient digit is estimated from the first digits of divident
+     * and divisor. This needs O(m·n) time.
+     * @param divident the divident, at least as long as the divisor.
+     * @param divisor the divisor, with at least two digits and without
+     *   leading zeros.
+     * @return an array of two new arrays: the quotient and the remainder,
+     *    both without leading zeros.
+     */
+    private static int[][] divideKnuth(int[] divident, int[] divisor) {
+        int n = divisor.length;
+        int m = divident.length - n;
+        // normalize, so the first digit of the divisor is >= RADIX/2.
+        // This makes our estimates of the quotient digits good enough.
+        int scale = RADIX / (divisor[0] + 1);
+        int[] v = DecimalArithmetic.multiplySmall(divisor, scale);
+        int[] u = new int[divident.length + 1];
+        DecimalArithmetic.addInto(u, u.length,
+                                  DecimalArithmetic.multiplySmall(divident,
+                                                                  scale));
+        assert v.length == n;
+
+        int[] quotient = new int[m + 1];
+        long v0 = v[0];
+        long v1 = v[1];
+        for(int j = 0; j <= m; j++) {
+            // estimate the quotient digit from the first
+            // three digits of the remainder u[j .. j+n].
+            long num = u[j] * (long)RADIX + u[j+1];
+            long qHat = num / v0;
+            long rHat = num % v0;
+            while(qHat >= RADIX ||
+                  qHat * v1 > rHat * RADIX + u[j+2]) {
+                qHat--;
+                rHat += v0;
+                if(rHat >= RADIX) {
+                    break;
+                }
+            }
+            // multiply and subtract: u[j .. j+n] -= qHat * v
+            long carry = 0;
+            int borrow = 0;
+            for(int i = n - 1; i >= 0; i--) {
+                long prod = qHat * v[i] + carry;
+                carry = prod / RADIX;
+                int diff = u[j+1+i] - (int)(prod % RADIX) - borrow;
+                if(diff < 0) {
+                    diff += RADIX;
+                    borrow = 1;
+                }
+                else {
+                    borrow = 0;
+                }
+                u[j+1+i] = diff;
+            }
+            long top = u[j] - carry - borrow;
+            if(top < 0) {
+                // our estimate was one too big (this is rare), add back.
+                qHat--;
+                int c = 0;
+                for(int i = n - 1; i >= 0; i--) {
+                    int sum = u[j+1+i] + v[i] + c;
+                    if(sum >= RADIX) {
+                        sum -= RADIX;
+                        c = 1;
+                    }
+                    else {
+                        c = 0;
+                    }
+                    u[j+1+i] = sum;
+                }
+                top += c;
+            }
+            assert top == 0;
+            u[j] = 0;
+            quotient[j] = (int)qHat;
+        }
+        // unnormalize the remainder.
+        int[] remainder = Arrays.copyOfRange(u, m + 1, u.length);
+        int rest = DecimalArithmetic.divideSmall(remainder, scale, remainder);
+        assert rest == 0;
+        return new int[][]{ DecimalArithmetic.stripLeadingZeros(quotient),
+                            DecimalArithmetic.stripLeadingZeros(remainder) };
+    }
+
+
+    // ---------------------- Burnikel-Ziegler --------------------------
+
+
+    /**
+     * multiplies a number by {@code RADIX^shift}.
+     */
+    private static int[] shiftLeft(int[] digits, int shift) {
+        if(digits.length == 0) {
+            return digits;
+        }
+        return Arrays.copyOf(digits, digits.length + shift);
+    }
+
+    /**
+     * calculates {@code high · RADIX^lowLen + low}, where {@code low}
+     * has at most {@code lowLen} digits.
+     */
+    private static int[] concat(int[] high, int[] low, int lowLen) {
+        int[] result = new int[high.length + lowLen];
+        System.arraycopy(high, 0, result, 0, high.length);
+        System.arraycopy(low, 0, result, result.length - low.length,
+                         low.length);
+        return DecimalArithmetic.stripLeadingZeros(result);
+    }
+
+    /**
+     * The top level of the Burnikel-Ziegler division.
+     * <p>
+     * We normalize divisor and divident, so the divisor has exactly
+     * {@code n = j·2^k} digits (with {@code j} below the threshold), and its
+     * first digit is at least {@code RADIX/2}. Then we split the
+     * divident in blocks of n digits and divide block-wise, similar
+     * to the schoolbook algorithm, just with our divisor being one
+     * "digit".
+     * </p>
+     */
+    private static int[][] divideBurnikelZiegler(int[] divident,
+                                                 int[] divisor,
+                                                 int threshold) {
+        int s = divisor.length;
+        // m is the smallest power of two > s/threshold.
+        int m = Integer.highestOneBit(s / threshold) << 1;
+        int j = (s + m - 1) / m;
+        int n = j * m;
+        int sigma = n - s;
+        int scale = RADIX / (divisor[0] + 1);
+        int[] b = shiftLeft(DecimalArithmetic.multiplySmall(divisor, scale),
+                            sigma);
+        int[] a = shiftLeft(DecimalArithmetic.multiplySmall(divident, scale),
+                            sigma);
+        assert b.length == n && b[0] >= RADIX / 2;
+
+        // number of blocks, including at least one leading zero digit,
+        // so the first block is smaller than b.
+        int t = Math.max(2, (a.length + n) / n);
+
+        int[] quotient = new int[(t - 1) * n];
+        int[] z = DecimalArithmetic.middlePart(a, (t - 2) * n, 2 * n);
+        int[] rest = null;
+        for(int i = t - 2; i >= 0; i--) {
+            int[][] qr = divide2n1n(z, b, n, threshold);
+            DecimalArithmetic.addInto(quotient, quotient.length - i * n, qr[0]);
+            rest = qr[1];
+            if(i > 0) {
+                z = concat(rest,
+                           DecimalArithmetic.middlePart(a, (i - 1) * n, n), n);
+            }
+        }
+        // undo the normalization for the remainder.
+        assert DecimalArithmetic.allZero(rest,
+                                         Math.max(0, rest.length - sigma),
+                                         rest.length);
+        int[] remainder =
+            DecimalArithmetic.middlePart(rest, sigma, rest.length);
+        int r = DecimalArithmetic.divideSmall(remainder, scale, remainder);
+        assert r == 0;
+        return new int[][]{ DecimalArithmetic.stripLeadingZeros(quotient),
+                            DecimalArithmetic.stripLeadingZeros(remainder) };
+    }
+
+    /**
+     * divides a number with up to 2n digits by a normalized
+     * number with n digits, where the quotient has at most n digits
+     * (i.e. {@code a < b · RADIX^n}).
+     */
+    private static int[][] divide2n1n(int[] a, int[] b, int n,
+                                      int threshold) {
+        if((n & 1) != 0 || n < threshold) {
+            return divideSimple(a, b);
+        }
+        int h = n / 2;
+        int[] a123 = DecimalArithmetic.middlePart(a, h, a.length);
+        int[] a4 = DecimalArithmetic.lowPart(a, h);
+        int[][] qr1 = divide3n2n(a123, b, h, threshold);
+        int[][] qr2 = divide3n2n(concat(qr1[1], a4, h), b, h, threshold);
+        return new int[][]{ concat(qr1[0], qr2[0], h), qr2[1] };
+    }
+
+    /**
+     * divides a number with up to 3h digits by a normalized number
+     * with 2h digits, where the quotient has at most h digits.
+     */
+    private static int[][] divide3n2n(int[] a, int[] b, int h,
+                                      int threshold) {
+        int[] b1 = DecimalArithmetic.middlePart(b, h, b.length);
+        int[] b2 = DecimalArithmetic.lowPart(b, h);
+        int[] a1 = DecimalArithmetic.middlePart(a, 2 * h, a.length);
+        int[] a12 = DecimalArithmetic.middlePart(a, h, a.length);
+
+        int[] q;
+        int[] r1;
+        if(DecimalArithmetic.compare(a1, b1) < 0) {
+            int[][] qr = divide2n1n(a12, b1, h, threshold);
+            q = qr[0];
+            r1 = qr[1];
+        }
+        else {
+            // the quotient can only be RADIX^h - 1 (or one or two less).
+            q = new int[h];
+            Arrays.fill(q, RADIX - 1);
+            r1 = DecimalArithmetic.subtract(DecimalArithmetic.add(a12, b1),
+                                            shiftLeft(b1, h));
+        }
+        int[] d = DecimalArithmetic.multiply(q, b2);
+        int[] x = concat(r1, DecimalArithmetic.lowPart(a, h), h);
+        // our estimate may be too big by up to two, correct it.
+        while(DecimalArithmetic.compare(x, d) < 0) {
+            x = DecimalArithmetic.add(x, b);
+            q = DecimalArithmetic.subtract(q, new int[]{ 1 });
+        }
+        return new int[][]{ DecimalArithmetic.stripLeadingZeros(q),
+                            DecimalArithmetic.subtract(x, d) };
+    }
+
+}
@@ -0,0 +1,56 @@
+package de.fencing_game.paul.examples;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the wall-clock time of {@link DecimalBigInt#productOfRange}
+ * (i.e. of the factorial) with different numbers of threads.
+ * <p>
+ * Run it with {@code ant test.example -Dclass=DecimalFactorialBenchmark},
+ * optionally giving the numbers to calculate the factorial of with
+ * {@code -Dparams="..."} (default: 100000 and 1000000).
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+public class DecimalFactorialBenchmark {
+
+    /**
+     * the thread counts we try.
+     */
+    private final static int[] PARALLELISMS = { 1, 2, 4, 8 };
+
+    /**
+     * runs the benchmark.
+     */
+    public static void main(String[] params) {
+        int[] ns = { 100000, 1000000 };
+        if(params.length > 0) {
+            ns = new int[params.length];
+            for(int i = 0; i < params.length; i++) {
+                ns[i] = Integer.parseInt(params[i]);
+            }
+        }
+        System.out.println("available processors: " +
+                           Runtime.getRuntime().availableProcessors());
+        for(int n : ns) {
+            // warm-up, so the JIT compiler has done its work.
+            DecimalBigInt.factorial(n / 10);
+            long base = 0;
+            for(int parallelism : PARALLELISMS) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                long start = System.nanoTime();
+                DecimalBigInt fac = DecimalBigInt.productOfRange(2, n, pool);
+                long millis = (System.nanoTime() - start) / 1000000;
+                pool.shutdown();
+                if(parallelism == 1) {
+                    base = millis;
+                }
+                System.out.printf("%d! (%d digits), %d threads: %6d ms" +
+                                  "  (speedup %.2f)%n",
+                                  n, fac.getDigits().length, parallelism,
+                                  millis, (double)base / Math.max(millis, 1));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package de.fencing_game.paul.examples;
+
+import java.util.Arrays;
+
+/**
+ * The greatest common divisor of two digit arrays of {@link DecimalBigInt},
+ * using Lehmer's variant of the Euclidean algorithm (Knuth, TAOCP vol. 2,
+ * algorithm 4.5.2 L).
+ * <p>
+ * Instead of dividing the full numbers in each step (where most quotients
+ * are tiny), we simulate the Euclidean algorithm on the two leading digits
+ * (in our internal radix) of both numbers, as long as the quotients are
+ * sure to be the same as for the full numbers. The steps done this way are
+ * collected in a 2×2 matrix of cofactors, which we then apply to the full
+ * numbers in one linear pass. Each such pass reduces the numbers by about
+ * one digit.
+ * </p><p>
+ * If the simulation gives no step (when one quotient is huge), we do one
+ * ordinary division step instead.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+final class DecimalGcd {
+
+    private final static int RADIX = DecimalBigInt.RADIX;
+
+    /**
+     * the maximal absolute value of the cofactors. With this (and our
+     * digits being smaller than 2³⁰), {@code a·x + b·y + carry} still
+     * fits in a long.
+     */
+    private final static long COFACTOR_LIMIT = Integer.MAX_VALUE;
+
+
+    /**
+     * no instances.
+     */
+    private DecimalGcd() {}
+
+
+    /**
+     * calculates the greatest common divisor of two digit arrays
+     * (without leading zeros).
+     * @return the gcd as a digit array, which might be one of the
+     *    arguments (so don't change it).
+     */
+    static int[] gcd(int[] left, int[] right) {
+        int[] big = left;
+        int[] small = right;
+        if(DecimalArithmetic.compare(left, right) < 0) {
+            big = right;
+            small = left;
+        }
+        if(small.length == 0) {
+            return big;
+        }
+        // we work on two arrays of the same length, so the digits of
+        // the same weight have the same index. Both values only get
+        // smaller, so their starts (i.e. the indexes of the first
+        // non-zero digit) only get bigger.
+        int n = big.length;
+        int[] a = big.clone();
+        int[] b = new int[n];
+        System.arraycopy(small, 0, b, n - small.length, small.length);
+        int aStart = 0;
+        int bStart = n - small.length;
+        while(bStart < n && n - aStart > 2) {
+            if(lehmerStep(a, b, aStart)) {
+                aStart = skipZeros(a, aStart);
+            }
+            else {
+                int[][] qr = DecimalDivision.divideAndRemainder
+                    (Arrays.copyOfRange(a, aStart, n),
+                     Arrays.copyOfRange(b, bStart, n));
+                int[] remainder = qr[1];
+                int[] tmp = a;
+                a = b;
+                b = tmp;
+                aStart = bStart;
+                Arrays.fill(b, 0);
+                System.arraycopy(remainder, 0,
+                                 b, n - remainder.length, remainder.length);
+            }
+            bStart = skipZeros(b, aStart);
+        }
+        if(bStart == n) {
+            return Arrays.copyOfRange(a, aStart, n);
+        }
+        // both fit in a long now.
+        long x = toLong(a, aStart, n);
+        long y = toLong(b, bStart, n);
+        while(y != 0) {
+            long r = x % y;
+            x = y;
+            y = r;
+        }
+        return DecimalArithmetic.stripLeadingZeros
+            (new int[]{ (int)(x / RADIX), (int)(x % RADIX) });
+    }
+
+    /**
+     * returns the index of the first non-zero digit at or after
+     * {@code from}, or the array's length, if there is none.
+     */
+    private static int skipZeros(int[] digits, int from) {
+        while(from < digits.length && digits[from] == 0) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * converts the digits {@code digits[from .. to-1]} (at most two) to
+     * a long.
+     */
+    private static long toLong(int[] digits, int from, int to) {
+        long value = 0;
+        for(int i = from; i < to; i++) {
+            value = value * RADIX + digits[i];
+        }
+        return value;
+    }
+
+    /**
+     * does one step of Lehmer's algorithm: simulates the Euclidean
+     * algorithm on the leading two digits and applies the resulting
+     * cofactors to the numbers {@code a} and {@code b} in place.
+     * @param start the index of the first non-zero digit of a (which is
+     *    bigger than b). There must be at least three digits from there on.
+     * @return true if we did something, false if the leading digits
+     *    were not enough for even one step.
+     */
+    private static boolean lehmerStep(int[] a, int[] b, int start) {
+        long x = (long)a[start] * RADIX + a[start + 1];
+        long y = (long)b[start] * RADIX + b[start + 1];
+        // the cofactors, named like in Knuth's algorithm L: the current
+        // values are A·a + B·b and C·a + D·b.
+        long ca = 1, cb = 0, cc = 0, cd = 1;
+        while(y + cc != 0 && y + cd != 0) {
+            long q = (x + ca) / (y + cc);
+            if(q != (x + cb) / (y + cd) || q > COFACTOR_LIMIT) {
+                break;
+            }
+            long na = ca - q * cc;
+            long nb = cb - q * cd;
+            if(Math.abs(na) > COFACTOR_LIMIT || Math.abs(nb) > COFACTOR_LIMIT) {
+                break;
+            }
+            ca = cc;
+            cb = cd;
+            cc = na;
+            cd = nb;
+            long t = x - q * y;
+            x = y;
+            y = t;
+        }
+        if(cb == 0) {
+            return false;
+        }
+        long carryA = 0;
+        long carryB = 0;
+        for(int i = a.length - 1; i >= start; i--) {
+            long ai = a[i];
+            long bi = b[i];
+            long ta = ca * ai + cb * bi + carryA;
+            long tb = cc * ai + cd * bi + carryB;
+            carryA = Math.floorDiv(ta, RADIX);
+            carryB = Math.floorDiv(tb, RADIX);
+            a[i] = (int)(ta - carryA * RADIX);
+            b[i] = (int)(tb - carryB * RADIX);
+        }
+        assert carryA == 0 && carryB == 0 : "negative result";
+        return true;
+    }
+
+}
@@ -0,0 +1,167 @@
+package de.fencing_game.paul.examples;
+
+import java.util.Random;
+
+/**
+ * A small benchmark comparing the addition and schoolbook multiplication
+ * kernels of {@link DecimalArithmetic} with the original ones from
+ * {@link DecimalBigInt} (which added each digit product with a varargs
+ * call and propagated carries recursively).
+ * <p>
+ * The original kernels are kept here (only) as the baseline.
+ * Run it with {@code ant test.example -Dclass=DecimalKernelBenchmark},
+ * optionally giving a list of operand lengths (in base-10⁹ digits)
+ * with {@code -Dparams="..."}.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+public class DecimalKernelBenchmark {
+
+    private final static int RADIX = DecimalBigInt.RADIX;
+
+    // ----------------- the original kernels ------------------
+
+    /**
+     * adds all the digits from the addend array to the result array.
+     */
+    private static void legacyAddDigits(int[] result, int resultIndex,
+                                        int... addend)
+    {
+        int addendIndex = addend.length - 1;
+        while(addendIndex >= 0) {
+            legacyAddDigit(result, resultIndex,
+                           addend[addendIndex]);
+            addendIndex--;
+            resultIndex--;
+        }
+    }
+
+    /**
+     * adds one digit from the addend to the corresponding digit
+     * of the result, recursively adding the carry.
+     */
+    private static void legacyAddDigit(int[] result, int resultIndex,
+                                       int addendDigit)
+    {
+        int sum = result[resultIndex] + addendDigit;
+        result[resultIndex] = sum % RADIX;
+        int carry = sum / RADIX;
+        if(carry > 0) {
+            legacyAddDigit(result, resultIndex - 1, carry);
+        }
+    }
+
+    /**
+     * multiplies all digits of two factors and adds them to the result.
+     */
+    private static void legacyMultiplyDigits(int[] result, int resultIndex,
+                                             int[] leftFactor,
+                                             int[] rightFactor) {
+        for(int i = 0; i < leftFactor.length; i++) {
+            for(int j = 0; j < rightFactor.length; j++) {
+                long prod = (long)leftFactor[leftFactor.length-i-1] *
+                    (long)rightFactor[rightFactor.length-j-1];
+                int prodDigit = (int)(prod % RADIX);
+                int carry = (int)(prod / RADIX);
+                legacyAddDigits(result, resultIndex - (i + j),
+                                carry, prodDigit);
+            }
+        }
+    }
+
+    private static int[] legacyPlus(int[] left, int[] right) {
+        int[] result = new int[Math.max(left.length, right.length) + 1];
+        legacyAddDigits(result, result.length-1, left);
+        legacyAddDigits(result, result.length-1, right);
+        return result;
+    }
+
+    private static int[] legacyTimes(int[] left, int[] right) {
+        int[] result = new int[left.length + right.length];
+        legacyMultiplyDigits(result, result.length-1, left, right);
+        return result;
+    }
+
+    // ----------------- the new kernels ------------------
+
+    private static int[] newPlus(int[] left, int[] right) {
+        int[] result = new int[Math.max(left.length, right.length) + 1];
+        DecimalArithmetic.addDigits(result, left, right);
+        return result;
+    }
+
+    private static int[] newTimes(int[] left, int[] right) {
+        return DecimalArithmetic.multiplySchoolbook(left, right);
+    }
+
+    // ----------------- the benchmark ------------------
+
+    /**
+     * a sink for the results, so the JIT can't optimize our
+     * calculations away.
+     */
+    private static int sink;
+
+    /**
+     * creates random digits. Every fourth one is RADIX-1, to
+     * produce some long carry chains.
+     */
+    private static int[] randomDigits(Random r, int len) {
+        int[] digits = new int[len];
+        for(int i = 0; i < len; i++) {
+            digits[i] = (i % 4 == 0) ? RADIX-1 : r.nextInt(RADIX);
+        }
+        return digits;
+    }
+
+    /**
+     * measures one operation, returns the average time in nanoseconds.
+     * @param op 0 = legacy plus, 1 = new plus, 2 = legacy times,
+     *     3 = new times.
+     */
+    private static double measure(int op, int[] x, int[] y, int reps) {
+        long start = System.nanoTime();
+        for(int i = 0; i < reps; i++) {
+            int[] r;
+            switch(op) {
+            case 0: r = legacyPlus(x, y); break;
+            case 1: r = newPlus(x, y); break;
+            case 2: r = legacyTimes(x, y); break;
+            default: r = newTimes(x, y); break;
+            }
+            sink += r[r.length-1];
+        }
+        return (double)(System.nanoTime() - start) / reps;
+    }
+
+    /**
+     * runs the benchmark for some operand lengths.
+     */
+    public static void main(String[] params) {
+        int[] lengths = { 1, 4, 16, 64, 256 };
+        if(params.length > 0) {
+            lengths = new int[params.length];
+            for(int i = 0; i < params.length; i++) {
+                lengths[i] = Integer.parseInt(params[i]);
+            }
+        }
+        Random r = new Random(42);
+        System.out.println("digits  plus(old) plus(new)  times(old) " +
+                           "times(new)   [ns/op]");
+        for(int len : lengths) {
+            int[] x = randomDigits(r, len);
+            int[] y = randomDigits(r, len);
+            int reps = Math.max(10, 20000000 / (len * len + 10 * len));
+            double[] times = new double[4];
+            // first round is warm-up.
+            for(int round = 0; round < 3; round++) {
+                for(int op = 0; op < 4; op++) {
+                    times[op] = measure(op, x, y, reps);
+                }
+            }
+            System.out.printf("%6d %10.0f %9.0f %11.0f %10.0f%n",
+                              len, times[0], times[1], times[2], times[3]);
+        }
+    }
+
+}
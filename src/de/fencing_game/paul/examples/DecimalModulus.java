@@ -0,0 +1,192 @@
+package de.fencing_game.paul.examples;
+
+import java.util.Arrays;
+
+/**
+ * Modular arithmetic for {@link DecimalBigInt} with a fixed modulus.
+ * <p>
+ * An object of this class contains some precomputed data for the
+ * modulus, so creating it costs about one division, but then each
+ * reduction costs only two multiplications (instead of a division).
+ * Thus it is worth reusing it for many operations (e.g. many
+ * exponentiations) with the same modulus.
+ * </p><p>
+ * We use the reduction by Paul Barrett (<em>Implementing the Rivest Shamir
+ * and Adleman Public Key Encryption Algorithm on a Standard Digital Signal
+ * Processor</em>, 1986), adapted to our radix: for a modulus m with k
+ * digits we precompute {@code μ = RADIX^(2k) / m}, and then estimate the
+ * quotient of any {@code x < RADIX^(2k)} by m as
+ * {@code ((x / RADIX^(k-1)) · μ) / RADIX^(k+1)}, which is at most by two
+ * too small. (Montgomery's reduction would need a modulus coprime to
+ * our radix, i.e. neither divisible by 2 nor by 5.)
+ * </p><p>
+ * Objects of this class are immutable, and thus thread-safe.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+public final class DecimalModulus {
+
+    /**
+     * the number of bits of the exponent which are used in each step
+     * of the exponentiation.
+     */
+    private final static int WINDOW_BITS = 4;
+
+    /**
+     * the digits of one.
+     */
+    private final static int[] ONE_DIGITS = { 1 };
+
+    private final DecimalBigInt modulus;
+
+    /**
+     * the digits of the modulus.
+     */
+    private final int[] m;
+
+    /**
+     * the number of digits of the modulus.
+     */
+    private final int k;
+
+    /**
+     * {@code RADIX^(2k) / m}, rounded down.
+     */
+    private final int[] mu;
+
+
+    /**
+     * creates a context for calculations modulo some number.
+     * @param modulus the modulus, which must be positive.
+     * @throws ArithmeticException if the modulus is not positive.
+     */
+    public DecimalModulus(DecimalBigInt modulus) {
+        if(modulus.signum() <= 0) {
+            throw new ArithmeticException("modulus not positive: " +
+                                          modulus);
+        }
+        this.modulus = modulus;
+        this.m = modulus.getDigits();
+        this.k = m.length;
+        int[] power = new int[2 * k + 1];
+        power[0] = 1;
+        this.mu = DecimalDivision.divideAndRemainder(power, m)[0];
+    }
+
+
+    /**
+     * returns the modulus.
+     */
+    public DecimalBigInt getModulus() {
+        return modulus;
+    }
+
+    /**
+     * reduces a number modulo our modulus.
+     * @return the number {@code r} with {@code 0 <= r < modulus} which
+     *    differs from x by a multiple of the modulus.
+     */
+    public DecimalBigInt reduce(DecimalBigInt x) {
+        int[] r = reduce(x.getDigits());
+        if(x.signum() < 0 && r.length > 0) {
+            r = DecimalArithmetic.subtract(m, r);
+        }
+        return DecimalBigInt.fromDigits(r);
+    }
+
+    /**
+     * calculates the product of two numbers modulo our modulus.
+     * @return {@code (a × b) mod modulus}.
+     */
+    public DecimalBigInt multiply(DecimalBigInt a, DecimalBigInt b) {
+        return DecimalBigInt.fromDigits(multiply(reduce(a).getDigits(),
+                                                 reduce(b).getDigits()));
+    }
+
+    /**
+     * calculates a power modulo our modulus.
+     * <p>
+     * The exponent is processed in windows of four bits (i.e. we
+     * precompute the powers {@code base^0 .. base^15}), so we need for
+     * each four bits of the exponent four modular squarings and one
+     * modular multiplication.
+     * </p>
+     * @param exponent a nonnegative exponent.
+     * @return {@code base^exponent mod modulus}.
+     * @throws ArithmeticException if the exponent is negative.
+     */
+    public DecimalBigInt pow(DecimalBigInt base, DecimalBigInt exponent) {
+        if(exponent.signum() < 0) {
+            throw new ArithmeticException("negative exponent: " +
+                                          exponent.toDecimalString());
+        }
+        int[] one = reduce(ONE_DIGITS);
+        if(exponent.signum() == 0) {
+            return DecimalBigInt.fromDigits(one);
+        }
+        int[] windows = exponent.convertTo(1 << WINDOW_BITS);
+        int[][] powers = new int[1 << WINDOW_BITS][];
+        powers[0] = one;
+        powers[1] = reduce(base).getDigits();
+        for(int i = 2; i < powers.length; i++) {
+            powers[i] = multiply(powers[i-1], powers[1]);
+        }
+        int[] result = powers[windows[0]];
+        for(int i = 1; i < windows.length; i++) {
+            for(int j = 0; j < WINDOW_BITS; j++) {
+                result = multiply(result, result);
+            }
+            if(windows[i] != 0) {
+                result = multiply(result, powers[windows[i]]);
+            }
+        }
+        return DecimalBigInt.fromDigits(result);
+    }
+
+    /**
+     * multiplies two reduced digit arrays modulo our modulus.
+     */
+    private int[] multiply(int[] a, int[] b) {
+        return reduce(DecimalArithmetic.stripLeadingZeros
+                      (DecimalArithmetic.multiply(a, b)));
+    }
+
+    /**
+     * reduces a digit array (without leading zeros) modulo our modulus.
+     */
+    private int[] reduce(int[] x) {
+        if(DecimalArithmetic.compare(x, m) < 0) {
+            return x;
+        }
+        if(x.length > 2 * k) {
+            // too big for the Barrett reduction.
+            return DecimalDivision.divideAndRemainder(x, m)[1];
+        }
+        // q3 = ((x / RADIX^(k-1)) · μ) / RADIX^(k+1)
+        int[] q1 = Arrays.copyOf(x, x.length - (k - 1));
+        int[] q2 = DecimalArithmetic.multiply(q1, mu);
+        int[] q3 = Arrays.copyOf(q2, Math.max(0, q2.length - (k + 1)));
+        // r = (x - q3·m) mod RADIX^(k+1), which is the same as
+        //     x - q3·m, as that is smaller than 3·m.
+        int[] r1 = DecimalArithmetic.lowPart(x, k + 1);
+        int[] r2 = DecimalArithmetic.lowPart(DecimalArithmetic.multiply(q3, m),
+                                             k + 1);
+        int[] r;
+        if(DecimalArithmetic.compare(r1, r2) < 0) {
+            // add RADIX^(k+1) before subtracting.
+            r = new int[k + 2];
+            r[0] = 1;
+            System.arraycopy(r1, 0, r, r.length - r1.length, r1.length);
+            DecimalArithmetic.subtractFrom(r, r.length, r2);
+            r = DecimalArithmetic.stripLeadingZeros(r);
+        }
+        else {
+            r = DecimalArithmetic.subtract(r1, r2);
+        }
+        while(DecimalArithmetic.compare(r, m) >= 0) {
+            r = DecimalArithmetic.subtract(r, m);
+        }
+        return r;
+    }
+
+}
@@ -0,0 +1,243 @@
+package de.fencing_game.paul.examples;
+
+/**
+ * Multiplication of huge digit arrays (in the format of {@link DecimalBigInt})
+ * by number-theoretic transforms.
+ * <p>
+ * The product of two numbers is the convolution of their digit sequences
+ * (followed by a carry propagation). We calculate this convolution modulo
+ * three different primes of the form {@code c·2^k + 1}, each with
+ * a fast number-theoretic transform (the finite-field analog of the FFT),
+ * and recombine the results with the chinese remainder theorem
+ * (using Garner's algorithm) directly into base-{@link DecimalBigInt#RADIX}
+ * digits.
+ * </p><p>
+ * Each coefficient of the convolution is smaller than
+ * {@code n·RADIX²}, and the product of our three primes is bigger than
+ * {@code 2^23·RADIX²}, so the result is exact as long as the transform
+ * length is at most {@link #MAX_LENGTH}. This needs O(n log n) time.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+final class DecimalNTT {
+
+    /**
+     * the radix of our digit arrays.
+     */
+    private final static long RADIX = DecimalBigInt.RADIX;
+
+    /**
+     * our three primes, {@code 119·2^23+1}, {@code 7·2^26+1}
+     * and {@code 5·2^25+1}. All have 3 as a primitive root.
+     */
+    private final static int P1 = 998244353, P2 = 469762049, P3 = 167772161;
+
+    /**
+     * the common primitive root of our primes.
+     */
+    private final static int GENERATOR = 3;
+
+    /**
+     * the maximal transform length, limited by the first prime.
+     */
+    final static int MAX_LENGTH = 1 << 23;
+
+    /**
+     * {@code P1·P2}, split into two base-RADIX digits.
+     */
+    private final static long P12_HIGH = ((long)P1 * P2) / RADIX,
+        P12_LOW = ((long)P1 * P2) % RADIX;
+
+    /**
+     * inverse of {@code P1} modulo {@code P2}.
+     */
+    private final static long P1_INV_P2 = modInverse(P1 % P2, P2);
+
+    /**
+     * inverse of {@code P1·P2} modulo {@code P3}.
+     */
+    private final static long P12_INV_P3 =
+        modInverse((int)((long)P1 * P2 % P3), P3);
+
+
+    /**
+     * no instances.
+     */
+    private DecimalNTT() {}
+
+
+    /**
+     * checks whether a product with the given factor lengths can be
+     * calculated by {@link #multiply}.
+     */
+    static boolean canMultiply(int leftLength, int rightLength) {
+        return leftLength + rightLength - 1 <= MAX_LENGTH;
+    }
+
+    /**
+     * multiplies two digit arrays.
+     * @return a new array of length {@code left.length + right.length},
+     *    which may contain leading zeros.
+     */
+    static int[] multiply(int[] left, int[] right) {
+        assert canMultiply(left.length, right.length);
+        int resultLen = left.length + right.length;
+        int n = Integer.highestOneBit(Math.max(resultLen - 2, 1)) << 1;
+
+        int[] res1 = convolution(left, right, n, P1);
+        int[] res2 = convolution(left, right, n, P2);
+        int[] res3 = convolution(left, right, n, P3);
+
+        int[] result = new int[resultLen];
+        long carry = 0;
+        for(int k = 0; k < resultLen - 1; k++) {
+            // Garner's algorithm: v = r1 + P1·t2 + P1·P2·t3,
+            // with 0 <= t2 < P2, 0 <= t3 < P3.
+            long r1 = res1[k];
+            long t2 = (res2[k] - r1 % P2 + P2) % P2 * P1_INV_P2 % P2;
+            long x = r1 + P1 * t2;
+            long t3 = (res3[k] - x % P3 + P3) % P3 * P12_INV_P3 % P3;
+
+            // v + carry = (P12_HIGH·t3)·RADIX + (x + P12_LOW·t3 + carry)
+            long low = x + P12_LOW * t3 + carry;
+            result[resultLen - 1 - k] = (int)(low % RADIX);
+            carry = low / RADIX + P12_HIGH * t3;
+        }
+        assert carry < RADIX;
+        result[0] = (int)carry;
+        return result;
+    }
+
+
+    /**
+     * calculates the cyclic convolution of the digit sequences modulo
+     * some prime.
+     * @param n the transform length, a power of two which is at least
+     *   {@code left.length + right.length - 1}.
+     * @return the convolution, in little-endian order.
+     */
+    private static int[] convolution(int[] left, int[] right, int n, int p) {
+        int[] roots = roots(n, p, false);
+        int[] a = load(left, n, p);
+        transform(a, roots, p);
+        if(left == right) {
+            // squaring: we need only one forward transform.
+            for(int i = 0; i < n; i++) {
+                a[i] = (int)((long)a[i] * a[i] % p);
+            }
+        }
+        else {
+            int[] b = load(right, n, p);
+            transform(b, roots, p);
+            for(int i = 0; i < n; i++) {
+                a[i] = (int)((long)a[i] * b[i] % p);
+            }
+        }
+        inverseTransform(a, roots(n, p, true), p);
+        return a;
+    }
+
+    /**
+     * loads a big-endian digit array into a little-endian array of
+     * length n, reduced modulo p.
+     */
+    private static int[] load(int[] digits, int n, int p) {
+        int[] a = new int[n];
+        for(int i = 0, j = digits.length - 1; j >= 0; i++, j--) {
+            a[i] = digits[j] % p;
+        }
+        return a;
+    }
+
+    /**
+     * calculates the powers {@code w^0 ... w^(n/2-1)} of an n-th root of
+     * unity modulo p (or of its inverse).
+     */
+    private static int[] roots(int n, int p, boolean inverse) {
+        long w = modPow(GENERATOR, (p - 1) / n, p);
+        if(inverse) {
+            w = modInverse((int)w, p);
+        }
+        int[] roots = new int[Math.max(n / 2, 1)];
+        long r = 1;
+        for(int j = 0; j < roots.length; j++) {
+            roots[j] = (int)r;
+            r = r * w % p;
+        }
+        return roots;
+    }
+
+    /**
+     * the forward transform (decimation in frequency). The result
+     * is in bit-reversed order, which is just fine for the pointwise
+     * multiplication and {@link #inverseTransform}.
+     */
+    private static void transform(int[] a, int[] roots, int p) {
+        int n = a.length;
+        for(int len = n; len >= 2; len >>= 1) {
+            int half = len / 2;
+            int stride = n / len;
+            for(int i = 0; i < n; i += len) {
+                for(int j = 0; j < half; j++) {
+                    int u = a[i+j];
+                    int v = a[i+j+half];
+                    int sum = u + v;
+                    a[i+j] = sum >= p ? sum - p : sum;
+                    a[i+j+half] =
+                        (int)((long)(u - v + p) * roots[j * stride] % p);
+                }
+            }
+        }
+    }
+
+    /**
+     * the inverse transform (decimation in time), from bit-reversed order
+     * back into natural order, including the division by n.
+     */
+    private static void inverseTransform(int[] a, int[] inverseRoots, int p) {
+        int n = a.length;
+        for(int len = 2; len <= n; len <<= 1) {
+            int half = len / 2;
+            int stride = n / len;
+            for(int i = 0; i < n; i += len) {
+                for(int j = 0; j < half; j++) {
+                    int u = a[i+j];
+                    int v = (int)((long)a[i+j+half] *
+                                  inverseRoots[j * stride] % p);
+                    int sum = u + v;
+                    a[i+j] = sum >= p ? sum - p : sum;
+                    int diff = u - v;
+                    a[i+j+half] = diff < 0 ? diff + p : diff;
+                }
+            }
+        }
+        long nInverse = modInverse(n % p, p);
+        for(int i = 0; i < n; i++) {
+            a[i] = (int)(a[i] * nInverse % p);
+        }
+    }
+
+    /**
+     * calculates {@code base^exp mod p}.
+     */
+    private static long modPow(long base, long exp, int p) {
+        long result = 1;
+        base %= p;
+        while(exp > 0) {
+            if((exp & 1) != 0) {
+                result = result * base % p;
+            }
+            base = base * base % p;
+            exp >>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * calculates the inverse of a modulo a prime p.
+     */
+    private static long modInverse(int a, int p) {
+        return modPow(a, p - 2, p);
+    }
+
+}
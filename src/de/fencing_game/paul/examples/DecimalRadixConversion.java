@@ -0,0 +1,258 @@
+package de.fencing_game.paul.examples;
+
+import java.util.Arrays;
+
+/**
+ * Conversion of {@link DecimalBigInt} values from and to representations
+ * in other radixes.
+ * <p>
+ * Small numbers are converted digit-wise: several digits of the other
+ * radix are packed into one word {@code radix^k < RADIX}, so each step of
+ * the Horner scheme (parsing) or of the repeated short division
+ * (formatting) handles {@code k} digits at once.
+ * </p><p>
+ * Big numbers are converted by divide and conquer: we split the number
+ * into a high and a low part at a power {@code radix^(k·2^i)}, convert
+ * these recursively and combine them by multiplication (parsing) or
+ * obtain them by division (formatting). These powers are cached for the
+ * radixes usable in strings (up to {@link Character#MAX_RADIX}).
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+final class DecimalRadixConversion {
+
+    private final static int RADIX = DecimalBigInt.RADIX;
+
+    /**
+     * The number of digits (in our internal radix) up to which we use
+     * the digit-wise (quadratic) conversion instead of divide and conquer.
+     */
+    static volatile int threshold =
+        Integer.getInteger(DecimalBigInt.class.getName() +
+                           ".radixConversionThreshold", 40);
+
+    /**
+     * the cached powers {@code radix^(k·2^i)} for each radix up to
+     * {@link Character#MAX_RADIX}, indexed by radix and i.
+     * Each array only ever grows, and is replaced by a bigger copy (so
+     * readers never see a partially filled array).
+     */
+    private static volatile DecimalBigInt[][] powerCache =
+        new DecimalBigInt[Character.MAX_RADIX + 1][];
+
+
+    /**
+     * no instances.
+     */
+    private DecimalRadixConversion() {}
+
+
+    /**
+     * returns the number of digits in the given radix which we pack
+     * in one word, i.e. the biggest k with {@code radix^k < RADIX}.
+     */
+    static int digitsPerWord(int radix) {
+        int k = 0;
+        long power = 1;
+        while(power * radix < RADIX) {
+            power *= radix;
+            k++;
+        }
+        return k;
+    }
+
+    /**
+     * calculates {@code radix^exponent} as an int, for small exponents
+     * (such that the result is smaller than RADIX).
+     */
+    private static int smallPower(int radix, int exponent) {
+        int power = 1;
+        for(int i = 0; i < exponent; i++) {
+            power *= radix;
+        }
+        return power;
+    }
+
+    /**
+     * returns the powers {@code radix^(k·2^i)} for {@code i = 0 .. maxIndex}
+     * (where {@code k = digitsPerWord(radix)}), from the cache if possible.
+     */
+    private static DecimalBigInt[] powers(int radix, int maxIndex) {
+        DecimalBigInt[][] cache = powerCache;
+        DecimalBigInt[] powers =
+            radix < cache.length ? cache[radix] : null;
+        if(powers != null && maxIndex < powers.length) {
+            return powers;
+        }
+        int oldLength = powers == null ? 0 : powers.length;
+        powers = powers == null
+            ? new DecimalBigInt[maxIndex + 1]
+            : Arrays.copyOf(powers, maxIndex + 1);
+        for(int i = oldLength; i <= maxIndex; i++) {
+            powers[i] = (i == 0)
+                ? DecimalBigInt.valueOf(smallPower(radix,
+                                                   digitsPerWord(radix)))
+                : powers[i-1].times(powers[i-1]);
+        }
+        if(radix < cache.length) {
+            // if some other thread did the same in the meantime, one
+            // of the results is lost, but both are correct.
+            DecimalBigInt[][] newCache = cache.clone();
+            newCache[radix] = powers;
+            powerCache = newCache;
+        }
+        return powers;
+    }
+
+    /**
+     * returns the biggest i with {@code k·2^i < length}, i.e. the
+     * index of the power where we should split a number with
+     * {@code length} digits in the other radix.
+     */
+    private static int splitIndex(int k, int length) {
+        int i = 0;
+        while((long)k << (i + 1) < length) {
+            i++;
+        }
+        return i;
+    }
+
+
+    // -------------------------- parsing ----------------------------
+
+
+    /**
+     * converts a big-endian representation in some radix to a
+     * DecimalBigInt.
+     * @param rDigits the digits, which must be already checked to be
+     *    in the range {@code 0 <= digit < radix}.
+     * @param radix the radix, {@code 1 < radix < RADIX}.
+     */
+    static DecimalBigInt fromRadix(int[] rDigits, int radix) {
+        int k = digitsPerWord(radix);
+        int length = rDigits.length;
+        DecimalBigInt[] powers = null;
+        if(length > threshold * k) {
+            powers = powers(radix, splitIndex(k, length));
+        }
+        return fromRadix(rDigits, 0, length, radix, k, powers);
+    }
+
+    /**
+     * converts a part {@code rDigits[from .. to-1]} of a radix
+     * representation.
+     */
+    private static DecimalBigInt fromRadix(int[] rDigits, int from, int to,
+                                           int radix, int k,
+                                           DecimalBigInt[] powers) {
+        int length = to - from;
+        if(length <= threshold * k) {
+            return fromRadixSmall(rDigits, from, to, radix, k);
+        }
+        int i = splitIndex(k, length);
+        int lowLength = k << i;
+        DecimalBigInt high =
+            fromRadix(rDigits, from, to - lowLength, radix, k, powers);
+        DecimalBigInt low =
+            fromRadix(rDigits, to - lowLength, to, radix, k, powers);
+        return high.times(powers[i]).plus(low);
+    }
+
+    /**
+     * the Horner scheme on a builder, k digits in each step.
+     */
+    private static DecimalBigInt fromRadixSmall(int[] rDigits,
+                                                int from, int to,
+                                                int radix, int k) {
+        DecimalBigIntBuilder value =
+            new DecimalBigIntBuilder((to - from) / k + 1);
+        // the first chunk is shorter, if needed, so all others
+        // have exactly k digits.
+        int chunkEnd = from + ((to - from) % k == 0 ? k : (to - from) % k);
+        int chunkStart = from;
+        int wordRadix = smallPower(radix, k);
+        while(chunkStart < to) {
+            int word = 0;
+            for(int i = chunkStart; i < chunkEnd; i++) {
+                word = word * radix + rDigits[i];
+            }
+            value.multiplyBySmall(chunkEnd - chunkStart == k
+                                  ? wordRadix
+                                  : smallPower(radix, chunkEnd - chunkStart))
+                .addSmall(word);
+            chunkStart = chunkEnd;
+            chunkEnd += k;
+        }
+        return value.toDecimalBigInt();
+    }
+
+
+    // ------------------------- formatting ----------------------------
+
+
+    /**
+     * converts a positive DecimalBigInt to some other radix.
+     * @param radix the radix, {@code 1 < radix < RADIX}.
+     * @return the big-endian digits in the other radix, without leading
+     *    zeros.
+     */
+    static int[] toRadix(DecimalBigInt value, int radix) {
+        int[] digits = value.getDigits();
+        // an upper bound of the length (this is just enough for
+        // RADIX^n - 1).
+        int length =
+            (int)(Math.log(RADIX) / Math.log(radix) * digits.length) + 2;
+        int k = digitsPerWord(radix);
+        DecimalBigInt[] powers = null;
+        if(digits.length > threshold) {
+            powers = powers(radix, splitIndex(k, length));
+        }
+        int[] rDigits = new int[length];
+        toRadix(digits, radix, k, powers, rDigits, length, length);
+        return DecimalArithmetic.stripLeadingZeros(rDigits);
+    }
+
+    /**
+     * converts a number into {@code rDigits[end-length .. end-1]}.
+     * The number must be smaller than {@code radix^length}, so it fits,
+     * and the array elements must be zero before.
+     */
+    private static void toRadix(int[] digits, int radix, int k,
+                                DecimalBigInt[] powers,
+                                int[] rDigits, int end, int length) {
+        if(digits.length <= threshold) {
+            toRadixSmall(digits, radix, k, rDigits, end, length);
+            return;
+        }
+        int i = splitIndex(k, length);
+        int lowLength = k << i;
+        int[][] qr =
+            DecimalDivision.divideAndRemainder(digits, powers[i].getDigits());
+        toRadix(qr[1], radix, k, powers, rDigits, end, lowLength);
+        toRadix(qr[0], radix, k, powers, rDigits,
+                end - lowLength, length - lowLength);
+    }
+
+    /**
+     * the repeated short division on a builder, giving k digits in
+     * each step.
+     */
+    private static void toRadixSmall(int[] digits, int radix, int k,
+                                     int[] rDigits, int end, int length) {
+        DecimalBigIntBuilder current =
+            new DecimalBigIntBuilder(DecimalBigInt.fromDigits(digits));
+        int wordRadix = smallPower(radix, k);
+        int start = end - length;
+        int pos = end;
+        while(!current.isZero()) {
+            int word = current.divideBySmall(wordRadix);
+            for(int i = 0; i < k && pos > start; i++) {
+                pos--;
+                rDigits[pos] = word % radix;
+                word /= radix;
+            }
+            assert pos > start || word == 0 : "number too big";
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package de.fencing_game.paul.examples;
+
+import java.util.Arrays;
+
+/**
+ * Integer roots of {@link DecimalBigInt} numbers by Newton's iteration.
+ * <p>
+ * For the k-th root of n we iterate
+ * {@code x ← ((k-1)·x + n / x^(k-1)) / k} (with integer division).
+ * If we start with x not smaller than the root (rounded down), x
+ * decreases until it reaches it.
+ * </p><p>
+ * For big numbers, we get the starting value recursively from the root
+ * of the leading digits of n: if {@code n = n'·RADIX^(k·h) + rest} and
+ * {@code r'} is the root of {@code n'}, {@code (r'+1)·RADIX^h} is not
+ * smaller than the root of n, and already has about half of its digits
+ * right. As Newton's iteration converges quadratically, then two or three
+ * steps are enough (each costing a division, and for {@code k > 2} a
+ * power), and most of the work is done on the top level.
+ * </p><p>
+ * For small roots we start with an estimate with about 15 correct decimal
+ * digits, calculated with floating point from the leading digits of n.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+final class DecimalRoots {
+
+    private final static int RADIX = DecimalBigInt.RADIX;
+
+    /**
+     * the number of decimal digits of our estimate.
+     */
+    private final static int ESTIMATE_DIGITS = 15;
+
+    /**
+     * the number of digits (in our internal radix) of the root
+     * from which on we get the starting value recursively.
+     */
+    private final static int RECURSION_DIGITS = 4;
+
+    private final static DecimalBigInt TEN = DecimalBigInt.valueOf(10);
+
+
+    /**
+     * no instances.
+     */
+    private DecimalRoots() {}
+
+
+    /**
+     * calculates the decimal logarithm of a positive number
+     * (approximately), from its leading three digits.
+     */
+    private static double log10(int[] digits) {
+        double top = 0;
+        for(int i = 0; i < 3 && i < digits.length; i++) {
+            top += digits[i] * Math.pow(RADIX, -i);
+        }
+        return Math.log10(top) + 9.0 * (digits.length - 1);
+    }
+
+    /**
+     * calculates the k-th root of a positive number, rounded down.
+     * @param k the degree of the root, {@code k >= 2}.
+     */
+    static DecimalBigInt root(DecimalBigInt n, int k) {
+        int[] digits = n.getDigits();
+        int rootLength = digits.length / k;
+        if(rootLength >= RECURSION_DIGITS) {
+            // the root of the leading digits, plus one, shifted back.
+            int h = rootLength / 2;
+            DecimalBigInt top = DecimalBigInt.fromDigits
+                (DecimalArithmetic.middlePart(digits, k * h, digits.length));
+            int[] start = root(top, k).plus(DecimalBigInt.ONE).getDigits();
+            return newton(n, k, DecimalBigInt.fromDigits
+                          (Arrays.copyOf(start, start.length + h)));
+        }
+        double log = log10(digits) / k;
+        if(log < Math.log10(2) - 1e-9) {
+            // the root is between 1 and 2.
+            return DecimalBigInt.ONE;
+        }
+        if(log < ESTIMATE_DIGITS) {
+            // the estimate is precise enough (wrong by at most one),
+            // so we just check it. (Newton's iteration might overshoot
+            // too much for small roots and big k.)
+            long r = (long)Math.pow(10, log);
+            while(DecimalBigInt.valueOf(r).pow(k).compareTo(n) > 0) {
+                r--;
+            }
+            while(DecimalBigInt.valueOf(r + 1).pow(k).compareTo(n) <= 0) {
+                r++;
+            }
+            return DecimalBigInt.valueOf(r);
+        }
+        int shift = (int)log - ESTIMATE_DIGITS;
+        DecimalBigInt x = DecimalBigInt.valueOf((long)Math.pow(10, log - shift))
+            .times(TEN.pow(shift));
+        // after this step, x is not smaller than the root.
+        return newton(n, k, newtonStep(n, k, x));
+    }
+
+    /**
+     * does Newton's iteration until it doesn't decrease anymore.
+     * @param x the starting value, not smaller than the root.
+     */
+    private static DecimalBigInt newton(DecimalBigInt n, int k,
+                                        DecimalBigInt x) {
+        while(true) {
+            DecimalBigInt next = newtonStep(n, k, x);
+            if(next.compareTo(x) >= 0) {
+                return x;
+            }
+            x = next;
+        }
+    }
+
+    /**
+     * calculates {@code ((k-1)·x + n / x^(k-1)) / k}.
+     */
+    private static DecimalBigInt newtonStep(DecimalBigInt n, int k,
+                                            DecimalBigInt x) {
+        DecimalBigInt bigK = DecimalBigInt.valueOf(k);
+        return x.times(DecimalBigInt.valueOf(k - 1))
+            .plus(n.divide(x.pow(k - 1)))
+            .divide(bigK);
+    }
+
+}
@@ -0,0 +1,296 @@
+package de.fencing_game.paul.examples;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Conversion of {@link DecimalBigInt} values from and to decimal text.
+ * <p>
+ * Since our radix is a power of ten, each of our digits corresponds to
+ * exactly nine decimal digits (only the first one may be shorter), so
+ * we can write the ASCII characters directly into a {@code char[]}
+ * (two at a time, from a table), and parse them by accumulating nine
+ * characters into one word. There is no intermediate String or
+ * {@link java.util.Formatter} per digit.
+ * </p><p>
+ * A negative number gets a '-' in front. When parsing, a '+' is
+ * allowed there, too.
+ * </p><p>
+ * The streaming variants use a buffer of fixed size, so writing a
+ * number of some megabytes to a {@link Writer} doesn't need a String
+ * of the same size.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+final class DecimalText {
+
+    private final static int RADIX = DecimalBigInt.RADIX;
+
+    /**
+     * the number of decimal digits in one of our digits.
+     */
+    private final static int DECIMAL_DIGITS = 9;
+
+    /**
+     * the number of our digits formatted into the buffer at once when
+     * writing to a stream.
+     */
+    private final static int CHUNK_DIGITS = 1024;
+
+    /**
+     * the size of the buffer when reading from a stream.
+     */
+    private final static int READ_BUFFER = 8192;
+
+    /**
+     * the decimal representations of 00 to 99, two characters each.
+     */
+    private final static char[] PAIRS = new char[200];
+    static {
+        for(int i = 0; i < 100; i++) {
+            PAIRS[2*i] = (char)('0' + i / 10);
+            PAIRS[2*i+1] = (char)('0' + i % 10);
+        }
+    }
+
+    /**
+     * the powers of ten, up to 10⁸.
+     */
+    private final static int[] POWERS_OF_TEN = {
+        1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000
+    };
+
+
+    /**
+     * no instances.
+     */
+    private DecimalText() {}
+
+
+    // ------------------------- formatting ----------------------------
+
+
+    /**
+     * returns the number of decimal digits of a positive digit.
+     */
+    private static int decimalLength(int digit) {
+        int length = 1;
+        while(length < DECIMAL_DIGITS && digit >= POWERS_OF_TEN[length]) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * writes the {@code count} lowest decimal digits of a digit
+     * (with leading zeros, if needed) into {@code buffer}, ending
+     * before {@code end}.
+     */
+    private static void formatDigit(int digit, int count,
+                                    char[] buffer, int end) {
+        int pos = end;
+        while(count >= 2) {
+            int pair = (digit % 100) * 2;
+            digit /= 100;
+            buffer[--pos] = PAIRS[pair + 1];
+            buffer[--pos] = PAIRS[pair];
+            count -= 2;
+        }
+        if(count > 0) {
+            buffer[--pos] = (char)('0' + digit % 10);
+        }
+    }
+
+    /**
+     * formats {@code digits[from .. to-1]} into the buffer, starting
+     * at index {@code pos}. The first of these is written without leading
+     * zeros if {@code from == 0}, all others have nine decimal digits.
+     * @return the index after the last character written.
+     */
+    private static int format(int[] digits, int from, int to,
+                              char[] buffer, int pos) {
+        for(int i = from; i < to; i++) {
+            int count = (i == 0) ? decimalLength(digits[0]) : DECIMAL_DIGITS;
+            pos += count;
+            formatDigit(digits[i], count, buffer, pos);
+        }
+        return pos;
+    }
+
+    /**
+     * formats a number as a decimal String.
+     */
+    static String toDecimalString(DecimalBigInt value) {
+        int[] digits = value.getDigits();
+        if(digits.length == 0) {
+            return "0";
+        }
+        int pos = 0;
+        char[] buffer = new char[(value.signum() < 0 ? 1 : 0) +
+                                 decimalLength(digits[0]) +
+                                 (digits.length - 1) * DECIMAL_DIGITS];
+        if(value.signum() < 0) {
+            buffer[pos++] = '-';
+        }
+        format(digits, 0, digits.length, buffer, pos);
+        return new String(buffer);
+    }
+
+    /**
+     * writes a number in decimal to some Appendable, in pieces of
+     * {@link #CHUNK_DIGITS} digits.
+     */
+    static void write(DecimalBigInt value, Appendable out)
+        throws IOException
+    {
+        int[] digits = value.getDigits();
+        if(digits.length == 0) {
+            out.append('0');
+            return;
+        }
+        if(value.signum() < 0) {
+            out.append('-');
+        }
+        char[] buffer =
+            new char[Math.min(digits.length, CHUNK_DIGITS) * DECIMAL_DIGITS];
+        for(int from = 0; from < digits.length; from += CHUNK_DIGITS) {
+            int to = Math.min(from + CHUNK_DIGITS, digits.length);
+            int length = format(digits, from, to, buffer, 0);
+            if(out instanceof Writer) {
+                ((Writer)out).write(buffer, 0, length);
+            }
+            else if(out instanceof StringBuilder) {
+                ((StringBuilder)out).append(buffer, 0, length);
+            }
+            else {
+                out.append(CharBuffer.wrap(buffer, 0, length));
+            }
+        }
+    }
+
+
+    // -------------------------- parsing ----------------------------
+
+
+    /**
+     * returns the value of a decimal digit character.
+     * @param index the position of the character, for the error message.
+     * @throws NumberFormatException if it is not one of '0' to '9'.
+     */
+    private static int digitValue(char c, long index) {
+        int value = c - '0';
+        if(value < 0 || 9 < value) {
+            throw new NumberFormatException("illegal character '" + c +
+                                            "' at index " + index);
+        }
+        return value;
+    }
+
+    /**
+     * returns the sign given by a character at the start of a number,
+     * or 0 if it is not a sign character.
+     */
+    static int signOf(char c) {
+        return c == '-' ? -1 : c == '+' ? 1 : 0;
+    }
+
+    /**
+     * parses a decimal number, i.e. a sequence of decimal digits
+     * ('0' to '9', nothing else), optionally preceded by a sign.
+     * @throws NumberFormatException if there are no digits, or
+     *    other characters.
+     */
+    static DecimalBigInt parse(CharSequence text) {
+        int length = text.length();
+        int pos = 0;
+        int signum = 1;
+        if(length > 0 && signOf(text.charAt(0)) != 0) {
+            signum = signOf(text.charAt(0));
+            pos++;
+        }
+        if(length == pos) {
+            throw new NumberFormatException("no digits");
+        }
+        int[] digits = new int[(length - pos - 1) / DECIMAL_DIGITS + 1];
+        // the first block is shorter, if needed, so all others have
+        // exactly nine decimal digits.
+        int blockEnd = length - (digits.length - 1) * DECIMAL_DIGITS;
+        for(int i = 0; i < digits.length; i++) {
+            int digit = 0;
+            for(; pos < blockEnd; pos++) {
+                digit = digit * 10 + digitValue(text.charAt(pos), pos);
+            }
+            digits[i] = digit;
+            blockEnd += DECIMAL_DIGITS;
+        }
+        return DecimalBigInt.fromDigits(signum, digits);
+    }
+
+    /**
+     * reads a decimal number (like for {@link #parse}) from a Reader,
+     * until its end.
+     * <p>
+     * As we don't know the length in advance, we collect blocks of nine
+     * decimal digits counted from the start. At the end, we shift
+     * them by the length of the incomplete last block (which is a
+     * multiplication by a small power of ten).
+     * </p>
+     * @throws NumberFormatException if there are no digits, or
+     *    other characters.
+     */
+    static DecimalBigInt read(Reader in)
+        throws IOException
+    {
+        char[] buffer = new char[READ_BUFFER];
+        int[] blocks = new int[16];
+        int blockCount = 0;
+        // the current (incomplete) block.
+        int block = 0;
+        int blockLength = 0;
+        int signum = 1;
+        long index = 0;
+        int count;
+        while((count = in.read(buffer)) >= 0) {
+            int i = 0;
+            if(index == 0 && count > 0 && signOf(buffer[0]) != 0) {
+                signum = signOf(buffer[0]);
+                i++;
+            }
+            for(; i < count; i++) {
+                block = block * 10 + digitValue(buffer[i], index + i);
+                blockLength++;
+                if(blockLength == DECIMAL_DIGITS) {
+                    if(blockCount == blocks.length) {
+                        blocks = Arrays.copyOf(blocks, 2 * blockCount);
+                    }
+                    blocks[blockCount++] = block;
+                    block = 0;
+                    blockLength = 0;
+                }
+            }
+            index += count;
+        }
+        if(blockCount == 0 && blockLength == 0) {
+            throw new NumberFormatException("no digits");
+        }
+        if(blockLength == 0) {
+            return DecimalBigInt.fromDigits(signum,
+                                            Arrays.copyOf(blocks, blockCount));
+        }
+        // value = blocks · 10^blockLength + block
+        int factor = POWERS_OF_TEN[blockLength];
+        int[] digits = new int[blockCount + 1];
+        long carry = block;
+        for(int i = blockCount - 1; i >= 0; i--) {
+            long prod = (long)blocks[i] * factor + carry;
+            digits[i+1] = (int)(prod % RADIX);
+            carry = prod / RADIX;
+        }
+        digits[0] = (int)carry;
+        return DecimalBigInt.fromDigits(signum, digits);
+    }
+
+}
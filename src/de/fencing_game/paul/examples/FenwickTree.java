@@ -0,0 +1,93 @@
+package de.fencing_game.paul.examples;
+
+/**
+ * A Fenwick tree (binary indexed tree) of int counts, which allows
+ * changing a count, calculating prefix sums and finding the position of
+ * a given prefix sum, each in O(log n) time.
+ * <p>
+ * We use it to map between the slots of an array with holes and the
+ * ranks (indexes) of the used slots: each slot has count 1 if it is used,
+ * 0 if not. Then the prefix sum up to a slot is its rank, and
+ * {@link #select} finds the slot with a given rank.
+ * </p><p>
+ * The capacity is fixed (and rounded up to a power of two).
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+final class FenwickTree {
+
+    /**
+     * the tree, 1-based: {@code tree[i]} contains the sum of the counts
+     * {@code i - lowestOneBit(i) .. i-1}.
+     */
+    private final int[] tree;
+
+
+    /**
+     * creates a Fenwick tree with initial counts, in O(n) time.
+     * @param counts the counts for the positions {@code 0 .. length-1}.
+     * @param length the number of counts to use.
+     * @param capacity the minimal capacity.
+     */
+    FenwickTree(int[] counts, int length, int capacity) {
+        int size = Integer.highestOneBit(Math.max(Math.max(length, capacity),
+                                                  1) - 1) << 1;
+        this.tree = new int[Math.max(size, 1) + 1];
+        System.arraycopy(counts, 0, tree, 1, length);
+        for(int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if(parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+
+    /**
+     * returns the number of positions of this tree.
+     */
+    int capacity() {
+        return tree.length - 1;
+    }
+
+    /**
+     * adds a delta to the count at some position.
+     */
+    void add(int position, int delta) {
+        for(int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * returns the sum of the counts before some position
+     * (i.e. of {@code 0 .. end-1}).
+     */
+    int prefixSum(int end) {
+        int sum = 0;
+        for(int i = end; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * finds the position where the prefix sum gets bigger than
+     * {@code rank}, i.e. the smallest position {@code p} with
+     * {@code prefixSum(p+1) > rank}. For counts of 0 and 1 this is the
+     * position of the {@code rank}-th (0-based) one.
+     * @param rank a number with {@code 0 <= rank < prefixSum(capacity())}.
+     */
+    int select(int rank) {
+        int pos = 0;
+        for(int step = capacity(); step > 0; step >>= 1) {
+            int next = pos + step;
+            if(next < tree.length && tree[next] <= rank) {
+                pos = next;
+                rank -= tree[next];
+            }
+        }
+        return pos;
+    }
+
+}
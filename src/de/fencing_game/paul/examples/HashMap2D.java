@@ -1,9 +1,1054 @@
 package de.fencing_game.paul.examples;
 
+import java.util.*;
 
-public class HashMap2D {
+/**
+ * A {@link Map2D} implemented by a single hash table over the pairs of
+ * keys.
+ * <p>
+ *   The mappings are stored in parallel arrays (first keys, second keys,
+ *   values and hash codes of the pairs), and an {@code int[]} hash table
+ *   with open addressing and linear probing contains their positions
+ *   (slots), like in {@link CompactHashMap}. The hash code of a pair is
+ *   computed from the hash codes of both keys, so {@link #get},
+ *   {@link #put} and {@link #remove} need no nested maps and don't
+ *   create any {@link Map2D.KeyPair} objects.
+ * </p>
+ * <p>
+ *   Additionally, the mappings with the same first key are linked to a
+ *   list (by {@code int[]} arrays of next and previous slots), as are
+ *   the ones with the same second key. A HashMap for each of both keys
+ *   contains the start of these lists, so {@link #containsKey1} and
+ *   {@link #containsKey2} run in O(1) time, and the
+ *   {@link #projection1Map() projections} (and their inner maps) iterate
+ *   only the mappings of a slice.
+ * </p>
+ * <p>
+ *   Removal leaves a tombstone in the arrays (in O(1) time), which are
+ *   compacted when a quarter of them is dead.
+ * </p>
+ * <p>
+ *   This map allows null keys and values. It is not thread-safe. The
+ *   iterators of the views are fail-fast.
+ * </p>
+ *
+ * @param <K1> the first key type.
+ * @param <K2> the second key type.
+ * @param <V> the value type.
+ * @author Paŭlo Ebermann
+ */
+public class HashMap2D<K1,K2,V>
+    extends AbstractMap2D<K1,K2,V>
+{
 
+    /**
+     * the minimal size of the hash table.
+     */
+    private final static int MIN_TABLE_SIZE = 8;
 
+    /**
+     * the multiplier for the Fibonacci hashing (2³² divided by the
+     * golden ratio), which gives the start position of a hash code.
+     */
+    private final static int GOLDEN = 0x9E3779B9;
 
+    /**
+     * in the hash table: a free place, which ends any probing.
+     */
+    private final static int FREE = 0;
 
-}
\ No newline at end of file
+    /**
+     * in the hash table: the place of a removed mapping. Probing has to
+     * continue after it, but it can be reused for a new mapping.
+     */
+    private final static int DUMMY = -1;
+
+    /**
+     * in {@link #keys1}: marks a removed mapping.
+     */
+    private final static Object DELETED = new Object();
+
+    /**
+     * in the link arrays: the end of a list.
+     */
+    private final static int NONE = -1;
+
+    /**
+     * the start, end and length of the list of the mappings with some
+     * key.
+     */
+    private static final class Slice {
+        int head;
+        int tail;
+        int size;
+
+        Slice() {
+            head = NONE;
+            tail = NONE;
+        }
+    }
+
+    /**
+     * the hash table. Each place contains {@link #FREE}, {@link #DUMMY},
+     * or the slot of a mapping plus one. Its size is a power of two.
+     */
+    private int[] table;
+
+    /**
+     * the first keys, in insertion order, with {@link #DELETED} for the
+     * tombstones.
+     */
+    private Object[] keys1;
+
+    /**
+     * the second keys, parallel to {@link #keys1}.
+     */
+    private Object[] keys2;
+
+    /**
+     * the values, parallel to {@link #keys1}.
+     */
+    private Object[] values;
+
+    /**
+     * the hash codes of the pairs of keys, parallel to {@link #keys1}.
+     */
+    private int[] hashes;
+
+    /**
+     * the next and previous slots in the list of the same first key.
+     */
+    private int[] next1, prev1;
+
+    /**
+     * the next and previous slots in the list of the same second key.
+     */
+    private int[] next2, prev2;
+
+    /**
+     * the lists by first key.
+     */
+    private Map<Object,Slice> slices1;
+
+    /**
+     * the lists by second key.
+     */
+    private Map<Object,Slice> slices2;
+
+    /**
+     * the number of used slots in the arrays, including tombstones.
+     */
+    private int used;
+
+    /**
+     * the number of tombstones.
+     */
+    private int dead;
+
+    /**
+     * the number of places in the hash table which are not
+     * {@link #FREE}.
+     */
+    private int filled;
+
+    /**
+     * the number of structural modifications, for the fail-fast iterators.
+     */
+    private int modCount;
+
+    /**
+     * the number of compactions, so our iterators know when their
+     * slot is outdated.
+     */
+    private int compactions;
+
+
+    /**
+     * creates a new empty HashMap2D.
+     */
+    public HashMap2D() {
+        this(0);
+    }
+
+    /**
+     * creates a new empty HashMap2D with room for some mappings.
+     * @param expectedSize the number of mappings which can be put without
+     *    resizing.
+     */
+    public HashMap2D(int expectedSize) {
+        if(expectedSize < 0) {
+            throw new IllegalArgumentException("negative size: " +
+                                               expectedSize);
+        }
+        allocate(expectedSize);
+        slices1 = new HashMap<Object,Slice>();
+        slices2 = new HashMap<Object,Slice>();
+    }
+
+    /**
+     * creates a new HashMap2D with the mappings of another Map2D.
+     */
+    public HashMap2D(Map2D<? extends K1, ? extends K2, ? extends V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+
+    // ------------------- the hash table ------------------------
+
+
+    /**
+     * returns the number of mappings which fit into a hash table of some
+     * size (two thirds of it, so probing stays short).
+     */
+    private static int usable(int tableSize) {
+        return tableSize - tableSize / 3;
+    }
+
+    /**
+     * combines the hash codes of two keys.
+     */
+    private static int hash(Object key1, Object key2) {
+        return hash(key1) * GOLDEN + hash(key2);
+    }
+
+    /**
+     * the place in the hash table where the probing for a hash code
+     * starts.
+     */
+    private int start(int hash) {
+        return (hash * GOLDEN) >>>
+            Integer.numberOfLeadingZeros(table.length - 1);
+    }
+
+    /**
+     * creates new (empty) arrays with room for at least {@code count}
+     * mappings.
+     */
+    private void allocate(int count) {
+        int size = MIN_TABLE_SIZE;
+        while(usable(size) < count) {
+            if(size >= (1 << 30)) {
+                throw new OutOfMemoryError("HashMap2D too big");
+            }
+            size <<= 1;
+        }
+        int length = usable(size);
+        table = new int[size];
+        keys1 = new Object[length];
+        keys2 = new Object[length];
+        values = new Object[length];
+        hashes = new int[length];
+        next1 = new int[length];
+        prev1 = new int[length];
+        next2 = new int[length];
+        prev2 = new int[length];
+    }
+
+    /**
+     * removes the tombstones and rebuilds the hash table and the lists
+     * with room for at least {@code count} mappings.
+     *
+     * This method runs in O(n) time.
+     */
+    private void resize(int count) {
+        Object[] oldKeys1 = keys1;
+        Object[] oldKeys2 = keys2;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        int oldUsed = used;
+        allocate(count);
+        int live = 0;
+        for(int i = 0; i < oldUsed; i++) {
+            if(oldKeys1[i] != DELETED) {
+                keys1[live] = oldKeys1[i];
+                keys2[live] = oldKeys2[i];
+                values[live] = oldValues[i];
+                hashes[live] = oldHashes[i];
+                live++;
+            }
+        }
+        used = live;
+        dead = 0;
+        compactions++;
+        rebuild();
+    }
+
+    /**
+     * fills the hash table and the lists from the (compacted) arrays.
+     * The order of each list stays the same, as it is the order of
+     * the slots.
+     */
+    private void rebuild() {
+        int mask = table.length - 1;
+        for(Slice slice : slices1.values()) {
+            slice.head = slice.tail = NONE;
+            slice.size = 0;
+        }
+        for(Slice slice : slices2.values()) {
+            slice.head = slice.tail = NONE;
+            slice.size = 0;
+        }
+        for(int slot = 0; slot < used; slot++) {
+            int pos = start(hashes[slot]);
+            while(table[pos] != FREE) {
+                pos = (pos + 1) & mask;
+            }
+            table[pos] = slot + 1;
+            link(slot);
+        }
+        filled = used;
+    }
+
+    /**
+     * finds the place of a pair of keys in the hash table.
+     * @return the place, or -1 if the pair is not in the map.
+     */
+    private int find(Object key1, Object key2, int hash) {
+        int mask = table.length - 1;
+        for(int pos = start(hash); ; pos = (pos + 1) & mask) {
+            int entry = table[pos];
+            if(entry == FREE) {
+                return -1;
+            }
+            if(entry != DUMMY) {
+                int slot = entry - 1;
+                if(hashes[slot] == hash && eq(keys1[slot], key1) &&
+                   eq(keys2[slot], key2)) {
+                    return pos;
+                }
+            }
+        }
+    }
+
+    /**
+     * returns the slot of a pair of keys, or -1 if the pair is not in
+     * the map.
+     */
+    private int slotOf(Object key1, Object key2) {
+        int pos = find(key1, key2, hash(key1, key2));
+        return pos < 0 ? -1 : table[pos] - 1;
+    }
+
+
+    // ------------------- the lists ------------------------
+
+
+    /**
+     * appends a slot to the lists of its keys, creating them if needed.
+     */
+    private void link(int slot) {
+        Slice slice = slices1.get(keys1[slot]);
+        if(slice == null) {
+            slice = new Slice();
+            slices1.put(keys1[slot], slice);
+        }
+        prev1[slot] = slice.tail;
+        next1[slot] = NONE;
+        if(slice.tail == NONE) {
+            slice.head = slot;
+        }
+        else {
+            next1[slice.tail] = slot;
+        }
+        slice.tail = slot;
+        slice.size++;
+
+        slice = slices2.get(keys2[slot]);
+        if(slice == null) {
+            slice = new Slice();
+            slices2.put(keys2[slot], slice);
+        }
+        prev2[slot] = slice.tail;
+        next2[slot] = NONE;
+        if(slice.tail == NONE) {
+            slice.head = slot;
+        }
+        else {
+            next2[slice.tail] = slot;
+        }
+        slice.tail = slot;
+        slice.size++;
+    }
+
+    /**
+     * removes a slot from the lists of its keys, and removes lists which
+     * get empty. (A list which was already removed from its HashMap, by
+     * removing all mappings of a key, is left alone.)
+     */
+    private void unlink(int slot) {
+        Slice slice = slices1.get(keys1[slot]);
+        if(slice != null) {
+            if(prev1[slot] == NONE) {
+                slice.head = next1[slot];
+            }
+            else {
+                next1[prev1[slot]] = next1[slot];
+            }
+            if(next1[slot] == NONE) {
+                slice.tail = prev1[slot];
+            }
+            else {
+                prev1[next1[slot]] = prev1[slot];
+            }
+            if(--slice.size == 0) {
+                slices1.remove(keys1[slot]);
+            }
+        }
+
+        slice = slices2.get(keys2[slot]);
+        if(slice != null) {
+            if(prev2[slot] == NONE) {
+                slice.head = next2[slot];
+            }
+            else {
+                next2[prev2[slot]] = next2[slot];
+            }
+            if(next2[slot] == NONE) {
+                slice.tail = prev2[slot];
+            }
+            else {
+                prev2[next2[slot]] = prev2[slot];
+            }
+            if(--slice.size == 0) {
+                slices2.remove(keys2[slot]);
+            }
+        }
+    }
+
+
+    // ------------------- adding and removing ------------------------
+
+
+    /**
+     * adds a new mapping (whose keys must not be in the map yet).
+     */
+    private void append(K1 key1, K2 key2, V value, int hash) {
+        if(used == keys1.length || filled == usable(table.length)) {
+            // compacts, if there are many tombstones, else doubles.
+            resize(size() + size() / 2 + 1);
+        }
+        int mask = table.length - 1;
+        int pos = start(hash);
+        while(table[pos] != FREE && table[pos] != DUMMY) {
+            pos = (pos + 1) & mask;
+        }
+        if(table[pos] == FREE) {
+            filled++;
+        }
+        int slot = used++;
+        table[pos] = slot + 1;
+        keys1[slot] = key1;
+        keys2[slot] = key2;
+        values[slot] = value;
+        hashes[slot] = hash;
+        link(slot);
+        modCount++;
+    }
+
+    /**
+     * removes the mapping at some place of the hash table, leaving a
+     * tombstone. The caller has to call {@link #afterRemoval} afterwards.
+     * @return the old value.
+     */
+    private V kill(int pos) {
+        int slot = table[pos] - 1;
+        V old = valueAt(slot);
+        unlink(slot);
+        table[pos] = DUMMY;
+        keys1[slot] = DELETED;
+        keys2[slot] = null;
+        values[slot] = null;
+        dead++;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * drops the tombstones at the end, and compacts the arrays if there
+     * are too many tombstones.
+     */
+    private void afterRemoval() {
+        while(used > 0 && keys1[used - 1] == DELETED) {
+            used--;
+            dead--;
+        }
+        if(dead > used / 4) {
+            resize(keys1.length);
+        }
+    }
+
+    /**
+     * removes the mapping in some slot.
+     */
+    private V removeSlot(int slot) {
+        V old = kill(find(keys1[slot], keys2[slot], hashes[slot]));
+        afterRemoval();
+        return old;
+    }
+
+    /**
+     * removes all mappings of a list, which was already removed from
+     * its HashMap.
+     *
+     * This method runs in O(size of the list) time.
+     *
+     * @param first true for a list of a first key, false for a second key.
+     */
+    private void removeSlice(Slice slice, boolean first) {
+        int[] next = first ? next1 : next2;
+        int slot = slice.head;
+        while(slot != NONE) {
+            int following = next[slot];
+            kill(find(keys1[slot], keys2[slot], hashes[slot]));
+            slot = following;
+        }
+        afterRemoval();
+    }
+
+    @SuppressWarnings("unchecked")
+    private K1 key1At(int slot) {
+        return (K1)keys1[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    private K2 key2At(int slot) {
+        return (K2)keys2[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int slot) {
+        return (V)values[slot];
+    }
+
+
+    // ------------------- map operations ------------------------
+
+
+    /**
+     * returns the number of mappings in this map.
+     *
+     *   This method runs in O(1) time.
+     */
+    public int size() {
+        return used - dead;
+    }
+
+    /**
+     * returns true if this map contains a mapping for the specified key pair.
+     *
+     *   This method runs in O(1) time.
+     */
+    public boolean containsKeys(Object key1, Object key2) {
+        return slotOf(key1, key2) >= 0;
+    }
+
+    /**
+     * returns true if this map contains a mapping with this
+     * specified key as first key.
+     *
+     *   This method runs in O(1) time.
+     */
+    public boolean containsKey1(Object key1) {
+        return slices1.containsKey(key1);
+    }
+
+    /**
+     * returns true if this map contains a mapping with this
+     * specified key as second key.
+     *
+     *   This method runs in O(1) time.
+     */
+    public boolean containsKey2(Object key2) {
+        return slices2.containsKey(key2);
+    }
+
+    /**
+     * returns true if this map contains a mapping with the
+     * specified value.
+     *
+     *   This method runs in O(n) time.
+     */
+    public boolean containsValue(Object value) {
+        for(int slot = 0; slot < used; slot++) {
+            if(keys1[slot] != DELETED && eq(values[slot], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * retrieves an element from the map.
+     *
+     *   This method runs in O(1) time.
+     *
+     * @return null if there is no such pair of keys, else the value.
+     */
+    public V get(K1 key1, K2 key2) {
+        int slot = slotOf(key1, key2);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    /**
+     * puts a new element in the map.
+     *
+     *   This method runs in O(1) time for changing an existing value,
+     *   amortized O(1) time for adding a new value.
+     *
+     * @return the old value, or null, if there was no such mapping.
+     */
+    public V put(K1 key1, K2 key2, V value) {
+        int hash = hash(key1, key2);
+        int pos = find(key1, key2, hash);
+        if(pos < 0) {
+            append(key1, key2, value, hash);
+            return null;
+        }
+        int slot = table[pos] - 1;
+        V old = valueAt(slot);
+        values[slot] = value;
+        return old;
+    }
+
+    /**
+     * removes a mapping from this map.
+     *
+     *   This method runs in amortized O(1) time.
+     *
+     * @return the old value, or null, if there was no such mapping.
+     */
+    public V remove(Object key1, Object key2) {
+        int pos = find(key1, key2, hash(key1, key2));
+        if(pos < 0) {
+            return null;
+        }
+        V old = kill(pos);
+        afterRemoval();
+        return old;
+    }
+
+    /**
+     * clears this map.
+     */
+    public void clear() {
+        allocate(0);
+        slices1.clear();
+        slices2.clear();
+        used = 0;
+        dead = 0;
+        filled = 0;
+        modCount++;
+    }
+
+
+    // ------------------- entries and iterators ------------------------
+
+
+    /**
+     * an entry of this map, which writes through. It remembers its slot,
+     * and searches it again by its keys after a compaction.
+     */
+    private final class SlotEntry extends AbstractEntry<K1,K2,V> {
+        private final K1 key1;
+        private final K2 key2;
+        private int slot;
+
+        SlotEntry(int slot) {
+            this.key1 = key1At(slot);
+            this.key2 = key2At(slot);
+            this.slot = slot;
+        }
+
+        /**
+         * returns the current slot of our keys.
+         * @throws IllegalStateException if the mapping was removed.
+         */
+        private int slot() {
+            if(slot >= used || keys1[slot] != key1 || keys2[slot] != key2) {
+                int newSlot = slotOf(key1, key2);
+                if(newSlot < 0) {
+                    throw new IllegalStateException("entry was removed: (" +
+                                                    key1 + ", " + key2 +
+                                                    ")");
+                }
+                slot = newSlot;
+            }
+            return slot;
+        }
+
+        public K1 getKey1() {
+            return key1;
+        }
+
+        public K2 getKey2() {
+            return key2;
+        }
+
+        public V getValue() {
+            return valueAt(slot());
+        }
+
+        public V setValue(V value) {
+            int s = slot();
+            V old = valueAt(s);
+            values[s] = value;
+            return old;
+        }
+    }
+
+    /**
+     * an iterator over all slots in insertion order, which skips the
+     * tombstones.
+     */
+    private abstract class SlotIterator<E> implements Iterator<E> {
+
+        /**
+         * the slot where we start searching for the next mapping.
+         */
+        private int slot;
+        /**
+         * the number of mappings before {@link #slot}.
+         */
+        private int index;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+        private int expectedCompactions = compactions;
+
+        /**
+         * returns the element for a slot.
+         */
+        abstract E extract(int slot);
+
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        public E next() {
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            while(keys1[slot] == DELETED) {
+                slot++;
+            }
+            lastReturned = slot;
+            slot++;
+            index++;
+            return extract(lastReturned);
+        }
+
+        public void remove() {
+            if(lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot(lastReturned);
+            lastReturned = -1;
+            index--;
+            if(compactions != expectedCompactions) {
+                // the slots are dense now.
+                slot = index;
+                expectedCompactions = compactions;
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * an iterator over the list of the mappings with one key.
+     */
+    private final class SliceIterator
+        implements Iterator<Map2D.Entry<K1,K2,V>>
+    {
+        /**
+         * true for a list of a first key, false for a second key.
+         */
+        private final boolean first;
+        private int next;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+        private int expectedCompactions = compactions;
+
+        SliceIterator(Slice slice, boolean first) {
+            this.first = first;
+            this.next = (slice == null) ? NONE : slice.head;
+        }
+
+        public boolean hasNext() {
+            return next != NONE;
+        }
+
+        public Map2D.Entry<K1,K2,V> next() {
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if(next == NONE) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = first ? next1[next] : next2[next];
+            return new SlotEntry(lastReturned);
+        }
+
+        public void remove() {
+            if(lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // remember the keys of the next one, for a compaction.
+            Object nextKey1 = (next == NONE) ? null : keys1[next];
+            Object nextKey2 = (next == NONE) ? null : keys2[next];
+            removeSlot(lastReturned);
+            lastReturned = -1;
+            if(compactions != expectedCompactions) {
+                if(next != NONE) {
+                    next = slotOf(nextKey1, nextKey2);
+                }
+                expectedCompactions = compactions;
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+
+    // ------------------- views ------------------------
+
+
+    /**
+     * returns a collection view of this map's entries, in insertion order.
+     * Its entries write through to the map (as long as their mapping is
+     * not removed).
+     *
+     * It supports removal by entry or iterator in amortized O(1) time.
+     * Containment check runs in O(1).
+     */
+    public Set<Map2D.Entry<K1,K2,V>> entrySet() {
+        return new AbstractSet<Map2D.Entry<K1,K2,V>>() {
+            public int size() {
+                return HashMap2D.this.size();
+            }
+            public void clear() {
+                HashMap2D.this.clear();
+            }
+            public Iterator<Map2D.Entry<K1,K2,V>> iterator() {
+                return new SlotIterator<Map2D.Entry<K1,K2,V>>() {
+                    Map2D.Entry<K1,K2,V> extract(int slot) {
+                        return new SlotEntry(slot);
+                    }
+                };
+            }
+            public boolean contains(Object o) {
+                if(!(o instanceof Map2D.Entry)) {
+                    return false;
+                }
+                Map2D.Entry<?,?,?> e = (Map2D.Entry<?,?,?>)o;
+                int slot = slotOf(e.getKey1(), e.getKey2());
+                return slot >= 0 && eq(values[slot], e.getValue());
+            }
+            public boolean remove(Object o) {
+                if(!contains(o)) {
+                    return false;
+                }
+                Map2D.Entry<?,?,?> e = (Map2D.Entry<?,?,?>)o;
+                HashMap2D.this.remove(e.getKey1(), e.getKey2());
+                return true;
+            }
+        };
+    }  // entrySet()
+
+    /**
+     * returns a collection view of the values of this map, in insertion
+     * order.
+     *
+     * Removal by iterator runs in amortized O(1) time.
+     * Containment check needs O(n) time.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            public int size() {
+                return HashMap2D.this.size();
+            }
+            public void clear() {
+                HashMap2D.this.clear();
+            }
+            public boolean contains(Object value) {
+                return containsValue(value);
+            }
+            public Iterator<V> iterator() {
+                return new SlotIterator<V>() {
+                    V extract(int slot) {
+                        return valueAt(slot);
+                    }
+                };
+            }
+        };
+    }  // values()
+
+    /**
+     * returns a set view of the distinct first keys.
+     *
+     * Its size and containment check run in O(1), removal of a key
+     * (which removes all mappings with it) in O(size of its slice).
+     */
+    protected Set<K1> keySet1() {
+        return new KeySet<K1>(slices1, true);
+    }
+
+    /**
+     * returns a set view of the distinct second keys.
+     *
+     * Its size and containment check run in O(1), removal of a key
+     * (which removes all mappings with it) in O(size of its slice).
+     */
+    protected Set<K2> keySet2() {
+        return new KeySet<K2>(slices2, false);
+    }
+
+    /**
+     * returns a collection view of the entries with some first key,
+     * in insertion order.
+     *
+     * Its size runs in O(1), its iteration in O(size of the slice).
+     */
+    protected Collection<Map2D.Entry<K1,K2,V>> slice1(final Object key1) {
+        return new AbstractCollection<Map2D.Entry<K1,K2,V>>() {
+            public int size() {
+                Slice slice = slices1.get(key1);
+                return slice == null ? 0 : slice.size;
+            }
+            public Iterator<Map2D.Entry<K1,K2,V>> iterator() {
+                return new SliceIterator(slices1.get(key1), true);
+            }
+            public void clear() {
+                Slice slice = slices1.remove(key1);
+                if(slice != null) {
+                    removeSlice(slice, true);
+                }
+            }
+        };
+    }
+
+    /**
+     * returns a collection view of the entries with some second key,
+     * in insertion order.
+     *
+     * Its size runs in O(1), its iteration in O(size of the slice).
+     */
+    protected Collection<Map2D.Entry<K1,K2,V>> slice2(final Object key2) {
+        return new AbstractCollection<Map2D.Entry<K1,K2,V>>() {
+            public int size() {
+                Slice slice = slices2.get(key2);
+                return slice == null ? 0 : slice.size;
+            }
+            public Iterator<Map2D.Entry<K1,K2,V>> iterator() {
+                return new SliceIterator(slices2.get(key2), false);
+            }
+            public void clear() {
+                Slice slice = slices2.remove(key2);
+                if(slice != null) {
+                    removeSlice(slice, false);
+                }
+            }
+        };
+    }
+
+    /**
+     * a view of the keys of {@link #slices1} or {@link #slices2}.
+     */
+    private final class KeySet<K> extends AbstractSet<K> {
+        private final Map<Object,Slice> slices;
+        /**
+         * true for the first keys, false for the second ones.
+         */
+        private final boolean first;
+
+        KeySet(Map<Object,Slice> slices, boolean first) {
+            this.slices = slices;
+            this.first = first;
+        }
+
+        public int size() {
+            return slices.size();
+        }
+
+        public boolean contains(Object key) {
+            return slices.containsKey(key);
+        }
+
+        public boolean remove(Object key) {
+            Slice slice = slices.remove(key);
+            if(slice == null) {
+                return false;
+            }
+            removeSlice(slice, first);
+            return true;
+        }
+
+        public void clear() {
+            HashMap2D.this.clear();
+        }
+
+        public Iterator<K> iterator() {
+            final Iterator<Map.Entry<Object,Slice>> it =
+                slices.entrySet().iterator();
+            return new Iterator<K>() {
+                private Slice last;
+                private int expectedModCount = modCount;
+
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @SuppressWarnings("unchecked")
+                public K next() {
+                    if(modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    Map.Entry<Object,Slice> entry = it.next();
+                    last = entry.getValue();
+                    return (K)entry.getKey();
+                }
+
+                public void remove() {
+                    if(last == null) {
+                        throw new IllegalStateException();
+                    }
+                    if(modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    // detach the list first, so removing its mappings
+                    // doesn't change our HashMap.
+                    it.remove();
+                    removeSlice(last, first);
+                    last = null;
+                    expectedModCount = modCount;
+                }
+            };
+        }
+    }
+
+
+    /**
+     * an usage example method: puts the arguments (as triples of
+     * first key, second key and value) into a map and shows its
+     * projections.
+     */
+    public static void main(String[] args) {
+        Map2D<String,String,String> map = new HashMap2D<String,String,String>();
+        for(int i = 0; i < args.length-2; i+=3) {
+            map.put(args[i], args[i+1], args[i+2]);
+        }
+        System.out.println(map);
+        System.out.println(map.flattedMap());
+        System.out.println(map.projection1Map());
+        System.out.println(map.projection2Map());
+    }
+
+}
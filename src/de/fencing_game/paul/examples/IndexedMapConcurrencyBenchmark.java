@@ -0,0 +1,201 @@
+package de.fencing_game.paul.examples;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A small benchmark comparing the throughput of a
+ * {@link ConcurrentIndexedMap} with a
+ * {@link Collections#synchronizedMap synchronized} {@link ArrayHashMap}
+ * for a growing number of threads.
+ * <p>
+ * Each thread does a mix of lookups by key, lookups by index and puts
+ * (half of them adding new keys, half changing existing ones). For the
+ * synchronized map, the lookup by index synchronizes on the map, like
+ * every other access.
+ * </p><p>
+ * Run it with {@code ant test.example -Dclass=IndexedMapConcurrencyBenchmark},
+ * optionally giving a list of thread counts with {@code -Dparams="..."}.
+ * The default is 1, 2, 4, 8, 16 and 32 threads, with 10% puts.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+public class IndexedMapConcurrencyBenchmark {
+
+    /**
+     * the number of keys put into the map before measuring.
+     */
+    private final static int INITIAL_KEYS = 1 << 16;
+
+    /**
+     * the number of operations of each run, divided between the threads.
+     */
+    private final static int OPERATIONS = 4000000;
+
+    /**
+     * the percentage of puts.
+     */
+    private final static int PUT_PERCENT = 10;
+
+    /**
+     * the keys used, boxed in advance. The second half is added
+     * during the measurement.
+     */
+    private final static Integer[] KEYS = new Integer[2 * INITIAL_KEYS];
+    static {
+        for(int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = i * 7919;
+        }
+    }
+
+    /**
+     * a sink for the results, so the JIT can't optimize our
+     * lookups away.
+     */
+    private static volatile int sink;
+
+    /**
+     * the operations under test.
+     */
+    private static abstract class Target {
+        abstract Integer get(Integer key);
+        abstract Integer getValue(int index);
+        abstract void put(Integer key, Integer value);
+        abstract int size();
+    }
+
+    private static Target concurrentTarget() {
+        final ConcurrentIndexedMap<Integer,Integer> map =
+            new ConcurrentIndexedMap<Integer,Integer>();
+        return new Target() {
+            Integer get(Integer key) {
+                return map.get(key);
+            }
+            Integer getValue(int index) {
+                return map.getValue(index);
+            }
+            void put(Integer key, Integer value) {
+                map.put(key, value);
+            }
+            int size() {
+                return map.size();
+            }
+        };
+    }
+
+    private static Target synchronizedTarget() {
+        final ArrayHashMap<Integer,Integer> base =
+            new ArrayHashMap<Integer,Integer>();
+        final Map<Integer,Integer> map = Collections.synchronizedMap(base);
+        return new Target() {
+            Integer get(Integer key) {
+                return map.get(key);
+            }
+            Integer getValue(int index) {
+                synchronized(map) {
+                    return base.getValue(index);
+                }
+            }
+            void put(Integer key, Integer value) {
+                map.put(key, value);
+            }
+            int size() {
+                return map.size();
+            }
+        };
+    }
+
+    /**
+     * the work of one thread.
+     */
+    private static void work(Target target, int operations, int seed) {
+        int x = seed | 1;
+        int sum = 0;
+        for(int i = 0; i < operations; i++) {
+            // xorshift, to avoid a shared Random.
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+            int r = x & Integer.MAX_VALUE;
+            int op = r % 100;
+            if(op < PUT_PERCENT) {
+                target.put(KEYS[(r >>> 7) % KEYS.length], i);
+            }
+            else if(op % 2 == 0) {
+                Integer value = target.get(KEYS[(r >>> 7) % INITIAL_KEYS]);
+                sum += value;
+            }
+            else {
+                sum += target.getValue((r >>> 7) % target.size());
+            }
+        }
+        sink += sum;
+    }
+
+    /**
+     * measures one run, returns the throughput in operations per
+     * microsecond.
+     */
+    private static double measure(final Target target, int threadCount)
+        throws InterruptedException
+    {
+        for(int i = 0; i < INITIAL_KEYS; i++) {
+            target.put(KEYS[i], i);
+        }
+        final int perThread = OPERATIONS / threadCount;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for(int t = 0; t < threadCount; t++) {
+            final int seed = 31 * t + 17;
+            threads[t] = new Thread() {
+                    public void run() {
+                        try {
+                            start.await();
+                        }
+                        catch(InterruptedException ex) {
+                            return;
+                        }
+                        work(target, perThread, seed);
+                    }
+                };
+            threads[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for(Thread t : threads) {
+            t.join();
+        }
+        long time = System.nanoTime() - begin;
+        return (double)perThread * threadCount * 1000 / time;
+    }
+
+    /**
+     * runs the benchmark for some thread counts.
+     */
+    public static void main(String[] params)
+        throws InterruptedException
+    {
+        int[] threadCounts = { 1, 2, 4, 8, 16, 32 };
+        if(params.length > 0) {
+            threadCounts = new int[params.length];
+            for(int i = 0; i < params.length; i++) {
+                threadCounts[i] = Integer.parseInt(params[i]);
+            }
+        }
+        System.out.println("processors: " +
+                           Runtime.getRuntime().availableProcessors());
+        System.out.println("threads  synchronized  concurrent   [ops/µs]");
+        for(int threads : threadCounts) {
+            double sync = 0;
+            double conc = 0;
+            // first round is warm-up.
+            for(int round = 0; round < 3; round++) {
+                sync = measure(synchronizedTarget(), threads);
+                conc = measure(concurrentTarget(), threads);
+            }
+            System.out.printf("%7d %13.1f %11.1f%n", threads, sync, conc);
+        }
+    }
+
+}
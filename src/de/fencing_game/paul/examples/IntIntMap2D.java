@@ -0,0 +1,888 @@
+package de.fencing_game.paul.examples;
+
+import java.util.*;
+
+/**
+ * A {@link Map2D} with {@code int} keys in both dimensions, which can be
+ * used without boxing the keys.
+ * <p>
+ *   The map uses one of two layouts, and switches between them by itself:
+ * </p>
+ * <ul>
+ *   <li>For small or dense key ranges, a <em>dense</em> layout: a flat
+ *     array of values over the bounding box of the keys, with one cell for
+ *     each key pair. A lookup is only an index calculation.</li>
+ *   <li>For sparse keys, a <em>sparse</em> layout: an open-addressed hash
+ *     table (linear probing) of {@code long} keys, each packing both
+ *     {@code int} keys, with a parallel array of values.</li>
+ * </ul>
+ * <p>
+ *   The dense layout is chosen when the bounding box has at most
+ *   {@value #SMALL_AREA} cells, or at most {@value #DENSE_FILL} cells for
+ *   each mapping. A dense map goes back to the sparse layout when a new
+ *   key would need more than {@value #SPARSE_FILL} cells for each mapping
+ *   (the gap between these numbers avoids switching back and forth). The
+ *   layout only changes in {@link #set set} (or {@link #put put}), never by
+ *   a removal, and never to more than {@value #MAX_DENSE_CELLS} cells.
+ * </p>
+ * <p>
+ *   The methods taking primitive keys ({@link #get(int, int)},
+ *   {@link #set(int, int, Object)}, {@link #remove(int, int)} and
+ *   {@link #containsKeys(int, int)}) don't create any objects. (The
+ *   mutator is not named {@code put}, as an overload of
+ *   {@link #put(Integer, Integer, Object)} would make calls like
+ *   {@code put(1, 2, 3)} ambiguous when the values are boxed, too.) The
+ *   methods of {@link Map2D} and its views are supported, too, with
+ *   {@link Integer} keys, as adapters for other code (these box and unbox
+ *   the keys, of course). Null keys are not supported, null values are.
+ * </p>
+ * <p>
+ *   The iteration order of the dense layout is by first key, then by
+ *   second key; the one of the sparse layout is unspecified. A row (or
+ *   column) view iterates in O(width of the bounding box) in the dense
+ *   layout, and in O(capacity of the table) in the sparse one. This class
+ *   is not thread-safe. The iterators of the views are fail-fast.
+ * </p>
+ * @author Paŭlo Ebermann
+ * @see HashMap2D
+ */
+public class IntIntMap2D<V>
+    extends AbstractMap2D<Integer,Integer,V>
+{
+
+    /**
+     * a bounding box up to this number of cells always allows the dense
+     * layout.
+     */
+    public final static int SMALL_AREA = 256;
+
+    /**
+     * the sparse layout switches to the dense layout when the bounding box
+     * has at most this number of cells for each mapping.
+     */
+    public final static int DENSE_FILL = 4;
+
+    /**
+     * the dense layout switches to the sparse layout when the bounding box
+     * would get more than this number of cells for each mapping.
+     */
+    public final static int SPARSE_FILL = 8;
+
+    /**
+     * the maximal number of cells in the dense layout.
+     */
+    public final static int MAX_DENSE_CELLS = 1 << 24;
+
+    /**
+     * the minimal size of the hash table.
+     */
+    private final static int MIN_TABLE_SIZE = 8;
+
+    /**
+     * the multiplier for the Fibonacci hashing (2⁶⁴ divided by the
+     * golden ratio), which gives the start position of a key.
+     */
+    private final static long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    /**
+     * stands in the arrays for a {@code null} value, as {@code null}
+     * there means "no mapping".
+     */
+    private final static Object NULL_VALUE = new Object();
+
+    /**
+     * in the sparse layout: marks a removed mapping. Probing has to
+     * continue after it, but it can be reused for a new mapping.
+     */
+    private final static Object DELETED = new Object();
+
+    /**
+     * the cells of the dense layout (or {@code null} in the sparse
+     * layout), by first key, then by second key. The cell of
+     * {@code (key1, key2)} is
+     * {@code (key1 - min1) * width2 + (key2 - min2)}.
+     */
+    private Object[] cells;
+
+    /**
+     * the smallest first and second key of the dense layout.
+     */
+    private int min1, min2;
+
+    /**
+     * the number of first and second keys of the dense layout.
+     */
+    private int width1, width2;
+
+    /**
+     * the packed keys of the sparse layout (or {@code null} in the dense
+     * layout). Its size is a power of two.
+     */
+    private long[] keys;
+
+    /**
+     * the values of the sparse layout, parallel to {@link #keys}, with
+     * {@code null} for free places and {@link #DELETED} for tombstones.
+     */
+    private Object[] values;
+
+    /**
+     * the number of places of the sparse table which are not free (the
+     * mappings and the tombstones).
+     */
+    private int filled;
+
+    /**
+     * in the sparse layout: a bounding box of all keys put since the last
+     * switch of the layout (it is not shrunk by removals).
+     */
+    private int lo1, hi1, lo2, hi2;
+
+    /**
+     * the number of mappings.
+     */
+    private int size;
+
+    /**
+     * counts the additions, removals and layout changes, for the
+     * fail-fast iterators.
+     */
+    private int modCount;
+
+
+    /**
+     * creates a new, empty map.
+     */
+    public IntIntMap2D() {
+        initSparse(MIN_TABLE_SIZE);
+    }
+
+    /**
+     * creates a new map with the same mappings as the given map.
+     * @throws NullPointerException if the map contains a null key.
+     */
+    public IntIntMap2D(Map2D<? extends Integer, ? extends Integer,
+                       ? extends V> map) {
+        this();
+        putAll(map);
+    }
+
+
+    // ------------------- helpers ------------------------
+
+
+    private static Object mask(Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V unmask(Object value) {
+        return value == NULL_VALUE ? null : (V)value;
+    }
+
+    private static long pack(int key1, int key2) {
+        return ((long)key1 << 32) | (key2 & 0xFFFFFFFFL);
+    }
+
+    /**
+     * the number of places in the sparse table which may be filled before
+     * it is rebuilt, for a table size.
+     */
+    private static int usable(int length) {
+        return length - length / 3;
+    }
+
+    /**
+     * the number of cells of a bounding box, or {@link Long#MAX_VALUE} if
+     * it is more than any dense layout could have (the product of two
+     * full {@code int} ranges would overflow).
+     */
+    private static long area(int lo1, int hi1, int lo2, int hi2) {
+        long width1 = (long)hi1 - lo1 + 1;
+        long width2 = (long)hi2 - lo2 + 1;
+        if(width1 > MAX_DENSE_CELLS || width2 > MAX_DENSE_CELLS) {
+            return Long.MAX_VALUE;
+        }
+        return width1 * width2;
+    }
+
+    /**
+     * checks if a bounding box may have the dense layout for some number
+     * of mappings, using {@code fill} cells for each mapping.
+     */
+    private static boolean denseFits(long area, int mappings, int fill) {
+        return area <= MAX_DENSE_CELLS &&
+            (area <= SMALL_AREA || area <= (long)fill * mappings);
+    }
+
+    /**
+     * returns true if the map currently uses the dense layout, false if it
+     * uses the sparse one.
+     */
+    public boolean isDense() {
+        return cells != null;
+    }
+
+    /**
+     * the position of a key pair in the dense layout, or -1 if it is
+     * outside of the bounding box.
+     */
+    private int cell(int key1, int key2) {
+        // the differences are taken as unsigned numbers, so keys below
+        // the minimum are outside, too.
+        long d1 = (key1 - min1) & 0xFFFFFFFFL;
+        long d2 = (key2 - min2) & 0xFFFFFFFFL;
+        if(d1 >= width1 || d2 >= width2) {
+            return -1;
+        }
+        return (int)d1 * width2 + (int)d2;
+    }
+
+    /**
+     * the first place to probe for a packed key in the sparse table.
+     */
+    private int start(long key) {
+        return (int)((key * GOLDEN) >>>
+                     (64 - Integer.numberOfTrailingZeros(keys.length)));
+    }
+
+    /**
+     * the place of a key in the sparse table, or -1 if it is not there.
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for(int pos = start(key); ; pos = (pos + 1) & mask) {
+            Object value = values[pos];
+            if(value == null) {
+                return -1;
+            }
+            if(value != DELETED && keys[pos] == key) {
+                return pos;
+            }
+        }
+    }
+
+    /**
+     * finds a place for a new key in the sparse table, i.e. the first free
+     * place or tombstone of its probe sequence.
+     */
+    private int insertionPlace(long key) {
+        int mask = keys.length - 1;
+        int pos = start(key);
+        while(values[pos] != null && values[pos] != DELETED) {
+            pos = (pos + 1) & mask;
+        }
+        return pos;
+    }
+
+    private void initSparse(int length) {
+        cells = null;
+        keys = new long[length];
+        values = new Object[length];
+        filled = 0;
+    }
+
+    /**
+     * the size of a sparse table for some number of mappings.
+     */
+    private static int tableSize(int mappings) {
+        int length = MIN_TABLE_SIZE;
+        while(usable(length) <= mappings) {
+            length *= 2;
+        }
+        return length;
+    }
+
+
+    // ------------------- positions ------------------------
+
+    /*
+     * Both layouts store the mappings in an array of values (the cells
+     * or the table), so the views work with positions in this array.
+     */
+
+    /**
+     * the array of (masked) values of the current layout.
+     */
+    private Object[] places() {
+        return cells != null ? cells : values;
+    }
+
+    private boolean isMapping(Object[] places, int pos) {
+        Object value = places[pos];
+        return value != null && value != DELETED;
+    }
+
+    private int key1At(int pos) {
+        return cells != null ? min1 + pos / width2 : (int)(keys[pos] >> 32);
+    }
+
+    private int key2At(int pos) {
+        return cells != null ? min2 + pos % width2 : (int)keys[pos];
+    }
+
+    /**
+     * removes the mapping at a position. This never moves other mappings.
+     */
+    private void removeAt(int pos) {
+        if(cells != null) {
+            cells[pos] = null;
+        }
+        else {
+            values[pos] = DELETED;
+        }
+        size--;
+        modCount++;
+    }
+
+
+    // ------------------- layout changes ------------------------
+
+
+    /**
+     * switches to the dense layout with the given bounding box, moving all
+     * mappings there.
+     */
+    private void toDense(int newMin1, int newMax1, int newMin2, int newMax2) {
+        int newWidth2 = newMax2 - newMin2 + 1;
+        Object[] newCells = new Object[(int)area(newMin1, newMax1,
+                                                 newMin2, newMax2)];
+        Object[] places = places();
+        for(int pos = 0; pos < places.length; pos++) {
+            if(isMapping(places, pos)) {
+                newCells[(key1At(pos) - newMin1) * newWidth2 +
+                         (key2At(pos) - newMin2)] = places[pos];
+            }
+        }
+        keys = null;
+        values = null;
+        filled = 0;
+        cells = newCells;
+        min1 = newMin1;
+        min2 = newMin2;
+        width1 = newMax1 - newMin1 + 1;
+        width2 = newWidth2;
+        modCount++;
+    }
+
+    /**
+     * switches to (or rebuilds) the sparse layout with a table big enough
+     * for some number of mappings, moving all mappings there. This also
+     * drops the tombstones and recalculates the bounding box.
+     */
+    private void toSparse(int mappings) {
+        Object[] places = places();
+        int oldLength = places.length;
+        int[] keys1 = new int[size];
+        int[] keys2 = new int[size];
+        Object[] vals = new Object[size];
+        int n = 0;
+        for(int pos = 0; pos < oldLength; pos++) {
+            if(isMapping(places, pos)) {
+                keys1[n] = key1At(pos);
+                keys2[n] = key2At(pos);
+                vals[n] = places[pos];
+                n++;
+            }
+        }
+        initSparse(tableSize(mappings));
+        lo1 = lo2 = Integer.MAX_VALUE;
+        hi1 = hi2 = Integer.MIN_VALUE;
+        for(int i = 0; i < n; i++) {
+            long key = pack(keys1[i], keys2[i]);
+            int pos = insertionPlace(key);
+            keys[pos] = key;
+            values[pos] = vals[i];
+            extend(keys1[i], keys2[i]);
+        }
+        filled = n;
+        modCount++;
+    }
+
+    /**
+     * extends the bounding box of the sparse layout to contain a key pair.
+     */
+    private void extend(int key1, int key2) {
+        lo1 = Math.min(lo1, key1);
+        hi1 = Math.max(hi1, key1);
+        lo2 = Math.min(lo2, key2);
+        hi2 = Math.max(hi2, key2);
+    }
+
+    /**
+     * makes room in the dense layout for a key pair outside of the
+     * bounding box: either by a bigger bounding box (with some slack in
+     * the growing directions, so filling a matrix row by row doesn't copy
+     * it each time), or by switching to the sparse layout.
+     */
+    private void makeRoom(int key1, int key2) {
+        if(size == 0) {
+            // nothing to keep, so the old bounding box doesn't matter.
+            toDense(key1, key1, key2, key2);
+            return;
+        }
+        int max1 = min1 + width1 - 1;
+        int max2 = min2 + width2 - 1;
+        int need1 = Math.min(min1, key1), needMax1 = Math.max(max1, key1);
+        int need2 = Math.min(min2, key2), needMax2 = Math.max(max2, key2);
+        if(!denseFits(area(need1, needMax1, need2, needMax2),
+                      size + 1, SPARSE_FILL)) {
+            toSparse(size + 1);
+            return;
+        }
+        int new1 = need1 < min1 ? clamp((long)need1 - width1 / 2) : min1;
+        int newMax1 = needMax1 > max1 ?
+            clamp((long)needMax1 + width1 / 2) : max1;
+        int new2 = need2 < min2 ? clamp((long)need2 - width2 / 2) : min2;
+        int newMax2 = needMax2 > max2 ?
+            clamp((long)needMax2 + width2 / 2) : max2;
+        if(area(new1, newMax1, new2, newMax2) > MAX_DENSE_CELLS) {
+            toDense(need1, needMax1, need2, needMax2);
+        }
+        else {
+            toDense(new1, newMax1, new2, newMax2);
+        }
+    }
+
+    private static int clamp(long key) {
+        return (int)Math.max(Integer.MIN_VALUE,
+                             Math.min(Integer.MAX_VALUE, key));
+    }
+
+
+    // ------------------- primitive access ------------------------
+
+
+    /**
+     * returns the number of mappings in this map.
+     *
+     *   This method runs in O(1) time.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * returns true if this map contains a mapping for the specified key
+     * pair.
+     *
+     *   This method runs in O(1) time.
+     */
+    public boolean containsKeys(int key1, int key2) {
+        if(cells != null) {
+            int pos = cell(key1, key2);
+            return pos >= 0 && cells[pos] != null;
+        }
+        return find(pack(key1, key2)) >= 0;
+    }
+
+    /**
+     * retrieves an element from the map.
+     *
+     *   This method runs in O(1) time.
+     *
+     * @return null if there is no such pair of keys, else the value.
+     */
+    public V get(int key1, int key2) {
+        if(cells != null) {
+            int pos = cell(key1, key2);
+            return pos < 0 ? null : IntIntMap2D.<V>unmask(cells[pos]);
+        }
+        int pos = find(pack(key1, key2));
+        return pos < 0 ? null : IntIntMap2D.<V>unmask(values[pos]);
+    }
+
+    /**
+     * puts a new element in the map, like {@link #put put}, but without
+     * boxing the keys. This may change the layout.
+     *
+     *   This method runs in O(1) time (amortized, for a new mapping).
+     *
+     * @return the old value, or null, if there was no such mapping.
+     */
+    public V set(int key1, int key2, V value) {
+        if(cells != null) {
+            int pos = cell(key1, key2);
+            if(pos < 0) {
+                makeRoom(key1, key2);
+                return set(key1, key2, value);
+            }
+            Object old = cells[pos];
+            cells[pos] = mask(value);
+            if(old == null) {
+                size++;
+                modCount++;
+            }
+            return IntIntMap2D.<V>unmask(old);
+        }
+        long key = pack(key1, key2);
+        int pos = find(key);
+        if(pos >= 0) {
+            Object old = values[pos];
+            values[pos] = mask(value);
+            return IntIntMap2D.<V>unmask(old);
+        }
+        if(filled >= usable(keys.length)) {
+            toSparse(size + 1);
+        }
+        pos = insertionPlace(key);
+        if(values[pos] == null) {
+            filled++;
+        }
+        keys[pos] = key;
+        values[pos] = mask(value);
+        if(size == 0) {
+            lo1 = hi1 = key1;
+            lo2 = hi2 = key2;
+        }
+        else {
+            extend(key1, key2);
+        }
+        size++;
+        modCount++;
+        if(denseFits(area(lo1, hi1, lo2, hi2), size, DENSE_FILL)) {
+            toDense(lo1, hi1, lo2, hi2);
+        }
+        return null;
+    }
+
+    /**
+     * removes a mapping from this map. This never changes the layout.
+     *
+     *   This method runs in O(1) time.
+     *
+     * @return the old value, or null, if there was no such mapping.
+     */
+    public V remove(int key1, int key2) {
+        int pos;
+        if(cells != null) {
+            pos = cell(key1, key2);
+            if(pos < 0 || cells[pos] == null) {
+                return null;
+            }
+        }
+        else {
+            pos = find(pack(key1, key2));
+            if(pos < 0) {
+                return null;
+            }
+        }
+        V old = IntIntMap2D.<V>unmask(places()[pos]);
+        removeAt(pos);
+        return old;
+    }
+
+    /**
+     * clears this map, which goes back to an empty sparse layout.
+     */
+    public void clear() {
+        initSparse(MIN_TABLE_SIZE);
+        size = 0;
+        modCount++;
+    }
+
+
+    // ------------------- Map2D adapters ------------------------
+
+
+    /**
+     * returns true if this map contains a mapping for the specified key
+     * pair, which should be {@link Integer}s.
+     */
+    public boolean containsKeys(Object key1, Object key2) {
+        return key1 instanceof Integer && key2 instanceof Integer &&
+            containsKeys(((Integer)key1).intValue(),
+                         ((Integer)key2).intValue());
+    }
+
+    /**
+     * returns true if this map contains a mapping with the given first
+     * key.
+     *
+     *   This method runs in O(width) time in the dense layout, and in
+     *   O(capacity) in the sparse layout.
+     */
+    public boolean containsKey1(Object key1) {
+        return key1 instanceof Integer &&
+            slice1(key1).iterator().hasNext();
+    }
+
+    /**
+     * returns true if this map contains a mapping with the given second
+     * key.
+     *
+     *   This method runs in O(height) time in the dense layout, and in
+     *   O(capacity) in the sparse layout.
+     */
+    public boolean containsKey2(Object key2) {
+        return key2 instanceof Integer &&
+            slice2(key2).iterator().hasNext();
+    }
+
+    /**
+     * retrieves an element from the map.
+     *
+     * @return null if there is no such pair of keys (or one of the keys
+     *   is null), else the value.
+     */
+    public V get(Integer key1, Integer key2) {
+        if(key1 == null || key2 == null) {
+            return null;
+        }
+        return get(key1.intValue(), key2.intValue());
+    }
+
+    /**
+     * puts a new element in the map.
+     *
+     * @throws NullPointerException if one of the keys is null.
+     */
+    public V put(Integer key1, Integer key2, V value) {
+        return set(key1.intValue(), key2.intValue(), value);
+    }
+
+    /**
+     * removes a mapping from this map.
+     */
+    public V remove(Object key1, Object key2) {
+        if(!(key1 instanceof Integer && key2 instanceof Integer)) {
+            return null;
+        }
+        return remove(((Integer)key1).intValue(),
+                      ((Integer)key2).intValue());
+    }
+
+
+    // ------------------- views ------------------------
+
+
+    /**
+     * an entry of this map. It only remembers the keys, and reads and
+     * writes the value through the map.
+     */
+    private final class CellEntry
+        extends AbstractMap2D.AbstractEntry<Integer,Integer,V>
+    {
+        private final int key1, key2;
+
+        CellEntry(int key1, int key2) {
+            this.key1 = key1;
+            this.key2 = key2;
+        }
+
+        public Integer getKey1() {
+            return key1;
+        }
+
+        public Integer getKey2() {
+            return key2;
+        }
+
+        public V getValue() {
+            return get(key1, key2);
+        }
+
+        /**
+         * @throws IllegalStateException if the mapping was removed.
+         */
+        public V setValue(V value) {
+            if(!containsKeys(key1, key2)) {
+                throw new IllegalStateException("removed");
+            }
+            return set(key1, key2, value);
+        }
+    }
+
+    /**
+     * a fail-fast iterator over the mappings at the positions
+     * {@code start, start + step, ...} (below {@code end}) of the current
+     * layout, which satisfy {@link #matches}. It finds the next mapping
+     * before returning one, which is fine as removals don't move the
+     * other mappings.
+     */
+    private class PositionIterator
+        implements Iterator<Map2D.Entry<Integer,Integer,V>>
+    {
+        private final Object[] places = places();
+        private final int end, step;
+        private int next;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        PositionIterator(int start, int end, int step) {
+            this.end = end;
+            this.step = step;
+            this.next = advance(start);
+        }
+
+        /**
+         * checks if the mapping at a position belongs to the view.
+         */
+        boolean matches(int pos) {
+            return true;
+        }
+
+        private int advance(int pos) {
+            while(pos < end && !(isMapping(places, pos) && matches(pos))) {
+                pos += step;
+            }
+            return pos;
+        }
+
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        public Map2D.Entry<Integer,Integer,V> next() {
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if(next >= end) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = advance(next + step);
+            return new CellEntry(key1At(lastReturned), key2At(lastReturned));
+        }
+
+        public void remove() {
+            if(lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(lastReturned);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * returns a set view of the mappings of this map.
+     */
+    public Set<Map2D.Entry<Integer,Integer,V>> entrySet() {
+        return new AbstractSet<Map2D.Entry<Integer,Integer,V>>() {
+            public int size() {
+                return size;
+            }
+            public void clear() {
+                IntIntMap2D.this.clear();
+            }
+            public Iterator<Map2D.Entry<Integer,Integer,V>> iterator() {
+                return new PositionIterator(0, places().length, 1);
+            }
+            public boolean contains(Object o) {
+                if(!(o instanceof Map2D.Entry)) {
+                    return false;
+                }
+                Map2D.Entry<?,?,?> e = (Map2D.Entry<?,?,?>)o;
+                return containsKeys(e.getKey1(), e.getKey2()) &&
+                    eq(get((Integer)e.getKey1(), (Integer)e.getKey2()),
+                       e.getValue());
+            }
+            public boolean remove(Object o) {
+                if(!contains(o)) {
+                    return false;
+                }
+                Map2D.Entry<?,?,?> e = (Map2D.Entry<?,?,?>)o;
+                IntIntMap2D.this.remove(e.getKey1(), e.getKey2());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * returns a collection view of the mappings with a given first key.
+     * In the dense layout, these are one block of cells.
+     */
+    protected Collection<Map2D.Entry<Integer,Integer,V>>
+        slice1(final Object key1)
+    {
+        return new LineView(key1, true);
+    }
+
+    /**
+     * returns a collection view of the mappings with a given second key.
+     * In the dense layout, these are every {@code width2}-th cell.
+     */
+    protected Collection<Map2D.Entry<Integer,Integer,V>>
+        slice2(final Object key2)
+    {
+        return new LineView(key2, false);
+    }
+
+    /**
+     * a view of the mappings with one key. It looks at the current layout
+     * whenever an iterator is created.
+     */
+    private final class LineView
+        extends AbstractCollection<Map2D.Entry<Integer,Integer,V>>
+    {
+        private final Object key;
+        /**
+         * true for the first key, false for the second one.
+         */
+        private final boolean first;
+
+        LineView(Object key, boolean first) {
+            this.key = key;
+            this.first = first;
+        }
+
+        public int size() {
+            int count = 0;
+            for(Iterator<?> it = iterator(); it.hasNext(); it.next()) {
+                count++;
+            }
+            return count;
+        }
+
+        public Iterator<Map2D.Entry<Integer,Integer,V>> iterator() {
+            if(!(key instanceof Integer)) {
+                return new PositionIterator(0, 0, 1);
+            }
+            final int k = (Integer)key;
+            if(cells == null) {
+                return new PositionIterator(0, values.length, 1) {
+                    boolean matches(int pos) {
+                        return (first ? key1At(pos) : key2At(pos)) == k;
+                    }
+                };
+            }
+            if(first) {
+                int pos = cell(k, min2);
+                return pos < 0 ? new PositionIterator(0, 0, 1)
+                    : new PositionIterator(pos, pos + width2, 1);
+            }
+            int pos = cell(min1, k);
+            return pos < 0 ? new PositionIterator(0, 0, 1)
+                : new PositionIterator(pos, cells.length, width2);
+        }
+    }
+
+
+    /**
+     * an usage example method: fills a small band matrix (which gets the
+     * dense layout), then adds a far away entry (which switches to the
+     * sparse layout).
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        IntIntMap2D<Double> matrix = new IntIntMap2D<Double>();
+        for(int i = 0; i < n; i++) {
+            for(int j = Math.max(0, i - 1); j <= Math.min(n - 1, i + 1);
+                j++) {
+                matrix.set(i, j, i == j ? 2.0 : -1.0);
+            }
+        }
+        System.out.println("dense: " + matrix.isDense());
+        System.out.println(matrix);
+        System.out.println("(1, 2) = " + matrix.get(1, 2));
+        System.out.println("row 1: " + matrix.projection1Map().get(1));
+        matrix.put(1000000, -1000000, 1.0);
+        System.out.println("dense: " + matrix.isDense());
+        System.out.println("column 1: " + matrix.projection2Map().get(1));
+    }
+
+}
@@ -0,0 +1,954 @@
+package de.fencing_game.paul.examples;
+
+import java.util.*;
+
+/**
+ * An {@link IndexedMap} with {@code long} keys, which can be used without
+ * boxing the keys.
+ * <p>
+ *   It is built like {@link CompactHashMap}: the keys (as a
+ *   {@code long[]}) and values are stored in parallel arrays in insertion
+ *   order, and a separate {@code int[]} hash table (with open addressing
+ *   and linear probing) contains only the positions of the mappings in
+ *   these arrays. The methods taking or returning primitive keys
+ *   ({@link #get(long)}, {@link #set(long, Object)}, {@link #remove(long)},
+ *   {@link #containsKey(long)}, {@link #getLongKey}, {@link #indexOfKey}
+ *   and {@link #toKeyArray}) don't create any objects.
+ * </p>
+ * <p>
+ *   The methods of {@link Map} and {@link IndexedMap} are supported, too,
+ *   with {@link Long} keys, as adapters for other code (these box and
+ *   unbox the keys, of course).
+ * </p>
+ * <p>
+ *   The complexity of the operations is the same as for
+ *   {@link CompactHashMap}. This class is not thread-safe. The iterators
+ *   of the views are fail-fast.
+ * </p>
+ * @author Paŭlo Ebermann
+ * @see IntIndexedMap
+ */
+public class LongIndexedMap<V>
+    extends AbstractMap<Long,V>
+    implements IndexedMap<Long,V>
+{
+
+    /**
+     * the minimal size of the hash table.
+     */
+    private final static int MIN_TABLE_SIZE = 8;
+
+    /**
+     * the multiplier for the Fibonacci hashing (2⁶⁴ divided by the
+     * golden ratio), which gives the start position of a key.
+     */
+    private final static long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    /**
+     * in the hash table: a free place, which ends any probing.
+     */
+    private final static int FREE = 0;
+
+    /**
+     * in the hash table: the place of a removed mapping. Probing has to
+     * continue after it, but it can be reused for a new mapping.
+     */
+    private final static int DUMMY = -1;
+
+    /**
+     * in {@link #values}: marks a removed mapping.
+     */
+    private final static Object DELETED = new Object();
+
+    /**
+     * the hash table. Each place contains {@link #FREE}, {@link #DUMMY},
+     * or the slot (position in the other arrays) of a mapping plus one.
+     * Its size is a power of two.
+     */
+    private int[] table;
+
+    /**
+     * the keys, in insertion order.
+     */
+    private long[] keys;
+
+    /**
+     * the values, parallel to {@link #keys}, with {@link #DELETED} for
+     * the tombstones.
+     */
+    private Object[] values;
+
+    /**
+     * the number of used slots in the arrays, including tombstones.
+     */
+    private int used;
+
+    /**
+     * the number of tombstones.
+     */
+    private int dead;
+
+    /**
+     * the number of places in the hash table which are not
+     * {@link #FREE}.
+     */
+    private int filled;
+
+    /**
+     * counts the live mappings in each slot, to find the slot of an index
+     * while there are tombstones. This is null if not built yet (or
+     * outdated), and is then built on the next indexed access.
+     */
+    private FenwickTree ranks;
+
+    /**
+     * the number of structural modifications, for the fail-fast iterators.
+     */
+    private int modCount;
+
+    /**
+     * the number of compactions, so our iterators know when their
+     * slot is outdated.
+     */
+    private int compactions;
+
+
+    /**
+     * creates a new empty LongIndexedMap.
+     */
+    public LongIndexedMap() {
+        this(0);
+    }
+
+    /**
+     * creates a new empty LongIndexedMap with room for some mappings.
+     * @param expectedSize the number of mappings which can be put without
+     *    resizing.
+     */
+    public LongIndexedMap(int expectedSize) {
+        if(expectedSize < 0) {
+            throw new IllegalArgumentException("negative size: " +
+                                               expectedSize);
+        }
+        allocate(expectedSize);
+    }
+
+
+    // ------------------- the hash table ------------------------
+
+
+    /**
+     * returns the number of mappings which fit into a hash table of some
+     * size (two thirds of it, so probing stays short).
+     */
+    private static int usable(int tableSize) {
+        return tableSize - tableSize / 3;
+    }
+
+    private static boolean eq(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    /**
+     * the place in the hash table where the probing for a key starts.
+     */
+    private int start(long key) {
+        return (int)((key * GOLDEN) >>>
+                     (64 - Integer.numberOfTrailingZeros(table.length)));
+    }
+
+    /**
+     * creates new (empty) arrays with room for at least {@code count}
+     * mappings.
+     */
+    private void allocate(int count) {
+        int size = MIN_TABLE_SIZE;
+        while(usable(size) < count) {
+            if(size >= (1 << 30)) {
+                throw new OutOfMemoryError("LongIndexedMap too big");
+            }
+            size <<= 1;
+        }
+        table = new int[size];
+        keys = new long[usable(size)];
+        values = new Object[usable(size)];
+    }
+
+    /**
+     * removes the tombstones and rebuilds the hash table with room for
+     * at least {@code count} mappings.
+     *
+     * This method runs in O(n) time.
+     */
+    private void resize(int count) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldUsed = used;
+        allocate(count);
+        int live = 0;
+        for(int i = 0; i < oldUsed; i++) {
+            if(oldValues[i] != DELETED) {
+                keys[live] = oldKeys[i];
+                values[live] = oldValues[i];
+                live++;
+            }
+        }
+        used = live;
+        dead = 0;
+        ranks = null;
+        compactions++;
+        rebuildTable();
+    }
+
+    /**
+     * fills the hash table from the (compacted) arrays.
+     */
+    private void rebuildTable() {
+        Arrays.fill(table, FREE);
+        int mask = table.length - 1;
+        for(int slot = 0; slot < used; slot++) {
+            int pos = start(keys[slot]);
+            while(table[pos] != FREE) {
+                pos = (pos + 1) & mask;
+            }
+            table[pos] = slot + 1;
+        }
+        filled = used;
+    }
+
+    /**
+     * finds the place of a key in the hash table.
+     * @return the place, or -1 if the key is not in the map.
+     */
+    private int find(long key) {
+        int mask = table.length - 1;
+        for(int pos = start(key); ; pos = (pos + 1) & mask) {
+            int entry = table[pos];
+            if(entry == FREE) {
+                return -1;
+            }
+            if(entry != DUMMY && keys[entry - 1] == key) {
+                return pos;
+            }
+        }
+    }
+
+    /**
+     * returns the slot of a key, or -1 if the key is not in the map.
+     */
+    private int slotOf(long key) {
+        int pos = find(key);
+        return pos < 0 ? -1 : table[pos] - 1;
+    }
+
+    /**
+     * adds a new mapping (whose key must not be in the map yet) at the end.
+     */
+    private void append(long key, V value) {
+        if(used == keys.length || filled == usable(table.length)) {
+            // compacts, if there are many tombstones, else doubles.
+            resize(size() + size() / 2 + 1);
+        }
+        int mask = table.length - 1;
+        int pos = start(key);
+        while(table[pos] != FREE && table[pos] != DUMMY) {
+            pos = (pos + 1) & mask;
+        }
+        if(table[pos] == FREE) {
+            filled++;
+        }
+        int slot = used++;
+        table[pos] = slot + 1;
+        keys[slot] = key;
+        values[slot] = value;
+        if(ranks != null) {
+            ranks.add(slot, 1);
+        }
+        modCount++;
+    }
+
+    /**
+     * adds a new mapping (whose key must not be in the map yet) at some
+     * index, moving the following ones.
+     *
+     * This method runs in O(n) time.
+     */
+    private void insert(int index, long key, V value) {
+        if(dead > 0 || used == keys.length) {
+            resize(size() + size() / 2 + 1);
+        }
+        System.arraycopy(keys, index, keys, index + 1, used - index);
+        System.arraycopy(values, index, values, index + 1, used - index);
+        keys[index] = key;
+        values[index] = value;
+        used++;
+        ranks = null;
+        rebuildTable();
+        modCount++;
+    }
+
+    /**
+     * removes the mapping at some place of the hash table, leaving a
+     * tombstone, and compacts the arrays if there are too many of them.
+     * @return the old value.
+     */
+    private V removeAt(int pos) {
+        int slot = table[pos] - 1;
+        V old = valueAt(slot);
+        table[pos] = DUMMY;
+        values[slot] = DELETED;
+        if(ranks != null) {
+            ranks.add(slot, -1);
+        }
+        dead++;
+        // tombstones at the end are not needed.
+        while(used > 0 && values[used - 1] == DELETED) {
+            values[--used] = null;
+            dead--;
+        }
+        modCount++;
+        if(dead > used / 4) {
+            resize(keys.length);
+        }
+        return old;
+    }
+
+    /**
+     * removes the mapping in some slot.
+     */
+    private V removeSlot(int slot) {
+        return removeAt(find(keys[slot]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int slot) {
+        return (V)values[slot];
+    }
+
+
+    // ---------------------- indexes ---------------------------
+
+
+    /**
+     * returns the slot of some index.
+     *
+     * This method runs in O(1) time if there are no tombstones,
+     * else in O(log n).
+     *
+     * @throws IndexOutOfBoundsException if there is no such index.
+     */
+    private int slot(int index) {
+        if(index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index +
+                                                ", size: " + size());
+        }
+        if(dead == 0) {
+            return index;
+        }
+        return ranks().select(index);
+    }
+
+    /**
+     * returns the Fenwick tree of the live slots, building it if needed
+     * (in O(n) time).
+     */
+    private FenwickTree ranks() {
+        if(ranks == null) {
+            int[] live = new int[used];
+            for(int i = 0; i < used; i++) {
+                live[i] = values[i] == DELETED ? 0 : 1;
+            }
+            ranks = new FenwickTree(live, used, keys.length);
+        }
+        return ranks;
+    }
+
+    /**
+     * an entry of this map, which writes through. It remembers its slot,
+     * and searches it again by key after a compaction.
+     */
+    private final class SlotEntry implements Map.Entry<Long,V> {
+        private final long key;
+        private int slot;
+
+        SlotEntry(int slot) {
+            this.key = keys[slot];
+            this.slot = slot;
+        }
+
+        /**
+         * returns the current slot of our key.
+         * @throws IllegalStateException if the mapping was removed.
+         */
+        private int slot() {
+            if(slot >= used || values[slot] == DELETED || keys[slot] != key) {
+                int newSlot = slotOf(key);
+                if(newSlot < 0) {
+                    throw new IllegalStateException("entry was removed: " +
+                                                    key);
+                }
+                slot = newSlot;
+            }
+            return slot;
+        }
+
+        public Long getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return valueAt(slot());
+        }
+
+        public V setValue(V value) {
+            int s = slot();
+            V old = valueAt(s);
+            values[s] = value;
+            return old;
+        }
+
+        public boolean equals(Object o) {
+            if(!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return getKey().equals(e.getKey()) &&
+                eq(getValue(), e.getValue());
+        }
+
+        public int hashCode() {
+            V value = getValue();
+            return (int)(key ^ (key >>> 32)) ^
+                (value == null ? 0 : value.hashCode());
+        }
+
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /**
+     * an iterator over the slots in index order, which skips the
+     * tombstones.
+     */
+    private abstract class SlotIterator<E> implements Iterator<E> {
+
+        /**
+         * the slot where we start searching for the next mapping.
+         */
+        private int slot;
+        /**
+         * the index of the next mapping.
+         */
+        private int index;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+        private int expectedCompactions = compactions;
+
+        /**
+         * returns the element for a slot.
+         */
+        abstract E extract(int slot);
+
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        public E next() {
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            while(values[slot] == DELETED) {
+                slot++;
+            }
+            lastReturned = slot;
+            slot++;
+            index++;
+            return extract(lastReturned);
+        }
+
+        public void remove() {
+            if(lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot(lastReturned);
+            lastReturned = -1;
+            index--;
+            if(compactions != expectedCompactions) {
+                // the slots are dense now.
+                slot = index;
+                expectedCompactions = compactions;
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+
+    // ------------------- primitive operations ------------------------
+
+
+    /**
+     * puts a new key-value mapping, or changes an existing one, like
+     * {@link #put put}, but without boxing the key. (It is not named
+     * {@code put}, as an overload of {@link #put(Long, Object)} would
+     * make calls like {@code put(1L, 2L)} ambiguous when the values are
+     * boxed, too.)
+     *
+     * If new, the mapping gets an index at the end (i.e. {@link #size()}
+     * before it gets increased).
+     *
+     * This method runs in O(1) time for changing an existing value,
+     *  amortized O(1) time for adding a new value.
+     *
+     * @return the old value, if such, else null.
+     */
+    public V set(long key, V value) {
+        int pos = find(key);
+        if(pos < 0) {
+            append(key, value);
+            return null;
+        }
+        int slot = table[pos] - 1;
+        V old = valueAt(slot);
+        values[slot] = value;
+        return old;
+    }
+
+    /**
+     * retrieves the value for a key.
+     *
+     *   This method runs in O(1) time.
+     *
+     * @return null if there is no such mapping,
+     *   else the value for the key.
+     */
+    public V get(long key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    /**
+     * returns true if the given key is in the map.
+     *
+     *   This method runs in O(1) time.
+     */
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * removes a key from the map.
+     *
+     *   This method runs in amortized O(1) time.
+     *
+     * @return the old value, if any.
+     */
+    public V remove(long key) {
+        int pos = find(key);
+        return pos < 0 ? null : removeAt(pos);
+    }
+
+    /**
+     * returns a key by index.
+     *
+     *   This method runs in O(1) time (O(log n) while there are
+     *   tombstones).
+     */
+    public long getLongKey(int index) {
+        return keys[slot(index)];
+    }
+
+    /**
+     * returns the index of a key, or -1 if it is not in the map.
+     *
+     *   This method runs in O(1) time (O(log n) while there are
+     *   tombstones).
+     */
+    public int indexOfKey(long key) {
+        int slot = slotOf(key);
+        if(slot < 0 || dead == 0) {
+            return slot;
+        }
+        return ranks().prefixSum(slot);
+    }
+
+    /**
+     * returns a new array with all keys, ordered by index.
+     */
+    public long[] toKeyArray() {
+        if(dead == 0) {
+            return Arrays.copyOf(keys, used);
+        }
+        long[] result = new long[size()];
+        int index = 0;
+        for(int slot = 0; slot < used; slot++) {
+            if(values[slot] != DELETED) {
+                result[index++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+
+    // ------------------- map operations ------------------------
+
+
+    /**
+     * puts a new key-value mapping, or changes an existing one.
+     * @see #set(long, Object)
+     */
+    public V put(Long key, V value) {
+        return set(key.longValue(), value);
+    }
+
+    /**
+     * retrieves the value for a key.
+     * @see #get(long)
+     */
+    public V get(Object key) {
+        return (key instanceof Long) ? get(((Long)key).longValue()) : null;
+    }
+
+    /**
+     * returns true if the given key is in the map.
+     * @see #containsKey(long)
+     */
+    public boolean containsKey(Object key) {
+        return (key instanceof Long) &&
+            containsKey(((Long)key).longValue());
+    }
+
+    /**
+     * returns true if some key is mapped to the given value.
+     *
+     *   This method runs in O(n) time.
+     */
+    public boolean containsValue(Object value) {
+        for(int slot = 0; slot < used; slot++) {
+            if(values[slot] != DELETED && eq(values[slot], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * removes a key from the map.
+     * @see #remove(long)
+     */
+    public V remove(Object key) {
+        return (key instanceof Long) ?
+            remove(((Long)key).longValue()) : null;
+    }
+
+    /**
+     * returns the number of mappings in this map.
+     */
+    public int size() {
+        return used - dead;
+    }
+
+    /**
+     * removes all mappings from this map.
+     */
+    public void clear() {
+        Arrays.fill(table, FREE);
+        Arrays.fill(values, 0, used, null);
+        used = 0;
+        dead = 0;
+        filled = 0;
+        ranks = null;
+        modCount++;
+    }
+
+    /**
+     * returns a key by index.
+     * @see #getLongKey
+     */
+    public Long getKey(int index) {
+        return getLongKey(index);
+    }
+
+    /**
+     * returns a value by index.
+     *
+     *   This method runs in O(1) time (O(log n) while there are
+     *   tombstones).
+     */
+    public V getValue(int index) {
+        return valueAt(slot(index));
+    }
+
+
+    // ----------------------- views ----------------------------
+
+
+    /**
+     * Returns a set view of the keys of this map.
+     *
+     * This set view is ordered by the indexes.
+     *
+     * It supports removal by key or iterator in amortized O(1) time.
+     * Containment check runs in O(1).
+     */
+    public Set<Long> keySet() {
+        return new AbstractSet<Long>() {
+            public void clear() {
+                LongIndexedMap.this.clear();
+            }
+            public int size() {
+                return LongIndexedMap.this.size();
+            }
+            public Iterator<Long> iterator() {
+                return keyList().iterator();
+            }
+            public boolean remove(Object key) {
+                return keyList().remove(key);
+            }
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }  // keySet()
+
+    /**
+     * Returns a set view of the entries of this map.
+     *
+     * This set view is ordered by the indexes. Its entries write through
+     * to the map (as long as their mapping is not removed).
+     *
+     * It supports removal by entry or iterator in amortized O(1) time.
+     *
+     * It supports adding new entries at the end, if the key
+     * is not already used in this map, in amortized O(1) time.
+     *
+     * Containment check runs in O(1).
+     */
+    public Set<Map.Entry<Long,V>> entrySet() {
+        return new AbstractSet<Map.Entry<Long,V>>() {
+            public void clear() {
+                LongIndexedMap.this.clear();
+            }
+            public int size() {
+                return LongIndexedMap.this.size();
+            }
+            public Iterator<Map.Entry<Long,V>> iterator() {
+                return entryList().iterator();
+            }
+            public boolean add(Map.Entry<Long,V> e) {
+                return entryList().add(e);
+            }
+            public boolean contains(Object o) {
+                return entryList().contains(o);
+            }
+            public boolean remove(Object o) {
+                return entryList().remove(o);
+            }
+        };
+    }  // entrySet()
+
+    /**
+     * Returns a list view of the entries of this map.
+     *
+     * This list view is ordered by the indexes. Its entries write through
+     * to the map (as long as their mapping is not removed).
+     *
+     * It supports removal by entry, index or iterator in amortized O(1)
+     * time.
+     *
+     * It supports adding new entries at the end, if the key
+     * is not already used in this map, in amortized O(1) time.
+     * Adding somewhere else needs O(n) time.
+     *
+     * Containment check runs in O(1).
+     */
+    public List<Map.Entry<Long,V>> entryList() {
+        return new AbstractList<Map.Entry<Long,V>>() {
+            public void clear() {
+                LongIndexedMap.this.clear();
+            }
+            public Map.Entry<Long,V> get(int index) {
+                return new SlotEntry(slot(index));
+            }
+            public int size() {
+                return LongIndexedMap.this.size();
+            }
+            public Iterator<Map.Entry<Long,V>> iterator() {
+                return new SlotIterator<Map.Entry<Long,V>>() {
+                    Map.Entry<Long,V> extract(int slot) {
+                        return new SlotEntry(slot);
+                    }
+                };
+            }
+            public Map.Entry<Long,V> remove(int index) {
+                int slot = slot(index);
+                Map.Entry<Long,V> e =
+                    new SimpleEntry<Long,V>(keys[slot], valueAt(slot));
+                removeSlot(slot);
+                return e;
+            }
+            public void add(int index, Map.Entry<Long,V> newEntry) {
+                long key = newEntry.getKey();
+                if(containsKey(key)) {
+                    throw new IllegalArgumentException("duplicate key " +
+                                                       key);
+                }
+                if(index < 0 || index > size()) {
+                    throw new IndexOutOfBoundsException("index: " + index +
+                                                        ", size: " + size());
+                }
+                if(index == size()) {
+                    append(key, newEntry.getValue());
+                }
+                else {
+                    insert(index, key, newEntry.getValue());
+                }
+            }
+
+            public boolean contains(Object o) {
+                if(o instanceof Map.Entry) {
+                    Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                    if(e.getKey() instanceof Long) {
+                        int slot = slotOf((Long)e.getKey());
+                        return slot >= 0 && eq(values[slot], e.getValue());
+                    }
+                }
+                return false;
+            }
+
+            public boolean remove(Object o) {
+                if(contains(o)) {
+                    LongIndexedMap.this.remove(((Map.Entry<?,?>)o).getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }   // entryList()
+
+    /**
+     * Returns a List view of the keys in this map.
+     *
+     * It allows index read access, key containment check and finding
+     * the index of a key in O(1) (O(log n) while there are tombstones).
+     * Changing a key is not allowed.
+     *
+     * Removal by key, index or iterator runs in amortized O(1) time
+     * (this removes the corresponding values, too).
+     */
+    public List<Long> keyList() {
+        return new AbstractList<Long>() {
+            public void clear() {
+                LongIndexedMap.this.clear();
+            }
+            public Long get(int index) {
+                return getLongKey(index);
+            }
+            public int size() {
+                return LongIndexedMap.this.size();
+            }
+            public Iterator<Long> iterator() {
+                return new SlotIterator<Long>() {
+                    Long extract(int slot) {
+                        return keys[slot];
+                    }
+                };
+            }
+            public Long remove(int index) {
+                int slot = slot(index);
+                long key = keys[slot];
+                removeSlot(slot);
+                return key;
+            }
+            public boolean remove(Object key) {
+                if(containsKey(key)) {
+                    LongIndexedMap.this.remove(key);
+                    return true;
+                }
+                return false;
+            }
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+            public int indexOf(Object key) {
+                return (key instanceof Long) ?
+                    indexOfKey(((Long)key).longValue()) : -1;
+            }
+            public int lastIndexOf(Object key) {
+                return indexOf(key);
+            }
+        };
+    }  // keyList()
+
+    /**
+     * Returns a List view of the values in this map.
+     *
+     * It allows get and set by index in O(1) time (set changes the mapping),
+     * or O(log n) while there are tombstones.
+     *
+     * Removal by index or iterator runs in amortized O(1) time, this
+     * removes the corresponding keys too. Removal by value needs an
+     * iteration (and removes only the first key with this value).
+     *
+     * Containment check needs an iteration, thus O(n) time.
+     */
+    public List<V> values() {
+        return new AbstractList<V>() {
+            public int size() {
+                return LongIndexedMap.this.size();
+            }
+            public void clear() {
+                LongIndexedMap.this.clear();
+            }
+            public V get(int index) {
+                return valueAt(slot(index));
+            }
+            public V set(int index, V newValue) {
+                int slot = slot(index);
+                V old = valueAt(slot);
+                values[slot] = newValue;
+                return old;
+            }
+            public Iterator<V> iterator() {
+                return new SlotIterator<V>() {
+                    V extract(int slot) {
+                        return valueAt(slot);
+                    }
+                };
+            }
+            public boolean contains(Object value) {
+                return containsValue(value);
+            }
+            public V remove(int index) {
+                return removeSlot(slot(index));
+            }
+        };
+    }  // values()
+
+
+    /**
+     * an usage example method.
+     */
+    public static void main(String[] args) {
+        LongIndexedMap<String> imap = new LongIndexedMap<String>();
+
+        for(int i = 0; i < args.length; i++) {
+            imap.set(args[i].hashCode(), args[i]);
+        }
+        System.out.println(imap.values());
+        System.out.println(imap.keyList());
+        System.out.println(Arrays.toString(imap.toKeyArray()));
+        System.out.println(imap);
+        if(!imap.isEmpty()) {
+            System.out.println(imap.getLongKey(0));
+            System.out.println(imap.get(imap.getLongKey(0)));
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+package de.fencing_game.paul.examples;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A region of memory outside of the Java heap, which may be bigger than
+ * the 2 GiB a single {@link ByteBuffer} can address. It is either direct
+ * memory or a memory-mapped part of a file.
+ * <p>
+ * The region is made of segments of {@link #SEGMENT_SIZE} bytes (only
+ * the first one is smaller while the arena is small, and grows by
+ * doubling). Positions are {@code long}s. The multi-byte accesses must
+ * not cross a segment boundary, which is the case when they are aligned
+ * to their size, or for data which the user placed inside of one
+ * segment.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+final class OffHeapArena {
+
+    /**
+     * the number of address bits inside of a segment.
+     */
+    final static int SEGMENT_BITS = 26;
+
+    /**
+     * the size of the segments (64 MiB).
+     */
+    final static long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    private final static int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+    /**
+     * the minimal size of the first segment.
+     */
+    private final static int MIN_SIZE = 4096;
+
+    /**
+     * the size of the buffer used for moving data.
+     */
+    private final static int MOVE_BUFFER = 8192;
+
+    /**
+     * the file channel, or null for direct memory.
+     */
+    private final FileChannel channel;
+
+    /**
+     * the position of the arena in the file.
+     */
+    private final long base;
+
+    private ByteBuffer[] segments = new ByteBuffer[0];
+
+    private long capacity;
+
+
+    private OffHeapArena(FileChannel channel, long base) {
+        this.channel = channel;
+        this.base = base;
+    }
+
+    /**
+     * creates an arena in direct memory, filled with zeros.
+     * @param capacity the minimal capacity in bytes.
+     */
+    static OffHeapArena allocate(long capacity) {
+        OffHeapArena arena = new OffHeapArena(null, 0);
+        arena.ensureCapacity(capacity);
+        return arena;
+    }
+
+    /**
+     * creates an arena mapped to a part of a file (which is extended,
+     * if needed).
+     * @param base the position of the arena in the file.
+     * @param capacity the minimal capacity in bytes.
+     */
+    static OffHeapArena map(FileChannel channel, long base, long capacity) {
+        OffHeapArena arena = new OffHeapArena(channel, base);
+        arena.ensureCapacity(capacity);
+        return arena;
+    }
+
+
+    /**
+     * returns the position where the segment after the one containing
+     * some position starts.
+     */
+    static long segmentEnd(long pos) {
+        return ((pos >>> SEGMENT_BITS) + 1) << SEGMENT_BITS;
+    }
+
+    /**
+     * returns the current capacity in bytes.
+     */
+    long capacity() {
+        return capacity;
+    }
+
+    /**
+     * makes sure that the arena has at least some capacity. The first
+     * segment grows by doubling (by copying the direct memory or mapping
+     * a bigger part of the file), then new segments are added.
+     */
+    void ensureCapacity(long needed) {
+        if(needed <= capacity) {
+            return;
+        }
+        if(capacity < SEGMENT_SIZE) {
+            long size = Math.max(capacity, MIN_SIZE);
+            while(size < needed && size < SEGMENT_SIZE) {
+                size <<= 1;
+            }
+            ByteBuffer first = create(0, (int)size);
+            if(channel == null && segments.length > 0) {
+                ByteBuffer old = segments[0].duplicate();
+                old.clear();
+                first.put(old);
+                first.clear();
+            }
+            segments = new ByteBuffer[]{ first };
+            capacity = size;
+        }
+        while(capacity < needed) {
+            ByteBuffer[] newSegments = new ByteBuffer[segments.length + 1];
+            System.arraycopy(segments, 0, newSegments, 0, segments.length);
+            newSegments[segments.length] =
+                create(segments.length, (int)SEGMENT_SIZE);
+            segments = newSegments;
+            capacity += SEGMENT_SIZE;
+        }
+    }
+
+    /**
+     * creates a new segment.
+     */
+    private ByteBuffer create(int index, int size) {
+        if(channel == null) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE,
+                               base + ((long)index << SEGMENT_BITS), size);
+        }
+        catch(IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private ByteBuffer segment(long pos) {
+        return segments[(int)(pos >>> SEGMENT_BITS)];
+    }
+
+    private static int offset(long pos) {
+        return (int)pos & SEGMENT_MASK;
+    }
+
+    int getInt(long pos) {
+        return segment(pos).getInt(offset(pos));
+    }
+
+    void putInt(long pos, int value) {
+        segment(pos).putInt(offset(pos), value);
+    }
+
+    long getLong(long pos) {
+        return segment(pos).getLong(offset(pos));
+    }
+
+    void putLong(long pos, long value) {
+        segment(pos).putLong(offset(pos), value);
+    }
+
+    /**
+     * copies bytes (inside of one segment) into an array.
+     */
+    void get(long pos, byte[] dest, int start, int length) {
+        ByteBuffer buffer = segment(pos).duplicate();
+        buffer.position(offset(pos));
+        buffer.get(dest, start, length);
+    }
+
+    /**
+     * copies bytes from an array into the arena (inside of one segment).
+     */
+    void put(long pos, byte[] source, int start, int length) {
+        ByteBuffer buffer = segment(pos).duplicate();
+        buffer.position(offset(pos));
+        buffer.put(source, start, length);
+    }
+
+    /**
+     * compares bytes (inside of one segment) with an array.
+     */
+    boolean equals(long pos, byte[] bytes) {
+        ByteBuffer buffer = segment(pos);
+        int offset = offset(pos);
+        for(int i = 0; i < bytes.length; i++) {
+            if(buffer.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * moves bytes to a smaller position (the source and the target each
+     * inside of one segment, but they may overlap).
+     */
+    void moveDown(long from, long to, int length) {
+        byte[] buffer = new byte[Math.min(length, MOVE_BUFFER)];
+        for(int done = 0; done < length; done += buffer.length) {
+            int count = Math.min(buffer.length, length - done);
+            get(from + done, buffer, 0, count);
+            put(to + done, buffer, 0, count);
+        }
+    }
+
+    /**
+     * writes the start of the arena to some position of a file.
+     */
+    void writeTo(FileChannel out, long filePos, long length)
+        throws IOException
+    {
+        for(long done = 0; done < length; ) {
+            ByteBuffer buffer = segment(done).duplicate();
+            buffer.position(offset(done));
+            buffer.limit((int)Math.min(buffer.capacity(),
+                                       buffer.position() + length - done));
+            done += out.write(buffer, filePos + done);
+        }
+    }
+
+    /**
+     * reads the start of the arena from some position of a file.
+     */
+    void readFrom(FileChannel in, long filePos, long length)
+        throws IOException
+    {
+        for(long done = 0; done < length; ) {
+            ByteBuffer buffer = segment(done).duplicate();
+            buffer.position(offset(done));
+            buffer.limit((int)Math.min(buffer.capacity(),
+                                       buffer.position() + length - done));
+            int count = in.read(buffer, filePos + done);
+            if(count < 0) {
+                throw new IOException("unexpected end of file");
+            }
+            done += count;
+        }
+    }
+
+    /**
+     * writes the changes of a mapped arena to the file.
+     */
+    void force() {
+        if(channel != null) {
+            for(ByteBuffer segment : segments) {
+                ((MappedByteBuffer)segment).force();
+            }
+        }
+    }
+
+}
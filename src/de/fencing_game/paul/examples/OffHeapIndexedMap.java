@@ -0,0 +1,1327 @@
+package de.fencing_game.paul.examples;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * An {@link IndexedMap} from byte arrays to byte arrays, which stores its
+ * data outside of the Java heap (so it doesn't create objects per
+ * mapping, which would need to be handled by the garbage collector),
+ * either in direct memory, or in a memory-mapped file.
+ * <p>
+ *   The keys and values are compared by their contents (like by
+ *   {@link Arrays#equals(byte[], byte[])}), not by identity like for
+ *   other maps. The arrays given to this map are copied, and each
+ *   array returned is a new copy, too. Neither keys nor values may
+ *   be null.
+ * </p>
+ * <p>
+ *   The layout is like in {@link CompactHashMap}, just off-heap:
+ * </p>
+ * <ul>
+ *   <li>The data is an append-only log of records, each containing the
+ *     lengths of key and value, the key's hash code, the key and the value.
+ *     A changed value is written over the old one if it has the same
+ *     length, otherwise a new record is appended. The log is compacted
+ *     (in place) when half of it is garbage.</li>
+ *   <li>The offsets of the records are stored by index, in a
+ *     {@code long} array (so the access by index is O(1)).</li>
+ *   <li>A hash table with open addressing and linear probing contains
+ *     the hash code and the index of each mapping in a {@code long}.</li>
+ * </ul>
+ * <p>
+ *   Removal works like in {@link CompactHashMap}, with tombstones in the
+ *   offsets array, which make the access by index O(log n) until they
+ *   are removed.
+ * </p>
+ * <p>
+ *   A map created by {@link #create create} lives in a file: the log is
+ *   mapped into memory, while the offsets and the hash table are
+ *   in direct memory. {@link #force} (and {@link #close}) writes them
+ *   after the log, and marks the file as consistent. Such a file can then
+ *   be reopened by {@link #open open}, which maps the log again and reads
+ *   the offsets and hash table back (without rehashing anything). A
+ *   file which was modified after the last {@code force()} can't be
+ *   opened.
+ * </p>
+ * <p>
+ *   This class is not thread-safe. The iterators of the views are
+ *   fail-fast.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+public class OffHeapIndexedMap
+    extends AbstractMap<byte[],byte[]>
+    implements IndexedMap<byte[],byte[]>, Closeable
+{
+
+    /**
+     * the first bytes of our files, "OHIM".
+     */
+    private final static int MAGIC = 0x4F48494D;
+
+    private final static int VERSION = 1;
+
+    /**
+     * the size of the header of our files, where the log starts.
+     */
+    private final static int HEADER_SIZE = 64;
+
+    /**
+     * the size of a record header: key length, value length and hash.
+     */
+    private final static int RECORD_HEADER = 12;
+
+    /**
+     * the key length marking the rest of a segment as unused (when the
+     * next record didn't fit there).
+     */
+    private final static int PADDING = -1;
+
+    /**
+     * the offset of a removed mapping.
+     */
+    private final static long REMOVED = -1;
+
+    /**
+     * the minimal size of the hash table.
+     */
+    private final static int MIN_TABLE_SIZE = 8;
+
+    /**
+     * the multiplier for the Fibonacci hashing (2³² divided by the
+     * golden ratio), which gives the start position of a hash code.
+     */
+    private final static int GOLDEN = 0x9E3779B9;
+
+    /**
+     * in the hash table: a free place, which ends any probing.
+     */
+    private final static long FREE = 0;
+
+    /**
+     * in the hash table: the place of a removed mapping. Probing has to
+     * continue after it, but it can be reused for a new mapping.
+     */
+    private final static long DUMMY = -1;
+
+
+    /**
+     * our file, or null if we are only in memory.
+     */
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    /**
+     * true if the file is marked as consistent, so it must be marked
+     * otherwise before the next modification.
+     */
+    private boolean clean;
+
+    /**
+     * the log of records.
+     */
+    private OffHeapArena data;
+
+    /**
+     * the end of the used part of the log.
+     */
+    private long dataEnd;
+
+    /**
+     * the number of bytes of records in the log which are no longer used.
+     */
+    private long garbage;
+
+    /**
+     * the hash table. Each place contains {@link #FREE}, {@link #DUMMY},
+     * or the hash code (high half) and slot plus one (low half) of a
+     * mapping.
+     */
+    private OffHeapArena table;
+
+    /**
+     * the number of places in the hash table, a power of two.
+     */
+    private int tableSize;
+
+    /**
+     * the offsets of the records in the log, by slot.
+     * Removed mappings have {@link #REMOVED}.
+     */
+    private OffHeapArena offsets;
+
+    /**
+     * the number of used slots, including tombstones.
+     */
+    private int used;
+
+    /**
+     * the number of tombstones.
+     */
+    private int dead;
+
+    /**
+     * the number of places in the hash table which are not
+     * {@link #FREE}.
+     */
+    private int filled;
+
+    /**
+     * counts the live mappings in each slot, to find the slot of an index
+     * while there are tombstones. This is null if not built yet (or
+     * outdated), and is then built on the next indexed access.
+     */
+    private FenwickTree ranks;
+
+    /**
+     * the number of structural modifications, for the fail-fast iterators.
+     */
+    private int modCount;
+
+    /**
+     * the number of compactions of the slots, so our iterators know when
+     * their slot is outdated.
+     */
+    private int compactions;
+
+
+    /**
+     * creates a new empty map in direct memory.
+     */
+    public OffHeapIndexedMap() {
+        this(null);
+        this.data = OffHeapArena.allocate(0);
+        allocateIndex(0);
+    }
+
+    private OffHeapIndexedMap(RandomAccessFile file) {
+        this.file = file;
+        this.channel = (file == null) ? null : file.getChannel();
+    }
+
+    /**
+     * creates a new empty map in a file. An existing file is
+     * overwritten.
+     */
+    public static OffHeapIndexedMap create(File file)
+        throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            OffHeapIndexedMap map = new OffHeapIndexedMap(raf);
+            map.data = OffHeapArena.map(raf.getChannel(), HEADER_SIZE, 0);
+            map.allocateIndex(0);
+            map.force();
+            return map;
+        }
+        catch(IOException ex) {
+            raf.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * opens a map stored in a file by {@link #force} or {@link #close}.
+     * @throws IOException if the file is not such a map, or was
+     *    modified after the last {@code force()}.
+     */
+    public static OffHeapIndexedMap open(File file)
+        throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            OffHeapIndexedMap map = new OffHeapIndexedMap(raf);
+            map.readFile();
+            return map;
+        }
+        catch(IOException ex) {
+            raf.close();
+            throw ex;
+        }
+    }
+
+
+    // ------------------- the file ------------------------
+
+
+    /**
+     * writes the header of the file.
+     */
+    private void writeHeader(boolean consistent, long indexPos)
+        throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(consistent ? 1 : 0)
+            .putInt(used).putInt(dead).putInt(tableSize)
+            .putLong(dataEnd).putLong(garbage).putLong(indexPos);
+        header.clear();
+        while(header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * reads the map from our file.
+     */
+    private void readFile()
+        throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while(header.hasRemaining()) {
+            if(channel.read(header, header.position()) < 0) {
+                throw new IOException("file too short");
+            }
+        }
+        header.flip();
+        if(header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("not an OffHeapIndexedMap file");
+        }
+        if(header.getInt() != 1) {
+            throw new IOException("file was modified after the last force()");
+        }
+        used = header.getInt();
+        dead = header.getInt();
+        tableSize = header.getInt();
+        dataEnd = header.getLong();
+        garbage = header.getLong();
+        long indexPos = header.getLong();
+        data = OffHeapArena.map(channel, HEADER_SIZE, dataEnd);
+        table = OffHeapArena.allocate(8L * tableSize);
+        offsets = OffHeapArena.allocate(8L * usable(tableSize));
+        offsets.readFrom(channel, indexPos, 8L * used);
+        table.readFrom(channel, indexPos + 8L * used, 8L * tableSize);
+        filled = 0;
+        for(int p = 0; p < tableSize; p++) {
+            if(place(p) != FREE) {
+                filled++;
+            }
+        }
+        clean = true;
+    }
+
+    /**
+     * writes all changes to the file, so it can be opened again.
+     * For a map in memory, this does nothing.
+     */
+    public void force()
+        throws IOException
+    {
+        if(channel == null) {
+            return;
+        }
+        data.force();
+        long indexPos = HEADER_SIZE + ((dataEnd + 7) & ~7L);
+        offsets.writeTo(channel, indexPos, 8L * used);
+        table.writeTo(channel, indexPos + 8L * used, 8L * tableSize);
+        channel.force(false);
+        writeHeader(true, indexPos);
+        channel.force(false);
+        clean = true;
+    }
+
+    /**
+     * writes all changes to the file (like {@link #force}), and closes
+     * it. The map can't be used afterwards.
+     */
+    public void close()
+        throws IOException
+    {
+        if(channel != null && channel.isOpen()) {
+            force();
+            file.close();
+        }
+    }
+
+    /**
+     * marks the file as inconsistent before a modification.
+     */
+    private void modify() {
+        if(clean) {
+            try {
+                writeHeader(false, 0);
+            }
+            catch(IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            clean = false;
+        }
+    }
+
+
+    // ------------------- the log ------------------------
+
+
+    /**
+     * returns the size of the record at some position.
+     */
+    private long recordSize(long pos) {
+        return align(RECORD_HEADER + (long)data.getInt(pos) +
+                     data.getInt(pos + 4));
+    }
+
+    /**
+     * rounds a record size up to a multiple of 4, so the record headers
+     * are aligned.
+     */
+    private static long align(long size) {
+        return (size + 3) & ~3L;
+    }
+
+    /**
+     * appends a record to the log.
+     * @return its position.
+     */
+    private long appendRecord(byte[] key, byte[] value, int hash) {
+        long size = align(RECORD_HEADER + (long)key.length + value.length);
+        if(size > OffHeapArena.SEGMENT_SIZE) {
+            throw new IllegalArgumentException("mapping too big: " + size +
+                                               " bytes");
+        }
+        long pos = dataEnd;
+        long segmentEnd = OffHeapArena.segmentEnd(pos);
+        if(pos + size > segmentEnd) {
+            data.ensureCapacity(pos + 4);
+            data.putInt(pos, PADDING);
+            pos = segmentEnd;
+        }
+        data.ensureCapacity(pos + size);
+        data.putInt(pos, key.length);
+        data.putInt(pos + 4, value.length);
+        data.putInt(pos + 8, hash);
+        data.put(pos + RECORD_HEADER, key, 0, key.length);
+        data.put(pos + RECORD_HEADER + key.length, value, 0, value.length);
+        dataEnd = pos + size;
+        return pos;
+    }
+
+    /**
+     * removes the garbage from the log, by moving the used records to
+     * lower positions (keeping their order).
+     *
+     * This method runs in O(size of the log) time.
+     */
+    private void compactLog() {
+        long target = 0;
+        long pos = 0;
+        while(pos < dataEnd) {
+            if(data.getInt(pos) == PADDING) {
+                pos = OffHeapArena.segmentEnd(pos);
+                continue;
+            }
+            long size = recordSize(pos);
+            int slot = slotOfRecord(pos);
+            if(slot >= 0) {
+                if(target + size > OffHeapArena.segmentEnd(target)) {
+                    data.putInt(target, PADDING);
+                    target = OffHeapArena.segmentEnd(target);
+                }
+                if(target != pos) {
+                    data.moveDown(pos, target, (int)size);
+                    setOffset(slot, target);
+                }
+                target += size;
+            }
+            pos += size;
+        }
+        dataEnd = target;
+        garbage = 0;
+    }
+
+    /**
+     * counts a record as garbage, and compacts the log if half of
+     * it is garbage.
+     */
+    private void discard(long pos) {
+        garbage += recordSize(pos);
+        if(garbage > dataEnd / 2) {
+            compactLog();
+        }
+    }
+
+    private byte[] keyOf(long pos) {
+        byte[] key = new byte[data.getInt(pos)];
+        data.get(pos + RECORD_HEADER, key, 0, key.length);
+        return key;
+    }
+
+    private byte[] valueOf(long pos) {
+        int keyLength = data.getInt(pos);
+        byte[] value = new byte[data.getInt(pos + 4)];
+        data.get(pos + RECORD_HEADER + keyLength, value, 0, value.length);
+        return value;
+    }
+
+
+    // ------------------- the index ------------------------
+
+
+    /**
+     * returns the number of mappings which fit into a hash table of some
+     * size (two thirds of it, so probing stays short).
+     */
+    private static int usable(int tableSize) {
+        return tableSize - tableSize / 3;
+    }
+
+    private static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * the place in the hash table where the probing for a hash code
+     * starts.
+     */
+    private int start(int hash) {
+        return (hash * GOLDEN) >>>
+            Integer.numberOfLeadingZeros(tableSize - 1);
+    }
+
+    private long place(int p) {
+        return table.getLong(8L * p);
+    }
+
+    private void setPlace(int p, long value) {
+        table.putLong(8L * p, value);
+    }
+
+    private static long placeValue(int hash, int slot) {
+        return ((long)hash << 32) | (slot + 1);
+    }
+
+    private long offset(int slot) {
+        return offsets.getLong(8L * slot);
+    }
+
+    private void setOffset(int slot, long pos) {
+        offsets.putLong(8L * slot, pos);
+    }
+
+    /**
+     * creates an empty hash table and offset array with room for at
+     * least {@code count} mappings.
+     */
+    private void allocateIndex(int count) {
+        int size = MIN_TABLE_SIZE;
+        while(usable(size) < count) {
+            if(size >= (1 << 30)) {
+                throw new OutOfMemoryError("OffHeapIndexedMap too big");
+            }
+            size <<= 1;
+        }
+        tableSize = size;
+        table = OffHeapArena.allocate(8L * size);
+        offsets = OffHeapArena.allocate(8L * usable(size));
+    }
+
+    /**
+     * removes the tombstones and rebuilds the hash table with room for
+     * at least {@code count} mappings.
+     *
+     * This method runs in O(n) time.
+     */
+    private void resize(int count) {
+        OffHeapArena oldOffsets = offsets;
+        int oldUsed = used;
+        allocateIndex(count);
+        int live = 0;
+        for(int i = 0; i < oldUsed; i++) {
+            long pos = oldOffsets.getLong(8L * i);
+            if(pos != REMOVED) {
+                setOffset(live, pos);
+                live++;
+            }
+        }
+        used = live;
+        dead = 0;
+        ranks = null;
+        compactions++;
+        fillTable();
+    }
+
+    /**
+     * fills the (empty) hash table from the offsets (without tombstones).
+     */
+    private void fillTable() {
+        int mask = tableSize - 1;
+        for(int slot = 0; slot < used; slot++) {
+            int hash = data.getInt(offset(slot) + 8);
+            int p = start(hash);
+            while(place(p) != FREE) {
+                p = (p + 1) & mask;
+            }
+            setPlace(p, placeValue(hash, slot));
+        }
+        filled = used;
+    }
+
+    /**
+     * finds the place of a key in the hash table.
+     * @return the place, or -1 if the key is not in the map.
+     */
+    private int find(byte[] key, int hash) {
+        int mask = tableSize - 1;
+        for(int p = start(hash); ; p = (p + 1) & mask) {
+            long place = place(p);
+            if(place == FREE) {
+                return -1;
+            }
+            if(place != DUMMY && (int)(place >>> 32) == hash) {
+                long pos = offset((int)place - 1);
+                if(data.getInt(pos) == key.length &&
+                   data.equals(pos + RECORD_HEADER, key)) {
+                    return p;
+                }
+            }
+        }
+    }
+
+    /**
+     * returns the slot of a key, or -1 if the key is not in the map.
+     */
+    private int slotOf(Object key) {
+        if(!(key instanceof byte[])) {
+            return -1;
+        }
+        byte[] bytes = (byte[])key;
+        int p = find(bytes, hash(bytes));
+        return p < 0 ? -1 : (int)place(p) - 1;
+    }
+
+    /**
+     * returns the slot of the record at some position, or -1 if the
+     * record is garbage.
+     */
+    private int slotOfRecord(long pos) {
+        int hash = data.getInt(pos + 8);
+        int mask = tableSize - 1;
+        for(int p = start(hash); ; p = (p + 1) & mask) {
+            long place = place(p);
+            if(place == FREE) {
+                return -1;
+            }
+            if(place != DUMMY && (int)(place >>> 32) == hash &&
+               offset((int)place - 1) == pos) {
+                return (int)place - 1;
+            }
+        }
+    }
+
+    /**
+     * adds a new mapping (whose key must not be in the map yet) at the end.
+     */
+    private void append(byte[] key, byte[] value) {
+        modify();
+        if(used == usable(tableSize) || filled == usable(tableSize)) {
+            // compacts, if there are many tombstones, else doubles.
+            resize(size() + size() / 2 + 1);
+        }
+        int hash = hash(key);
+        int mask = tableSize - 1;
+        int p = start(hash);
+        while(place(p) != FREE && place(p) != DUMMY) {
+            p = (p + 1) & mask;
+        }
+        if(place(p) == FREE) {
+            filled++;
+        }
+        int slot = used++;
+        setPlace(p, placeValue(hash, slot));
+        setOffset(slot, appendRecord(key, value, hash));
+        if(ranks != null) {
+            ranks.add(slot, 1);
+        }
+        modCount++;
+    }
+
+    /**
+     * adds a new mapping (whose key must not be in the map yet) at some
+     * index, moving the following ones.
+     *
+     * This method runs in O(n) time.
+     */
+    private void insert(int index, byte[] key, byte[] value) {
+        modify();
+        if(dead > 0 || used == usable(tableSize)) {
+            resize(size() + size() / 2 + 1);
+        }
+        for(int slot = used - 1; slot >= index; slot--) {
+            setOffset(slot + 1, offset(slot));
+        }
+        setOffset(index, appendRecord(key, value, hash(key)));
+        used++;
+        table = OffHeapArena.allocate(8L * tableSize);
+        ranks = null;
+        fillTable();
+        modCount++;
+    }
+
+    /**
+     * changes the value of the mapping in some slot.
+     * @return the old value.
+     */
+    private byte[] setValue(int slot, byte[] value) {
+        modify();
+        long pos = offset(slot);
+        byte[] old = valueOf(pos);
+        if(old.length == value.length) {
+            data.put(pos + RECORD_HEADER + data.getInt(pos),
+                     value, 0, value.length);
+        }
+        else {
+            setOffset(slot, appendRecord(keyOf(pos), value,
+                                         data.getInt(pos + 8)));
+            discard(pos);
+        }
+        return old;
+    }
+
+    /**
+     * removes the mapping at some place of the hash table, leaving a
+     * tombstone, and compacts the offsets if there are too many of them.
+     * @return the old value.
+     */
+    private byte[] removeAt(int p) {
+        modify();
+        int slot = (int)place(p) - 1;
+        long pos = offset(slot);
+        byte[] old = valueOf(pos);
+        setPlace(p, DUMMY);
+        setOffset(slot, REMOVED);
+        if(ranks != null) {
+            ranks.add(slot, -1);
+        }
+        dead++;
+        // tombstones at the end are not needed.
+        while(used > 0 && offset(used - 1) == REMOVED) {
+            used--;
+            dead--;
+        }
+        modCount++;
+        discard(pos);
+        if(dead > used / 4) {
+            resize(usable(tableSize));
+        }
+        return old;
+    }
+
+    /**
+     * removes the mapping in some slot.
+     */
+    private byte[] removeSlot(int slot) {
+        long pos = offset(slot);
+        return removeAt(find(keyOf(pos), data.getInt(pos + 8)));
+    }
+
+    /**
+     * returns the slot of some index.
+     *
+     * This method runs in O(1) time if there are no tombstones,
+     * else in O(log n).
+     *
+     * @throws IndexOutOfBoundsException if there is no such index.
+     */
+    private int slot(int index) {
+        if(index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index +
+                                                ", size: " + size());
+        }
+        if(dead == 0) {
+            return index;
+        }
+        if(ranks == null) {
+            int[] live = new int[used];
+            for(int i = 0; i < used; i++) {
+                live[i] = offset(i) == REMOVED ? 0 : 1;
+            }
+            ranks = new FenwickTree(live, used, usable(tableSize));
+        }
+        return ranks.select(index);
+    }
+
+    /**
+     * an entry of this map, which writes through. It remembers its slot,
+     * and searches it again by key after a compaction.
+     */
+    private final class SlotEntry implements Map.Entry<byte[],byte[]> {
+        private final byte[] key;
+        private int slot;
+
+        SlotEntry(int slot) {
+            this.key = keyOf(offset(slot));
+            this.slot = slot;
+        }
+
+        /**
+         * returns the current slot of our key.
+         * @throws IllegalStateException if the mapping was removed.
+         */
+        private int slot() {
+            long pos = (slot < used) ? offset(slot) : REMOVED;
+            if(pos == REMOVED || data.getInt(pos) != key.length ||
+               !data.equals(pos + RECORD_HEADER, key)) {
+                int newSlot = slotOf(key);
+                if(newSlot < 0) {
+                    throw new IllegalStateException("entry was removed");
+                }
+                slot = newSlot;
+            }
+            return slot;
+        }
+
+        public byte[] getKey() {
+            return key.clone();
+        }
+
+        public byte[] getValue() {
+            return valueOf(offset(slot()));
+        }
+
+        public byte[] setValue(byte[] value) {
+            return OffHeapIndexedMap.this.setValue(slot(),
+                                                   checkNotNull(value));
+        }
+
+        public boolean equals(Object o) {
+            if(!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return (e.getKey() instanceof byte[]) &&
+                (e.getValue() instanceof byte[]) &&
+                Arrays.equals(key, (byte[])e.getKey()) &&
+                Arrays.equals(getValue(), (byte[])e.getValue());
+        }
+
+        public int hashCode() {
+            return Arrays.hashCode(key) ^ Arrays.hashCode(getValue());
+        }
+
+        public String toString() {
+            return Arrays.toString(key) + "=" + Arrays.toString(getValue());
+        }
+    }
+
+    /**
+     * an iterator over the slots in index order, which skips the
+     * tombstones.
+     */
+    private abstract class SlotIterator<E> implements Iterator<E> {
+
+        /**
+         * the slot where we start searching for the next mapping.
+         */
+        private int slot;
+        /**
+         * the index of the next mapping.
+         */
+        private int index;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+        private int expectedCompactions = compactions;
+
+        /**
+         * returns the element for a slot.
+         */
+        abstract E extract(int slot);
+
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        public E next() {
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            while(offset(slot) == REMOVED) {
+                slot++;
+            }
+            lastReturned = slot;
+            slot++;
+            index++;
+            return extract(lastReturned);
+        }
+
+        public void remove() {
+            if(lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot(lastReturned);
+            lastReturned = -1;
+            index--;
+            if(compactions != expectedCompactions) {
+                // the slots are dense now.
+                slot = index;
+                expectedCompactions = compactions;
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+
+    // ------------------- map operations ------------------------
+
+
+    private static byte[] checkNotNull(byte[] array) {
+        if(array == null) {
+            throw new NullPointerException();
+        }
+        return array;
+    }
+
+    /**
+     * puts a new key-value mapping, or changes an existing one.
+     *
+     * If new, the mapping gets an index at the end (i.e. {@link #size()}
+     * before it gets increased).
+     *
+     * This method runs in O(1) time for changing an existing value,
+     *  amortized O(1) time for adding a new value (plus the time for
+     *  copying the key and value).
+     *
+     * @return (a copy of) the old value, if such, else null.
+     */
+    public byte[] put(byte[] key, byte[] value) {
+        checkNotNull(value);
+        int p = find(checkNotNull(key), hash(key));
+        if(p < 0) {
+            append(key, value);
+            return null;
+        }
+        return setValue((int)place(p) - 1, value);
+    }
+
+    /**
+     * retrieves the value for a key.
+     *
+     *   This method runs in O(1) time (plus the time for comparing the
+     *   key and copying the value).
+     *
+     * @return null if there is no such mapping,
+     *   else a copy of the value for the key.
+     */
+    public byte[] get(Object key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : valueOf(offset(slot));
+    }
+
+    /**
+     * returns true if the given key is in the map.
+     *
+     *   This method runs in O(1) time.
+     */
+    public boolean containsKey(Object key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * returns true if some key is mapped to the given value.
+     *
+     *   This method runs in O(n) time.
+     */
+    public boolean containsValue(Object value) {
+        if(!(value instanceof byte[])) {
+            return false;
+        }
+        for(int slot = 0; slot < used; slot++) {
+            long pos = offset(slot);
+            if(pos != REMOVED &&
+               Arrays.equals(valueOf(pos), (byte[])value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * removes a key from the map.
+     *
+     *   This method runs in amortized O(1) time.
+     *
+     * @return (a copy of) the old value, if any.
+     */
+    public byte[] remove(Object key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : removeSlot(slot);
+    }
+
+    /**
+     * returns the number of mappings in this map.
+     */
+    public int size() {
+        return used - dead;
+    }
+
+    /**
+     * removes all mappings from this map.
+     */
+    public void clear() {
+        modify();
+        allocateIndex(0);
+        used = 0;
+        dead = 0;
+        filled = 0;
+        dataEnd = 0;
+        garbage = 0;
+        ranks = null;
+        modCount++;
+    }
+
+    /**
+     * returns (a copy of) a key by index.
+     *
+     *   This method runs in O(1) time (O(log n) while there are
+     *   tombstones).
+     */
+    public byte[] getKey(int index) {
+        return keyOf(offset(slot(index)));
+    }
+
+    /**
+     * returns (a copy of) a value by index.
+     *
+     *   This method runs in O(1) time (O(log n) while there are
+     *   tombstones).
+     */
+    public byte[] getValue(int index) {
+        return valueOf(offset(slot(index)));
+    }
+
+    /**
+     * compares this map to another map. Other than
+     * {@link AbstractMap#equals}, this compares the values by their
+     * contents, so two maps with the same contents are equal (and have
+     * the same hash code).
+     *
+     *   This method runs in O(n) time, if the other map's get method
+     *   runs in O(1).
+     */
+    public boolean equals(Object o) {
+        if(o == this) {
+            return true;
+        }
+        if(!(o instanceof Map)) {
+            return false;
+        }
+        Map<?,?> that = (Map<?,?>)o;
+        if(that.size() != size()) {
+            return false;
+        }
+        try {
+            for(int slot = 0; slot < used; slot++) {
+                long pos = offset(slot);
+                if(pos == REMOVED) {
+                    continue;
+                }
+                Object value = that.get(keyOf(pos));
+                if(!(value instanceof byte[]) ||
+                   !Arrays.equals(valueOf(pos), (byte[])value)) {
+                    return false;
+                }
+            }
+        }
+        catch(ClassCastException ex) {
+            // the other map doesn't take byte[] keys.
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * returns a string view of this map, with the keys and values shown
+     * by their contents (like {@link Arrays#toString(byte[])}).
+     */
+    public String toString() {
+        StringBuilder b = new StringBuilder("{");
+        for(int slot = 0; slot < used; slot++) {
+            long pos = offset(slot);
+            if(pos == REMOVED) {
+                continue;
+            }
+            if(b.length() > 1) {
+                b.append(", ");
+            }
+            b.append(Arrays.toString(keyOf(pos))).append('=')
+                .append(Arrays.toString(valueOf(pos)));
+        }
+        return b.append('}').toString();
+    }
+
+
+    // ----------------------- views ----------------------------
+
+
+    /**
+     * Returns a set view of the keys of this map (which contains copies
+     * of the keys).
+     *
+     * This set view is ordered by the indexes.
+     *
+     * It supports removal by key or iterator in amortized O(1) time.
+     * Containment check runs in O(1).
+     */
+    public Set<byte[]> keySet() {
+        return new AbstractSet<byte[]>() {
+            public void clear() {
+                OffHeapIndexedMap.this.clear();
+            }
+            public int size() {
+                return OffHeapIndexedMap.this.size();
+            }
+            public Iterator<byte[]> iterator() {
+                return keyList().iterator();
+            }
+            public boolean remove(Object key) {
+                return keyList().remove(key);
+            }
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }  // keySet()
+
+    /**
+     * Returns a set view of the entries of this map.
+     *
+     * This set view is ordered by the indexes. Its entries write through
+     * to the map (as long as their mapping is not removed).
+     *
+     * It supports removal by entry or iterator in amortized O(1) time.
+     *
+     * It supports adding new entries at the end, if the key
+     * is not already used in this map, in amortized O(1) time.
+     *
+     * Containment check runs in O(1).
+     */
+    public Set<Map.Entry<byte[],byte[]>> entrySet() {
+        return new AbstractSet<Map.Entry<byte[],byte[]>>() {
+            public void clear() {
+                OffHeapIndexedMap.this.clear();
+            }
+            public int size() {
+                return OffHeapIndexedMap.this.size();
+            }
+            public Iterator<Map.Entry<byte[],byte[]>> iterator() {
+                return entryList().iterator();
+            }
+            public boolean add(Map.Entry<byte[],byte[]> e) {
+                return entryList().add(e);
+            }
+            public boolean contains(Object o) {
+                return entryList().contains(o);
+            }
+            public boolean remove(Object o) {
+                return entryList().remove(o);
+            }
+        };
+    }  // entrySet()
+
+    /**
+     * Returns a list view of the entries of this map.
+     *
+     * This list view is ordered by the indexes. Its entries write through
+     * to the map (as long as their mapping is not removed).
+     *
+     * It supports removal by entry, index or iterator in amortized O(1)
+     * time.
+     *
+     * It supports adding new entries at the end, if the key
+     * is not already used in this map, in amortized O(1) time.
+     * Adding somewhere else needs O(n) time.
+     *
+     * Containment check runs in O(1).
+     */
+    public List<Map.Entry<byte[],byte[]>> entryList() {
+        return new AbstractList<Map.Entry<byte[],byte[]>>() {
+            public void clear() {
+                OffHeapIndexedMap.this.clear();
+            }
+            public Map.Entry<byte[],byte[]> get(int index) {
+                return new SlotEntry(slot(index));
+            }
+            public int size() {
+                return OffHeapIndexedMap.this.size();
+            }
+            public Iterator<Map.Entry<byte[],byte[]>> iterator() {
+                return new SlotIterator<Map.Entry<byte[],byte[]>>() {
+                    Map.Entry<byte[],byte[]> extract(int slot) {
+                        return new SlotEntry(slot);
+                    }
+                };
+            }
+            public Map.Entry<byte[],byte[]> remove(int index) {
+                int slot = slot(index);
+                byte[] key = keyOf(offset(slot));
+                return new SimpleEntry<byte[],byte[]>(key, removeSlot(slot));
+            }
+            public void add(int index, Map.Entry<byte[],byte[]> newEntry) {
+                byte[] key = checkNotNull(newEntry.getKey()).clone();
+                byte[] value = checkNotNull(newEntry.getValue()).clone();
+                if(containsKey(key)) {
+                    throw new IllegalArgumentException("duplicate key " +
+                                                       Arrays.toString(key));
+                }
+                if(index < 0 || index > size()) {
+                    throw new IndexOutOfBoundsException("index: " + index +
+                                                        ", size: " + size());
+                }
+                if(index == size()) {
+                    append(key, value);
+                }
+                else {
+                    insert(index, key, value);
+                }
+            }
+
+            public boolean contains(Object o) {
+                if(o instanceof Map.Entry) {
+                    Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                    int slot = slotOf(e.getKey());
+                    return slot >= 0 && (e.getValue() instanceof byte[]) &&
+                        Arrays.equals(valueOf(offset(slot)),
+                                      (byte[])e.getValue());
+                }
+                return false;
+            }
+
+            public boolean remove(Object o) {
+                if(contains(o)) {
+                    removeSlot(slotOf(((Map.Entry<?,?>)o).getKey()));
+                    return true;
+                }
+                return false;
+            }
+        };
+    }   // entryList()
+
+    /**
+     * Returns a List view of (copies of) the keys in this map.
+     *
+     * It allows index read access and key containment check in O(1)
+     * (O(log n) while there are tombstones).
+     * Changing a key is not allowed.
+     *
+     * Removal by key, index or iterator runs in amortized O(1) time
+     * (this removes the corresponding values, too).
+     */
+    public List<byte[]> keyList() {
+        return new AbstractList<byte[]>() {
+            public void clear() {
+                OffHeapIndexedMap.this.clear();
+            }
+            public byte[] get(int index) {
+                return getKey(index);
+            }
+            public int size() {
+                return OffHeapIndexedMap.this.size();
+            }
+            public Iterator<byte[]> iterator() {
+                return new SlotIterator<byte[]>() {
+                    byte[] extract(int slot) {
+                        return keyOf(offset(slot));
+                    }
+                };
+            }
+            public byte[] remove(int index) {
+                int slot = slot(index);
+                byte[] key = keyOf(offset(slot));
+                removeSlot(slot);
+                return key;
+            }
+            public boolean remove(Object key) {
+                int slot = slotOf(key);
+                if(slot < 0) {
+                    return false;
+                }
+                removeSlot(slot);
+                return true;
+            }
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }  // keyList()
+
+    /**
+     * Returns a List view of (copies of) the values in this map.
+     *
+     * It allows get and set by index in O(1) time (set changes the mapping),
+     * or O(log n) while there are tombstones.
+     *
+     * Removal by index or iterator runs in amortized O(1) time, this
+     * removes the corresponding keys too.
+     *
+     * Containment check needs an iteration, thus O(n) time.
+     */
+    public List<byte[]> values() {
+        return new AbstractList<byte[]>() {
+            public int size() {
+                return OffHeapIndexedMap.this.size();
+            }
+            public void clear() {
+                OffHeapIndexedMap.this.clear();
+            }
+            public byte[] get(int index) {
+                return getValue(index);
+            }
+            public byte[] set(int index, byte[] newValue) {
+                return setValue(slot(index), checkNotNull(newValue));
+            }
+            public Iterator<byte[]> iterator() {
+                return new SlotIterator<byte[]>() {
+                    byte[] extract(int slot) {
+                        return valueOf(offset(slot));
+                    }
+                };
+            }
+            public boolean contains(Object value) {
+                return containsValue(value);
+            }
+            public byte[] remove(int index) {
+                return removeSlot(slot(index));
+            }
+        };
+    }  // values()
+
+
+    /**
+     * an usage example method: stores the arguments (as pairs of key and
+     * value) in a file, and reads them back after reopening it.
+     */
+    public static void main(String[] args)
+        throws IOException
+    {
+        Charset utf8 = Charset.forName("UTF-8");
+        File file = File.createTempFile("OffHeapIndexedMap", ".map");
+        file.deleteOnExit();
+        OffHeapIndexedMap map = create(file);
+        for(int i = 0; i < args.length-1; i+=2) {
+            map.put(args[i].getBytes(utf8), args[i+1].getBytes(utf8));
+        }
+        map.close();
+
+        map = open(file);
+        for(int i = 0; i < map.size(); i++) {
+            System.out.println(i + ": " +
+                               new String(map.getKey(i), utf8) + " = " +
+                               new String(map.getValue(i), utf8));
+        }
+        map.close();
+    }
+
+}
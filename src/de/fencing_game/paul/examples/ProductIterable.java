@@ -1,6 +1,7 @@
 package de.fencing_game.paul.examples;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * A iterable over the cartesian product of a iterable of iterables
@@ -54,6 +55,151 @@ public class ProductIterable<X>
         return new ProductIterator();
     }
 
+    /**
+     * creates a cursor over the elements of the cartesian product, which
+     * doesn't create any objects for each tuple (in contrast to the
+     * {@link #iterator iterator}).
+     *<p>
+     * The cursor takes a snapshot of the factors (and of their elements)
+     * in the moment this method is called, which needs
+     * O(sum of the factor sizes) time and memory.
+     *</p>
+     */
+    public Cursor<X> cursor() {
+        return new Cursor<X>(factors);
+    }
+
+    /**
+     * calls an action for each element of the cartesian product, in the
+     * same order as the iterator, but without creating an object for each
+     * tuple: the action always gets the same (unmodifiable) list, which
+     * shows the current tuple. So it should not keep the list (only a copy
+     * of it).
+     *
+     * @see #cursor
+     */
+    public void forEachTuple(Consumer<? super List<X>> action) {
+        Cursor<X> cursor = cursor();
+        List<X> tuple = cursor.tuple();
+        while(cursor.advance()) {
+            action.accept(tuple);
+        }
+    }
+
+    /**
+     * calls an action for each element of the cartesian product, giving
+     * the positions of its components in the factors (in the order of
+     * the factors' iterators). The action always gets the same array,
+     * which it should neither modify nor keep.
+     *
+     * @see #cursor
+     */
+    public void forEachIndexTuple(Consumer<? super int[]> action) {
+        Cursor<X> cursor = cursor();
+        int[] indexes = cursor.indexes();
+        while(cursor.advance()) {
+            action.accept(indexes);
+        }
+    }
+
+    /**
+     * A cursor over the cartesian product, which doesn't create any
+     * objects after its creation.
+     *<p>
+     * The cursor is positioned before the first tuple at the start, and
+     * {@link #advance} moves it to the next one. It counts up the
+     * positions in the factors like an odometer (the last one runs
+     * fastest), which takes amortized O(1) time for each tuple.
+     * The current tuple is shown by {@link #tuple} (a live view) and by
+     * {@link #indexes}.
+     *</p>
+     */
+    public static final class Cursor<X> {
+
+        /**
+         * the elements of the factors.
+         */
+        private final Object[][] factors;
+        /**
+         * the positions of the current tuple's components in the factors.
+         */
+        private final int[] indexes;
+        /**
+         * the live view of the current tuple.
+         */
+        private final List<X> tuple;
+        private boolean started;
+        private boolean done;
+
+        Cursor(Iterable<? extends Iterable<? extends X>> factors) {
+            List<Object[]> snapshot = new ArrayList<Object[]>();
+            for(Iterable<? extends X> fac : factors) {
+                List<X> elements = new ArrayList<X>();
+                for(X x : fac) {
+                    elements.add(x);
+                }
+                done |= elements.isEmpty();
+                snapshot.add(elements.toArray());
+            }
+            this.factors = snapshot.toArray(new Object[snapshot.size()][]);
+            this.indexes = new int[this.factors.length];
+            this.tuple = new AbstractList<X>() {
+                    public int size() {
+                        return indexes.length;
+                    }
+                    @SuppressWarnings("unchecked")
+                    public X get(int i) {
+                        return (X)Cursor.this.factors[i][indexes[i]];
+                    }
+                };
+        }
+
+        /**
+         * moves the cursor to the next tuple.
+         * @return true if there is a next tuple, false if we
+         *   are through (then the cursor stays behind the last tuple).
+         */
+        public boolean advance() {
+            if(done) {
+                return false;
+            }
+            if(!started) {
+                started = true;
+                return true;
+            }
+            int i = indexes.length - 1;
+            while(i >= 0 && ++indexes[i] == factors[i].length) {
+                indexes[i] = 0;
+                i--;
+            }
+            if(i < 0) {
+                done = true;
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * returns an unmodifiable live view of the current tuple. This is
+         * always the same list, which changes with each {@link #advance}
+         * call. (Its contents are only meaningful after
+         * {@code advance()} returned true.)
+         */
+        public List<X> tuple() {
+            return tuple;
+        }
+
+        /**
+         * returns the positions of the current tuple's components in the
+         * factors. This is always the same array, which changes with each
+         * {@link #advance} call. Don't modify it.
+         */
+        public int[] indexes() {
+            return indexes;
+        }
+
+    }  // class Cursor
+
     /**
      * the class implementing our iterator.
      */
@@ -228,6 +374,13 @@ public class ProductIterable<X>
             new ProductIterable<Object>(factors);
 
         System.out.println("product: " + Utils.asList(product));
+
+        ProductIterable.Cursor<Object> cursor =
+            new ProductIterable<Object>(factors).cursor();
+        while(cursor.advance()) {
+            System.out.println(Arrays.toString(cursor.indexes()) +
+                               " -> " + cursor.tuple());
+        }
     }
 
 }
@@ -1,6 +1,8 @@
 package de.fencing_game.paul.examples;
 
+import java.math.BigInteger;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * The cartesian product of lists, in an (unmodifiable) index-based
@@ -23,8 +25,17 @@ import java.util.*;
  * you'll get inconsistent results.
  *</p>
  * <p>
- *   The product of the sizes of the component lists should be smaller than
- *   Integer.MAX_INT, otherwise you'll get strange behaviour.
+ *   The product of the sizes of the component lists may be bigger than
+ *   {@link Integer#MAX_VALUE}: then {@link #size} returns
+ *   {@code Integer.MAX_VALUE} (as required by {@link Collection#size}),
+ *   and the whole list is available by {@link #longSize},
+ *   {@link #get(long)}, {@link #longIndexOf} and {@link #longLastIndexOf},
+ *   and by the {@link #spliterator} (and so by {@link #stream}). For
+ *   products bigger than {@link Long#MAX_VALUE}, there is still
+ *   {@link #bigSize}, {@link #contains} and the spliterator.
+ *   The int-based methods of {@link List} (like the iterators, or
+ *   {@link #indexOf}) only see the first {@code Integer.MAX_VALUE}
+ *   elements.
  * </p>
  * 
  *<p>
@@ -36,6 +47,9 @@ public class ProductList<X>
     extends AbstractList<List<X>>
 {
 
+    private final static BigInteger LONG_MAX =
+        BigInteger.valueOf(Long.MAX_VALUE);
+
     private List<? extends List<? extends X>> factors;
 
     /**
@@ -48,15 +62,64 @@ public class ProductList<X>
     /**
      * calculates the total size of this list.
      * This method takes O(# factors) time.
+     *
+     * @return the size, or {@link Integer#MAX_VALUE} if the list
+     *   has more elements.
      */
     public int size() {
-        int product = 1;
+        long product = 1;
         for(List<?> l : factors) {
             product *= l.size();
+            if(product > Integer.MAX_VALUE) {
+                // an empty factor later would still make the product 0.
+                return isEmptyProduct() ? 0 : Integer.MAX_VALUE;
+            }
+        }
+        return (int)product;
+    }
+
+    /**
+     * calculates the total size of this list as a long.
+     * This method takes O(# factors) time.
+     *
+     * @throws ArithmeticException if the size is bigger than
+     *   {@link Long#MAX_VALUE}. (Use {@link #bigSize} then.)
+     */
+    public long longSize() {
+        if(isEmptyProduct()) {
+            return 0;
+        }
+        long product = 1;
+        for(List<?> l : factors) {
+            product = Math.multiplyExact(product, l.size());
         }
         return product;
     }
 
+    /**
+     * calculates the total size of this list, without any limit.
+     * This method takes O((# factors)²) time, as the numbers grow.
+     */
+    public BigInteger bigSize() {
+        BigInteger product = BigInteger.ONE;
+        for(List<?> l : factors) {
+            product = product.multiply(BigInteger.valueOf(l.size()));
+        }
+        return product;
+    }
+
+    /**
+     * checks whether one of the factors is empty (so the product is, too).
+     */
+    private boolean isEmptyProduct() {
+        for(List<?> l : factors) {
+            if(l.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * returns an element of the product list by index.
      *
@@ -71,50 +134,98 @@ public class ProductList<X>
      * of this product list. (You may freely modify it like an array.)
      */
     public List<X> get(int index) {
+        return get((long)index);
+    }
+
+    /**
+     * returns an element of the product list by a long index, which
+     * also works for lists with more than {@link Integer#MAX_VALUE}
+     * elements. This works like {@link #get(int)}.
+     */
+    public List<X> get(long index) {
+        return tuple(digits(index));
+    }
+
+    /**
+     * calculates the indexes in the factors for an index in the product.
+     */
+    private int[] digits(long index) {
         if(index < 0)
             throw new IndexOutOfBoundsException("index " + index+ " < 0");
 
-        List<X> result = Utils.createFixedList(factors.size());
+        int[] digits = new int[factors.size()];
 
         // we iteratively lookup the components, using
         // modulo and division to calculate the right
         // indexes.
         for(int i = factors.size() - 1; i >= 0; i--) {
-            List<? extends X> subList = factors.get(i);
-            int subIndex = index % subList.size();
-            result.set(i, subList.get(subIndex));
-            index = index / subList.size();
+            int n = factors.get(i).size();
+            if(n == 0)
+                throw new IndexOutOfBoundsException("too large index");
+            digits[i] = (int)(index % n);
+            index = index / n;
         }
         if(index > 0)
             throw new IndexOutOfBoundsException("too large index");
 
+        return digits;
+    }
+
+    /**
+     * calculates the indexes in the factors for a BigInteger index in the
+     * product (which needs to be valid).
+     */
+    private int[] digits(BigInteger index) {
+        int[] digits = new int[factors.size()];
+        for(int i = factors.size() - 1; i >= 0; i--) {
+            BigInteger[] qr =
+                index.divideAndRemainder(BigInteger.valueOf(factors.get(i)
+                                                            .size()));
+            digits[i] = qr[1].intValue();
+            index = qr[0];
+        }
+        return digits;
+    }
+
+    /**
+     * creates a tuple from the indexes in the factors.
+     */
+    private List<X> tuple(int[] digits) {
+        List<X> result = Utils.createFixedList(digits.length);
+        for(int i = 0; i < digits.length; i++) {
+            result.set(i, factors.get(i).get(digits[i]));
+        }
         return result;
     }
 
+    /**
+     * steps the indexes in the factors to the next tuple, like an
+     * odometer (the last index runs fastest). This takes amortized O(1)
+     * time. There needs to be a next tuple.
+     */
+    private void step(int[] digits) {
+        int i = digits.length - 1;
+        while(++digits[i] == factors.get(i).size()) {
+            digits[i] = 0;
+            i--;
+        }
+    }
+
     /**
      * an optimized indexOf() implementation, runs in
      * O(sum n_i) instead of O(prod n_i)
      * (if the individual indexOf() calls take O(n_i) time).
      *
      * Runs in O(1) space.
+     *
+     * @return the index, or -1 if the list doesn't contain the element,
+     *   or its index is bigger than {@link Integer#MAX_VALUE}.
+     *   (Use {@link #longIndexOf} then.)
      */
     public int indexOf(Object o)
     {
-        if(!(o instanceof List))
-            return -1;
-        List<?> list = (List<?>)o;
-        if (list.size() != factors.size())
-            return -1;
-        int index = 0;
-        for(int i = 0; i < factors.size(); i++) {
-            List<?> subList = factors.get(i);
-            Object candidate = list.get(i);
-            int subIndex = subList.indexOf(candidate);
-            if(subIndex < 0)
-                return -1;
-            index = index * subList.size() + subIndex;
-        }
-        return index;
+        long index = index(o, false, Integer.MAX_VALUE);
+        return index < 0 ? -1 : (int)index;
     }
 
     /**
@@ -122,31 +233,279 @@ public class ProductList<X>
      * O(sum n_i) time instead of O(prod n_i) time
      * (if the individual indexOf() calls take O(n_i) time).
      * Runs in O(1) space.
+     *
+     * @return the index, or -1 if the list doesn't contain the element,
+     *   or its index is bigger than {@link Integer#MAX_VALUE}.
+     *   (Use {@link #longLastIndexOf} then.)
      */
     public int lastIndexOf(Object o)
     {
+        long index = index(o, true, Integer.MAX_VALUE);
+        return index < 0 ? -1 : (int)index;
+    }
+
+    /**
+     * the long version of {@link #indexOf}, for lists with more than
+     * {@link Integer#MAX_VALUE} elements.
+     *
+     * @return the index, or -1 if the list doesn't contain the element.
+     * @throws ArithmeticException if the index is bigger than
+     *   {@link Long#MAX_VALUE}.
+     */
+    public long longIndexOf(Object o) {
+        return checked(index(o, false, Long.MAX_VALUE));
+    }
+
+    /**
+     * the long version of {@link #lastIndexOf}, for lists with more than
+     * {@link Integer#MAX_VALUE} elements.
+     *
+     * @return the index, or -1 if the list doesn't contain the element.
+     * @throws ArithmeticException if the index is bigger than
+     *   {@link Long#MAX_VALUE}.
+     */
+    public long longLastIndexOf(Object o) {
+        return checked(index(o, true, Long.MAX_VALUE));
+    }
+
+    private static long checked(long index) {
+        if(index == TOO_BIG)
+            throw new ArithmeticException("index bigger than a long");
+        return index;
+    }
+
+    /**
+     * the result of {@link #index} for an element with a too big index.
+     */
+    private final static long TOO_BIG = -2;
+
+    /**
+     * calculates the first or last index of an element, from the indexes
+     * of its components in the factors.
+     *
+     * @param last true for the last index, false for the first one.
+     * @param limit the biggest index we want.
+     * @return the index, -1 if the element is not contained, or
+     *   {@link #TOO_BIG} if it is contained with an index bigger than
+     *   {@code limit}.
+     */
+    private long index(Object o, boolean last, long limit) {
         if(!(o instanceof List))
             return -1;
         List<?> list = (List<?>)o;
         if (list.size() != factors.size())
             return -1;
-        int index = 0;
+        long index = 0;
+        boolean tooBig = false;
         for(int i = 0; i < factors.size(); i++) {
             List<?> subList = factors.get(i);
             Object candidate = list.get(i);
-            int subIndex = subList.lastIndexOf(candidate);
+            int subIndex = last ? subList.lastIndexOf(candidate)
+                : subList.indexOf(candidate);
             if(subIndex < 0)
                 return -1;
-            index = index * subList.size() + subIndex;
+            // we go on after an overflow, as a later component might
+            // still be missing.
+            if(tooBig || index > (limit - subIndex) / subList.size()) {
+                tooBig = true;
+            }
+            else {
+                index = index * subList.size() + subIndex;
+            }
         }
-        return index;
+        return tooBig ? TOO_BIG : index;
     }
 
     /**
-     * an optimized contains check, based on {@link #indexOf}.
+     * an optimized contains check, based on {@link #longIndexOf} (but
+     * working for all sizes).
      */
     public boolean contains(Object o) {
-        return indexOf(o) != -1;
+        return index(o, false, Long.MAX_VALUE) != -1;
+    }
+
+
+    /**
+     * creates a spliterator over the tuples, which splits its index range
+     * in halves (so a {@link #parallelStream parallel stream} of this list
+     * distributes the product evenly). It takes the size of this list when
+     * it is created, and covers the whole product, even beyond
+     * {@link Integer#MAX_VALUE} elements.
+     *<p>
+     * {@link Spliterator#tryAdvance tryAdvance} uses {@link #get(long)},
+     * which takes O(#factors) time for each tuple.
+     * {@link Spliterator#forEachRemaining forEachRemaining} only
+     * calculates the indexes in the factors for the first tuple, and then
+     * counts them up like an odometer, which takes amortized O(1) time
+     * (plus the creation of the tuple) for each following one.
+     *</p>
+     *<p>
+     * If the size is bigger than {@link Long#MAX_VALUE}, the spliterator
+     * uses {@link BigInteger} indexes instead (and is {@link
+     * Spliterator#SIZED SIZED} only for the parts small enough). Its
+     * splitting and {@code tryAdvance} are slower then, its
+     * {@code forEachRemaining} isn't.
+     *</p>
+     */
+    public Spliterator<List<X>> spliterator() {
+        BigInteger size = bigSize();
+        if(size.bitLength() < Long.SIZE) {
+            return new IndexSpliterator(0, size.longValue());
+        }
+        return new BigIndexSpliterator(BigInteger.ZERO, size);
+    }
+
+    /**
+     * the spliterator over a (long) index range of this list.
+     */
+    private class IndexSpliterator
+        implements Spliterator<List<X>>
+    {
+        /**
+         * the index of the next tuple.
+         */
+        private long index;
+        /**
+         * the index after the last tuple.
+         */
+        private final long fence;
+
+        IndexSpliterator(long index, long fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        public Spliterator<List<X>> trySplit() {
+            long mid = (index + fence) >>> 1;
+            if(mid <= index) {
+                return null;
+            }
+            Spliterator<List<X>> prefix = new IndexSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        public boolean tryAdvance(Consumer<? super List<X>> action) {
+            if(action == null)
+                throw new NullPointerException();
+            if(index >= fence) {
+                return false;
+            }
+            action.accept(get(index++));
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super List<X>> action) {
+            if(action == null)
+                throw new NullPointerException();
+            long i = index;
+            if(i >= fence) {
+                return;
+            }
+            index = fence;
+            forEach(digits(i), fence - i, action);
+        }
+
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
+    /**
+     * the spliterator over a {@link BigInteger} index range of this list,
+     * for products bigger than {@link Long#MAX_VALUE}.
+     */
+    private class BigIndexSpliterator
+        implements Spliterator<List<X>>
+    {
+        /**
+         * the index of the next tuple.
+         */
+        private BigInteger index;
+        /**
+         * the index after the last tuple.
+         */
+        private final BigInteger fence;
+
+        BigIndexSpliterator(BigInteger index, BigInteger fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        public Spliterator<List<X>> trySplit() {
+            BigInteger mid = index.add(fence).shiftRight(1);
+            if(mid.compareTo(index) <= 0) {
+                return null;
+            }
+            Spliterator<List<X>> prefix =
+                new BigIndexSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        public boolean tryAdvance(Consumer<? super List<X>> action) {
+            if(action == null)
+                throw new NullPointerException();
+            if(index.compareTo(fence) >= 0) {
+                return false;
+            }
+            List<X> tuple = tuple(digits(index));
+            index = index.add(BigInteger.ONE);
+            action.accept(tuple);
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super List<X>> action) {
+            if(action == null)
+                throw new NullPointerException();
+            BigInteger rest = fence.subtract(index);
+            if(rest.signum() <= 0) {
+                return;
+            }
+            int[] digits = digits(index);
+            index = fence;
+            // in pieces of at most Long.MAX_VALUE tuples (which we
+            // will hardly get through anyway).
+            while(rest.compareTo(LONG_MAX) > 0) {
+                forEach(digits, Long.MAX_VALUE, action);
+                step(digits);
+                rest = rest.subtract(LONG_MAX);
+            }
+            forEach(digits, rest.longValue(), action);
+        }
+
+        public long estimateSize() {
+            BigInteger rest = fence.subtract(index);
+            return rest.compareTo(LONG_MAX) > 0 ?
+                Long.MAX_VALUE : rest.longValue();
+        }
+
+        public int characteristics() {
+            if(fence.subtract(index).compareTo(LONG_MAX) <= 0) {
+                return ORDERED | SIZED | SUBSIZED | NONNULL;
+            }
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /**
+     * gives some tuples to an action, starting with the one with the given
+     * indexes in the factors. After this, the indexes belong to the last
+     * tuple given.
+     */
+    private void forEach(int[] digits, long count,
+                         Consumer<? super List<X>> action) {
+        while(true) {
+            action.accept(tuple(digits));
+            if(--count <= 0) {
+                return;
+            }
+            step(digits);
+        }
     }
 
 
@@ -169,6 +528,16 @@ public class ProductList<X>
                            product.indexOf(example));
         System.out.println("lastIndexOf(" + example +") = " +
                            product.lastIndexOf(example));
+        System.out.println("parallel count: " +
+                           product.parallelStream().count());
+
+        List<List<?>> digits =
+            Collections.<List<?>>nCopies(12, Arrays.asList(0,1,2,3,4,5,6,
+                                                            7,8,9));
+        ProductList<Object> big = new ProductList<Object>(digits);
+        System.out.println("size() = " + big.size() +
+                           ", longSize() = " + big.longSize());
+        System.out.println("get(123456789012L) = " + big.get(123456789012L));
     }
 
 
@@ -0,0 +1,787 @@
+package de.fencing_game.paul.examples;
+
+import java.util.*;
+
+/**
+ * A {@link Map2D} for sparse matrices, implemented as an
+ * <em>orthogonal list</em>: each mapping is a node which is linked
+ * (in both directions) into the list of its row (all nodes with the same
+ * first key) and into the list of its column (all nodes with the same
+ * second key).
+ * <p>
+ *   The rows and columns are found by HashMaps from the keys, and the
+ *   nodes themselves are additionally chained in a hash table over the
+ *   pairs of keys, so {@link #get}, {@link #put} and {@link #remove} run
+ *   in O(1) time (without creating {@link Map2D.KeyPair} objects).
+ * </p>
+ * <p>
+ *   The inner maps of the {@link #projection1Map() projections} are live
+ *   views of a row or column: their iteration runs in time proportional
+ *   to the size of the row or column, not of the whole map, and nothing
+ *   is copied. The entries are the nodes themselves, so they stay valid
+ *   (and write through) until their mapping is removed, and removal
+ *   (by any view) unlinks a node in O(1) time.
+ * </p>
+ * <p>
+ *   The entry set iterates the map row by row (in the order the rows
+ *   were created), each row in insertion order.
+ * </p>
+ * <p>
+ *   Compared to {@link HashMap2D}, this needs more memory per mapping
+ *   (a node object with eleven fields), but never compacts anything,
+ *   and removing rows or columns is cheaper.
+ * </p>
+ * <p>
+ *   This map allows null keys and values. It is not thread-safe. The
+ *   iterators of the views are fail-fast.
+ * </p>
+ *
+ * @param <K1> the first (row) key type.
+ * @param <K2> the second (column) key type.
+ * @param <V> the value type.
+ * @author Paŭlo Ebermann
+ */
+public class SparseMap2D<K1,K2,V>
+    extends AbstractMap2D<K1,K2,V>
+{
+
+    /**
+     * the minimal number of buckets of the hash table.
+     */
+    private final static int MIN_BUCKETS = 16;
+
+    /**
+     * the multiplier for the Fibonacci hashing (2³² divided by the
+     * golden ratio).
+     */
+    private final static int GOLDEN = 0x9E3779B9;
+
+    /**
+     * a mapping, linked into its row, its column and its hash bucket.
+     */
+    private static final class Node<K1,K2,V>
+        extends AbstractEntry<K1,K2,V>
+    {
+        final K1 key1;
+        final K2 key2;
+        V value;
+        final int hash;
+
+        /**
+         * the neighbours in the row.
+         */
+        Node<K1,K2,V> prev1, next1;
+        /**
+         * the neighbours in the column.
+         */
+        Node<K1,K2,V> prev2, next2;
+        /**
+         * our row and column.
+         */
+        Line<K1,K2,V> row, column;
+        /**
+         * the next node in the same bucket.
+         */
+        Node<K1,K2,V> nextInBucket;
+
+        Node(K1 key1, K2 key2, V value, int hash) {
+            this.key1 = key1;
+            this.key2 = key2;
+            this.value = value;
+            this.hash = hash;
+        }
+
+        public K1 getKey1() {
+            return key1;
+        }
+
+        public K2 getKey2() {
+            return key2;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            V old = this.value;
+            this.value = value;
+            return old;
+        }
+    }
+
+    /**
+     * a row or a column: the list of the nodes with some key. The lines of
+     * each direction are linked in the order of their creation, too.
+     */
+    private static final class Line<K1,K2,V> {
+        final Object key;
+        Node<K1,K2,V> head, tail;
+        int size;
+        Line<K1,K2,V> prev, next;
+
+        Line(Object key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * all the lines of one direction.
+     */
+    private static final class Lines<K1,K2,V> {
+        final Map<Object,Line<K1,K2,V>> byKey =
+            new HashMap<Object,Line<K1,K2,V>>();
+        Line<K1,K2,V> first, last;
+
+        Line<K1,K2,V> get(Object key) {
+            return byKey.get(key);
+        }
+
+        /**
+         * returns the line of some key, creating it (at the end) if
+         * needed.
+         */
+        Line<K1,K2,V> getOrCreate(Object key) {
+            Line<K1,K2,V> line = byKey.get(key);
+            if(line == null) {
+                line = new Line<K1,K2,V>(key);
+                byKey.put(key, line);
+                line.prev = last;
+                if(last == null) {
+                    first = line;
+                }
+                else {
+                    last.next = line;
+                }
+                last = line;
+            }
+            return line;
+        }
+
+        /**
+         * removes an (empty) line.
+         */
+        void remove(Line<K1,K2,V> line) {
+            byKey.remove(line.key);
+            if(line.prev == null) {
+                first = line.next;
+            }
+            else {
+                line.prev.next = line.next;
+            }
+            if(line.next == null) {
+                last = line.prev;
+            }
+            else {
+                line.next.prev = line.prev;
+            }
+        }
+
+        void clear() {
+            byKey.clear();
+            first = last = null;
+        }
+    }
+
+
+    /**
+     * the hash table of the nodes. Its length is a power of two.
+     */
+    private Node<K1,K2,V>[] buckets;
+
+    /**
+     * the rows (by first key) and columns (by second key).
+     */
+    private final Lines<K1,K2,V> rows, columns;
+
+    private int size;
+
+    /**
+     * the number of structural modifications, for the fail-fast iterators.
+     */
+    private int modCount;
+
+
+    /**
+     * creates a new empty SparseMap2D.
+     */
+    public SparseMap2D() {
+        this.buckets = newBuckets(MIN_BUCKETS);
+        this.rows = new Lines<K1,K2,V>();
+        this.columns = new Lines<K1,K2,V>();
+    }
+
+    /**
+     * creates a new SparseMap2D with the mappings of another Map2D.
+     */
+    public SparseMap2D(Map2D<? extends K1, ? extends K2, ? extends V> map) {
+        this();
+        putAll(map);
+    }
+
+
+    // ------------------- the hash table ------------------------
+
+
+    @SuppressWarnings("unchecked")
+    private static <K1,K2,V> Node<K1,K2,V>[] newBuckets(int length) {
+        return (Node<K1,K2,V>[])new Node<?,?,?>[length];
+    }
+
+    /**
+     * combines the hash codes of two keys.
+     */
+    private static int hash(Object key1, Object key2) {
+        return hash(key1) * GOLDEN + hash(key2);
+    }
+
+    /**
+     * the bucket of a hash code, by Fibonacci hashing.
+     */
+    private int bucket(int hash) {
+        return (hash * GOLDEN) >>>
+            Integer.numberOfLeadingZeros(buckets.length - 1);
+    }
+
+    /**
+     * returns the node of a pair of keys, or null.
+     */
+    private Node<K1,K2,V> find(Object key1, Object key2) {
+        int hash = hash(key1, key2);
+        for(Node<K1,K2,V> node = buckets[bucket(hash)]; node != null;
+            node = node.nextInBucket) {
+            if(node.hash == hash && eq(node.key1, key1) &&
+               eq(node.key2, key2)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * doubles the number of buckets.
+     */
+    private void grow() {
+        Node<K1,K2,V>[] old = buckets;
+        buckets = newBuckets(old.length * 2);
+        for(Node<K1,K2,V> node : old) {
+            while(node != null) {
+                Node<K1,K2,V> following = node.nextInBucket;
+                int b = bucket(node.hash);
+                node.nextInBucket = buckets[b];
+                buckets[b] = node;
+                node = following;
+            }
+        }
+    }
+
+
+    // ------------------- adding and removing ------------------------
+
+
+    /**
+     * adds a new node at the ends of its row and column.
+     */
+    private void add(Node<K1,K2,V> node) {
+        if(size >= buckets.length - buckets.length / 4) {
+            grow();
+        }
+        int b = bucket(node.hash);
+        node.nextInBucket = buckets[b];
+        buckets[b] = node;
+
+        Line<K1,K2,V> row = rows.getOrCreate(node.key1);
+        node.row = row;
+        node.prev1 = row.tail;
+        if(row.tail == null) {
+            row.head = node;
+        }
+        else {
+            row.tail.next1 = node;
+        }
+        row.tail = node;
+        row.size++;
+
+        Line<K1,K2,V> column = columns.getOrCreate(node.key2);
+        node.column = column;
+        node.prev2 = column.tail;
+        if(column.tail == null) {
+            column.head = node;
+        }
+        else {
+            column.tail.next2 = node;
+        }
+        column.tail = node;
+        column.size++;
+
+        size++;
+        modCount++;
+    }
+
+    /**
+     * removes a node from the hash table, its row and its column (and
+     * removes the row or column if it gets empty).
+     *
+     * This method runs in O(1) time.
+     */
+    private void removeNode(Node<K1,K2,V> node) {
+        int b = bucket(node.hash);
+        if(buckets[b] == node) {
+            buckets[b] = node.nextInBucket;
+        }
+        else {
+            Node<K1,K2,V> before = buckets[b];
+            while(before.nextInBucket != node) {
+                before = before.nextInBucket;
+            }
+            before.nextInBucket = node.nextInBucket;
+        }
+
+        Line<K1,K2,V> row = node.row;
+        if(node.prev1 == null) {
+            row.head = node.next1;
+        }
+        else {
+            node.prev1.next1 = node.next1;
+        }
+        if(node.next1 == null) {
+            row.tail = node.prev1;
+        }
+        else {
+            node.next1.prev1 = node.prev1;
+        }
+        if(--row.size == 0) {
+            rows.remove(row);
+        }
+
+        Line<K1,K2,V> column = node.column;
+        if(node.prev2 == null) {
+            column.head = node.next2;
+        }
+        else {
+            node.prev2.next2 = node.next2;
+        }
+        if(node.next2 == null) {
+            column.tail = node.prev2;
+        }
+        else {
+            node.next2.prev2 = node.prev2;
+        }
+        if(--column.size == 0) {
+            columns.remove(column);
+        }
+
+        size--;
+        modCount++;
+    }
+
+    /**
+     * removes all nodes of a row or column.
+     *
+     * This method runs in O(size of the line) time.
+     */
+    private void removeLine(Line<K1,K2,V> line, boolean row) {
+        Node<K1,K2,V> node = line.head;
+        while(node != null) {
+            Node<K1,K2,V> following = row ? node.next1 : node.next2;
+            removeNode(node);
+            node = following;
+        }
+    }
+
+
+    // ------------------- map operations ------------------------
+
+
+    /**
+     * returns the number of mappings in this map.
+     *
+     *   This method runs in O(1) time.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * returns true if this map contains a mapping for the specified key pair.
+     *
+     *   This method runs in O(1) time.
+     */
+    public boolean containsKeys(Object key1, Object key2) {
+        return find(key1, key2) != null;
+    }
+
+    /**
+     * returns true if this map contains a row with this key.
+     *
+     *   This method runs in O(1) time.
+     */
+    public boolean containsKey1(Object key1) {
+        return rows.get(key1) != null;
+    }
+
+    /**
+     * returns true if this map contains a column with this key.
+     *
+     *   This method runs in O(1) time.
+     */
+    public boolean containsKey2(Object key2) {
+        return columns.get(key2) != null;
+    }
+
+    /**
+     * retrieves an element from the map.
+     *
+     *   This method runs in O(1) time.
+     *
+     * @return null if there is no such pair of keys, else the value.
+     */
+    public V get(K1 key1, K2 key2) {
+        Node<K1,K2,V> node = find(key1, key2);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * puts a new element in the map. A new mapping is added at the end of
+     * its row and its column.
+     *
+     *   This method runs in O(1) time (amortized, for a new mapping).
+     *
+     * @return the old value, or null, if there was no such mapping.
+     */
+    public V put(K1 key1, K2 key2, V value) {
+        Node<K1,K2,V> node = find(key1, key2);
+        if(node != null) {
+            return node.setValue(value);
+        }
+        add(new Node<K1,K2,V>(key1, key2, value, hash(key1, key2)));
+        return null;
+    }
+
+    /**
+     * removes a mapping from this map.
+     *
+     *   This method runs in O(1) time.
+     *
+     * @return the old value, or null, if there was no such mapping.
+     */
+    public V remove(Object key1, Object key2) {
+        Node<K1,K2,V> node = find(key1, key2);
+        if(node == null) {
+            return null;
+        }
+        removeNode(node);
+        return node.value;
+    }
+
+    /**
+     * clears this map.
+     */
+    public void clear() {
+        buckets = newBuckets(MIN_BUCKETS);
+        rows.clear();
+        columns.clear();
+        size = 0;
+        modCount++;
+    }
+
+
+    // ------------------- iterators ------------------------
+
+
+    /**
+     * a fail-fast iterator over nodes, which finds the following node
+     * before returning one (so removing it doesn't disturb us).
+     */
+    private abstract class NodeIterator<E> implements Iterator<E> {
+        private Node<K1,K2,V> next;
+        private Node<K1,K2,V> lastReturned;
+        private int expectedModCount = modCount;
+
+        NodeIterator(Node<K1,K2,V> first) {
+            this.next = first;
+        }
+
+        /**
+         * returns the node after some node.
+         */
+        abstract Node<K1,K2,V> following(Node<K1,K2,V> node);
+
+        /**
+         * returns the element for a node.
+         */
+        abstract E extract(Node<K1,K2,V> node);
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public E next() {
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if(next == null) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = following(next);
+            return extract(lastReturned);
+        }
+
+        public void remove() {
+            if(lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if(modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeNode(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * an iterator over all nodes, row by row.
+     */
+    private abstract class RowMajorIterator<E> extends NodeIterator<E> {
+        RowMajorIterator() {
+            super(rows.first == null ? null : rows.first.head);
+        }
+
+        Node<K1,K2,V> following(Node<K1,K2,V> node) {
+            if(node.next1 != null) {
+                return node.next1;
+            }
+            Line<K1,K2,V> nextRow = node.row.next;
+            return nextRow == null ? null : nextRow.head;
+        }
+    }
+
+
+    // ------------------- views ------------------------
+
+
+    /**
+     * returns a collection view of this map's entries, row by row.
+     * The entries write through to the map.
+     *
+     * It supports removal by entry or iterator in O(1) time.
+     * Containment check runs in O(1).
+     */
+    public Set<Map2D.Entry<K1,K2,V>> entrySet() {
+        return new AbstractSet<Map2D.Entry<K1,K2,V>>() {
+            public int size() {
+                return size;
+            }
+            public void clear() {
+                SparseMap2D.this.clear();
+            }
+            public Iterator<Map2D.Entry<K1,K2,V>> iterator() {
+                return new RowMajorIterator<Map2D.Entry<K1,K2,V>>() {
+                    Map2D.Entry<K1,K2,V> extract(Node<K1,K2,V> node) {
+                        return node;
+                    }
+                };
+            }
+            public boolean contains(Object o) {
+                if(!(o instanceof Map2D.Entry)) {
+                    return false;
+                }
+                Map2D.Entry<?,?,?> e = (Map2D.Entry<?,?,?>)o;
+                Node<K1,K2,V> node = find(e.getKey1(), e.getKey2());
+                return node != null && eq(node.value, e.getValue());
+            }
+            public boolean remove(Object o) {
+                if(!contains(o)) {
+                    return false;
+                }
+                Map2D.Entry<?,?,?> e = (Map2D.Entry<?,?,?>)o;
+                removeNode(find(e.getKey1(), e.getKey2()));
+                return true;
+            }
+        };
+    }  // entrySet()
+
+    /**
+     * returns a set view of the row keys, in the order the rows were
+     * created.
+     *
+     * Its size and containment check run in O(1), removal of a key
+     * (which removes its row) in O(size of the row).
+     */
+    protected Set<K1> keySet1() {
+        return new LineKeySet<K1>(rows, true);
+    }
+
+    /**
+     * returns a set view of the column keys, in the order the columns
+     * were created.
+     *
+     * Its size and containment check run in O(1), removal of a key
+     * (which removes its column) in O(size of the column).
+     */
+    protected Set<K2> keySet2() {
+        return new LineKeySet<K2>(columns, false);
+    }
+
+    /**
+     * returns a collection view of a row.
+     *
+     * Its size runs in O(1), its iteration in O(size of the row).
+     */
+    protected Collection<Map2D.Entry<K1,K2,V>> slice1(Object key1) {
+        return new LineView(rows, key1, true);
+    }
+
+    /**
+     * returns a collection view of a column.
+     *
+     * Its size runs in O(1), its iteration in O(size of the column).
+     */
+    protected Collection<Map2D.Entry<K1,K2,V>> slice2(Object key2) {
+        return new LineView(columns, key2, false);
+    }
+
+    /**
+     * a view of the nodes of the row or column with some key. It finds
+     * the line again for each operation, so it stays valid when the line
+     * is removed and created again.
+     */
+    private final class LineView
+        extends AbstractCollection<Map2D.Entry<K1,K2,V>>
+    {
+        private final Lines<K1,K2,V> lines;
+        private final Object key;
+        /**
+         * true for a row, false for a column.
+         */
+        private final boolean row;
+
+        LineView(Lines<K1,K2,V> lines, Object key, boolean row) {
+            this.lines = lines;
+            this.key = key;
+            this.row = row;
+        }
+
+        public int size() {
+            Line<K1,K2,V> line = lines.get(key);
+            return line == null ? 0 : line.size;
+        }
+
+        public void clear() {
+            Line<K1,K2,V> line = lines.get(key);
+            if(line != null) {
+                removeLine(line, row);
+            }
+        }
+
+        public Iterator<Map2D.Entry<K1,K2,V>> iterator() {
+            Line<K1,K2,V> line = lines.get(key);
+            return new NodeIterator<Map2D.Entry<K1,K2,V>>
+                (line == null ? null : line.head) {
+                Node<K1,K2,V> following(Node<K1,K2,V> node) {
+                    return row ? node.next1 : node.next2;
+                }
+                Map2D.Entry<K1,K2,V> extract(Node<K1,K2,V> node) {
+                    return node;
+                }
+            };
+        }
+    }
+
+    /**
+     * a view of the keys of the rows or columns.
+     */
+    private final class LineKeySet<K> extends AbstractSet<K> {
+        private final Lines<K1,K2,V> lines;
+        /**
+         * true for the rows, false for the columns.
+         */
+        private final boolean row;
+
+        LineKeySet(Lines<K1,K2,V> lines, boolean row) {
+            this.lines = lines;
+            this.row = row;
+        }
+
+        public int size() {
+            return lines.byKey.size();
+        }
+
+        public boolean contains(Object key) {
+            return lines.get(key) != null;
+        }
+
+        public boolean remove(Object key) {
+            Line<K1,K2,V> line = lines.get(key);
+            if(line == null) {
+                return false;
+            }
+            removeLine(line, row);
+            return true;
+        }
+
+        public void clear() {
+            SparseMap2D.this.clear();
+        }
+
+        public Iterator<K> iterator() {
+            return new Iterator<K>() {
+                private Line<K1,K2,V> next = lines.first;
+                private Line<K1,K2,V> lastReturned;
+                private int expectedModCount = modCount;
+
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @SuppressWarnings("unchecked")
+                public K next() {
+                    if(modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if(next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    lastReturned = next;
+                    next = next.next;
+                    return (K)lastReturned.key;
+                }
+
+                public void remove() {
+                    if(lastReturned == null) {
+                        throw new IllegalStateException();
+                    }
+                    if(modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    // removing a row only removes columns, and the other
+                    // way around, so our next line stays.
+                    removeLine(lastReturned, row);
+                    lastReturned = null;
+                    expectedModCount = modCount;
+                }
+            };
+        }
+    }
+
+
+    /**
+     * an usage example method: fills a sparse identity-like matrix with
+     * some extra entries and prints a row and a column.
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        SparseMap2D<Integer,Integer,Double> matrix =
+            new SparseMap2D<Integer,Integer,Double>();
+        for(int i = 0; i < n; i++) {
+            matrix.put(i, i, 1.0);
+            matrix.put(i, (i * 7 + 3) % n, 0.5);
+        }
+        System.out.println(matrix);
+        System.out.println("row 0: " + matrix.projection1Map().get(0));
+        System.out.println("column 3: " + matrix.projection2Map().get(3));
+    }
+
+}
@@ -0,0 +1,62 @@
+package de.fencing_game.paul.examples.jmh;
+
+import de.fencing_game.paul.examples.DecimalBigInt;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for the arithmetic of {@link DecimalBigInt}, each
+ * with the same operation of {@link BigInteger} as a baseline.
+ * <p>
+ * Run them with {@code ant bench.jmh}.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArithmeticBenchmark {
+
+    /**
+     * the divisor for the short division.
+     */
+    private final static int SMALL_DIVISOR = 123456789;
+    private final static BigInteger BIG_SMALL_DIVISOR =
+        BigInteger.valueOf(SMALL_DIVISOR);
+
+    @Benchmark
+    public DecimalBigInt decimalPlus(Operands o) {
+        return o.decimalX.plus(o.decimalY);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerPlus(Operands o) {
+        return o.bigX.add(o.bigY);
+    }
+
+    @Benchmark
+    public DecimalBigInt decimalTimes(Operands o) {
+        return o.decimalX.times(o.decimalY);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerTimes(Operands o) {
+        return o.bigX.multiply(o.bigY);
+    }
+
+    @Benchmark
+    public DecimalBigInt decimalDivideBy(Operands o) {
+        return o.decimalX.divideBy(SMALL_DIVISOR);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerDivideBy(Operands o) {
+        return o.bigX.divide(BIG_SMALL_DIVISOR);
+    }
+
+}
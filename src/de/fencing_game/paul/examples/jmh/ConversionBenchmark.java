@@ -0,0 +1,63 @@
+package de.fencing_game.paul.examples.jmh;
+
+import de.fencing_game.paul.examples.DecimalBigInt;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for the conversions of {@link DecimalBigInt} from and
+ * to decimal and other radixes, each with the corresponding operation
+ * of {@link BigInteger} as a baseline.
+ * <p>
+ * Note that {@code new BigInteger(String)} takes quadratic time, so
+ * {@link #bigIntegerValueOf} needs some minutes for the biggest sizes.
+ * Run them with {@code ant bench.jmh}.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+    /**
+     * the radix for {@link DecimalBigInt#convertTo}.
+     */
+    private final static int RADIX = 16;
+
+    @Benchmark
+    public String decimalToDecimalString(Operands o) {
+        return o.decimalX.toDecimalString();
+    }
+
+    @Benchmark
+    public String bigIntegerToString(Operands o) {
+        return o.bigX.toString();
+    }
+
+    @Benchmark
+    public DecimalBigInt decimalValueOf(Operands o) {
+        return DecimalBigInt.valueOf(o.decimalString);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerValueOf(Operands o) {
+        return new BigInteger(o.decimalString);
+    }
+
+    @Benchmark
+    public int[] decimalConvertTo(Operands o) {
+        return o.decimalX.convertTo(RADIX);
+    }
+
+    @Benchmark
+    public String bigIntegerToStringRadix(Operands o) {
+        return o.bigX.toString(RADIX);
+    }
+
+}
@@ -0,0 +1,101 @@
+package de.fencing_game.paul.examples.jmh;
+
+import de.fencing_game.paul.examples.DecimalBigInt;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The operands for our benchmarks: two random numbers with the
+ * same number of limbs (i.e. digits in the internal base 10⁹ of
+ * {@link DecimalBigInt}), both as DecimalBigInt and as {@link BigInteger}.
+ * <p>
+ * The sweep over the sizes can be restricted with JMH's {@code -p} option,
+ * e.g. {@code -p limbs=1,100,10000}.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+@State(Scope.Benchmark)
+public class Operands {
+
+    /**
+     * the radix used to transfer the numbers to BigInteger. This is
+     * the biggest power of two below {@link DecimalBigInt#RADIX}, so
+     * the transfer takes linear time (apart from our own conversion).
+     * ({@code new BigInteger(String)} takes quadratic time, which is
+     * too much for a million limbs. Even so, the setup takes about half
+     * a minute for these.)
+     */
+    private final static int TRANSFER_BITS = 29;
+
+    /**
+     * the number of limbs of each operand.
+     */
+    @Param({"1", "10", "100", "1000", "10000", "100000", "1000000"})
+    public int limbs;
+
+    public DecimalBigInt decimalX;
+    public DecimalBigInt decimalY;
+    public BigInteger bigX;
+    public BigInteger bigY;
+
+    /**
+     * the decimal representation of x.
+     */
+    public String decimalString;
+
+    /**
+     * creates the operands, the same ones for each run with
+     * the same size.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(limbs);
+        decimalX = randomNumber(random, limbs);
+        decimalY = randomNumber(random, limbs);
+        bigX = toBigInteger(decimalX);
+        bigY = toBigInteger(decimalY);
+        decimalString = decimalX.toDecimalString();
+    }
+
+    /**
+     * creates a random positive number with the given number of limbs.
+     */
+    private static DecimalBigInt randomNumber(Random random, int limbs) {
+        int[] digits = new int[limbs];
+        for(int i = 0; i < limbs; i++) {
+            digits[i] = random.nextInt(DecimalBigInt.RADIX);
+        }
+        digits[0] = 1 + random.nextInt(DecimalBigInt.RADIX - 1);
+        return new DecimalBigInt(digits);
+    }
+
+    /**
+     * converts a nonnegative DecimalBigInt to a BigInteger, by
+     * packing its base-2²⁹ digits into a byte array.
+     */
+    static BigInteger toBigInteger(DecimalBigInt value) {
+        int[] digits = value.convertTo(1 << TRANSFER_BITS);
+        byte[] bytes = new byte[(digits.length * TRANSFER_BITS + 7) / 8];
+        // we fill the bytes from the end (the least significant one).
+        int index = bytes.length;
+        long buffer = 0;
+        int bufferBits = 0;
+        for(int i = digits.length - 1; i >= 0; i--) {
+            buffer |= (long)digits[i] << bufferBits;
+            bufferBits += TRANSFER_BITS;
+            while(bufferBits >= 8) {
+                bytes[--index] = (byte)buffer;
+                buffer >>>= 8;
+                bufferBits -= 8;
+            }
+        }
+        if(bufferBits > 0) {
+            bytes[--index] = (byte)buffer;
+        }
+        return new BigInteger(1, bytes);
+    }
+
+}
@@ -0,0 +1,93 @@
+package de.fencing_game.paul.examples.jmh;
+
+import de.fencing_game.paul.examples.ProductIterable;
+import de.fencing_game.paul.examples.ProductList;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for the enumeration of a cartesian product: a parallel
+ * and a sequential stream of {@link ProductList} (which use its index
+ * spliterator), the allocation-free cursor of {@link ProductIterable},
+ * and its iterator as the baseline. Each benchmark sums the first
+ * component of all tuples.
+ * <p>
+ * The product has {@code 10^factors} tuples, by default 10⁸, so each
+ * call takes some seconds. Smaller runs can be selected with
+ * {@code -p factors=6}.
+ * </p>
+ * @author Paŭlo Ebermann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductBenchmark {
+
+    /**
+     * the number of factors, each of which has ten elements.
+     */
+    @Param({"8"})
+    public int factors;
+
+    private List<List<Integer>> lists;
+
+    /**
+     * extracts the first component of a tuple.
+     */
+    private final static ToLongFunction<List<Integer>> FIRST =
+        new ToLongFunction<List<Integer>>() {
+            public long applyAsLong(List<Integer> tuple) {
+                return tuple.get(0);
+            }
+        };
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Integer> digits = new ArrayList<Integer>();
+        for(int i = 0; i < 10; i++) {
+            digits.add(i);
+        }
+        lists = Collections.nCopies(factors, digits);
+    }
+
+    @Benchmark
+    public long productListParallel() {
+        return new ProductList<Integer>(lists).parallelStream()
+            .mapToLong(FIRST).sum();
+    }
+
+    @Benchmark
+    public long productListSequential() {
+        return new ProductList<Integer>(lists).stream()
+            .mapToLong(FIRST).sum();
+    }
+
+    @Benchmark
+    public long productIterableSequential() {
+        long sum = 0;
+        for(List<Integer> tuple : new ProductIterable<Integer>(lists)) {
+            sum += tuple.get(0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long productIterableCursor() {
+        long sum = 0;
+        ProductIterable.Cursor<Integer> cursor =
+            new ProductIterable<Integer>(lists).cursor();
+        List<Integer> tuple = cursor.tuple();
+        while(cursor.advance()) {
+            sum += tuple.get(0);
+        }
+        return sum;
+    }
+
+}